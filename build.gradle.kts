@@ -35,10 +35,68 @@ dependencies {
 
     // Test
     testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testRuntimeOnly("com.h2database:h2")
+}
+
+// Vectorised base64/hex decoding (see BlobDecoder); without the module the scalar code is used
+val vectorModule = listOf("--add-modules", "jdk.incubator.vector")
+
+// Only VectorBlobDecoder in the main sources compiles against the module, so only that task
+// prints javac's "using incubating module(s)" warning (no -Xlint key turns it off)
+tasks.named<JavaCompile>("compileJava") {
+    options.compilerArgs.addAll(vectorModule)
 }
 
 tasks.withType<Test> {
-    useJUnitPlatform()
+    jvmArgs(vectorModule)
+}
+
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark", "perf")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the decoder throughput benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
+tasks.register<Test>("perfTest") {
+    description = "Runs the CLI end to end on a generated export against throughput and heap budgets."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("perf")
+    }
+    // Heap budgets only compare across runs with the same heap
+    maxHeapSize = "1g"
+    val commit = providers.exec {
+        commandLine("git", "rev-parse", "--short", "HEAD")
+        isIgnoreExitValue = true
+    }.standardOutput.asText.map { it.trim().ifEmpty { "unknown" } }
+    doFirst {
+        systemProperty("nimrod.perf.commit", commit.get())
+    }
+    systemProperty("nimrod.perf.results", layout.buildDirectory.dir("perf-results").get().asFile.path)
+    // -Pperf.rows=..., -Pperf.minRowsPerSec[.<format>]=..., -Pperf.maxHeapMb[.<format>]=...
+    providers.gradlePropertiesPrefixedBy("perf.").get().forEach { (name, value) ->
+        systemProperty("nimrod.$name", value)
+    }
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
+tasks.named<JavaExec>("bootRun") {
+    jvmArgs(vectorModule)
 }
 
 springBoot {
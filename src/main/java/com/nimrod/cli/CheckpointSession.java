@@ -0,0 +1,163 @@
+package com.nimrod.cli;
+
+import com.nimrod.output.RowWriter;
+import com.nimrod.progress.Checkpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records the progress of a {@code --checkpoint}ed decode and knows where a restarted run
+ * has to pick up.
+ *
+ * <p>{@link #reached} is called on the writing thread after each row that ends a resumable
+ * input chunk. At most once per interval it flushes the output and the dead letters and
+ * hands a checkpoint to a background thread, which forces both to disk and then saves the
+ * checkpoint atomically, so a checkpoint never points past output a crash could still lose.
+ * If saves fall behind, only the newest pending checkpoint is written. Neither the decode
+ * workers nor the writer wait for the disk.</p>
+ */
+final class CheckpointSession implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointSession.class);
+
+    private final Path file;
+    private final File input;
+    private final File output;
+    private final Checkpoint start;
+    private final long intervalNanos;
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "nimrod-checkpoint");
+        t.setDaemon(true);
+        return t;
+    });
+    private long lastSaved = System.nanoTime();
+
+    /** A checkpoint waiting to be saved, with the dead-letter file it counts, if any. */
+    private record Pending(Checkpoint checkpoint, File deadLetters) {}
+
+    private CheckpointSession(Path file, File input, File output, Checkpoint start, Duration interval) {
+        this.file = file;
+        this.input = input;
+        this.output = output;
+        this.start = start;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Load the checkpoint in {@code file}, if any, and check that it belongs to this input
+     * and output.
+     *
+     * @throws IllegalArgumentException if the checkpoint was written for another run
+     */
+    static CheckpointSession open(Path file, File input, File output, Duration interval) throws IOException {
+        Checkpoint existing = Checkpoint.load(file);
+        if (existing != null && (!existing.input().equals(input.getAbsolutePath())
+                || !existing.output().equals(output.getAbsolutePath()))) {
+            throw new IllegalArgumentException("Checkpoint " + file + " belongs to " + existing.input()
+                    + " -> " + existing.output() + "; remove it to start over");
+        }
+        return new CheckpointSession(file, input, output, existing, interval);
+    }
+
+    /** True if a previous run left a checkpoint to continue from. */
+    boolean resuming() {
+        return start != null;
+    }
+
+    long inputOffset() {
+        return start != null ? start.inputOffset() : 0;
+    }
+
+    long rowsBefore() {
+        return start != null ? start.rows() : 0;
+    }
+
+    long outputPosition() {
+        return start != null ? start.outputPosition() : 0;
+    }
+
+    long deadLetterPosition() {
+        return start != null ? start.deadLetterPosition() : 0;
+    }
+
+    /**
+     * Every row up to and including row {@code rowNumber} (overall, 1-based) has been handed
+     * to {@code writer}, and its dead letters to {@code deadLetters} (null without
+     * {@code --dead-letter}), and input resumes at {@code inputOffset}.
+     */
+    void reached(RowWriter writer, DeadLetterWriter deadLetters, long rowNumber, long inputOffset)
+            throws IOException {
+        long now = System.nanoTime();
+        if (now - lastSaved < intervalNanos) {
+            return;
+        }
+        lastSaved = now;
+        writer.flush();
+        long deadLetterPosition = deadLetters != null ? deadLetters.flush() : 0;
+        submit(new Pending(new Checkpoint(input.getAbsolutePath(), inputOffset, rowNumber,
+                output.getAbsolutePath(), output.length(), deadLetterPosition),
+                deadLetters != null ? deadLetters.file() : null));
+    }
+
+    private void submit(Pending checkpoint) {
+        if (pending.getAndSet(checkpoint) == null) {
+            saver.execute(this::savePending);
+        }
+    }
+
+    private void savePending() {
+        Pending checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            // Everything up to the recorded lengths was flushed before the checkpoint was submitted
+            force(output);
+            if (checkpoint.deadLetters() != null) {
+                force(checkpoint.deadLetters());
+            }
+            checkpoint.checkpoint().save(file);
+        } catch (IOException e) {
+            LOG.warn("Could not save checkpoint {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static void force(File written) throws IOException {
+        try (FileChannel channel = FileChannel.open(written.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+    }
+
+    /** The run finished: nothing is left to resume, so the checkpoint is removed. */
+    void complete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    /** Save any pending checkpoint and stop the background thread. */
+    @Override
+    public void close() {
+        saver.shutdown();
+        try {
+            if (!saver.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("Timed out saving checkpoint {}", file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
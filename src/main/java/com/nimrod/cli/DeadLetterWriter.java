@@ -0,0 +1,134 @@
+package com.nimrod.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimrod.csv.CsvReader.CsvRow;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows that could not be decoded to the {@code --dead-letter} file instead of the
+ * output, one JSON object per failing cell:
+ * <pre>
+ *   {"file":"exports/armies.csv","row":1234,"column":"data",
+ *    "reason":"no schema matches file_identifier 'FBXX'","blob":"EAAAAEZCWFg...","fields":{"id":"4711"}}
+ * </pre>
+ * {@code cell} holds the text of a cell that is not valid base64/hex; {@code blob} holds, as
+ * base64, the bytes of a cell that decoded (and was inflated) but is not a known FlatBuffer,
+ * ready for {@code nimrod decode}. {@code fields} are the row's other columns, to find it
+ * again. {@code file} is left out for {@code --jdbc} rows.
+ *
+ * <p>The decode workers only format the lines ({@link #into}); they are written with the
+ * rows' outputs, so the letters of one input are in row order and the file length after a
+ * row can be recorded in a {@code --checkpoint}.</p>
+ */
+final class DeadLetterWriter implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Receives the failing cells of one input. */
+    @FunctionalInterface
+    interface Rejects {
+        void reject(long rowNumber, String column, String reason, CsvRow row) throws IOException;
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final Writer out;
+    private long count;
+
+    /**
+     * @param position length of the file to keep: 0 to start over, or the length a resumed
+     *                 {@code --checkpoint} recorded, cutting off letters written after it
+     */
+    DeadLetterWriter(File file, long position) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < position) {
+                throw new IOException(file.getName() + " has " + channel.size()
+                        + " bytes, fewer than the committed " + position);
+            }
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.out = new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    /** Rejects that format the failing cells of {@code input}'s rows (null for a query) into {@code letters}. */
+    static Rejects into(String input, List<String> letters) {
+        return (rowNumber, column, reason, row) -> letters.add(letter(input, rowNumber, column, reason, row));
+    }
+
+    private static String letter(String input, long rowNumber, String column, String reason, CsvRow row)
+            throws IOException {
+        Map<String, Object> letter = new LinkedHashMap<>();
+        if (input != null) {
+            letter.put("file", input);
+        }
+        letter.put("row", rowNumber);
+        letter.put("column", column);
+        letter.put("reason", reason);
+        ByteBuffer blob = row.binaryColumns().get(column);
+        if (blob != null) {
+            letter.put("blob", Base64.getEncoder().encodeToString(bytes(blob)));
+        } else {
+            letter.put("cell", row.stringColumns().get(column));
+        }
+        Map<String, String> fields = new LinkedHashMap<>(row.stringColumns());
+        fields.keySet().removeAll(row.undecoded().keySet());
+        letter.put("fields", fields);
+
+        return MAPPER.writeValueAsString(letter) + "\n";
+    }
+
+    /** Append the lines {@link #into} made for one row. */
+    synchronized void write(List<String> letters) throws IOException {
+        for (String line : letters) {
+            out.write(line);
+        }
+        count += letters.size();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(buffer.position(), bytes);
+        return bytes;
+    }
+
+    File file() {
+        return file;
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    /** @return the length of the file once everything written so far is flushed to it */
+    synchronized long flush() throws IOException {
+        out.flush();
+        return channel.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
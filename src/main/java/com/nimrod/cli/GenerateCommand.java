@@ -0,0 +1,310 @@
+package com.nimrod.cli;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.flatbuffers.BlobGenerator;
+import com.nimrod.flatbuffers.SchemaRegistry;
+import com.nimrod.flatbuffers.SchemaRegistry.SchemaEntry;
+import com.nimrod.output.JsonWriter;
+import com.nimrod.progress.ProgressReporter;
+import com.nimrod.progress.ProgressTracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write a synthetic CSV export of random FlatBuffer blobs, for load-testing the reader,
+ * decoder and writers on files far bigger than the test fixtures.
+ *
+ * <p>The export has the layout of the real ones: an {@code id,data} header, then one row per
+ * blob with the row number from 0 and the blob in base64 or hex. Blobs are built with the
+ * generated builders of the registered root types (see {@link BlobGenerator}). The content
+ * of each row depends only on {@code --seed} and the row number, so the same options always
+ * produce the same file, however many threads build it.</p>
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod generate -o /tmp/load.csv --rows 1000000
+ *   nimrod generate -o /tmp/load.csv.gz --size 4g --types FbsDbArmy=3,FbsDbProvince=1 --gzip 0.2 -e hex
+ * </pre>
+ */
+@Component
+@Command(
+    name = "generate",
+    mixinStandardHelpOptions = true,
+    description = "Write a synthetic CSV export of random FlatBuffer blobs of the registered root types, "
+                + "for load testing. The same --seed gives the same file."
+)
+public class GenerateCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenerateCommand.class);
+
+    /** Rows generated per task handed to the worker pool. */
+    private static final int BATCH_SIZE = 256;
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    @Option(names = {"--output", "-o"}, required = true,
+            description = "CSV file to write; a name ending in .gz is gzipped.")
+    private File output;
+
+    @Option(names = {"--rows", "-n"},
+            description = "Number of rows to write.")
+    private Long rows;
+
+    @Option(names = {"--size"}, paramLabel = "<size>",
+            description = "Stop once the CSV text reaches this size, e.g. 500m or 4g (before any .gz compression).")
+    private String size;
+
+    @Option(names = {"--types"}, paramLabel = "<type=weight,...>", split = ",",
+            description = "Root types to generate and their relative frequency, e.g. FbsDbArmy=3,FbsDbProvince=1. "
+                        + "Default: every registered root type, equally often.")
+    private Map<String, Integer> types;
+
+    @Option(names = {"--vector-size"}, paramLabel = "<min-max>", defaultValue = "0-8",
+            description = "Length range of every generated vector. Default: ${DEFAULT-VALUE}")
+    private String vectorSize;
+
+    @Option(names = {"--gzip"}, paramLabel = "<fraction>", defaultValue = "0",
+            description = "Fraction of blobs (0 to 1) to gzip before encoding, as some exports do. "
+                        + "Default: ${DEFAULT-VALUE}")
+    private double gzipFraction;
+
+    @Option(names = {"--encoding", "-e"}, defaultValue = "base64",
+            description = "Encoding of the blobs: base64 or hex (0x-prefixed). Default: ${DEFAULT-VALUE}")
+    private Encoding encoding;
+
+    @Option(names = {"--seed"}, defaultValue = "0",
+            description = "Seed of the random content. Default: ${DEFAULT-VALUE}")
+    private long seed;
+
+    @Option(names = {"--threads", "-t"},
+            description = "Worker threads building blobs. Default: number of CPU cores.")
+    private Integer threads;
+
+    @Option(names = {"--progress-interval"}, defaultValue = "2",
+            description = "Seconds between progress reports on stderr; 0 disables. Default: ${DEFAULT-VALUE}")
+    private int progressInterval;
+
+    private final SchemaRegistry schemaRegistry;
+
+    public GenerateCommand(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    /** Root types to choose from, by cumulative weight. */
+    private record TypeMix(SchemaEntry[] types, int[] cumulativeWeights) {
+
+        SchemaEntry pick(SplittableRandom random) {
+            int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (cumulativeWeights[i] <= point) {
+                i++;
+            }
+            return types[i];
+        }
+    }
+
+    @Override
+    public Integer call() {
+        long maxRows;
+        long maxBytes;
+        BlobGenerator generator;
+        TypeMix mix;
+        try {
+            if (rows == null && size == null) {
+                throw new IllegalArgumentException("give --rows, --size or both.");
+            }
+            if (encoding == Encoding.raw) {
+                throw new IllegalArgumentException("--encoding must be base64 or hex.");
+            }
+            if (!(gzipFraction >= 0 && gzipFraction <= 1)) {
+                throw new IllegalArgumentException("--gzip must be between 0 and 1.");
+            }
+            maxRows = rows != null ? rows : Long.MAX_VALUE;
+            maxBytes = size != null ? Sizes.parse(size, "--size") : Long.MAX_VALUE;
+            int[] bounds = parseVectorSize(vectorSize);
+            generator = new BlobGenerator(bounds[0], bounds[1]);
+            mix = typeMix();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+
+        int threadCount = threads != null && threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = NimrodCommand.newPool(threadCount, "nimrod-worker");
+        ProgressTracker progress = new ProgressTracker(size != null ? maxBytes : ProgressTracker.UNKNOWN);
+        long started = System.nanoTime();
+        long[] written = new long[2]; // rows, bytes
+
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             OutputStream out = JsonWriter.wrapOutput(
+                     Files.newOutputStream(output.toPath()), JsonWriter.compressionFor(output))) {
+
+            byte[] header = "id,data\n".getBytes(StandardCharsets.US_ASCII);
+            out.write(header);
+            written[1] = header.length;
+            // Rows are generated ahead of the sink; those past --size are dropped there, so
+            // the file ends at the same row whatever the timing
+            var batches = new OrderedBatches<Long, byte[]>(
+                    workers, BATCH_SIZE, 2 * threadCount,
+                    row -> line(row, generator, mix),
+                    line -> {
+                        if (written[1] < maxBytes) {
+                            out.write(line);
+                            written[0]++;
+                            written[1] += line.length;
+                            progress.addBytes(line.length);
+                            progress.rowDone();
+                        }
+                    });
+            try {
+                for (long row = 0; row < maxRows && written[1] < maxBytes; row++) {
+                    batches.add(row);
+                }
+                batches.finish();
+            } catch (IOException | RuntimeException e) {
+                batches.cancel();
+                throw e;
+            }
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Generation failed", e);
+            return 1;
+        } finally {
+            workers.shutdownNow();
+        }
+
+        System.err.printf("Generated %,d rows (%,.1f MB of CSV) of %d type(s) into %s in %.1f s, seed %d%n",
+                written[0], written[1] / (1024.0 * 1024.0), mix.types().length, output,
+                (System.nanoTime() - started) / 1e9, seed);
+        return 0;
+    }
+
+    /** The CSV line of row {@code row}: its number and encoded blob. */
+    private byte[] line(long row, BlobGenerator generator, TypeMix mix) {
+        SplittableRandom random = rowRandom(seed, row);
+        byte[] blob = generator.generate(mix.pick(random), random);
+        if (gzipFraction > 0 && random.nextDouble() < gzipFraction) {
+            blob = gzip(blob);
+        }
+        byte[] id = Long.toString(row).getBytes(StandardCharsets.US_ASCII);
+        byte[] cell = encoding == Encoding.hex ? hex(blob) : Base64.getEncoder().encode(blob);
+        byte[] line = new byte[id.length + 1 + cell.length + 1];
+        System.arraycopy(id, 0, line, 0, id.length);
+        line[id.length] = ',';
+        System.arraycopy(cell, 0, line, id.length + 1, cell.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    /**
+     * The random source of one row, seeded from the seed and the row number only; the
+     * finalizer of MurmurHash3 spreads neighbouring rows over unrelated seeds.
+     */
+    static SplittableRandom rowRandom(long seed, long row) {
+        long z = seed + row * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return new SplittableRandom(z ^ (z >>> 33));
+    }
+
+    private static byte[] gzip(byte[] blob) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(blob.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** {@code 0x} and two upper-case digits per byte, as in the exports. */
+    private static byte[] hex(byte[] blob) {
+        byte[] text = new byte[2 + 2 * blob.length];
+        text[0] = '0';
+        text[1] = 'x';
+        for (int i = 0; i < blob.length; i++) {
+            text[2 + 2 * i] = HEX_DIGITS[(blob[i] >> 4) & 0xF];
+            text[3 + 2 * i] = HEX_DIGITS[blob[i] & 0xF];
+        }
+        return text;
+    }
+
+    private TypeMix typeMix() {
+        Map<String, SchemaEntry> schemas = schemaRegistry.getAllSchemas();
+        List<SchemaEntry> chosen = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        if (types == null) {
+            for (SchemaEntry entry : schemas.values()) {
+                chosen.add(entry);
+                weights.add(1);
+            }
+        } else {
+            for (var type : types.entrySet()) {
+                SchemaEntry entry = schemas.get(type.getKey());
+                if (entry == null) {
+                    throw new IllegalArgumentException("Unknown root type '" + type.getKey()
+                            + "'; see 'nimrod schemas' for the registered ones.");
+                }
+                if (type.getValue() < 0) {
+                    throw new IllegalArgumentException("Negative weight for " + type.getKey());
+                }
+                if (type.getValue() > 0) {
+                    chosen.add(entry);
+                    weights.add(type.getValue());
+                }
+            }
+        }
+        if (chosen.isEmpty()) {
+            throw new IllegalArgumentException("No root types to generate.");
+        }
+        int[] cumulative = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            total = Math.addExact(total, weights.get(i));
+            cumulative[i] = total;
+        }
+        return new TypeMix(chosen.toArray(SchemaEntry[]::new), cumulative);
+    }
+
+    /** Parse {@code min-max}, or a single length, into the two inclusive bounds. */
+    private static int[] parseVectorSize(String range) {
+        int dash = range.indexOf('-');
+        try {
+            int min = Integer.parseInt((dash > 0 ? range.substring(0, dash) : range).strip());
+            int max = dash > 0 ? Integer.parseInt(range.substring(dash + 1).strip()) : min;
+            if (min >= 0 && min <= max) {
+                return new int[] {min, max};
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid --vector-size '" + range + "'; expected <min>-<max>, e.g. 0-8");
+    }
+}
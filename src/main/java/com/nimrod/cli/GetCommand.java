@@ -0,0 +1,152 @@
+package com.nimrod.cli;
+
+import com.nimrod.cli.NimrodCommand.Format;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.flatbuffers.FbDecoder;
+import com.nimrod.index.RowIndex;
+import com.nimrod.output.JsonWriter;
+import com.nimrod.output.RowWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decode chosen rows of a CSV export through its row index (see {@link IndexCommand}),
+ * reading only the bytes of those rows.
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod get exports/armies.csv --row 1234567
+ *   nimrod get exports/armies.csv --rows 1000-1099 -f ndjson
+ * </pre>
+ */
+@Component
+@Command(
+    name = "get",
+    mixinStandardHelpOptions = true,
+    description = "Decode single rows or a row range of an indexed CSV export. "
+                + "Rows are numbered from 1, not counting the header."
+)
+public class GetCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GetCommand.class);
+
+    @Parameters(index = "0", paramLabel = "<csv>",
+                description = "The indexed CSV export.")
+    private File csv;
+
+    @Option(names = {"--row"}, paramLabel = "<n>",
+            description = "Row number to decode.")
+    private Long row;
+
+    @Option(names = {"--rows"}, paramLabel = "<from-to>",
+            description = "Inclusive range of rows to decode, e.g. 100-199.")
+    private String rows;
+
+    @Option(names = {"--index"}, paramLabel = "<file>",
+            description = "Index file. Default: the CSV path with .idx appended.")
+    private Path index;
+
+    @Option(names = {"--format", "-f"}, defaultValue = "pretty",
+            description = "Output format: pretty (default), compact, or ndjson.")
+    private Format format;
+
+    @Option(names = {"--output", "-o"},
+            description = "Output file path. Default: stdout.")
+    private File output;
+
+    private final CsvReader csvReader;
+    private final FbDecoder fbDecoder;
+    private final JsonWriter jsonWriter;
+
+    public GetCommand(CsvReader csvReader, FbDecoder fbDecoder, JsonWriter jsonWriter) {
+        this.csvReader = csvReader;
+        this.fbDecoder = fbDecoder;
+        this.jsonWriter = jsonWriter;
+    }
+
+    @Override
+    public Integer call() {
+        if ((row == null) == (rows == null)) {
+            System.err.println("Error: give either --row or --rows.");
+            return 1;
+        }
+        Path indexFile = index != null ? index : RowIndex.sidecarFor(csv);
+        if (!Files.exists(indexFile)) {
+            System.err.println("Error: no index at " + indexFile
+                    + ". Build one with: nimrod index " + csv.getPath());
+            return 1;
+        }
+
+        try {
+            RowIndex rowIndex = RowIndex.open(indexFile);
+            if (!rowIndex.matches(csv)) {
+                System.err.println("Error: " + csv.getPath() + " has changed since it was indexed. "
+                        + "Rebuild the index with: nimrod index " + csv.getPath());
+                return 1;
+            }
+            long[] bounds = row != null ? new long[] {row, row} : parseRange(rows);
+            // Rows in a range are adjacent in the file, so one byte range covers them all
+            CsvReader.Range range = new CsvReader.Range(
+                    rowIndex.entry(bounds[0]).offset(), rowIndex.entry(bounds[1]).end(), bounds[0]);
+            String[] binaryColumns = rowIndex.binaryColumns().toArray(String[]::new);
+
+            LongAdder errors = new LongAdder();
+            long[] rowNumber = {bounds[0]};
+            try (RowWriter writer = jsonWriter.open(format, output)) {
+                csvReader.streamRanges(csv, binaryColumns, rowIndex.encoding(), List.of(range), csvRow -> {
+                    try {
+                        writer.write(NimrodCommand.decodeRow(fbDecoder, csvRow, rowNumber[0]++, null, errors));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (errors.sum() > 0) {
+                System.err.printf("%d decode error(s) encountered. See log for details.%n", errors.sum());
+            }
+            return 0;
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Get failed", e);
+            return 1;
+        }
+    }
+
+    /** Parse {@code from-to} into its two inclusive bounds. */
+    private static long[] parseRange(String range) {
+        int dash = range.indexOf('-');
+        try {
+            if (dash > 0) {
+                long from = Long.parseLong(range.substring(0, dash).strip());
+                long to = Long.parseLong(range.substring(dash + 1).strip());
+                if (from <= to) {
+                    return new long[] {from, to};
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid --rows '" + range + "'; expected <from>-<to>, e.g. 100-199");
+    }
+}
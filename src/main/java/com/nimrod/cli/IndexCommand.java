@@ -0,0 +1,208 @@
+package com.nimrod.cli;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.flatbuffers.FbDecoder;
+import com.nimrod.flatbuffers.SchemaRegistry;
+import com.nimrod.flatbuffers.SchemaRegistry.SchemaEntry;
+import com.nimrod.index.FieldPath;
+import com.nimrod.index.KeyIndex;
+import com.nimrod.index.RowIndex;
+import com.nimrod.progress.ProgressReporter;
+import com.nimrod.progress.ProgressTracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Build a row index for a CSV export in one pass, so that single rows can later be fetched
+ * with {@code nimrod get} without reading the rest of the file.
+ *
+ * <p>With {@code --key}, every row is also decoded and a {@link KeyIndex} is built for each
+ * given field path, for {@code nimrod lookup}. Decoding runs on a worker pool while entries
+ * are still written in row order.</p>
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod index exports/armies.csv                 # writes exports/armies.csv.idx
+ *   nimrod index -e hex --column data profiles.csv -o /tmp/profiles.idx
+ *   nimrod index --key playerId --key provinceId exports/armies.csv
+ * </pre>
+ */
+@Component
+@Command(
+    name = "index",
+    mixinStandardHelpOptions = true,
+    description = "Index the rows of a CSV export (byte offset, _type and blob size per row) "
+                + "for random access with 'nimrod get', and optionally decoded fields for 'nimrod lookup'."
+)
+public class IndexCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexCommand.class);
+
+    /** Rows described per task handed to the worker pool. */
+    private static final int BATCH_SIZE = 256;
+
+    @Parameters(index = "0", paramLabel = "<csv>",
+                description = "CSV export to index (uncompressed).")
+    private File csv;
+
+    @Option(names = {"--column"},
+            description = "Column name(s) containing binary data. Auto-detects if omitted.")
+    private String[] columns;
+
+    @Option(names = {"--encoding", "-e"}, defaultValue = "base64",
+            description = "Encoding of binary data in the CSV: base64, hex, or raw. Default: ${DEFAULT-VALUE}")
+    private Encoding encoding;
+
+    @Option(names = {"--output", "-o"}, paramLabel = "<file>",
+            description = "Index file to write. Default: the CSV path with .idx appended.")
+    private Path output;
+
+    @Option(names = {"--key"}, paramLabel = "<path>",
+            description = "Decoded field path to build a lookup index for, e.g. playerId or data.army.ownerId. "
+                        + "Repeatable.")
+    private List<String> keys;
+
+    @Option(names = {"--threads", "-t"},
+            description = "Worker threads for decoding rows. Default: number of CPU cores.")
+    private Integer threads;
+
+    @Option(names = {"--progress-interval"}, defaultValue = "2",
+            description = "Seconds between progress reports on stderr; 0 disables. Default: ${DEFAULT-VALUE}")
+    private int progressInterval;
+
+    private final CsvReader csvReader;
+    private final SchemaRegistry schemaRegistry;
+
+    private final FbDecoder fbDecoder;
+
+    public IndexCommand(CsvReader csvReader, SchemaRegistry schemaRegistry, FbDecoder fbDecoder) {
+        this.csvReader = csvReader;
+        this.schemaRegistry = schemaRegistry;
+        this.fbDecoder = fbDecoder;
+    }
+
+    /** A CSV row with its 1-based number and the location of its record. */
+    private record LocatedRow(long number, CsvRow row, long offset, int length) {}
+
+    /** Everything the indexes need to know about one row; {@code keys} follows the field order. */
+    private record IndexedRow(LocatedRow located, String type, int blobSize, List<List<String>> keys) {}
+
+    @Override
+    public Integer call() {
+        if (!csv.isFile()) {
+            System.err.println("Error: CSV file not found: " + csv.getPath());
+            return 1;
+        }
+        Path indexFile = output != null ? output : RowIndex.sidecarFor(csv);
+        ProgressTracker progress = new ProgressTracker(csv.length());
+        List<KeyIndex.Writer> keyWriters = new ArrayList<>();
+        int threadCount = threads != null && threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = NimrodCommand.newPool(threadCount, "nimrod-worker");
+
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             RowIndex.Writer writer = RowIndex.create(indexFile, csv, encoding)) {
+
+            List<FieldPath> fields = new ArrayList<>();
+            for (String key : keys != null ? keys : List.<String>of()) {
+                FieldPath field = FieldPath.parse(key);
+                fields.add(field);
+                keyWriters.add(KeyIndex.create(KeyIndex.sidecarFor(indexFile, field.path()), csv, field.path()));
+            }
+            LongAdder errors = new LongAdder();
+            var batches = new OrderedBatches<LocatedRow, IndexedRow>(
+                    workers, BATCH_SIZE, 2 * threadCount,
+                    located -> describe(located, fields, errors),
+                    indexed -> {
+                        LocatedRow located = indexed.located();
+                        located.row().binaryColumns().keySet().forEach(writer::binaryColumn);
+                        writer.add(located.offset(), located.length(), indexed.type(), indexed.blobSize());
+                        for (int i = 0; i < keyWriters.size(); i++) {
+                            for (String value : indexed.keys().get(i)) {
+                                keyWriters.get(i).add(value, located.number());
+                            }
+                        }
+                        progress.rowDone();
+                    });
+
+            long[] rowNumber = {0};
+            try {
+                csvReader.streamLocated(csv, columns, encoding, progress, (row, offset, length) ->
+                        batches.add(new LocatedRow(++rowNumber[0], row, offset, length)));
+                batches.finish();
+            } catch (IOException | RuntimeException e) {
+                batches.cancel();
+                throw e;
+            }
+            for (KeyIndex.Writer keyWriter : keyWriters) {
+                keyWriter.commit();
+            }
+            writer.commit();
+
+            System.err.printf("Indexed %,d rows (%d types) of %s into %s%n",
+                    writer.rowCount(), writer.typeCount(), csv.getPath(), indexFile);
+            for (KeyIndex.Writer keyWriter : keyWriters) {
+                System.err.printf("  %s: %,d values%n", keyWriter.field(), keyWriter.entryCount());
+            }
+            if (errors.sum() > 0) {
+                System.err.printf("%d decode error(s) encountered. See log for details.%n", errors.sum());
+            }
+            return 0;
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Indexing failed", e);
+            return 1;
+        } finally {
+            workers.shutdownNow();
+            for (KeyIndex.Writer keyWriter : keyWriters) {
+                try {
+                    keyWriter.close();
+                } catch (IOException e) {
+                    LOG.warn("Could not clean up {}: {}", keyWriter.field(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Find the type of a row and, if key fields are indexed, decode it for their values. */
+    private IndexedRow describe(LocatedRow located, List<FieldPath> fields, LongAdder errors) {
+        CsvRow row = located.row();
+        // Type and size describe the first binary column
+        ByteBuffer blob = row.binaryColumns().values().stream().findFirst().orElse(null);
+        String type = blob == null ? null
+                : schemaRegistry.findByBuffer(blob).map(SchemaEntry::simpleName).orElse(null);
+        if (fields.isEmpty()) {
+            return new IndexedRow(located, type, blob == null ? 0 : blob.remaining(), List.of());
+        }
+        Map<String, Object> decoded = NimrodCommand.decodeRow(fbDecoder, row, located.number(), null, errors);
+        List<List<String>> keys = new ArrayList<>(fields.size());
+        for (FieldPath field : fields) {
+            keys.add(field.values(decoded).stream().distinct().toList());
+        }
+        return new IndexedRow(located, type, blob == null ? 0 : blob.remaining(), keys);
+    }
+}
@@ -0,0 +1,347 @@
+package com.nimrod.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.cli.NimrodCommand.Format;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.flatbuffers.FbDecoder;
+import com.nimrod.index.FieldPath;
+import com.nimrod.join.HashJoin;
+import com.nimrod.output.JsonWriter;
+import com.nimrod.output.RowWriter;
+import com.nimrod.progress.ProgressReporter;
+import com.nimrod.progress.ProgressTracker;
+import com.nimrod.progress.RateLimitedLog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Join two or more CSV exports on a column or decoded field, e.g. a player's profile with
+ * their armies and research, with a {@link HashJoin}. Every input but the largest is read
+ * into hash tables first, keeping only the {@code --fields} of each row; the largest is then
+ * streamed through them. Build rows beyond {@code --memory} are partitioned to disk.
+ *
+ * <p>Each output row has the key and one object per input, named after its file:
+ * <pre>
+ *   {"key":"123","profiles":{"title":"Governor"},"armies":{"units":[4,9]}}
+ * </pre>
+ * It is an inner join: a key missing from any input gives no rows, and a key with several
+ * rows in more than one input gives every combination of them. A row with several values at
+ * its {@code --on} path (a field inside a vector) is skipped, as is a row without one.
+ * The kept fields are serialised once, on the decode workers, and copied into the joined
+ * rows as they are; {@code pretty} output parses them again to indent them.</p>
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod join profiles.csv armies.csv --on playerId
+ *   nimrod join profiles.csv armies.csv research.csv --on playerId --on ownerId --on playerId \
+ *       --fields profiles=title,faction --fields armies=units.typeId -f ndjson -o joined.ndjson
+ * </pre>
+ */
+@Component
+@Command(
+    name = "join",
+    mixinStandardHelpOptions = true,
+    description = "Join two or more CSV exports on a column or decoded field with a hash join. "
+                + "The largest input is streamed; the others are held in memory up to --memory, "
+                + "beyond which every input is partitioned to disk."
+)
+public class JoinCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JoinCommand.class);
+
+    /** Rows decoded per task handed to the worker pool. */
+    private static final int BATCH_SIZE = 256;
+
+    private static final RateLimitedLog KEY_WARNINGS = new RateLimitedLog(LOG, 20, Duration.ofSeconds(10));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** The field of each output row that holds the join key, so no input can be named so. */
+    static final String KEY_FIELD = "key";
+
+    @Parameters(arity = "2..*", paramLabel = "<csv>",
+                description = "CSV exports to join (plain or .csv.gz). Each is named after its file, "
+                            + "without .csv or .csv.gz, in the output.")
+    private List<File> inputs;
+
+    @Option(names = {"--on"}, required = true, paramLabel = "<path>",
+            description = "Column or decoded field path to join on, e.g. playerId or data.ownerId. "
+                        + "Give it once for all inputs, or once per input in input order.")
+    private List<String> on;
+
+    @Option(names = {"--fields"}, paramLabel = "<name=path,...>",
+            description = "Fields of an input to keep, e.g. armies=units.typeId,provinceId. Repeat per input. "
+                        + "Default: the whole decoded row.")
+    private List<String> fields;
+
+    @Option(names = {"--column"},
+            description = "Column name(s) containing binary data. Auto-detects if omitted.")
+    private String[] columns;
+
+    @Option(names = {"--encoding", "-e"}, defaultValue = "base64",
+            description = "Encoding of binary data in the CSV: base64, hex, or raw. Default: ${DEFAULT-VALUE}")
+    private Encoding encoding;
+
+    @Option(names = {"--format", "-f"}, defaultValue = "pretty",
+            description = "Output format: pretty (default), compact, or ndjson.")
+    private Format format;
+
+    @Option(names = {"--output", "-o"},
+            description = "Output file path. Default: stdout.")
+    private File output;
+
+    @Option(names = {"--memory"}, defaultValue = "256m", paramLabel = "<size>",
+            description = "Rows of the smaller inputs held in memory before the join is partitioned to disk "
+                        + "(k, m or g suffix). Default: ${DEFAULT-VALUE}")
+    private String memory;
+
+    @Option(names = {"--temp-dir"}, paramLabel = "<dir>",
+            description = "Directory for the partitions. Default: the system temp directory.")
+    private Path tempDir;
+
+    @Option(names = {"--threads", "-t"},
+            description = "Worker threads for parsing and decoding. Default: number of CPU cores.")
+    private Integer threads;
+
+    @Option(names = {"--progress-interval"}, defaultValue = "2",
+            description = "Seconds between progress reports on stderr; 0 disables. Default: ${DEFAULT-VALUE}")
+    private int progressInterval;
+
+    private final CsvReader csvReader;
+    private final FbDecoder fbDecoder;
+    private final JsonWriter jsonWriter;
+
+    public JoinCommand(CsvReader csvReader, FbDecoder fbDecoder, JsonWriter jsonWriter) {
+        this.csvReader = csvReader;
+        this.fbDecoder = fbDecoder;
+        this.jsonWriter = jsonWriter;
+    }
+
+    /** A CSV row with its 1-based number. */
+    private record NumberedRow(long number, CsvRow row) {}
+
+    /**
+     * The join key of a row and its kept fields as JSON. {@code keys} is how many values the
+     * row has at the key path; only a row with exactly one is joined.
+     */
+    private record KeyedRow(String key, byte[] json, int keys) {}
+
+    /** One input: its name in the output, the field to join on and the fields to keep (null for all). */
+    private record Input(File file, String name, FieldPath key, List<FieldPath> fields) {}
+
+    @Override
+    public Integer call() {
+        List<Input> sides;
+        long memoryBytes;
+        try {
+            sides = inputs();
+            memoryBytes = Sizes.parse(memory, "--memory");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+
+        // Stream the largest input; hold the others
+        int probe = 0;
+        for (int i = 1; i < sides.size(); i++) {
+            if (sides.get(i).file().length() >= sides.get(probe).file().length()) {
+                probe = i;
+            }
+        }
+        int threadCount = threads != null && threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = NimrodCommand.newPool(threadCount, "nimrod-worker");
+        ProgressTracker progress = new ProgressTracker(sides.stream().mapToLong(s -> s.file().length()).sum());
+        LongAdder errors = new LongAdder();
+        long[] counts = new long[3]; // joined rows, rows without a key, rows with several
+        long started = System.nanoTime();
+
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             RowWriter writer = jsonWriter.open(format, output);
+             HashJoin join = new HashJoin(sides.size(), probe, memoryBytes, tempDir,
+                     (key, rows) -> {
+                         writer.write(joined(sides, key, rows, format));
+                         counts[0]++;
+                     })) {
+
+            for (int i = 0; i < sides.size(); i++) {
+                if (i != probe) {
+                    read(sides.get(i), i, join, workers, threadCount, progress, errors, counts);
+                }
+            }
+            read(sides.get(probe), probe, join, workers, threadCount, progress, errors, counts);
+            join.finish();
+
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Join failed", e);
+            return 1;
+        } finally {
+            workers.shutdownNow();
+        }
+
+        System.err.printf("Joined %,d rows of %d inputs, streaming %s, in %.1f s%n",
+                counts[0], sides.size(), sides.get(probe).file().getPath(), (System.nanoTime() - started) / 1e9);
+        if (counts[1] > 0) {
+            System.err.printf("%,d row(s) had no join key and were skipped.%n", counts[1]);
+        }
+        if (counts[2] > 0) {
+            System.err.printf("%,d row(s) had several values at --on and were skipped.%n", counts[2]);
+        }
+        if (errors.sum() > 0) {
+            System.err.printf("%d decode error(s) encountered. See log for details.%n", errors.sum());
+        }
+        return 0;
+    }
+
+    /** Decode every row of one input and hand its key and kept fields to the join. */
+    private void read(Input side, int index, HashJoin join, ExecutorService workers, int threadCount,
+                      ProgressTracker progress, LongAdder errors, long[] counts) throws IOException {
+        var batches = new OrderedBatches<NumberedRow, KeyedRow>(
+                workers, BATCH_SIZE, 2 * threadCount,
+                numbered -> keyed(side, numbered, errors),
+                keyed -> {
+                    switch (keyed.keys()) {
+                        case 1 -> join.add(index, keyed.key(), keyed.json());
+                        case 0 -> counts[1]++;
+                        default -> counts[2]++;
+                    }
+                    progress.rowDone();
+                });
+        try {
+            long[] rowNumber = {0};
+            csvReader.stream(side.file(), columns, encoding, workers, progress, row -> {
+                try {
+                    batches.add(new NumberedRow(++rowNumber[0], row));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            batches.finish();
+        } catch (UncheckedIOException e) {
+            batches.cancel();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            batches.cancel();
+            throw e;
+        }
+    }
+
+    private KeyedRow keyed(Input side, NumberedRow numbered, LongAdder errors) {
+        Map<String, Object> row = NimrodCommand.decodeRow(fbDecoder, numbered.row(), numbered.number(), null, errors);
+        List<Object> keys = side.key().decodedValues(row);
+        if (keys.size() != 1) {
+            if (keys.size() > 1) {
+                KEY_WARNINGS.warn("{} row {}: {} values at --on {}; skipped",
+                        side.name(), numbered.number(), keys.size(), side.key().path());
+            }
+            return new KeyedRow(null, null, keys.size());
+        }
+        Object kept = row;
+        if (side.fields() != null) {
+            Map<String, Object> projection = new LinkedHashMap<>();
+            for (FieldPath field : side.fields()) {
+                List<Object> values = field.decodedValues(row);
+                if (!values.isEmpty()) {
+                    projection.put(field.path(), values.size() == 1 ? values.getFirst() : values);
+                }
+            }
+            kept = projection;
+        }
+        try {
+            return new KeyedRow(String.valueOf(keys.getFirst()), MAPPER.writeValueAsBytes(kept), 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The output row for one combination of stored rows. Their JSON is embedded as it is,
+     * except in {@code pretty} output, where it is parsed again to be indented.
+     */
+    private static Map<String, Object> joined(List<Input> sides, String key, byte[][] rows, Format format)
+            throws IOException {
+        Map<String, Object> joined = new LinkedHashMap<>();
+        joined.put(KEY_FIELD, key);
+        for (int i = 0; i < sides.size(); i++) {
+            joined.put(sides.get(i).name(), format == Format.pretty
+                    ? MAPPER.readTree(rows[i])
+                    : new RawValue(new String(rows[i], StandardCharsets.UTF_8)));
+        }
+        return joined;
+    }
+
+    /** The inputs with their names, join keys and kept fields, checked against each other. */
+    private List<Input> inputs() {
+        if (on.size() != 1 && on.size() != inputs.size()) {
+            throw new IllegalArgumentException("give --on once, or once for each of the " + inputs.size() + " inputs.");
+        }
+        Map<String, List<FieldPath>> kept = new HashMap<>();
+        for (String spec : fields != null ? fields : List.<String>of()) {
+            int eq = spec.indexOf('=');
+            if (eq <= 0 || eq == spec.length() - 1) {
+                throw new IllegalArgumentException("Invalid --fields '" + spec
+                        + "'; expected <name>=<path>[,<path>...], e.g. armies=units.typeId,provinceId");
+            }
+            List<FieldPath> paths = new ArrayList<>();
+            for (String path : spec.substring(eq + 1).split(",")) {
+                paths.add(FieldPath.parse(path));
+            }
+            kept.put(spec.substring(0, eq).strip(), paths);
+        }
+
+        List<Input> sides = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            File file = inputs.get(i);
+            if (!file.isFile()) {
+                throw new IllegalArgumentException("No such file: " + file.getPath());
+            }
+            String name = nameOf(file);
+            if (name.equals(KEY_FIELD)) {
+                throw new IllegalArgumentException("An input named '" + KEY_FIELD + "' would overwrite the join key "
+                        + "in the output; rename " + file.getPath() + ".");
+            }
+            if (sides.stream().anyMatch(s -> s.name().equals(name))) {
+                throw new IllegalArgumentException("Two inputs are named '" + name + "'; rename one of them.");
+            }
+            sides.add(new Input(file, name, FieldPath.parse(on.get(on.size() == 1 ? 0 : i)), kept.remove(name)));
+        }
+        if (!kept.isEmpty()) {
+            throw new IllegalArgumentException("--fields names no input: " + String.join(", ", kept.keySet()));
+        }
+        return sides;
+    }
+
+    /** {@code exports/armies.csv.gz} → {@code armies}. */
+    static String nameOf(File file) {
+        String name = file.getName();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+    }
+}
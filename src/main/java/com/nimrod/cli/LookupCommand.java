@@ -0,0 +1,212 @@
+package com.nimrod.cli;
+
+import com.nimrod.cli.NimrodCommand.Format;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.flatbuffers.FbDecoder;
+import com.nimrod.index.FieldPath;
+import com.nimrod.index.KeyIndex;
+import com.nimrod.index.RowIndex;
+import com.nimrod.output.JsonWriter;
+import com.nimrod.output.RowWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decode the rows of an indexed CSV export whose decoded fields have given values, using the
+ * key indexes built by {@code nimrod index --key}. Only candidate rows are read and decoded;
+ * each is checked against every condition before it is written.
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod lookup exports/armies.csv --field playerId=123
+ *   nimrod lookup exports/armies.csv --field playerId=123 --field provinceId=77 -f ndjson
+ * </pre>
+ */
+@Component
+@Command(
+    name = "lookup",
+    mixinStandardHelpOptions = true,
+    description = "Decode the rows of an indexed CSV export whose field has a value. "
+                + "The field must have been indexed with 'nimrod index --key <path>'."
+)
+public class LookupCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LookupCommand.class);
+
+    @Parameters(index = "0", paramLabel = "<csv>",
+                description = "The indexed CSV export.")
+    private File csv;
+
+    @Option(names = {"--field"}, required = true, paramLabel = "<path=value>",
+            description = "Field path and value to match, e.g. playerId=123. "
+                        + "Repeat to require several fields at once.")
+    private List<String> conditions;
+
+    @Option(names = {"--index"}, paramLabel = "<file>",
+            description = "Row index file; key indexes are expected next to it. "
+                        + "Default: the CSV path with .idx appended.")
+    private Path index;
+
+    @Option(names = {"--format", "-f"}, defaultValue = "pretty",
+            description = "Output format: pretty (default), compact, or ndjson.")
+    private Format format;
+
+    @Option(names = {"--output", "-o"},
+            description = "Output file path. Default: stdout.")
+    private File output;
+
+    private final CsvReader csvReader;
+    private final FbDecoder fbDecoder;
+    private final JsonWriter jsonWriter;
+
+    public LookupCommand(CsvReader csvReader, FbDecoder fbDecoder, JsonWriter jsonWriter) {
+        this.csvReader = csvReader;
+        this.fbDecoder = fbDecoder;
+        this.jsonWriter = jsonWriter;
+    }
+
+    @Override
+    public Integer call() {
+        Path indexFile = index != null ? index : RowIndex.sidecarFor(csv);
+        if (!Files.exists(indexFile)) {
+            System.err.println("Error: no index at " + indexFile
+                    + ". Build one with: nimrod index --key <path> " + csv.getPath());
+            return 1;
+        }
+
+        try {
+            Map<FieldPath, String> wanted = parseConditions(conditions);
+            RowIndex rowIndex = RowIndex.open(indexFile);
+            if (!rowIndex.matches(csv)) {
+                System.err.println("Error: " + csv.getPath() + " has changed since it was indexed. "
+                        + "Rebuild the index with: nimrod index " + csv.getPath());
+                return 1;
+            }
+
+            long[] rows = null;
+            for (Map.Entry<FieldPath, String> condition : wanted.entrySet()) {
+                String field = condition.getKey().path();
+                Path keyFile = KeyIndex.sidecarFor(indexFile, field);
+                if (!Files.exists(keyFile)) {
+                    System.err.println("Error: '" + field + "' is not indexed. Build it with: nimrod index --key "
+                            + field + " " + csv.getPath());
+                    return 1;
+                }
+                KeyIndex keyIndex = KeyIndex.open(keyFile);
+                if (!keyIndex.matches(csv)) {
+                    System.err.println("Error: the index of '" + field + "' is older than " + csv.getPath()
+                            + ". Rebuild it with: nimrod index --key " + field + " " + csv.getPath());
+                    return 1;
+                }
+                long[] candidates = keyIndex.candidates(condition.getValue());
+                rows = rows == null ? candidates : intersect(rows, candidates);
+            }
+            LOG.info("{} candidate row(s) for {}", rows.length, wanted);
+
+            List<CsvReader.Range> ranges = new ArrayList<>(rows.length);
+            for (long row : rows) {
+                RowIndex.Entry entry = rowIndex.entry(row);
+                ranges.add(new CsvReader.Range(entry.offset(), entry.end(), row));
+            }
+            String[] binaryColumns = rowIndex.binaryColumns().toArray(String[]::new);
+
+            LongAdder errors = new LongAdder();
+            long[] matched = {0};
+            int[] next = {0};
+            long[] candidateRows = rows;
+            try (RowWriter writer = jsonWriter.open(format, output)) {
+                csvReader.streamRanges(csv, binaryColumns, rowIndex.encoding(), ranges, csvRow -> {
+                    Map<String, Object> decoded = NimrodCommand.decodeRow(
+                            fbDecoder, csvRow, candidateRows[next[0]++], null, errors);
+                    // Candidates sharing only a hash with the value are dropped here
+                    if (matchesAll(decoded, wanted)) {
+                        try {
+                            writer.write(decoded);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        matched[0]++;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (matched[0] == 0) {
+                System.err.println("No rows match " + String.join(" and ", conditions) + ".");
+            }
+            if (errors.sum() > 0) {
+                System.err.printf("%d decode error(s) encountered. See log for details.%n", errors.sum());
+            }
+            return 0;
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Lookup failed", e);
+            return 1;
+        }
+    }
+
+    private static boolean matchesAll(Map<String, Object> decoded, Map<FieldPath, String> wanted) {
+        for (Map.Entry<FieldPath, String> condition : wanted.entrySet()) {
+            if (!condition.getKey().values(decoded).contains(condition.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Parse {@code path=value} conditions, keeping their order. */
+    private static Map<FieldPath, String> parseConditions(List<String> conditions) {
+        Map<FieldPath, String> wanted = new LinkedHashMap<>();
+        for (String condition : conditions) {
+            int eq = condition.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid --field '" + condition
+                        + "'; expected <path>=<value>, e.g. playerId=123");
+            }
+            wanted.put(FieldPath.parse(condition.substring(0, eq)), condition.substring(eq + 1));
+        }
+        return wanted;
+    }
+
+    /** Rows present in both ascending arrays. */
+    private static long[] intersect(long[] a, long[] b) {
+        long[] both = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                both[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+}
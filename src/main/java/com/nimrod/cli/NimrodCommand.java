@@ -1,9 +1,26 @@
 package com.nimrod.cli;
 
+import com.nimrod.csv.CsvInputs;
 import com.nimrod.csv.CsvReader;
 import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.csv.RowSelection;
+import com.nimrod.flatbuffers.DecodeLimits;
 import com.nimrod.flatbuffers.FbDecoder;
+import com.nimrod.flatbuffers.FieldSelection;
+import com.nimrod.flatbuffers.SchemaRegistry;
+import com.nimrod.index.FieldPath;
+import com.nimrod.jdbc.JdbcReader;
+import com.nimrod.jfr.JfrRecording;
+import com.nimrod.jfr.SlowRowEvent;
+import com.nimrod.output.EncodedRow;
 import com.nimrod.output.JsonWriter;
+import com.nimrod.output.RowWriter;
+import com.nimrod.output.ShardSpec;
+import com.nimrod.output.SortSpec;
+import com.nimrod.progress.ProgressReporter;
+import com.nimrod.progress.ProgressTracker;
+import com.nimrod.progress.RateLimitedLog;
+import com.nimrod.transform.Transform;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,34 +34,79 @@ import picocli.CommandLine.IFactory;
 import picocli.CommandLine.Option;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Component
 @Command(
     name = "nimrod",
     mixinStandardHelpOptions = true,
     version = "nimrod 0.1.0",
-    description = "Decode FlatBuffer-serialised columns from a CSV export to JSON. "
+    description = "Decode FlatBuffer-serialised columns from a CSV export (or a database query) to JSON. "
                 + "Schemas are auto-matched via the 4-byte file_identifier in each buffer.",
-    subcommands = {DecodeCommand.class, SchemasCommand.class}
+    subcommands = {DecodeCommand.class, SchemasCommand.class, IndexCommand.class, GetCommand.class,
+                   LookupCommand.class, VerifyCommand.class, GenerateCommand.class, JoinCommand.class}
 )
 public class NimrodCommand implements Callable<Integer>, CommandLineRunner, ExitCodeGenerator {
 
     private static final Logger LOG = LoggerFactory.getLogger(NimrodCommand.class);
 
+    /** Rows decoded per task handed to the worker pool. */
+    private static final int DECODE_BATCH_SIZE = 256;
+
+    /** A damaged export can fail on every row; log only a sample of them. */
+    private static final RateLimitedLog DECODE_WARNINGS = new RateLimitedLog(LOG, 20, Duration.ofSeconds(10));
+
     public enum Encoding { base64, hex, raw }
 
     public enum Format { pretty, compact, ndjson }
 
-    @Option(names = {"--csv", "-c"},
-            description = "Path to the CSV export file. Required format: semicolon (;) separator, double-quote (\") delimiter.")
-    private File csv;
+    @Option(names = {"--csv", "-c"}, arity = "1..*", paramLabel = "<path>",
+            description = "CSV export file(s) (plain or .csv.gz), directories (every *.csv and *.csv.gz inside) "
+                        + "or globs such as 'exports/*.csv'. "
+                        + "Several inputs are decoded concurrently. "
+                        + "Required format: semicolon (;) separator, double-quote (\") delimiter.")
+    private List<String> csv;
+
+    @Option(names = {"--jdbc"}, paramLabel = "<url>",
+            description = "Read rows from a database instead of CSV, e.g. jdbc:postgresql://host/db. "
+                        + "Requires --query; the JDBC driver must be on the classpath.")
+    private String jdbcUrl;
+
+    @Option(names = {"--query"}, paramLabel = "<sql>",
+            description = "SQL query streamed with --jdbc. BLOB/bytea columns are decoded as raw FlatBuffers.")
+    private String query;
+
+    @Option(names = {"--jdbc-user"}, paramLabel = "<user>",
+            description = "Database user for --jdbc (or put it in the URL).")
+    private String jdbcUser;
+
+    @Option(names = {"--jdbc-password"}, arity = "0..1", interactive = true, paramLabel = "<password>",
+            description = "Database password for --jdbc; prompts when given without a value.")
+    private String jdbcPassword;
+
+    @Option(names = {"--fetch-size"}, defaultValue = "1000",
+            description = "Rows fetched per database round trip with --jdbc. Default: ${DEFAULT-VALUE}")
+    private int fetchSize;
 
     @Option(names = {"--column"},
             description = "Column name(s) containing FlatBuffer blobs. "
@@ -63,34 +125,203 @@ public class NimrodCommand implements Callable<Integer>, CommandLineRunner, Exit
             description = "Output file path. Default: stdout.")
     private File output;
 
+    @Option(names = {"--per-file"},
+            description = "Write one output per input, next to it (<name>.json or <name>.ndjson), "
+                        + "instead of one combined stream.")
+    private boolean perFile;
+
+    @Option(names = {"--compress"}, paramLabel = "<level>",
+            description = "Gzip the output at level 0-9, compressing blocks in parallel. "
+                        + "Implied (level 6) when --output ends in .gz.")
+    private Integer compress;
+
+    @Option(names = {"--shard-rows"}, paramLabel = "<rows>",
+            description = "Start a new output file every <rows> rows (out-00001.json, out-00002.json, ...).")
+    private long shardRows;
+
+    @Option(names = {"--shard-size"}, paramLabel = "<MB>",
+            description = "Start a new output file once the current one reaches <MB> megabytes.")
+    private long shardSizeMb;
+
+    @Option(names = {"--shard-by-type"},
+            description = "Write one output file per decoded _type (out-FbsDbArmy.json, ...).")
+    private boolean shardByType;
+
+    @Option(names = {"--threads", "-t"},
+            description = "Worker threads shared by CSV parsing and decoding. Default: number of CPU cores.")
+    private Integer threads;
+
+    @Option(names = {"--follow"},
+            description = "Keep the CSV file open and decode records as they are appended (like tail -f). "
+                        + "Needs a single uncompressed input and -f ndjson; output is flushed whenever it catches up.")
+    private boolean follow;
+
+    @Option(names = {"--poll-interval"}, defaultValue = "1000", paramLabel = "<ms>",
+            description = "With --follow, how often to check the file when no change notification arrives. "
+                        + "Default: ${DEFAULT-VALUE}")
+    private long pollIntervalMs;
+
+    @Option(names = {"--idle-timeout"}, defaultValue = "0", paramLabel = "<seconds>",
+            description = "With --follow, stop after this many seconds without new rows; 0 follows until interrupted. "
+                        + "Default: ${DEFAULT-VALUE}")
+    private long idleTimeoutSeconds;
+
+    @Option(names = {"--checkpoint"}, paramLabel = "<file>",
+            description = "Record progress in <file> so an interrupted run continues where it stopped "
+                        + "when started again with the same arguments. Needs one CSV input and -f ndjson -o <file>.")
+    private File checkpoint;
+
+    @Option(names = {"--checkpoint-interval"}, defaultValue = "30", paramLabel = "<seconds>",
+            description = "Seconds between checkpoints. Default: ${DEFAULT-VALUE}")
+    private long checkpointIntervalSeconds;
+
+    @Option(names = {"--skip"}, paramLabel = "<rows>",
+            description = "Pass over the first <rows> rows of each CSV input without decoding them.")
+    private long skip;
+
+    @Option(names = {"--limit"}, paramLabel = "<rows>",
+            description = "Stop reading each CSV input after <rows> rows (following --skip).")
+    private long limit;
+
+    @Option(names = {"--sample"}, paramLabel = "<rows>",
+            description = "Decode only a uniform random sample of <rows> rows of each CSV input. "
+                        + "The other rows are parsed but not decoded.")
+    private int sample;
+
+    @Option(names = {"--sample-per-type"}, paramLabel = "<rows>",
+            description = "Decode only a random sample of <rows> rows per FlatBuffer type of each CSV input.")
+    private int samplePerType;
+
+    @Option(names = {"--seed"}, paramLabel = "<n>",
+            description = "Seed for --sample and --sample-per-type, to draw the same rows again. Default: random.")
+    private Long seed;
+
+    @Option(names = {"--dead-letter"}, paramLabel = "<file>",
+            description = "Write rows that cannot be decoded to <file> (one JSON object per failing cell, "
+                        + "with the reason and the raw blob) and leave them out of the output.")
+    private File deadLetter;
+
+    @Option(names = {"--transform"}, paramLabel = "<jq>",
+            description = "Write the result of a jq expression for each row instead of the row, e.g. "
+                        + "'.data | select(.faction == 3) | {id: .playerId, title}'. Supports paths, |, ',', "
+                        + "[...], {...}, select, map, length, keys, not, empty, comparisons, and, or. "
+                        + "Only the fields the expression reads are decoded.")
+    private String transform;
+
+    @Option(names = {"--sort-by"}, paramLabel = "<path>",
+            description = "Write rows sorted by a decoded field, e.g. timestamp or data.score, with an external "
+                        + "merge sort. Rows without the field come last; equal values keep their input order.")
+    private String sortBy;
+
+    @Option(names = {"--sort-memory"}, defaultValue = "64m", paramLabel = "<size>",
+            description = "With --sort-by, serialised rows held in memory before a sorted run is written to disk "
+                        + "(k, m or g suffix). Default: ${DEFAULT-VALUE}")
+    private String sortMemory;
+
+    @Option(names = {"--sort-dir"}, paramLabel = "<dir>",
+            description = "With --sort-by, directory for the sorted runs. Default: the system temp directory.")
+    private Path sortDir;
+
+    @Option(names = {"--max-vector"}, paramLabel = "<n>",
+            description = "Decode only the first <n> elements of each vector, followed by a \"<m more of length>\" "
+                        + "marker. The other elements are not read.")
+    private Integer maxVector;
+
+    @Option(names = {"--max-depth"}, paramLabel = "<d>",
+            description = "Summarise tables nested deeper than <d> levels below the root as \"<Type>\" "
+                        + "(\"<Type[length]>\" for vectors of them) without reading them.")
+    private Integer maxDepth;
+
+    @Option(names = {"--jfr"}, paramLabel = "<file>",
+            description = "Record a Java Flight Recorder profile, with events for every CSV record parse, binary decode, "
+                        + "decompression, schema match, FlatBuffer decode and JSON write, and write it to <file> "
+                        + "at exit.")
+    private Path jfr;
+
+    @Option(names = {"--slow-row"}, defaultValue = "100", paramLabel = "<ms>",
+            description = "With --jfr, rows taking at least this long to decode and serialise are recorded as "
+                        + "Slow Row events. Default: ${DEFAULT-VALUE}")
+    private long slowRowMs;
+
+    @Option(names = {"--progress-interval"}, defaultValue = "2",
+            description = "Seconds between progress reports on stderr; 0 disables them. Default: ${DEFAULT-VALUE}")
+    private int progressInterval;
+
     private final IFactory factory;
     private final CsvReader csvReader;
+    private final JdbcReader jdbcReader;
     private final FbDecoder fbDecoder;
     private final JsonWriter jsonWriter;
+    private final SchemaRegistry schemaRegistry;
+    private DeadLetterWriter deadLetters;
+    private Transform rowTransform;
+    private DecodeLimits limits = DecodeLimits.NONE;
+    private SortSpec sort;
     private int exitCode;
 
-    public NimrodCommand(IFactory factory, CsvReader csvReader, FbDecoder fbDecoder, JsonWriter jsonWriter) {
+    public NimrodCommand(IFactory factory, CsvReader csvReader, JdbcReader jdbcReader,
+                         FbDecoder fbDecoder, JsonWriter jsonWriter, SchemaRegistry schemaRegistry) {
         this.factory = factory;
         this.csvReader = csvReader;
+        this.jdbcReader = jdbcReader;
         this.fbDecoder = fbDecoder;
         this.jsonWriter = jsonWriter;
+        this.schemaRegistry = schemaRegistry;
     }
 
-    private static final Set<String> SUBCOMMANDS = Set.of("decode", "schemas");
+    /**
+     * Loaded as soon as the option is parsed, so the schemas are registered before this
+     * command or any subcommand runs.
+     */
+    @Option(names = {"--schema-path"}, paramLabel = "<dir>",
+            description = "Directory of extra schema JARs to load (root types are discovered and cached in "
+                        + "the directory). Give it before any subcommand.")
+    private void setSchemaPath(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try {
+            schemaRegistry.loadSchemaPath(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load schemas from " + dir, e);
+        }
+    }
+
+    private static final Set<String> SUBCOMMANDS = Set.of("decode", "schemas", "index", "get", "lookup", "verify",
+            "generate", "join");
+
+    /** Root options that apply to every subcommand and therefore stay in front of it. */
+    private static final Set<String> GLOBAL_OPTIONS = Set.of("--schema-path");
 
     @Override
     public void run(String... args) {
         CommandLine cmd = new CommandLine(this, factory);
-        if (shouldDefaultToDecode(args)) {
+        int globals = leadingGlobalOptions(args);
+        String[] rest = Arrays.copyOfRange(args, globals, args.length);
+        if (shouldDefaultToDecode(rest)) {
             String[] newArgs = new String[args.length + 1];
-            newArgs[0] = "decode";
-            System.arraycopy(args, 0, newArgs, 1, args.length);
+            System.arraycopy(args, 0, newArgs, 0, globals);
+            newArgs[globals] = "decode";
+            System.arraycopy(rest, 0, newArgs, globals + 1, rest.length);
             exitCode = cmd.execute(newArgs);
         } else {
             exitCode = cmd.execute(args);
         }
     }
 
+    /** Number of leading arguments taken up by {@link #GLOBAL_OPTIONS} and their values. */
+    private static int leadingGlobalOptions(String[] args) {
+        int i = 0;
+        while (i < args.length) {
+            String name = args[i].split("=", 2)[0];
+            if (!GLOBAL_OPTIONS.contains(name)) {
+                break;
+            }
+            i += args[i].contains("=") ? 1 : 2;
+        }
+        return Math.min(i, args.length);
+    }
+
     /**
      * Detect when the user passes a raw value without the "decode" subcommand,
      * e.g. {@code nimrod "0xABC..." -e hex} instead of {@code nimrod decode "0xABC..." -e hex}.
@@ -101,7 +332,7 @@ public class NimrodCommand implements Callable<Integer>, CommandLineRunner, Exit
         boolean hasPositionalValue = false;
         for (String arg : args) {
             if (SUBCOMMANDS.contains(arg)) return false;
-            if ("--csv".equals(arg) || "-c".equals(arg)) return false;
+            if ("--csv".equals(arg) || "-c".equals(arg) || "--jdbc".equals(arg)) return false;
             if ("--help".equals(arg) || "-h".equals(arg)) return false;
             if ("--version".equals(arg) || "-V".equals(arg)) return false;
             if (!arg.startsWith("-")) hasPositionalValue = true;
@@ -109,79 +340,642 @@ public class NimrodCommand implements Callable<Integer>, CommandLineRunner, Exit
         return hasPositionalValue;
     }
 
+    /**
+     * Outcome of decoding one input ({@code input} is null for a {@code --jdbc} query).
+     * {@code failure} is null on success.
+     */
+    record FileResult(File input, long rows, long errors, String failure) {}
+
+    /**
+     * The serialised outputs of a row (none for a dead letter or a row a {@code --transform}
+     * filters out) and its {@code --dead-letter} lines, with its number and, if it ends a
+     * resumable chunk, the input offset.
+     */
+    private record DecodedRow(long number, long endOffset, List<EncodedRow> encoded, List<String> letters) {}
+
+    /**
+     * Pushes the rows of one input into {@code sink} and returns how many there were.
+     * A source that waits for more data calls {@code caughtUp} before it blocks.
+     */
+    @FunctionalInterface
+    private interface RowSource {
+        long stream(Consumer<CsvRow> sink, Runnable caughtUp) throws IOException, SQLException;
+    }
+
     @Override
     public Integer call() {
-        if (csv == null) {
+        if ((csv == null || csv.isEmpty()) && jdbcUrl == null) {
             new CommandLine(this).usage(System.out);
             return 0;
         }
-        if (!csv.exists()) {
-            System.err.println("Error: CSV file not found: " + csv.getPath());
+        if (jdbcUrl != null && csv != null && !csv.isEmpty()) {
+            System.err.println("Error: --csv and --jdbc cannot be combined.");
+            return 1;
+        }
+        if (jdbcUrl != null && (query == null || query.isBlank())) {
+            System.err.println("Error: --jdbc requires --query.");
+            return 1;
+        }
+        if (jdbcUrl != null && perFile) {
+            System.err.println("Error: --per-file only applies to CSV inputs.");
+            return 1;
+        }
+        if (follow && (jdbcUrl != null || perFile || format != Format.ndjson)) {
+            System.err.println("Error: --follow reads a single CSV file and needs -f ndjson (no --jdbc or --per-file).");
+            return 1;
+        }
+        if (perFile && output != null) {
+            System.err.println("Error: --output cannot be combined with --per-file.");
+            return 1;
+        }
+        if (compress != null && (compress < 0 || compress > 9)) {
+            System.err.println("Error: --compress level must be between 0 and 9.");
             return 1;
         }
+        ShardSpec shards = new ShardSpec(shardRows, shardSizeMb * 1024 * 1024, shardByType);
+        if (shards.isSharded() && output == null && !perFile) {
+            System.err.println("Error: sharded output requires --output (or --per-file).");
+            return 1;
+        }
+        if (checkpoint != null && (jdbcUrl != null || perFile || follow || output == null
+                || format != Format.ndjson || shards.isSharded()
+                || compressionLevel() != JsonWriter.NO_COMPRESSION)) {
+            System.err.println("Error: --checkpoint needs a single CSV input written with -f ndjson "
+                    + "to an uncompressed, unsharded --output file.");
+            return 1;
+        }
+        if (slowRowMs < 0) {
+            System.err.println("Error: --slow-row cannot be negative.");
+            return 1;
+        }
+        if (skip < 0 || limit < 0 || sample < 0 || samplePerType < 0) {
+            System.err.println("Error: --skip, --limit, --sample and --sample-per-type cannot be negative.");
+            return 1;
+        }
+        if (sample > 0 && samplePerType > 0) {
+            System.err.println("Error: --sample and --sample-per-type cannot be combined.");
+            return 1;
+        }
+        RowSelection selection = new RowSelection(skip, limit, sample, samplePerType,
+                seed != null ? seed : ThreadLocalRandom.current().nextLong());
+        if (!selection.isAll() && (jdbcUrl != null || follow || checkpoint != null)) {
+            System.err.println("Error: --skip, --limit and sampling apply to plain CSV inputs "
+                    + "(not --jdbc, --follow or --checkpoint).");
+            return 1;
+        }
+        if (selection.samples() && seed == null) {
+            System.err.printf("Sampling with --seed %d%n", selection.seed());
+        }
+        if ((maxVector != null && maxVector < 0) || (maxDepth != null && maxDepth < 0)) {
+            System.err.println("Error: --max-vector and --max-depth cannot be negative.");
+            return 1;
+        }
+        limits = DecodeLimits.of(maxVector, maxDepth);
+        if (sortBy != null) {
+            if (follow || checkpoint != null) {
+                System.err.println("Error: --sort-by cannot be combined with --follow or --checkpoint.");
+                return 1;
+            }
+            try {
+                sort = sortSpec(FieldPath.parse(sortBy), Sizes.parse(sortMemory, "--sort-memory"));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return 1;
+            }
+        }
+        if (transform != null) {
+            try {
+                rowTransform = Transform.compile(transform);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return 1;
+            }
+        }
+        // A checkpointed run opens its dead letters once it knows where to resume them
+        if (checkpoint == null && !openDeadLetters(0)) {
+            return 1;
+        }
+        JfrRecording recording = null;
+        try {
+            if (jfr != null) {
+                recording = JfrRecording.start(jfr, Duration.ofMillis(slowRowMs));
+            }
+            int result = decode(shards, selection);
+            return closeDeadLetters() ? result : 1;
+        } catch (IOException e) {
+            System.err.println("Error: could not start the --jfr recording: " + e.getMessage());
+            return 1;
+        } finally {
+            closeDeadLetters();
+            stopRecording(recording);
+        }
+    }
+
+    /** The {@code --sort-by} order: by the first value of {@code path} in each output row. */
+    @SuppressWarnings("unchecked")
+    private SortSpec sortSpec(FieldPath path, long memoryBytes) {
+        return new SortSpec(row -> row instanceof Map<?, ?> map ? path.first((Map<String, Object>) map) : null,
+                memoryBytes, sortDir);
+    }
 
+    /** Open the output, sorted with {@code --sort-by}. */
+    private RowWriter open(File file, ShardSpec shards) throws IOException {
+        RowWriter writer = jsonWriter.open(format, file, shards, compressionLevel());
+        return sort != null ? jsonWriter.sorted(writer, sort) : writer;
+    }
+
+    /** Write the {@code --jfr} recording, if any. */
+    private static void stopRecording(JfrRecording recording) {
+        if (recording == null) {
+            return;
+        }
         try {
-            List<CsvRow> csvRows = csvReader.read(csv, columns, encoding);
-            if (csvRows.isEmpty()) {
-                System.err.println("No rows found in CSV.");
-                return 0;
-            }
-
-            int totalRows = csvRows.size();
-            boolean showProgress = totalRows >= 100;
-            if (showProgress) {
-                System.err.printf("Decoding %,d rows...%n", totalRows);
-            }
-
-            List<Map<String, Object>> decodedRows = new ArrayList<>();
-            int errorCount = 0;
-
-            for (int i = 0; i < totalRows; i++) {
-                CsvRow row = csvRows.get(i);
-                Map<String, Object> decodedRow = new LinkedHashMap<>(row.stringColumns());
-
-                for (Map.Entry<String, ByteBuffer> entry : row.binaryColumns().entrySet()) {
-                    try {
-                        Map<String, Object> decoded = fbDecoder.decode(entry.getValue());
-                        decodedRow.put(entry.getKey(), decoded);
-                    } catch (Exception e) {
-                        LOG.warn("Row {}: failed to decode column '{}': {}",
-                                i + 1, entry.getKey(), e.getMessage());
-                        decodedRow.put(entry.getKey(), "<decode error: " + e.getMessage() + ">");
-                        errorCount++;
-                    }
-                }
+            recording.close();
+            System.err.println("Flight recording written to " + recording.destination());
+        } catch (IOException e) {
+            System.err.println("Error writing flight recording: " + e.getMessage());
+        }
+    }
 
-                decodedRows.add(decodedRow);
+    /** Decode the inputs once the options are validated. */
+    private int decode(ShardSpec shards, RowSelection selection) {
+        if (jdbcUrl != null) {
+            ProgressTracker progress = new ProgressTracker(ProgressTracker.UNKNOWN);
+            return decodeSingle(null, progress, shards, null, (sink, caughtUp) -> jdbcReader.stream(
+                    jdbcUrl, jdbcUser, jdbcPassword, query, columns, encoding, fetchSize, progress, sink));
+        }
 
-                if (showProgress && (i + 1) % 1000 == 0) {
-                    System.err.printf("  %,d / %,d rows decoded...%n", i + 1, totalRows);
-                }
+        List<File> inputs;
+        try {
+            inputs = CsvInputs.resolve(csv);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        if (follow) {
+            if (inputs.size() != 1 || inputs.get(0).getName().endsWith(".gz")) {
+                System.err.println("Error: --follow needs exactly one uncompressed CSV file.");
+                return 1;
             }
+            File input = inputs.get(0);
+            ProgressTracker progress = new ProgressTracker(ProgressTracker.UNKNOWN);
+            return decodeSingle(input, progress, shards, null, (sink, caughtUp) -> csvReader.follow(
+                    input, columns, encoding, Duration.ofMillis(pollIntervalMs),
+                    Duration.ofSeconds(idleTimeoutSeconds), progress, sink, caughtUp));
+        }
+        if (checkpoint != null) {
+            return decodeCheckpointed(inputs, shards);
+        }
 
-            if (showProgress) {
-                System.err.printf("  %,d / %,d rows decoded.%n", totalRows, totalRows);
+        int threadCount = threadCount();
+        ExecutorService workers = newPool(threadCount, "nimrod-worker");
+        ExecutorService fileThreads = newPool(Math.min(inputs.size(), threadCount), "nimrod-file");
+        boolean tagSource = inputs.size() > 1 && !perFile;
+        ProgressTracker progress = new ProgressTracker(
+                inputs.stream().mapToLong(File::length).sum());
+
+        List<FileResult> results = new ArrayList<>();
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             RowWriter combined = perFile ? null : open(output, shards)) {
+
+            List<Future<FileResult>> pending = new ArrayList<>();
+            for (File input : inputs) {
+                pending.add(fileThreads.submit(() ->
+                        decodeFile(input, combined, shards, selection, tagSource, workers, progress)));
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                results.add(await(inputs.get(i), pending.get(i)));
             }
 
-            jsonWriter.write(decodedRows, format, output);
+        } catch (FileNotFoundException e) {
+            System.err.println("Error: could not open output file: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+            LOG.error("Output failed", e);
+            return 1;
+        } finally {
+            fileThreads.shutdownNow();
+            workers.shutdownNow();
+        }
 
-            if (errorCount > 0) {
-                System.err.printf("%d decode error(s) encountered. See log for details.%n", errorCount);
+        return reportResults(results);
+    }
+
+    /**
+     * Decode the rows {@code selection} picks from one input file, writing to {@code combined}
+     * or, when null, to an output file next to the input.
+     */
+    private FileResult decodeFile(File input, RowWriter combined, ShardSpec shards, RowSelection selection,
+                                  boolean tagSource, ExecutorService workers, ProgressTracker progress)
+            throws IOException, SQLException {
+        LongAdder errors = new LongAdder();
+        RowWriter writer = combined != null
+                ? combined
+                : open(perFileOutput(input), shards);
+        String source = tagSource ? input.getPath() : null;
+
+        long rows;
+        try {
+            rows = decodeRows(
+                    (sink, caughtUp) -> csvReader.stream(input, columns, encoding, workers, progress, selection, sink),
+                    writer, source, input, workers, progress, errors, null);
+        } finally {
+            if (writer != combined) {
+                writer.close();
             }
+        }
+        return new FileResult(input, rows, errors.sum(), null);
+    }
 
-            return 0;
+    /**
+     * Decode a single CSV input with {@code --checkpoint}, continuing from the checkpoint a
+     * previous run left behind: the input is read from the recorded offset and the output and
+     * the {@code --dead-letter} file are cut back to their recorded lengths and appended to.
+     */
+    private int decodeCheckpointed(List<File> inputs, ShardSpec shards) {
+        if (inputs.size() != 1 || inputs.get(0).getName().endsWith(".gz")) {
+            System.err.println("Error: --checkpoint needs exactly one uncompressed CSV file.");
+            return 1;
+        }
+        File input = inputs.get(0);
+        CheckpointSession session;
+        try {
+            session = CheckpointSession.open(checkpoint.toPath(), input, output,
+                    Duration.ofSeconds(checkpointIntervalSeconds));
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        if (session.resuming()) {
+            System.err.printf("Resuming %s at row %,d (byte %,d).%n",
+                    input.getPath(), session.rowsBefore() + 1, session.inputOffset());
+        }
+        if (!openDeadLetters(session.deadLetterPosition())) {
+            session.close();
+            return 1;
+        }
+        ProgressTracker progress = new ProgressTracker(input.length() - session.inputOffset());
+        return decodeSingle(input, progress, shards, session, (sink, caughtUp) -> csvReader.streamFrom(
+                input, columns, encoding, session.inputOffset(), session.rowsBefore(), progress, sink));
+    }
 
-        } catch (java.io.FileNotFoundException e) {
+    /**
+     * Decode a single source that isn't a plain CSV file list (a {@code --jdbc} query, a
+     * {@code --follow}ed or a {@code --checkpoint}ed file) into the combined output.
+     *
+     * @param input   the CSV file, or null for a query
+     * @param session checkpoint state, or null when not checkpointing
+     */
+    private int decodeSingle(File input, ProgressTracker progress, ShardSpec shards,
+                             CheckpointSession session, RowSource source) {
+        ExecutorService workers = newPool(threadCount(), "nimrod-worker");
+        LongAdder errors = new LongAdder();
+        long rows;
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             RowWriter writer = session != null && session.resuming()
+                     ? jsonWriter.append(format, output, session.outputPosition())
+                     : open(output, shards)) {
+
+            rows = decodeRows(source, writer, null, input, workers, progress, errors, session);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (SQLException e) {
+            System.err.println("Error: database query failed: " + e.getMessage());
+            LOG.error("Query failed", e);
+            return 1;
+        } catch (FileNotFoundException e) {
             System.err.println("Error: could not open output file: " + e.getMessage());
             return 1;
-        } catch (java.io.IOException e) {
-            System.err.println("Error reading CSV: " + e.getMessage());
-            LOG.error("CSV read failed", e);
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+            LOG.error("Output failed", e);
             return 1;
+        } finally {
+            workers.shutdownNow();
+            if (session != null) {
+                session.close();
+            }
+        }
+
+        if (session != null) {
+            try {
+                session.complete();
+            } catch (IOException e) {
+                LOG.warn("Could not remove checkpoint {}: {}", checkpoint, e.getMessage());
+            }
+        }
+        return reportResults(List.of(new FileResult(input, rows, errors.sum(), null)));
+    }
+
+    /**
+     * Decode every row of {@code source} into {@code writer}. Binary columns are decoded and
+     * serialised in ordered batches on {@code workers}, which are shared with the chunked CSV
+     * parser and with every other input; the calling thread only appends the finished bytes.
+     * Rows keep the record number their source gave them, and their dead letters are written
+     * with them. With a checkpoint session, the session hears about every written row that
+     * ends a resumable chunk.
+     *
+     * @param input the CSV file the rows come from, or null for a query
+     */
+    private long decodeRows(RowSource source, RowWriter writer, String tag, File input,
+                            ExecutorService workers, ProgressTracker progress, LongAdder errors,
+                            CheckpointSession session)
+            throws IOException, SQLException {
+        String letterSource = input != null ? input.getPath() : null;
+        var batches = new OrderedBatches<CsvRow, DecodedRow>(
+                workers, DECODE_BATCH_SIZE, 2 * threadCount(),
+                row -> process(row, writer, tag, letterSource, errors),
+                decoded -> {
+                    if (!decoded.letters().isEmpty()) {
+                        deadLetters.write(decoded.letters());
+                    }
+                    for (EncodedRow encoded : decoded.encoded()) {
+                        writer.write(encoded);
+                    }
+                    progress.rowDone();
+                    if (session != null && decoded.endOffset() != CsvRow.NO_OFFSET) {
+                        session.reached(writer, deadLetters, decoded.number(), decoded.endOffset());
+                    }
+                });
+
+        try {
+            long rows = source.stream(row -> {
+                try {
+                    batches.add(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, () -> {
+                // Let a live reader see every row decoded so far
+                try {
+                    batches.finish();
+                    writer.flush();
+                    if (deadLetters != null) {
+                        deadLetters.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            batches.finish();
+            return rows;
+        } catch (UncheckedIOException e) {
+            batches.cancel();
+            throw e.getCause();
+        } catch (RuntimeException | IOException | SQLException e) {
+            batches.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Decode, transform and serialise one row on a worker, formatting its dead letters, if
+     * any, as coming from {@code letterSource}. A row that takes longer than the
+     * {@link SlowRowEvent} threshold is recorded as one.
+     */
+    private DecodedRow process(CsvRow csvRow, RowWriter writer, String tag, String letterSource,
+                               LongAdder errors) {
+        SlowRowEvent event = new SlowRowEvent();
+        event.begin();
+        long number = csvRow.recordNumber();
+        List<String> letters = deadLetters != null ? new ArrayList<>(0) : List.of();
+        DeadLetterWriter.Rejects rejects = deadLetters != null ? DeadLetterWriter.into(letterSource, letters) : null;
+        Map<String, Object> row = decodeRow(fbDecoder, csvRow, number, tag, errors, rejects, rowTransform, limits);
+        List<EncodedRow> encoded = encode(writer, outputs(row, number, errors));
+        if (event.shouldCommit()) {
+            List<String> types = new ArrayList<>();
+            long blobSize = 0;
+            for (Map.Entry<String, ByteBuffer> blob : csvRow.binaryColumns().entrySet()) {
+                blobSize += blob.getValue().remaining();
+                if (row != null && row.get(blob.getKey()) instanceof Map<?, ?> decoded) {
+                    types.add(String.valueOf(decoded.get("_type")));
+                }
+            }
+            event.source = tag;
+            event.rowNumber = number;
+            event.types = String.join(",", types);
+            event.blobSize = blobSize;
+            event.outputs = encoded.size();
+            event.commit();
+        }
+        return new DecodedRow(number, csvRow.endOffset(), encoded, letters);
+    }
+
+    /**
+     * What to write for a decoded row: nothing for a row that went to the dead letters, the
+     * row itself, or the outputs of {@code --transform}. A row the transform fails on is
+     * counted as an error and left out, as jq would.
+     */
+    private List<Object> outputs(Map<String, Object> row, long rowNumber, LongAdder errors) {
+        if (row == null) {
+            return List.of();
+        }
+        if (rowTransform == null) {
+            return List.of(row);
+        }
+        try {
+            return rowTransform.apply(row);
+        } catch (IllegalArgumentException e) {
+            errors.increment();
+            DECODE_WARNINGS.warn("Row {}: --transform failed: {}", rowNumber, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static List<EncodedRow> encode(RowWriter writer, List<Object> rows) {
+        try {
+            List<EncodedRow> encoded = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                encoded.add(writer.encode(row));
+            }
+            return encoded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Open the {@code --dead-letter} file, if one was given, keeping its first {@code position}
+     * bytes; false if it could not be opened.
+     */
+    private boolean openDeadLetters(long position) {
+        if (deadLetter == null) {
+            return true;
+        }
+        try {
+            deadLetters = new DeadLetterWriter(deadLetter, position);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error: could not open dead-letter file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Close the {@code --dead-letter} file, if any; false if it could not be written. */
+    private boolean closeDeadLetters() {
+        if (deadLetters == null) {
+            return true;
+        }
+        try {
+            deadLetters.close();
+            if (deadLetters.count() > 0) {
+                System.err.printf("%,d failing cell(s) written to %s%n", deadLetters.count(), deadLetters.file());
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing dead-letter file: " + e.getMessage());
+            return false;
+        } finally {
+            deadLetters = null;
+        }
+    }
+
+    private FileResult await(File input, Future<FileResult> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding " + input.getPath(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileNotFoundException notFound) {
+                throw notFound;
+            }
+            LOG.error("Failed to decode {}", input.getPath(), e.getCause());
+            return new FileResult(input, 0, 0, e.getCause().getMessage());
+        }
+    }
+
+    /** Print per-file (or, for a single input, the familiar) summary lines. */
+    private int reportResults(List<FileResult> results) {
+        boolean failed = false;
+        if (results.size() == 1) {
+            FileResult result = results.get(0);
+            if (result.failure() != null) {
+                System.err.println("Error: " + result.failure());
+                return 1;
+            }
+            if (result.rows() == 0) {
+                System.err.println(result.input() != null ? "No rows found in CSV." : "Query returned no rows.");
+            }
+            if (result.errors() > 0) {
+                System.err.printf("%d decode error(s) encountered. See log for details.%n", result.errors());
+            }
+            return 0;
+        }
+        for (FileResult result : results) {
+            if (result.failure() != null) {
+                System.err.printf("  %s: failed: %s%n", result.input().getPath(), result.failure());
+                failed = true;
+            } else {
+                System.err.printf("  %s: %,d rows, %d decode error(s)%n",
+                        result.input().getPath(), result.rows(), result.errors());
+            }
+        }
+        return failed ? 1 : 0;
+    }
+
+    private File perFileOutput(File input) {
+        String name = input.getName();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = format == Format.ndjson ? ".ndjson" : ".json";
+        if (compressionLevel() != JsonWriter.NO_COMPRESSION) {
+            extension += ".gz";
+        }
+        return new File(input.getAbsoluteFile().getParentFile(), base + extension);
+    }
+
+    private int compressionLevel() {
+        return compress != null ? compress : JsonWriter.compressionFor(output);
+    }
+
+    private int threadCount() {
+        return threads != null && threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    static ExecutorService newPool(int size, String name) {
+        return Executors.newFixedThreadPool(Math.max(1, size), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Decode every binary column of a CSV row, keeping the string columns as-is. */
+    static Map<String, Object> decodeRow(FbDecoder fbDecoder, CsvRow row, long rowNumber, String source,
+                                         LongAdder errors) {
+        return decodeRow(fbDecoder, row, rowNumber, source, errors, null, null, DecodeLimits.NONE);
+    }
+
+    /**
+     * Decode every binary column of a CSV row, keeping the string columns as-is. A blob that
+     * matches no schema or fails to decode is counted in {@code errors}. Without
+     * {@code rejects} it is written as {@code "<decode error: ...>"}; with them, every failing
+     * cell of the row, including cells that were not validly encoded, goes to {@code rejects}
+     * and null is returned so that the row is left out of the output. With a
+     * {@code transform}, only the fields it reads are decoded, and {@code limits} cut long
+     * vectors and deep tables.
+     */
+    static Map<String, Object> decodeRow(FbDecoder fbDecoder, CsvRow row, long rowNumber, String source,
+                                         LongAdder errors, DeadLetterWriter.Rejects rejects,
+                                         Transform transform, DecodeLimits limits) {
+        Map<String, Object> decodedRow = new LinkedHashMap<>();
+        if (source != null) {
+            decodedRow.put("_file", source);
+        }
+        decodedRow.putAll(row.stringColumns());
+
+        boolean rejected = false;
+        if (rejects != null) {
+            for (Map.Entry<String, String> entry : row.undecoded().entrySet()) {
+                reject(rejects, rowNumber, entry.getKey(), entry.getValue(), row);
+                errors.increment();
+                rejected = true;
+            }
+        }
+        for (Map.Entry<String, ByteBuffer> entry : row.binaryColumns().entrySet()) {
+            FieldSelection fields = transform != null ? transform.fields(entry.getKey()) : FieldSelection.ALL;
+            FbDecoder.Result result = tryDecode(fbDecoder, entry.getValue(), fields, limits);
+            if (result.ok()) {
+                decodedRow.put(entry.getKey(), result.value());
+                continue;
+            }
+            errors.increment();
+            if (rejects != null) {
+                reject(rejects, rowNumber, entry.getKey(), result.reason(), row);
+                rejected = true;
+            } else {
+                DECODE_WARNINGS.warn("Row {}: failed to decode column '{}': {}",
+                        rowNumber, entry.getKey(), result.reason());
+                decodedRow.put(entry.getKey(), "<decode error: " + result.reason() + ">");
+            }
+        }
+        return rejected ? null : decodedRow;
+    }
+
+    private static FbDecoder.Result tryDecode(FbDecoder fbDecoder, ByteBuffer blob, FieldSelection fields,
+                                              DecodeLimits limits) {
+        try {
+            return fbDecoder.tryDecode(blob, fields, limits);
         } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-            LOG.error("Decode failed", e);
-            return 1;
+            return new FbDecoder.Result(null, FbDecoder.Miss.FAILED, e.getMessage());
+        }
+    }
+
+    private static void reject(DeadLetterWriter.Rejects rejects, long rowNumber, String column, String reason,
+                               CsvRow row) {
+        try {
+            rejects.reject(rowNumber, column, reason, row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
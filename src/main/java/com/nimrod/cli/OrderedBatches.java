@@ -0,0 +1,108 @@
+package com.nimrod.cli;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs a per-item transformation on a worker pool in batches while delivering the results
+ * to a sink in the original order, on the thread that adds the items.
+ *
+ * <p>At most {@code maxInFlight} batches are queued or running at once; adding an item
+ * beyond that blocks until the oldest batch has finished and been drained, which keeps
+ * memory bounded regardless of input size.</p>
+ */
+final class OrderedBatches<I, O> {
+
+    /** Receives results in input order. */
+    @FunctionalInterface
+    interface Sink<O> {
+        void accept(O result) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Function<I, O> work;
+    private final Sink<O> sink;
+    private final Deque<Future<List<O>>> inFlight = new ArrayDeque<>();
+    private List<I> batch;
+
+    OrderedBatches(ExecutorService pool, int batchSize, int maxInFlight, Function<I, O> work, Sink<O> sink) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.work = work;
+        this.sink = sink;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    void add(I item) throws IOException {
+        batch.add(item);
+        if (batch.size() >= batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * Submit the partial batch and drain every outstanding result. More items may be added
+     * afterwards, so this also serves to flush a source that pauses.
+     */
+    void finish() throws IOException {
+        if (!batch.isEmpty()) {
+            submit();
+        }
+        while (!inFlight.isEmpty()) {
+            drainOldest();
+        }
+    }
+
+    /** Cancel outstanding batches after a failure. */
+    void cancel() {
+        inFlight.forEach(f -> f.cancel(true));
+        inFlight.clear();
+    }
+
+    private void submit() throws IOException {
+        List<I> items = batch;
+        batch = new ArrayList<>(batchSize);
+        inFlight.add(pool.submit(() -> {
+            List<O> results = new ArrayList<>(items.size());
+            for (I item : items) {
+                results.add(work.apply(item));
+            }
+            return results;
+        }));
+        while (inFlight.size() > maxInFlight) {
+            drainOldest();
+        }
+    }
+
+    private void drainOldest() throws IOException {
+        List<O> results;
+        try {
+            results = inFlight.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for decode workers", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Decode worker failed", e.getCause());
+        }
+        for (O result : results) {
+            sink.accept(result);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.nimrod.cli;
+
+import java.util.Locale;
+
+/**
+ * Byte counts given on the command line ({@code --size}, {@code --sort-memory},
+ * {@code --memory}).
+ */
+final class Sizes {
+
+    private Sizes() {
+    }
+
+    /**
+     * Parse a byte count with an optional k, m or g suffix (powers of 1024).
+     *
+     * @param option the option it was given for, for the error message
+     * @throws IllegalArgumentException if {@code text} is not a positive size
+     */
+    static long parse(String text, String option) {
+        String value = text.strip().toLowerCase(Locale.ROOT);
+        int shift = 0;
+        if (!value.isEmpty()) {
+            switch (value.charAt(value.length() - 1)) {
+                case 'k' -> shift = 10;
+                case 'm' -> shift = 20;
+                case 'g' -> shift = 30;
+                default -> { }
+            }
+        }
+        try {
+            long number = Long.parseLong(shift == 0 ? value : value.substring(0, value.length() - 1));
+            if (number > 0 && number <= Long.MAX_VALUE >> shift) {
+                return number << shift;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid " + option + " '" + text + "'; expected e.g. 500m or 4g");
+    }
+}
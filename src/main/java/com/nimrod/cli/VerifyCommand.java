@@ -0,0 +1,206 @@
+package com.nimrod.cli;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.csv.CsvInputs;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.flatbuffers.BufferVerifier;
+import com.nimrod.progress.ProgressReporter;
+import com.nimrod.progress.ProgressTracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Check every FlatBuffer blob of one or more CSV exports for structural damage without
+ * decoding it to JSON (see {@link BufferVerifier}), and report the bad ones.
+ *
+ * <p>The report is tab-separated with a header line: file, row number (from 1, not counting
+ * the CSV header), column, matched type and what is wrong, e.g.
+ * <pre>
+ *   file                 row   column  type       problem
+ *   exports/armies.csv   1234  data    FbsDbArmy  units[3].name: string at 0x1f0 of 812 bytes runs past the end of the buffer (640 bytes)
+ * </pre>
+ * The exit code is 1 if any blob is bad, so the command can gate an import.</p>
+ *
+ * <p>Usage examples:
+ * <pre>
+ *   nimrod verify exports/armies.csv
+ *   nimrod verify 'exports/*.csv.gz' -o bad-rows.tsv
+ * </pre>
+ */
+@Component
+@Command(
+    name = "verify",
+    mixinStandardHelpOptions = true,
+    description = "Check the structure of every FlatBuffer blob in CSV exports (offsets, vtables, strings, "
+                + "vectors) without decoding, and report the bad rows. Exits with 1 if any blob is bad."
+)
+public class VerifyCommand implements Callable<Integer> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VerifyCommand.class);
+
+    /** Rows verified per task handed to the worker pool. */
+    private static final int BATCH_SIZE = 1024;
+
+    @Parameters(arity = "1..*", paramLabel = "<path>",
+                description = "CSV export file(s) (plain or .csv.gz), directories or globs.")
+    private List<String> paths;
+
+    @Option(names = {"--column"},
+            description = "Column name(s) containing binary data. Auto-detects if omitted.")
+    private String[] columns;
+
+    @Option(names = {"--encoding", "-e"}, defaultValue = "base64",
+            description = "Encoding of binary data in the CSV: base64, hex, or raw. Default: ${DEFAULT-VALUE}")
+    private Encoding encoding;
+
+    @Option(names = {"--output", "-o"},
+            description = "Report file path. Default: stdout.")
+    private File output;
+
+    @Option(names = {"--threads", "-t"},
+            description = "Worker threads for parsing and verifying. Default: number of CPU cores.")
+    private Integer threads;
+
+    @Option(names = {"--progress-interval"}, defaultValue = "2",
+            description = "Seconds between progress reports on stderr; 0 disables. Default: ${DEFAULT-VALUE}")
+    private int progressInterval;
+
+    private final CsvReader csvReader;
+    private final BufferVerifier verifier;
+
+    public VerifyCommand(CsvReader csvReader, BufferVerifier verifier) {
+        this.csvReader = csvReader;
+        this.verifier = verifier;
+    }
+
+    /** A CSV row with its 1-based number. */
+    private record NumberedRow(long number, CsvRow row) {}
+
+    /** A bad blob: the row and column it came from and what the verifier found. */
+    private record BadBlob(long row, String column, BufferVerifier.Result result) {}
+
+    /** The bad blobs of one row (usually none) and how many blobs it had. */
+    private record VerifiedRow(int blobs, List<BadBlob> bad) {}
+
+    @Override
+    public Integer call() {
+        List<File> inputs;
+        try {
+            inputs = CsvInputs.resolve(paths);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+
+        int threadCount = threads != null && threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = NimrodCommand.newPool(threadCount, "nimrod-worker");
+        ProgressTracker progress = new ProgressTracker(inputs.stream().mapToLong(File::length).sum());
+        long started = System.nanoTime();
+        long[] totals = new long[3]; // rows, blobs, bad blobs
+
+        try (ProgressReporter reporter = ProgressReporter.start(
+                     progress, System.err, Duration.ofSeconds(progressInterval));
+             Writer report = openReport()) {
+
+            report.write("file\trow\tcolumn\ttype\tproblem\n");
+            for (File input : inputs) {
+                var batches = new OrderedBatches<NumberedRow, VerifiedRow>(
+                        workers, BATCH_SIZE, 2 * threadCount,
+                        this::verifyRow,
+                        verified -> {
+                            totals[1] += verified.blobs();
+                            for (BadBlob bad : verified.bad()) {
+                                report.write(input.getPath() + '\t' + bad.row() + '\t' + bad.column() + '\t'
+                                        + (bad.result().type() != null ? bad.result().type() : "-") + '\t'
+                                        + bad.result().problem() + '\n');
+                                totals[2]++;
+                            }
+                            progress.rowDone();
+                        });
+                long[] rowNumber = {0};
+                try {
+                    totals[0] += csvReader.stream(input, columns, encoding, workers, progress, row -> {
+                        try {
+                            batches.add(new NumberedRow(++rowNumber[0], row));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    batches.finish();
+                } catch (UncheckedIOException e) {
+                    batches.cancel();
+                    throw e.getCause();
+                } catch (IOException | RuntimeException e) {
+                    batches.cancel();
+                    throw e;
+                }
+            }
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            LOG.error("Verification failed", e);
+            return 1;
+        } finally {
+            workers.shutdownNow();
+        }
+
+        System.err.printf("Verified %,d blobs in %,d rows of %d file(s) in %.1f s: %s%n",
+                totals[1], totals[0], inputs.size(), (System.nanoTime() - started) / 1e9,
+                totals[2] == 0 ? "all sound" : String.format("%,d bad", totals[2]));
+        return totals[2] == 0 ? 0 : 1;
+    }
+
+    private VerifiedRow verifyRow(NumberedRow numbered) {
+        Map<String, ByteBuffer> blobs = numbered.row().binaryColumns();
+        List<BadBlob> bad = List.of();
+        for (Map.Entry<String, ByteBuffer> blob : blobs.entrySet()) {
+            BufferVerifier.Result result = verifier.verify(blob.getValue());
+            if (!result.ok()) {
+                if (bad.isEmpty()) {
+                    bad = new ArrayList<>(1);
+                }
+                bad.add(new BadBlob(numbered.number(), blob.getKey(), result));
+            }
+        }
+        return new VerifiedRow(blobs.size(), bad);
+    }
+
+    /** The report goes to {@code --output}, or to stdout, which is left open. */
+    private Writer openReport() throws IOException {
+        if (output != null) {
+            return Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8);
+        }
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
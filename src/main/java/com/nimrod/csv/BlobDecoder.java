@@ -0,0 +1,276 @@
+package com.nimrod.csv;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Turns the text of a binary cell into its bytes: the decoding behind
+ * {@link CsvReader#decodeBinary}.
+ *
+ * <p>Cells of at least {@link #VECTOR_THRESHOLD} characters are decoded with
+ * {@link VectorBlobDecoder} when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}; everything else, and any cell the vector code
+ * gives up on, goes through the scalar code. Both produce the same bytes as
+ * {@link Base64#getDecoder()} and {@link java.util.HexFormat#parseHex} and reject the same
+ * input. Setting {@code -Dnimrod.vector=false} forces the scalar code.</p>
+ *
+ * <p>Text that is not validly encoded is recognised before it reaches a decoder that would
+ * throw, so {@link #tryDecode} can report it as null; only {@link #decode} pays for an
+ * exception, once the problem is known. For base64 on the JDK decoder the check is a
+ * constant-cost probe (see {@link #looksLikeBase64}).</p>
+ *
+ * <p>Base64 is the exception: where HotSpot has its own SIMD stub for
+ * {@code Base64.Decoder} ({@code UseBASE64Intrinsics}, on by default on x86 with AVX2 and on
+ * AArch64), that stub is two to three times faster than the Vector API loop and is used
+ * instead. Hex has no such stub; see {@code BlobDecoderBenchmark} for the numbers.</p>
+ */
+final class BlobDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlobDecoder.class);
+
+    /** Shorter cells are decoded faster than the vector loop can get going. */
+    static final int VECTOR_THRESHOLD = 256;
+
+    static final boolean VECTOR = vectorAvailable();
+
+    /** Whether base64 goes through the Vector API, i.e. the JDK decoder is not intrinsified. */
+    static final boolean VECTOR_BASE64 = VECTOR && !base64Intrinsic();
+
+    /** Value of every Latin-1 character as a hex digit, {@link #SEPARATOR} or {@link #INVALID}. */
+    private static final byte[] HEX_VALUES = new byte[256];
+    private static final byte SEPARATOR = -2;
+    private static final byte INVALID = -1;
+
+    /** Leading characters of a cell that {@link #looksLikeBase64} checks. */
+    private static final int BASE64_PROBE = 64;
+
+    /** Whether a Latin-1 character is in the base64 alphabet (padding excluded). */
+    private static final boolean[] BASE64_ALPHABET = new boolean[256];
+
+    static {
+        for (int c = 0; c < 256; c++) {
+            HEX_VALUES[c] = Character.isWhitespace(c) || c == '-' ? SEPARATOR : (byte) Character.digit(c, 16);
+            BASE64_ALPHABET[c] = c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9'
+                    || c == '+' || c == '/';
+        }
+    }
+
+    private BlobDecoder() {
+    }
+
+    private static boolean vectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("nimrod.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            boolean usable = VectorBlobDecoder.usable();
+            LOG.debug("Vector decoding {} ({} lanes)", usable ? "enabled" : "disabled", VectorBlobDecoder.LANES);
+            return usable;
+        } catch (LinkageError e) {
+            LOG.debug("Vector API unavailable: {}", e.toString());
+            return false;
+        }
+    }
+
+    private static boolean base64Intrinsic() {
+        try {
+            return Boolean.parseBoolean(ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                    .getVMOption("UseBASE64Intrinsics").getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // Not HotSpot, or no jdk.management: nothing known to beat the vector loop
+            return false;
+        }
+    }
+
+    static byte[] decode(String value, Encoding encoding) {
+        byte[] decoded = tryDecode(value, encoding);
+        if (decoded == null) {
+            // Only now find out what exactly is wrong, the way the JDK would report it
+            String text = value.strip();
+            if (encoding == Encoding.base64) {
+                Base64.getDecoder().decode(text);
+            }
+            throw new IllegalArgumentException(hexProblem(text.getBytes(StandardCharsets.ISO_8859_1), hexStart(text)));
+        }
+        return decoded;
+    }
+
+    /**
+     * Like {@link #decode}, but returns null instead of throwing when {@code value} is not
+     * valid base64 or hex, so that the miss costs no exception.
+     */
+    static byte[] tryDecode(String value, Encoding encoding) {
+        return switch (encoding) {
+            case base64 -> base64(value.strip(), VECTOR_BASE64);
+            case hex -> hex(value.strip(), VECTOR);
+            case raw -> value.getBytes(StandardCharsets.ISO_8859_1);
+        };
+    }
+
+    /** The bytes of base64 {@code text}, or null if it is not what {@link Base64#getDecoder()} accepts. */
+    static byte[] base64(String text, boolean vector) {
+        byte[] src = text.getBytes(StandardCharsets.ISO_8859_1);
+        if (!looksLikeBase64(src)) {
+            return null;
+        }
+        if (!vector || src.length < VECTOR_THRESHOLD) {
+            return jdkBase64(src);
+        }
+        int padding = src[src.length - 1] != '=' ? 0 : src[src.length - 2] != '=' ? 1 : 2;
+        int length = src.length / 4 * 3 + switch (src.length % 4) {
+            case 0 -> -padding;
+            case 2 -> 1;
+            case 3 -> 2;
+            default -> Integer.MIN_VALUE; // Never valid
+        };
+        if (length < 0) {
+            return null;
+        }
+        // The last block, which may be padded, is left to the scalar decoder
+        byte[] dst = new byte[length];
+        int done = VectorBlobDecoder.base64(src, src.length - 4, dst);
+        if (done < 0) {
+            return jdkBase64(src);
+        }
+        if (!isBase64(src, done)) {
+            return null;
+        }
+        ByteBuffer tail = Base64.getDecoder().decode(ByteBuffer.wrap(src, done, src.length - done));
+        tail.get(dst, done / 4 * 3, tail.remaining());
+        return dst;
+    }
+
+    /**
+     * The JDK decoder's result, or null for a cell that is damaged somewhere
+     * {@link #looksLikeBase64} does not look. Such a cell costs an exception, but it is a
+     * broken blob, not the plain text that makes up the usual misses.
+     */
+    private static byte[] jdkBase64(byte[] src) {
+        try {
+            return Base64.getDecoder().decode(src);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A check that rejects text that is not base64 at a constant cost: a length that leaves
+     * a single character over, or a character outside the alphabet among the first
+     * {@link #BASE64_PROBE} or in the last 4-character unit. Validating every character
+     * would cost several times as much as the intrinsified decoding itself.
+     */
+    private static boolean looksLikeBase64(byte[] src) {
+        if (src.length % 4 == 1) {
+            return false;
+        }
+        int end = src.length;
+        if (end >= 4 && end % 4 == 0 && src[end - 1] == '=') {
+            end -= src[end - 2] == '=' ? 2 : 1;
+        }
+        int head = Math.min(end, BASE64_PROBE);
+        boolean valid = true;
+        for (int i = 0; i < head; i++) {
+            valid &= BASE64_ALPHABET[src[i] & 0xFF];
+        }
+        for (int i = Math.max(head, end - 4); i < end; i++) {
+            valid &= BASE64_ALPHABET[src[i] & 0xFF];
+        }
+        return valid;
+    }
+
+    /**
+     * Whether {@code src[from..]} is base64 that {@link Base64#getDecoder()} decodes without
+     * complaint: alphabet characters, and padding only to complete the last 4-character unit.
+     */
+    private static boolean isBase64(byte[] src, int from) {
+        int length = src.length - from;
+        int end = src.length;
+        if (length % 4 == 1) {
+            return false;
+        }
+        if (length >= 4 && length % 4 == 0 && src[end - 1] == '=') {
+            end -= src[end - 2] == '=' ? 2 : 1;
+        }
+        boolean valid = true;
+        for (int i = from; i < end; i++) {
+            valid &= BASE64_ALPHABET[src[i] & 0xFF];
+        }
+        return valid;
+    }
+
+    /**
+     * The bytes of hex digits with an optional {@code 0x} prefix, skipping whitespace and
+     * dashes between them, or null if there are other characters or an odd number of digits.
+     */
+    static byte[] hex(String text, boolean vector) {
+        byte[] src = text.getBytes(StandardCharsets.ISO_8859_1);
+        int start = hexStart(text);
+        if (vector && src.length - start >= VECTOR_THRESHOLD && (src.length - start) % 2 == 0) {
+            byte[] dst = new byte[(src.length - start) / 2];
+            int done = VectorBlobDecoder.hex(src, start, src.length, dst);
+            if (done >= 0 && scalarHex(src, start + done, dst, done / 2) == dst.length) {
+                return dst;
+            }
+        }
+        byte[] dst = new byte[(src.length - start) / 2];
+        int length = scalarHex(src, start, dst, 0);
+        return length < 0 ? null : length == dst.length ? dst : Arrays.copyOf(dst, length);
+    }
+
+    private static int hexStart(String text) {
+        return text.startsWith("0x") || text.startsWith("0X") ? 2 : 0;
+    }
+
+    /**
+     * Decode {@code src} from {@code start} into {@code dst} from {@code o}, skipping
+     * whitespace and dashes.
+     *
+     * @return the index after the last byte written, or a negative number if {@code src}
+     *         is not valid hex or {@code dst} turned out too small (only possible when
+     *         called for the vector tail, which has no separators)
+     */
+    private static int scalarHex(byte[] src, int start, byte[] dst, int o) {
+        int high = -1;
+        for (int i = start; i < src.length; i++) {
+            int digit = HEX_VALUES[src[i] & 0xFF];
+            if (digit == SEPARATOR) {
+                continue;
+            }
+            if (digit == INVALID || high >= 0 && o == dst.length) {
+                return -1;
+            }
+            if (high < 0) {
+                high = digit;
+            } else {
+                dst[o++] = (byte) (high << 4 | digit);
+                high = -1;
+            }
+        }
+        return high < 0 ? o : -1;
+    }
+
+    /** What is wrong with hex that {@link #hex} rejected. */
+    private static String hexProblem(byte[] src, int start) {
+        int digits = 0;
+        for (int i = start; i < src.length; i++) {
+            int digit = HEX_VALUES[src[i] & 0xFF];
+            if (digit == INVALID) {
+                return "Invalid hex character '" + (char) (src[i] & 0xFF) + "' at index " + i;
+            }
+            if (digit != SEPARATOR) {
+                digits++;
+            }
+        }
+        return "Hex string has an odd number of digits (" + digits + ")";
+    }
+}
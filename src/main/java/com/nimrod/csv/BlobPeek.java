@@ -0,0 +1,104 @@
+package com.nimrod.csv;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the file_identifier of a text-encoded blob without decoding the rest of it.
+ *
+ * <p>The blob is decoded as a stream and only its first 8 bytes are taken. For a gzipped
+ * blob that means inflating just as much as is needed for those bytes.</p>
+ */
+final class BlobPeek {
+
+    /** Returned for blobs too short or too broken to have an identifier. */
+    static final String NONE = "";
+
+    private BlobPeek() {
+    }
+
+    /** Bytes 4-7 of the decoded (and, if gzipped, decompressed) blob, as Latin-1 text. */
+    static String fileIdentifier(String value, Encoding encoding) {
+        try {
+            byte[] head;
+            try (InputStream in = decoding(value, encoding)) {
+                head = in.readNBytes(8);
+            }
+            if (head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+                try (InputStream in = new GZIPInputStream(decoding(value, encoding), 512)) {
+                    head = in.readNBytes(8);
+                }
+            }
+            return head.length == 8 ? new String(head, 4, 4, StandardCharsets.ISO_8859_1) : NONE;
+        } catch (IOException | IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+
+    /** The decoded bytes of {@code value}, produced as they are read. */
+    private static InputStream decoding(String value, Encoding encoding) {
+        String text = value.strip();
+        return switch (encoding) {
+            case base64 -> Base64.getDecoder().wrap(new CharsInputStream(text, 0));
+            case hex -> new HexInputStream(text, text.startsWith("0x") || text.startsWith("0X") ? 2 : 0);
+            case raw -> new CharsInputStream(value, 0);
+        };
+    }
+
+    /** The characters of a string as bytes, like {@code getBytes(ISO_8859_1)} without the copy. */
+    private static class CharsInputStream extends InputStream {
+        final String text;
+        int pos;
+
+        CharsInputStream(String text, int pos) {
+            this.text = text;
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return pos < text.length() ? text.charAt(pos++) & 0xFF : -1;
+        }
+    }
+
+    /** Pairs of hex digits as bytes; whitespace and dashes are skipped as in {@link CsvReader#decodeBinary}. */
+    private static final class HexInputStream extends CharsInputStream {
+
+        HexInputStream(String text, int pos) {
+            super(text, pos);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int high = nextDigit();
+            if (high < 0) {
+                return -1;
+            }
+            int low = nextDigit();
+            if (low < 0) {
+                throw new IOException("Odd number of hex digits");
+            }
+            return high << 4 | low;
+        }
+
+        private int nextDigit() throws IOException {
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (Character.isWhitespace(c) || c == '-') {
+                    continue;
+                }
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    throw new IOException("Not a hex digit: " + c);
+                }
+                return digit;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.nimrod.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Expands {@code --csv} arguments into the list of CSV files to process.
+ *
+ * <p>Each argument may be a file, a directory (all {@code *.csv} and {@code *.csv.gz} files
+ * directly inside it), or a glob such as {@code exports/*.csv} or
+ * {@code exports/**}{@code /*.csv}. Files are returned in argument order, directory and glob
+ * matches sorted by path, without duplicates.</p>
+ */
+public final class CsvInputs {
+
+    private CsvInputs() {
+    }
+
+    public static List<File> resolve(List<String> arguments) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String argument : arguments) {
+            if (isGlob(argument)) {
+                List<Path> matches = expandGlob(argument);
+                if (matches.isEmpty()) {
+                    throw new IllegalArgumentException("No CSV files match: " + argument);
+                }
+                files.addAll(matches);
+                continue;
+            }
+            Path path = Path.of(argument);
+            if (Files.isDirectory(path)) {
+                List<Path> matches = listCsvFiles(path);
+                if (matches.isEmpty()) {
+                    throw new IllegalArgumentException("No CSV files in directory: " + argument);
+                }
+                files.addAll(matches);
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                throw new IllegalArgumentException("CSV file not found: " + argument);
+            }
+        }
+        return files.stream().map(Path::toFile).toList();
+    }
+
+    static boolean isCsvFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".csv.gz");
+    }
+
+    private static boolean isGlob(String argument) {
+        for (char c : argument.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> listCsvFiles(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(Files::isRegularFile)
+                    .filter(CsvInputs::isCsvFile)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static List<Path> expandGlob(String pattern) throws IOException {
+        // Walk from the longest directory prefix that contains no glob characters
+        String normalised = pattern.replace(File.separatorChar, '/');
+        int firstGlob = 0;
+        while (firstGlob < normalised.length() && !isGlob(normalised.substring(firstGlob, firstGlob + 1))) {
+            firstGlob++;
+        }
+        int lastSlash = normalised.lastIndexOf('/', firstGlob);
+        Path base = Path.of(lastSlash < 0 ? "" : normalised.substring(0, lastSlash + 1));
+        if (!Files.isDirectory(base.toAbsolutePath())) {
+            return List.of();
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalised);
+        List<Path> matches = new ArrayList<>();
+        try (Stream<Path> entries = Files.walk(base)) {
+            entries.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .forEach(matches::add);
+        }
+        return matches;
+    }
+}
@@ -1,6 +1,11 @@
 package com.nimrod.csv;
 
 import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.jfr.BlobDecodeEvent;
+import com.nimrod.jfr.CsvParseEvent;
+import com.nimrod.jfr.DecompressEvent;
+import com.nimrod.progress.ProgressTracker;
+import com.nimrod.progress.RateLimitedLog;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -13,15 +18,27 @@ import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.HexFormat;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -34,14 +51,93 @@ public class CsvReader {
 
     private static final Logger LOG = LoggerFactory.getLogger(CsvReader.class);
 
+    /** Cells that do not decode can make up a whole column; log only a sample of them. */
+    private static final RateLimitedLog DECODE_WARNINGS = new RateLimitedLog(LOG, 20, Duration.ofSeconds(10));
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /** Files at least this large are split into byte ranges and parsed in parallel. */
+    static final long SPLIT_THRESHOLD = 32L * 1024 * 1024;
+
+    /** Target size of each byte range handed to a parser thread. */
+    static final long CHUNK_SIZE = 4L * 1024 * 1024;
+
+    /** Parsed chunks kept ahead of the consumer per file, bounding memory use. */
+    private static final int MAX_CHUNKS_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final CSVFormat HEADER_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setTrim(true)
+            .build();
+
+    private final long splitThreshold;
+    private final long chunkSize;
+
+    public CsvReader() {
+        this(SPLIT_THRESHOLD, CHUNK_SIZE);
+    }
+
+    /** For tests: split even small files into tiny chunks. */
+    CsvReader(long splitThreshold, long chunkSize) {
+        this.splitThreshold = splitThreshold;
+        this.chunkSize = chunkSize;
+    }
+
     /**
      * A single row from the CSV, with binary columns decoded into ByteBuffers
      * and everything else kept as strings.
+     *
+     * @param endOffset for the last row of each chunk read by {@link #streamFrom}, the file
+     *                  offset to resume from once this row is processed; otherwise {@link #NO_OFFSET}
+     * @param undecoded binary columns whose text could not be decoded, with the reason; their
+     *                  text is kept in {@code stringColumns}
+     * @param recordNumber 1-based number of the record in its file, not counting the header,
+     *                  whichever rows {@code --skip} or sampling leave out (for a query, the
+     *                  number of the result row); 0 if unknown
      */
     public record CsvRow(
             Map<String, String> stringColumns,
-            Map<String, ByteBuffer> binaryColumns
-    ) {}
+            Map<String, ByteBuffer> binaryColumns,
+            long endOffset,
+            Map<String, String> undecoded,
+            long recordNumber
+    ) {
+        public static final long NO_OFFSET = -1;
+
+        public CsvRow(Map<String, String> stringColumns, Map<String, ByteBuffer> binaryColumns) {
+            this(stringColumns, binaryColumns, NO_OFFSET, Map.of(), 0);
+        }
+
+        public CsvRow withEndOffset(long endOffset) {
+            return new CsvRow(stringColumns, binaryColumns, endOffset, undecoded, recordNumber);
+        }
+
+        public CsvRow withRecordNumber(long recordNumber) {
+            return new CsvRow(stringColumns, binaryColumns, endOffset, undecoded, recordNumber);
+        }
+    }
+
+    /** Receives each row together with the location of the record it was parsed from. */
+    @FunctionalInterface
+    public interface LocatedRowSink {
+        /**
+         * @param offset file offset of the record's first byte
+         * @param length bytes the record spans, including its line break
+         */
+        void accept(CsvRow row, long offset, int length) throws IOException;
+    }
+
+    /**
+     * A byte range of a CSV file made of whole records, as reported by {@link #streamLocated}.
+     *
+     * @param firstRecord 1-based number of the range's first record in the file, not counting
+     *                    the header; the ones after it are numbered on from there
+     */
+    public record Range(long from, long to, long firstRecord) {}
+
+    /** The header of a CSV file and the offset of the first record after it. */
+    private record Header(List<String> names, long dataStart) {}
 
     /**
      * Read the CSV file and return all rows.
@@ -55,86 +151,642 @@ public class CsvReader {
             throws IOException {
 
         List<CsvRow> rows = new ArrayList<>();
+        stream(csvFile, targetColumns, encoding, ProgressTracker.none(), rows::add);
+        return rows;
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(csvFile.toPath(), StandardCharsets.UTF_8);
-             CSVParser parser = CSVFormat.DEFAULT.builder()
-                     .setHeader()
-                     .setSkipHeaderRecord(true)
-                     .setTrim(true)
-                     .build()
-                     .parse(reader)) {
+    /**
+     * Read the CSV file row by row on the calling thread, handing each row to {@code sink}
+     * as soon as it is parsed.
+     */
+    public long stream(File csvFile, String[] targetColumns, Encoding encoding,
+                       ProgressTracker progress, Consumer<CsvRow> sink) throws IOException {
+        return stream(csvFile, targetColumns, encoding, null, progress, sink);
+    }
+
+    /**
+     * Read the CSV file row by row, handing each row to {@code sink} as soon as it is parsed.
+     * Bytes consumed from the file are reported to {@code progress} while parsing runs.
+     *
+     * <p>Files ending in {@code .gz} are decompressed on a background thread while they are
+     * parsed. When a worker pool is given, uncompressed files of at least
+     * {@link #SPLIT_THRESHOLD} bytes are memory-mapped and split into byte ranges on record
+     * boundaries (see {@link CsvSplitter}), which are parsed and binary-decoded on the pool. The header is parsed once and shared
+     * by every chunk, and rows are still delivered to {@code sink} in file order on the
+     * calling thread. The pool may be shared between several concurrent reads.</p>
+     *
+     * @param csvFile       the CSV file to read
+     * @param targetColumns explicit column names to treat as binary, or null for auto-detect
+     * @param encoding      how binary data is encoded in the CSV
+     * @param workers       pool for parsing large files in parallel, or null to parse sequentially
+     * @param progress      receives the number of bytes read from the file
+     * @param sink          receives each parsed row, in file order
+     * @return number of rows read
+     */
+    public long stream(File csvFile, String[] targetColumns, Encoding encoding, ExecutorService workers,
+                       ProgressTracker progress, Consumer<CsvRow> sink) throws IOException {
+
+        boolean splittable = !isGzip(csvFile) && csvFile.length() >= splitThreshold;
+        long rowCount = workers != null && splittable
+                ? streamSplit(csvFile, targetColumns, encoding, workers, progress, sink)
+                : streamSequential(csvFile, targetColumns, encoding, progress, sink);
+
+        LOG.info("Read {} rows from {}", rowCount, csvFile.getName());
+        return rowCount;
+    }
+
+    /**
+     * Read only the rows {@code selection} picks, handing them to {@code sink} in file order.
+     * With {@link RowSelection#all()} this is {@link #stream(File, String[], Encoding,
+     * ExecutorService, ProgressTracker, Consumer)}.
+     *
+     * <p>Otherwise the file is parsed sequentially on the calling thread. Rows that are not
+     * picked are only split into fields, never binary-decoded or decompressed, and reading
+     * stops as soon as the {@link RowSelection#limit()} is reached. A sample keeps the fields
+     * of its rows until the end of the input and decodes just those; a sample per type
+     * reads the file_identifier from the first bytes of each row's first binary column.</p>
+     *
+     * @return number of rows handed to {@code sink}
+     */
+    public long stream(File csvFile, String[] targetColumns, Encoding encoding, ExecutorService workers,
+                       ProgressTracker progress, RowSelection selection, Consumer<CsvRow> sink) throws IOException {
+        if (selection.isAll()) {
+            return stream(csvFile, targetColumns, encoding, workers, progress, sink);
+        }
+
+        long seen = 0;
+        long rowCount = 0;
+        try (InputStream in = openInput(csvFile, progress);
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+             CSVParser parser = HEADER_FORMAT.parse(reader)) {
 
             List<String> headers = parser.getHeaderNames();
             if (headers.isEmpty()) {
                 LOG.warn("CSV file has no headers");
-                return rows;
+                return 0;
             }
             LOG.info("CSV headers: {}", headers);
 
-            // Determine which columns to treat as binary
-            List<String> binaryColumnNames;
-            if (targetColumns != null && targetColumns.length > 0) {
-                // Validate that requested columns exist
-                List<String> missing = new ArrayList<>();
-                for (String col : targetColumns) {
-                    if (!headers.contains(col)) {
-                        missing.add(col);
-                    }
+            List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+            boolean detect = binaryColumnNames.isEmpty();
+            RowSampler<CSVRecord> sampler = selection.samples()
+                    ? new RowSampler<>(selection.samplePerType() > 0 ? selection.samplePerType() : selection.sample(),
+                                       selection.seed())
+                    : null;
+
+            for (CSVRecord record : parser) {
+                if (++seen <= selection.skip()) {
+                    continue;
+                }
+                if (detect) {
+                    binaryColumnNames = detectBinaryColumns(record, headers, encoding);
+                    detect = false;
+                }
+                if (sampler == null) {
+                    sink.accept(toRow(record, seen, CsvRow.NO_OFFSET, headers, binaryColumnNames, encoding));
+                    rowCount++;
+                } else if (selection.samplePerType() > 0) {
+                    String value = binaryColumnNames.isEmpty() ? null : record.get(binaryColumnNames.get(0));
+                    sampler.offer(seen, record, value == null ? BlobPeek.NONE : BlobPeek.fileIdentifier(value, encoding));
+                } else {
+                    sampler.offer(seen, record, BlobPeek.NONE);
+                }
+                if (selection.limit() > 0 && seen - selection.skip() >= selection.limit()) {
+                    break;
+                }
+            }
+
+            if (sampler != null) {
+                if (selection.samplePerType() > 0) {
+                    LOG.info("Rows per file_identifier: {}", sampler.seen());
                 }
-                if (!missing.isEmpty()) {
-                    throw new IllegalArgumentException(
-                            "Column(s) not found in CSV: " + missing
-                                    + ". Available columns: " + headers);
+                for (CSVRecord record : sampler.sample()) {
+                    // One parser reads the whole file here, so its record numbers are the file's
+                    sink.accept(toRow(record, record.getRecordNumber(), CsvRow.NO_OFFSET,
+                            headers, binaryColumnNames, encoding));
+                    rowCount++;
                 }
-                binaryColumnNames = List.of(targetColumns);
-                LOG.info("Targeting columns: {}", binaryColumnNames);
-            } else {
-                binaryColumnNames = new ArrayList<>();
-                LOG.info("Auto-detect mode: will detect binary columns from first row");
             }
+        }
+
+        LOG.info("Selected {} of {} rows read from {}", rowCount, seen, csvFile.getName());
+        return rowCount;
+    }
+
+    private long streamSequential(File csvFile, String[] targetColumns, Encoding encoding,
+                                  ProgressTracker progress, Consumer<CsvRow> sink) throws IOException {
+
+        long rowCount = 0;
+
+        try (InputStream in = openInput(csvFile, progress);
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+             CSVParser parser = HEADER_FORMAT.parse(reader)) {
+
+            List<String> headers = parser.getHeaderNames();
+            if (headers.isEmpty()) {
+                LOG.warn("CSV file has no headers");
+                return 0;
+            }
+            LOG.info("CSV headers: {}", headers);
+
+            List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
 
             boolean firstRow = true;
             for (CSVRecord record : parser) {
                 // Auto-detect on first row if no explicit columns
                 if (firstRow && binaryColumnNames.isEmpty()) {
-                    binaryColumnNames = autoDetectBinaryColumns(record, headers, encoding);
-                    if (binaryColumnNames.isEmpty()) {
-                        LOG.warn("No binary columns detected. "
-                                + "Try specifying --column explicitly or check --encoding.");
-                    } else {
-                        LOG.info("Auto-detected binary columns: {}", binaryColumnNames);
-                    }
+                    binaryColumnNames = detectBinaryColumns(record, headers, encoding);
                     firstRow = false;
                 }
 
-                Map<String, String> stringCols = new LinkedHashMap<>();
-                Map<String, ByteBuffer> binaryCols = new LinkedHashMap<>();
-
-                for (String header : headers) {
-                    String value = record.get(header);
-                    if (binaryColumnNames.contains(header) && value != null && !value.isBlank()) {
-                        try {
-                            byte[] decoded = decodeBinary(value, encoding);
-                            byte[] decompressed = tryDecompress(decoded);
-                            binaryCols.put(header, ByteBuffer.wrap(decompressed));
-                        } catch (Exception e) {
-                            LOG.warn("Failed to decode column '{}' in row {}: {}",
-                                    header, record.getRecordNumber(), e.getMessage());
-                            stringCols.put(header, value);
+                sink.accept(toRow(record, ++rowCount, CsvRow.NO_OFFSET, headers, binaryColumnNames, encoding));
+            }
+        }
+
+        return rowCount;
+    }
+
+    /**
+     * Open the file for sequential reading, counting raw bytes for progress. Gzip files are
+     * inflated on a background thread (see {@link ReadAheadGzipInputStream}); progress then
+     * tracks compressed bytes, which keeps the ETA meaningful against the file size.
+     */
+    private static InputStream openInput(File csvFile, ProgressTracker progress) throws IOException {
+        InputStream raw = new CountingInputStream(Files.newInputStream(csvFile.toPath()), progress::addBytes);
+        return isGzip(csvFile) ? new ReadAheadGzipInputStream(raw) : raw;
+    }
+
+    static boolean isGzip(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /**
+     * Follow a growing CSV file like {@code tail -f}: parse the rows already in it, then keep
+     * the file open and parse each complete record appended later, never re-reading bytes
+     * (see {@link CsvTail}). Runs until the thread is interrupted or no new data arrives for
+     * {@code idleTimeout}.
+     *
+     * @param pollInterval how often to check the file when no change notification arrives
+     * @param idleTimeout  stop after this long without new records; zero to follow forever
+     * @param caughtUp     called on the calling thread whenever all available rows have been
+     *                     handed to {@code sink}, e.g. to flush output
+     * @return number of rows read
+     */
+    public long follow(File csvFile, String[] targetColumns, Encoding encoding,
+                       Duration pollInterval, Duration idleTimeout, ProgressTracker progress,
+                       Consumer<CsvRow> sink, Runnable caughtUp) throws IOException {
+
+        long rowCount = 0;
+        List<String> headers = null;
+        List<String> binaryColumnNames = null;
+        CSVFormat format = null;
+        boolean detect = false;
+        boolean delivered = false;
+        long lastData = System.nanoTime();
+
+        try (CsvTail tail = new CsvTail(csvFile.toPath(), pollInterval)) {
+            while (!Thread.currentThread().isInterrupted()) {
+                CsvTail.Chunk chunk = tail.poll();
+                if (chunk == null) {
+                    if (delivered) {
+                        caughtUp.run();
+                        delivered = false;
+                    }
+                    if (!idleTimeout.isZero() && System.nanoTime() - lastData >= idleTimeout.toNanos()) {
+                        break;
+                    }
+                    tail.awaitChange();
+                    continue;
+                }
+                lastData = System.nanoTime();
+                progress.addBytes(chunk.bytes().length);
+
+                Reader reader = chunkReader(chunk);
+                try (CSVParser parser = chunk.fromStart() ? HEADER_FORMAT.parse(reader) : format.parse(reader)) {
+                    if (chunk.fromStart()) {
+                        headers = parser.getHeaderNames();
+                        LOG.info("Following {} with headers {}", csvFile.getName(), headers);
+                        format = chunkFormat(headers);
+                        binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+                        detect = binaryColumnNames.isEmpty();
+                    }
+                    for (CSVRecord record : parser) {
+                        // Auto-detect on the first row if no explicit columns
+                        if (detect) {
+                            binaryColumnNames = detectBinaryColumns(record, headers, encoding);
+                            detect = false;
+                        }
+                        sink.accept(toRow(record, ++rowCount, CsvRow.NO_OFFSET, headers, binaryColumnNames, encoding));
+                        delivered = true;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        LOG.info("Stopped following {} after {} rows", csvFile.getName(), rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Read the CSV file sequentially from byte offset {@code startOffset}, which must be 0 or
+     * an {@link CsvRow#endOffset()} reported by an earlier read. Records are parsed in chunks
+     * of about a megabyte (see {@link CsvTail}); the last row of each chunk carries the
+     * offset just past it, so an interrupted run can later resume exactly there. The header
+     * is always read from the start of the file.
+     *
+     * @param recordsBefore number of records before {@code startOffset}, which the records
+     *                      from there on are numbered after
+     * @return number of rows read from {@code startOffset} on
+     * @throws IOException if the file is shorter than {@code startOffset}
+     */
+    public long streamFrom(File csvFile, String[] targetColumns, Encoding encoding, long startOffset,
+                           long recordsBefore, ProgressTracker progress, Consumer<CsvRow> sink)
+            throws IOException {
+
+        Header header;
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (startOffset > size) {
+                throw new IOException(csvFile.getName() + " has " + size
+                        + " bytes, fewer than the resume offset " + startOffset);
+            }
+            header = readHeader(channel);
+        }
+        List<String> headers = header.names();
+        if (headers.isEmpty()) {
+            LOG.warn("CSV file has no headers");
+            return 0;
+        }
+        LOG.info("CSV headers: {}", headers);
+
+        CSVFormat format = chunkFormat(headers);
+        List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+        boolean detect = binaryColumnNames.isEmpty();
+        long rowCount = 0;
+
+        try (CsvTail tail = new CsvTail(csvFile.toPath(), Math.max(startOffset, header.dataStart()), Duration.ZERO)) {
+            CsvTail.Chunk chunk;
+            while ((chunk = tail.poll()) != null || (chunk = tail.rest()) != null) {
+                progress.addBytes(chunk.bytes().length);
+                try (CSVParser parser = format.parse(chunkReader(chunk))) {
+                    Iterator<CSVRecord> records = parser.iterator();
+                    while (records.hasNext()) {
+                        CSVRecord record = records.next();
+                        if (detect) {
+                            binaryColumnNames = detectBinaryColumns(record, headers, encoding);
+                            detect = false;
+                        }
+                        CsvRow row = toRow(record, recordsBefore + ++rowCount, CsvRow.NO_OFFSET,
+                                headers, binaryColumnNames, encoding);
+                        if (!records.hasNext()) {
+                            row = row.withEndOffset(chunk.endOffset());
+                        }
+                        sink.accept(row);
+                    }
+                }
+            }
+        }
+
+        LOG.info("Read {} rows from {} starting at byte {}", rowCount, csvFile.getName(), startOffset);
+        return rowCount;
+    }
+
+    /**
+     * Read the CSV file sequentially like {@link #stream}, additionally reporting the byte
+     * range of the record behind every row, so that rows can later be read on their own with
+     * {@link #streamRanges}. Compressed input can't be addressed by offset and is rejected.
+     *
+     * @return number of rows read
+     */
+    public long streamLocated(File csvFile, String[] targetColumns, Encoding encoding,
+                              ProgressTracker progress, LocatedRowSink sink) throws IOException {
+
+        if (isGzip(csvFile)) {
+            throw new IllegalArgumentException(
+                    "Rows of compressed input can't be located by offset: " + csvFile.getName());
+        }
+        Header header;
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            header = readHeader(channel);
+        }
+        List<String> headers = header.names();
+        if (headers.isEmpty()) {
+            LOG.warn("CSV file has no headers");
+            return 0;
+        }
+        LOG.info("CSV headers: {}", headers);
+        progress.addBytes(header.dataStart());
+
+        CSVFormat format = chunkFormat(headers);
+        List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+        boolean detect = binaryColumnNames.isEmpty();
+        long rowCount = 0;
+
+        try (CsvTail tail = new CsvTail(csvFile.toPath(), header.dataStart(), Duration.ZERO)) {
+            CsvTail.Chunk chunk;
+            while ((chunk = tail.poll()) != null || (chunk = tail.rest()) != null) {
+                progress.addBytes(chunk.bytes().length);
+                long chunkStart = chunk.endOffset() - chunk.bytes().length;
+                int[] bounds = CsvSplitter.recordBounds(chunk.bytes());
+                int next = 0;
+                try (CSVParser parser = format.parse(chunkReader(chunk))) {
+                    for (CSVRecord record : parser) {
+                        if (next == bounds.length) {
+                            throw new IOException("Lost track of record boundaries in "
+                                    + csvFile.getName() + " after byte " + chunkStart);
+                        }
+                        if (detect) {
+                            binaryColumnNames = detectBinaryColumns(record, headers, encoding);
+                            detect = false;
                         }
-                    } else {
-                        stringCols.put(header, value);
+                        sink.accept(toRow(record, ++rowCount, CsvRow.NO_OFFSET, headers, binaryColumnNames, encoding),
+                                chunkStart + bounds[next], bounds[next + 1] - bounds[next]);
+                        next += 2;
+                    }
+                }
+                if (next != bounds.length) {
+                    throw new IOException("Lost track of record boundaries in "
+                            + csvFile.getName() + " after byte " + chunkStart);
+                }
+            }
+        }
+
+        LOG.info("Read {} rows from {}", rowCount, csvFile.getName());
+        return rowCount;
+    }
+
+    /**
+     * Parse only the given byte ranges of the CSV file, each memory-mapped and read with the
+     * file's header, and hand their rows to {@code sink} in the order of {@code ranges}. This
+     * is how single rows are fetched through an index without touching the rest of the file.
+     *
+     * @param ranges whole records within the file, e.g. as reported by {@link #streamLocated}
+     * @return number of rows read
+     * @throws IOException if a range lies outside the records of the file
+     */
+    public long streamRanges(File csvFile, String[] targetColumns, Encoding encoding,
+                             List<Range> ranges, Consumer<CsvRow> sink) throws IOException {
+
+        long rowCount = 0;
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Header header = readHeader(channel);
+            List<String> headers = header.names();
+            if (headers.isEmpty()) {
+                LOG.warn("CSV file has no headers");
+                return 0;
+            }
+
+            CSVFormat format = chunkFormat(headers);
+            List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+            boolean detect = binaryColumnNames.isEmpty();
+            for (Range range : ranges) {
+                if (range.from() < header.dataStart() || range.to() > size || range.from() > range.to()) {
+                    throw new IOException("Bytes " + range.from() + "-" + range.to()
+                            + " are outside the rows of " + csvFile.getName() + " (" + size + " bytes)");
+                }
+                try (CSVParser parser = format.parse(mappedReader(channel, range.from(), range.to()))) {
+                    long recordNumber = range.firstRecord();
+                    for (CSVRecord record : parser) {
+                        if (detect) {
+                            binaryColumnNames = detectBinaryColumns(record, headers, encoding);
+                            detect = false;
+                        }
+                        sink.accept(toRow(record, recordNumber++, CsvRow.NO_OFFSET, headers, binaryColumnNames, encoding));
+                        rowCount++;
+                    }
+                }
+            }
+        }
+        return rowCount;
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        long dataStart = CsvSplitter.findRecordEnd(channel, 0, channel.size());
+        try (CSVParser headerParser = HEADER_FORMAT.parse(mappedReader(channel, 0, dataStart))) {
+            return new Header(headerParser.getHeaderNames(), dataStart);
+        }
+    }
+
+    private static Reader chunkReader(CsvTail.Chunk chunk) {
+        return new InputStreamReader(new ByteArrayInputStream(chunk.bytes()), StandardCharsets.UTF_8);
+    }
+
+    /** Format for parsing records after the header, with the column names given explicitly. */
+    private static CSVFormat chunkFormat(List<String> headers) {
+        return CSVFormat.DEFAULT.builder()
+                .setHeader(headers.toArray(String[]::new))
+                .setSkipHeaderRecord(false)
+                .setTrim(true)
+                .build();
+    }
+
+    private long streamSplit(File csvFile, String[] targetColumns, Encoding encoding, ExecutorService pool,
+                             ProgressTracker progress, Consumer<CsvRow> sink) throws IOException {
+
+        Deque<Future<List<CsvRow>>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // The header is parsed once; every chunk is given the column names explicitly
+            long dataStart = CsvSplitter.findRecordEnd(channel, 0, size);
+            List<String> headers;
+            try (CSVParser headerParser = HEADER_FORMAT.parse(mappedReader(channel, 0, dataStart))) {
+                headers = headerParser.getHeaderNames();
+            }
+            if (headers.isEmpty()) {
+                LOG.warn("CSV file has no headers");
+                return 0;
+            }
+            LOG.info("CSV headers: {}", headers);
+            progress.addBytes(dataStart);
+
+            CSVFormat chunkFormat = chunkFormat(headers);
+
+            List<String> binaryColumnNames = resolveBinaryColumns(targetColumns, headers);
+            if (binaryColumnNames.isEmpty() && dataStart < size) {
+                long firstEnd = CsvSplitter.findRecordEnd(channel, dataStart, size);
+                try (CSVParser firstParser = chunkFormat.parse(mappedReader(channel, dataStart, firstEnd))) {
+                    Iterator<CSVRecord> it = firstParser.iterator();
+                    if (it.hasNext()) {
+                        binaryColumnNames = detectBinaryColumns(it.next(), headers, encoding);
                     }
                 }
+            }
 
-                rows.add(new CsvRow(stringCols, binaryCols));
+            List<Long> boundaries = CsvSplitter.split(channel, dataStart, size, chunkSize, pool);
+            int chunkCount = boundaries.size() - 1;
+            LOG.info("Parsing {} in {} chunks", csvFile.getName(), chunkCount);
+
+            List<String> binaryColumns = binaryColumnNames;
+            long rowCount = 0;
+            int next = 0;
+            while (next < chunkCount || !inFlight.isEmpty()) {
+                // Keep a bounded window of chunks ahead of the consumer so memory stays flat
+                while (next < chunkCount && inFlight.size() < MAX_CHUNKS_IN_FLIGHT) {
+                    long from = boundaries.get(next);
+                    long to = boundaries.get(next + 1);
+                    inFlight.add(pool.submit(() -> parseChunk(
+                            channel, from, to, chunkFormat, headers, binaryColumns, encoding, progress)));
+                    next++;
+                }
+                for (CsvRow row : awaitChunk(inFlight.poll())) {
+                    // Rows of a chunk are numbered within it until the rows before it are counted
+                    sink.accept(row.withRecordNumber(++rowCount));
+                }
             }
+            return rowCount;
+        } finally {
+            inFlight.forEach(f -> f.cancel(true));
         }
+    }
 
-        LOG.info("Read {} rows from {}", rows.size(), csvFile.getName());
+    private List<CsvRow> parseChunk(FileChannel channel, long from, long to, CSVFormat chunkFormat,
+                                    List<String> headers, List<String> binaryColumnNames,
+                                    Encoding encoding, ProgressTracker progress) throws IOException {
+        List<CsvRow> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new CountingInputStream(mappedStream(channel, from, to), progress::addBytes),
+                     StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+             CSVParser parser = chunkFormat.parse(reader)) {
+            for (CSVRecord record : parser) {
+                // Chunks are parsed ahead of the ones before them, so records are counted per chunk
+                rows.add(toRow(record, record.getRecordNumber(), from, headers, binaryColumnNames, encoding));
+            }
+        }
         return rows;
     }
 
+    private static List<CsvRow> awaitChunk(Future<List<CsvRow>> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing CSV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Failed to parse CSV chunk", e.getCause());
+        }
+    }
+
+    private static InputStream mappedStream(FileChannel channel, long from, long to) {
+        return new MappedRangeInputStream(channel, from, to);
+    }
+
+    private static BufferedReader mappedReader(FileChannel channel, long from, long to) {
+        return new BufferedReader(new InputStreamReader(
+                mappedStream(channel, from, to), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Validate explicitly requested binary columns against the header.
+     *
+     * @return the requested columns, or an empty mutable list when auto-detecting
+     */
+    private List<String> resolveBinaryColumns(String[] targetColumns, List<String> headers) {
+        if (targetColumns != null && targetColumns.length > 0) {
+            // Validate that requested columns exist
+            List<String> missing = new ArrayList<>();
+            for (String col : targetColumns) {
+                if (!headers.contains(col)) {
+                    missing.add(col);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Column(s) not found in CSV: " + missing
+                                + ". Available columns: " + headers);
+            }
+            LOG.info("Targeting columns: {}", List.of(targetColumns));
+            return List.of(targetColumns);
+        }
+        LOG.info("Auto-detect mode: will detect binary columns from first row");
+        return new ArrayList<>();
+    }
+
+    private List<String> detectBinaryColumns(CSVRecord record, List<String> headers, Encoding encoding) {
+        List<String> detected = autoDetectBinaryColumns(record, headers, encoding);
+        if (detected.isEmpty()) {
+            LOG.warn("No binary columns detected. "
+                    + "Try specifying --column explicitly or check --encoding.");
+        } else {
+            LOG.info("Auto-detected binary columns: {}", detected);
+        }
+        return detected;
+    }
+
+    /**
+     * @param recordNumber 1-based number of the record, not counting the header: within the
+     *                     file, or within the chunk starting at {@code chunkOffset}
+     * @param chunkOffset  file offset of the chunk {@code recordNumber} counts from, or
+     *                     {@link CsvRow#NO_OFFSET} if it counts from the start of the file
+     */
+    private CsvRow toRow(CSVRecord record, long recordNumber, long chunkOffset, List<String> headers,
+                         List<String> binaryColumnNames, Encoding encoding) {
+        CsvParseEvent event = new CsvParseEvent();
+        event.begin();
+        Map<String, String> stringCols = new LinkedHashMap<>();
+        Map<String, ByteBuffer> binaryCols = new LinkedHashMap<>();
+        Map<String, String> undecoded = Map.of();
+
+        for (String header : headers) {
+            String value = record.get(header);
+            if (binaryColumnNames.contains(header) && value != null && !value.isBlank()) {
+                byte[] decoded = decodeCell(value, encoding);
+                if (decoded != null) {
+                    binaryCols.put(header, ByteBuffer.wrap(tryDecompress(decoded)));
+                    continue;
+                }
+                String reason = "not valid " + encoding;
+                if (chunkOffset == CsvRow.NO_OFFSET) {
+                    DECODE_WARNINGS.warn("Column '{}' in record {} is {}; kept as text",
+                            header, recordNumber, reason);
+                } else {
+                    DECODE_WARNINGS.warn("Column '{}' in record {} of the chunk at byte {} is {}; kept as text",
+                            header, recordNumber, chunkOffset, reason);
+                }
+                if (undecoded.isEmpty()) {
+                    undecoded = new LinkedHashMap<>();
+                }
+                undecoded.put(header, reason);
+            }
+            stringCols.put(header, value);
+        }
+
+        if (event.shouldCommit()) {
+            event.recordNumber = recordNumber;
+            event.chunkOffset = chunkOffset;
+            event.columns = headers.size();
+            event.binaryColumns = binaryCols.size();
+            event.commit();
+        }
+        return new CsvRow(stringCols, binaryCols, CsvRow.NO_OFFSET, undecoded, recordNumber);
+    }
+
+    /** {@link BlobDecoder#tryDecode}, as a {@link BlobDecodeEvent}. */
+    private static byte[] decodeCell(String value, Encoding encoding) {
+        BlobDecodeEvent event = new BlobDecodeEvent();
+        event.begin();
+        byte[] decoded = BlobDecoder.tryDecode(value, encoding);
+        if (event.shouldCommit()) {
+            event.encoding = encoding.name();
+            event.textLength = value.length();
+            event.bytes = decoded != null ? decoded.length : 0;
+            event.valid = decoded != null;
+            event.commit();
+        }
+        return decoded;
+    }
+
     /**
      * Auto-detect binary columns by trying to decode each column value
      * and checking if it looks like valid FlatBuffer data (at least 8 bytes).
@@ -148,45 +800,44 @@ public class CsvReader {
             if (value == null || value.isBlank()) {
                 continue;
             }
-            try {
-                byte[] decoded = decodeBinary(value, encoding);
-                byte[] decompressed = tryDecompress(decoded);
-                // A valid FlatBuffer needs at least 8 bytes (4 root offset + 4 identifier)
-                if (decompressed.length >= 8) {
-                    candidates.add(header);
-                }
-            } catch (Exception e) {
-                // Not binary data — skip
+            byte[] decoded = BlobDecoder.tryDecode(value, encoding);
+            // A valid FlatBuffer needs at least 8 bytes (4 root offset + 4 identifier)
+            if (decoded != null && tryDecompress(decoded).length >= 8) {
+                candidates.add(header);
             }
         }
         return candidates;
     }
 
-    private byte[] decodeBinary(String value, Encoding encoding) {
-        return switch (encoding) {
-            case base64 -> Base64.getDecoder().decode(value.strip());
-            case hex -> {
-                String hex = value.strip();
-                if (hex.startsWith("0x") || hex.startsWith("0X")) {
-                    hex = hex.substring(2);
-                }
-                yield HexFormat.of().parseHex(hex.replaceAll("[\\s-]", ""));
-            }
-            case raw -> value.getBytes(StandardCharsets.ISO_8859_1);
-        };
+    /** Decode a text-encoded blob ({@code --encoding}) into its raw bytes. */
+    public static byte[] decodeBinary(String value, Encoding encoding) {
+        return BlobDecoder.decode(value, encoding);
+    }
+
+    /** Like {@link #decodeBinary}, but returns null instead of throwing for text that is not validly encoded. */
+    public static byte[] tryDecodeBinary(String value, Encoding encoding) {
+        return BlobDecoder.tryDecode(value, encoding);
     }
 
     /** Try to gzip-decompress the data. If it's not gzipped, return the original bytes. */
-    private byte[] tryDecompress(byte[] data) {
+    public static byte[] tryDecompress(byte[] data) {
         if (data.length < 2) {
             return data;
         }
         // Check gzip magic: 0x1f 0x8b
         if ((data[0] & 0xFF) == 0x1F && (data[1] & 0xFF) == 0x8B) {
+            DecompressEvent event = new DecompressEvent();
+            event.begin();
+            event.compressedBytes = data.length;
             try (var gis = new GZIPInputStream(new ByteArrayInputStream(data))) {
-                return gis.readAllBytes();
+                byte[] inflated = gis.readAllBytes();
+                event.bytes = inflated.length;
+                return inflated;
             } catch (IOException e) {
+                event.failed = true;
                 LOG.debug("Data looked like gzip but failed to decompress: {}", e.getMessage());
+            } finally {
+                event.commit();
             }
         }
         return data;
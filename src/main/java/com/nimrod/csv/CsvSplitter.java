@@ -0,0 +1,179 @@
+package com.nimrod.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Finds record boundaries in a CSV file so that byte ranges can be parsed independently.
+ *
+ * <p>A newline only ends a record when it sits outside a quoted cell, i.e. when an even
+ * number of {@code "} characters precede it (escaped {@code ""} pairs keep the parity).
+ * The file is cut into fixed windows that are scanned in parallel; each window records its
+ * quote count and its first newline at relative even and odd parity. A prefix sum over the
+ * quote counts then tells which of the two candidates is a real boundary, so quoted cells
+ * spanning lines (or whole windows) are never split.</p>
+ */
+final class CsvSplitter {
+
+    private static final int SCAN_BLOCK = 64 * 1024;
+
+    /** Result of scanning one window: quote count and candidate boundaries (-1 if none). */
+    record WindowScan(long quotes, long firstEvenBoundary, long firstOddBoundary) {}
+
+    private CsvSplitter() {
+    }
+
+    /**
+     * Split {@code [start, end)} into chunks of roughly {@code chunkSize} bytes.
+     * The returned offsets begin with {@code start}, end with {@code end}, and every
+     * offset in between is the first byte of a record. {@code start} must itself be
+     * at a record boundary.
+     */
+    static List<Long> split(FileChannel channel, long start, long end, long chunkSize,
+                            ExecutorService pool) throws IOException {
+
+        List<Future<WindowScan>> scans = new ArrayList<>();
+        for (long from = start; from < end; from += chunkSize) {
+            long windowStart = from;
+            long windowEnd = Math.min(end, from + chunkSize);
+            scans.add(pool.submit(() -> scanWindow(channel, windowStart, windowEnd)));
+        }
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        long quotesBefore = 0;
+        for (int i = 0; i < scans.size(); i++) {
+            WindowScan scan = await(scans.get(i));
+            if (i > 0) {
+                long boundary = (quotesBefore & 1) == 0 ? scan.firstEvenBoundary() : scan.firstOddBoundary();
+                if (boundary > boundaries.get(boundaries.size() - 1) && boundary < end) {
+                    boundaries.add(boundary);
+                }
+            }
+            quotesBefore += scan.quotes();
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+    /**
+     * Find the end of the record starting at {@code from} (the offset just past its
+     * terminating newline), or {@code end} if the record runs to the end of the range.
+     */
+    static long findRecordEnd(FileChannel channel, long from, long end) throws IOException {
+        long quotes = 0;
+        byte[] block = new byte[SCAN_BLOCK];
+        for (long pos = from; pos < end; pos += SCAN_BLOCK) {
+            int len = (int) Math.min(SCAN_BLOCK, end - pos);
+            channel.map(FileChannel.MapMode.READ_ONLY, pos, len).get(block, 0, len);
+            for (int i = 0; i < len; i++) {
+                byte b = block[i];
+                if (b == '"') {
+                    quotes++;
+                } else if (b == '\n' && (quotes & 1) == 0) {
+                    return pos + i + 1;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Find the records in {@code bytes}, which must begin at a record boundary. Empty lines
+     * are left out, as the CSV parser skips them too, so the result lines up one-to-one with
+     * the parsed records.
+     *
+     * @return the start and end (exclusive) of each record, as consecutive pairs
+     */
+    static int[] recordBounds(byte[] bytes) {
+        int[] bounds = new int[16];
+        int count = 0;
+        long quotes = 0;
+        int start = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            boolean end = i == bytes.length;
+            if (!end) {
+                byte b = bytes[i];
+                if (b == '"') {
+                    quotes++;
+                    continue;
+                }
+                if (b != '\n' || (quotes & 1) != 0) {
+                    continue;
+                }
+            }
+            int recordEnd = end ? i : i + 1;
+            if (!isEmptyLine(bytes, start, recordEnd)) {
+                if (count + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = recordEnd;
+            }
+            start = recordEnd;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static boolean isEmptyLine(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != '\n' && bytes[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static WindowScan scanWindow(FileChannel channel, long start, long end) {
+        try {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] block = new byte[SCAN_BLOCK];
+            long quotes = 0;
+            long firstEven = -1;
+            long firstOdd = -1;
+            for (long pos = start; pos < end; pos += SCAN_BLOCK) {
+                int len = (int) Math.min(SCAN_BLOCK, end - pos);
+                window.get(block, 0, len);
+                for (int i = 0; i < len; i++) {
+                    byte b = block[i];
+                    if (b == '"') {
+                        quotes++;
+                    } else if (b == '\n') {
+                        if ((quotes & 1) == 0) {
+                            if (firstEven < 0) {
+                                firstEven = pos + i + 1;
+                            }
+                        } else if (firstOdd < 0) {
+                            firstOdd = pos + i + 1;
+                        }
+                    }
+                }
+            }
+            return new WindowScan(quotes, firstEven, firstOdd);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static WindowScan await(Future<WindowScan> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while splitting CSV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Failed to scan CSV for record boundaries", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.nimrod.csv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a growing CSV file incrementally and hands out only complete records.
+ *
+ * <p>Every byte is read from the file once. Bytes after the last complete record (a line
+ * break outside quotes) stay in memory until the rest of the record arrives; the quote
+ * state of the scanned prefix is kept, so nothing is scanned twice either.</p>
+ *
+ * <p>Each poll reads at most about {@link #CHUNK_SIZE} bytes (more only if a single record is
+ * larger), so a large existing file is handed out in bounded chunks. Every chunk reports the
+ * file offset just past its last record, from which a later reader can start again.</p>
+ *
+ * <p>New data is detected through a {@link WatchService} on the parent directory. The file
+ * size is also checked every poll interval, which covers file systems without change
+ * notifications (network mounts, some containers) and missed events. If the file shrinks
+ * it is treated as truncated and read again from the start.</p>
+ */
+final class CsvTail implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CsvTail.class);
+
+    private static final int READ_SIZE = 64 * 1024;
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Complete records read from the file.
+     *
+     * @param fromStart true if {@code bytes} begin at offset 0, i.e. with the header
+     * @param endOffset file offset just past the last byte of {@code bytes}
+     */
+    record Chunk(byte[] bytes, boolean fromStart, long endOffset) {}
+
+    private final Path file;
+    private final Duration pollInterval;
+    private final FileChannel channel;
+    private WatchService watcher;
+    private boolean watcherOpened;
+
+    /** Offset of the next byte to read from the file. */
+    private long position;
+    /** Bytes read but not yet handed out; the first {@code scanned} have been scanned. */
+    private byte[] pending = new byte[READ_SIZE];
+    private int pendingLength;
+    private int scanned;
+    private boolean inQuotes;
+    /** End of the last complete record within {@code pending}. */
+    private int recordEnd;
+    private boolean atStart = true;
+
+    CsvTail(Path file, Duration pollInterval) throws IOException {
+        this(file, 0, pollInterval);
+    }
+
+    /** Start reading at {@code start}, which must be 0 or a record boundary. */
+    CsvTail(Path file, long start, Duration pollInterval) throws IOException {
+        this.file = file;
+        this.pollInterval = pollInterval;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = start;
+        this.atStart = start == 0;
+    }
+
+    private static WatchService openWatcher(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        WatchService watcher = null;
+        try {
+            watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.info("File change notifications unavailable for {} ({}); polling instead", dir, e.getMessage());
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException ignored) {
+                    // Already falling back to polling
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Read whatever has been appended since the last call.
+     *
+     * @return the complete records now available, or null if there are none yet
+     */
+    Chunk poll() throws IOException {
+        long size = channel.size();
+        if (size < position) {
+            LOG.warn("{} was truncated; following it from the start", file);
+            position = 0;
+            pendingLength = 0;
+            scanned = 0;
+            recordEnd = 0;
+            inQuotes = false;
+            atStart = true;
+        }
+        while (position < size && (recordEnd == 0 || pendingLength < CHUNK_SIZE)) {
+            if (pendingLength == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            int want = (int) Math.min(pending.length - pendingLength, size - position);
+            int n = channel.read(ByteBuffer.wrap(pending, pendingLength, want), position);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            pendingLength += n;
+            scan();
+        }
+        return recordEnd == 0 ? null : take(recordEnd);
+    }
+
+    /**
+     * Hand out everything read but not yet returned, complete or not. For when the file is
+     * known to be finished and its last record may lack a line break.
+     *
+     * @return the remaining bytes, or null if there are none
+     */
+    Chunk rest() {
+        return pendingLength == 0 ? null : take(pendingLength);
+    }
+
+    private Chunk take(int length) {
+        long endOffset = position - pendingLength + length;
+        Chunk chunk = new Chunk(Arrays.copyOf(pending, length), atStart, endOffset);
+        System.arraycopy(pending, length, pending, 0, pendingLength - length);
+        pendingLength -= length;
+        scanned = Math.max(0, scanned - length);
+        recordEnd = Math.max(0, recordEnd - length);
+        atStart = false;
+        return chunk;
+    }
+
+    /** Advance over newly read bytes, tracking quotes and the last record boundary. */
+    private void scan() {
+        for (int i = scanned; i < pendingLength; i++) {
+            byte b = pending[i];
+            if (b == '"') {
+                // An escaped quote ("") toggles twice, so parity alone is enough
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                recordEnd = i + 1;
+            }
+        }
+        scanned = pendingLength;
+    }
+
+    /**
+     * Wait until the file may have changed: a change notification arrives or the poll
+     * interval passes, whichever is first.
+     */
+    void awaitChange() throws InterruptedException {
+        if (!watcherOpened) {
+            watcher = openWatcher(file);
+            watcherOpened = true;
+        }
+        if (watcher == null) {
+            TimeUnit.NANOSECONDS.sleep(pollInterval.toNanos());
+            return;
+        }
+        WatchKey key = watcher.poll(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+        if (key != null) {
+            // Any event in the directory is a reason to check the size; poll() does the rest
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            if (watcher != null) {
+                watcher.close();
+            }
+        }
+    }
+}
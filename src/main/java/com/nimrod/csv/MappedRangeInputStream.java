@@ -0,0 +1,72 @@
+package com.nimrod.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a byte range of a file through memory mappings of at most {@link #WINDOW_SIZE}
+ * bytes each, mapping the next window once the previous one is used up. A single
+ * {@link MappedByteBuffer} can't span more than 2 GB; a range of any length can be read
+ * this way.
+ */
+class MappedRangeInputStream extends InputStream {
+
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+    private long windowEnd;
+    private MappedByteBuffer window;
+
+    MappedRangeInputStream(FileChannel channel, long from, long to) {
+        this(channel, from, to, WINDOW_SIZE);
+    }
+
+    /** For tests: map small windows. */
+    MappedRangeInputStream(FileChannel channel, long from, long to, int windowSize) {
+        this.channel = channel;
+        this.end = to;
+        this.windowSize = windowSize;
+        this.windowEnd = from;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextWindow() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextWindow()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return window != null ? window.remaining() : 0;
+    }
+
+    /** Make sure the current window has bytes left; false at the end of the range. */
+    private boolean nextWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (windowEnd >= end) {
+            return false;
+        }
+        long size = Math.min(windowSize, end - windowEnd);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size);
+        windowEnd += size;
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package com.nimrod.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Inflates a gzip stream on a dedicated thread and hands decompressed blocks to the reader
+ * through a bounded queue, so decompression overlaps with CSV parsing and decoding instead
+ * of running inline on the parser thread.
+ *
+ * <p>Multi-member gzip files (as written by pigz or by concatenating archives) are read as
+ * one stream. At most {@link #QUEUE_CAPACITY} blocks of {@link #BLOCK_SIZE} bytes are
+ * buffered ahead of the reader. Failures on the inflater thread, including runtime
+ * exceptions and errors, are rethrown from {@link #read} as {@link IOException}s once the
+ * blocks before them have been consumed.</p>
+ */
+public class ReadAheadGzipInputStream extends InputStream {
+
+    static final int BLOCK_SIZE = 256 * 1024;
+    static final int QUEUE_CAPACITY = 16;
+
+    /** Marks the end of the inflated data (or the point where inflation failed). */
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread inflater;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean finished;
+
+    /** Start inflating {@code compressed}, which is closed when inflation ends. */
+    public ReadAheadGzipInputStream(InputStream compressed) {
+        this.inflater = new Thread(() -> inflate(compressed), "nimrod-gunzip");
+        inflater.setDaemon(true);
+        inflater.start();
+    }
+
+    private void inflate(InputStream compressed) {
+        boolean interrupted = false;
+        try (InputStream in = new GZIPInputStream(compressed, BLOCK_SIZE)) {
+            while (!closed) {
+                byte[] block = new byte[BLOCK_SIZE];
+                int n = in.readNBytes(block, 0, BLOCK_SIZE);
+                if (n > 0) {
+                    blocks.put(n == BLOCK_SIZE ? block : Arrays.copyOf(block, n));
+                }
+                if (n < BLOCK_SIZE) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Reader closed the stream; nobody is waiting for the remaining data
+            interrupted = true;
+        } catch (IOException e) {
+            failure = e;
+        } catch (Throwable e) {
+            // Anything else, down to an OutOfMemoryError, must still end the stream for the reader
+            failure = new IOException(e.toString(), e);
+        } finally {
+            if (!interrupted) {
+                try {
+                    blocks.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    /** Make sure unread bytes are available; returns false at the end of the stream. */
+    private boolean fill() throws IOException {
+        while (position == current.length) {
+            if (finished) {
+                return false;
+            }
+            try {
+                current = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for gzip inflater", e);
+            }
+            position = 0;
+            if (current == END) {
+                finished = true;
+                if (failure != null) {
+                    throw new IOException("Failed to decompress gzip input: " + failure.getMessage(), failure);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            inflater.interrupt();
+            blocks.clear();
+        }
+    }
+}
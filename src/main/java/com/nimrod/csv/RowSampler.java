@@ -0,0 +1,108 @@
+package com.nimrod.csv;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Keeps a uniform random sample of the items offered to it, optionally one sample per key,
+ * without knowing in advance how many items there will be.
+ *
+ * <p>Each sample is a reservoir filled by Algorithm L (Li, 1994): once a reservoir is full,
+ * the number of items to pass over until the next replacement is drawn directly, so most
+ * items cost a counter increment and no random numbers. Items keep their position in the
+ * input, and {@link #sample()} returns them in that order.</p>
+ */
+final class RowSampler<T> {
+
+    /** An item and its position among all items offered. */
+    private record Numbered<T>(long number, T item) {}
+
+    private final int size;
+    private final Random random;
+    private final Map<String, Reservoir<T>> reservoirs = new HashMap<>();
+
+    /**
+     * @param size items kept per key
+     * @param seed seed of the random choices, making a sample reproducible
+     */
+    RowSampler(int size, long seed) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Sample size must be at least 1, not " + size);
+        }
+        this.size = size;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Offer the item at position {@code number}; items should be offered in increasing
+     * order of their numbers.
+     *
+     * @param key the stratum of the item; the same key for all items gives a plain sample
+     */
+    void offer(long number, T item, String key) {
+        reservoirs.computeIfAbsent(key, k -> new Reservoir<>(size, random)).offer(new Numbered<>(number, item));
+    }
+
+    /** The sampled items of every key, in the order they were offered. */
+    List<T> sample() {
+        List<Numbered<T>> all = new ArrayList<>();
+        reservoirs.values().forEach(r -> all.addAll(r.items));
+        all.sort(Comparator.comparingLong(Numbered::number));
+        return all.stream().map(Numbered::item).toList();
+    }
+
+    /** Items offered per key so far. */
+    Map<String, Long> seen() {
+        Map<String, Long> seen = new HashMap<>();
+        reservoirs.forEach((key, r) -> seen.put(key, r.seen));
+        return seen;
+    }
+
+    private static final class Reservoir<T> {
+        private final int size;
+        private final Random random;
+        private final List<Numbered<T>> items;
+        private long seen;
+        private long next;
+        private double w;
+
+        Reservoir(int size, Random random) {
+            this.size = size;
+            this.random = random;
+            this.items = new ArrayList<>(Math.min(size, 1024));
+        }
+
+        void offer(Numbered<T> item) {
+            seen++;
+            if (items.size() < size) {
+                items.add(item);
+                if (items.size() == size) {
+                    w = Math.exp(Math.log(uniform()) / size);
+                    advance();
+                }
+            } else if (seen == next) {
+                items.set(random.nextInt(size), item);
+                w *= Math.exp(Math.log(uniform()) / size);
+                advance();
+            }
+        }
+
+        /** Draw the position of the next item to take into the reservoir. */
+        private void advance() {
+            next = seen + (long) Math.floor(Math.log(uniform()) / Math.log1p(-w)) + 1;
+        }
+
+        /** Uniform on (0, 1), so that its logarithm is finite. */
+        private double uniform() {
+            double u;
+            do {
+                u = random.nextDouble();
+            } while (u == 0);
+            return u;
+        }
+    }
+}
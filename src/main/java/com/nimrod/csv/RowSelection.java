@@ -0,0 +1,30 @@
+package com.nimrod.csv;
+
+/**
+ * Which rows of a CSV input to decode, for looking at part of a large export.
+ *
+ * <p>Rows outside the selection are only split into fields; their binary columns are never
+ * decoded or decompressed. A sample is taken from the rows left by {@code skip} and
+ * {@code limit}, and is delivered in file order.</p>
+ *
+ * @param skip          rows to pass over at the start
+ * @param limit         stop reading after this many rows following the skipped ones; 0 for no limit
+ * @param sample        decode a uniform random sample of this many rows; 0 for all rows
+ * @param samplePerType decode a random sample of this many rows per file_identifier of the
+ *                      first binary column; 0 for all rows
+ * @param seed          seed of the random sample
+ */
+public record RowSelection(long skip, long limit, int sample, int samplePerType, long seed) {
+
+    public static RowSelection all() {
+        return new RowSelection(0, 0, 0, 0, 0);
+    }
+
+    public boolean isAll() {
+        return skip == 0 && limit == 0 && !samples();
+    }
+
+    public boolean samples() {
+        return sample > 0 || samplePerType > 0;
+    }
+}
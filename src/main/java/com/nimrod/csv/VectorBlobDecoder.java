@@ -0,0 +1,129 @@
+package com.nimrod.csv;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+
+/**
+ * Base64 and hex decoding with the incubating Vector API, a whole vector of characters per
+ * step. Only referenced through {@link BlobDecoder}, which checks that the
+ * {@code jdk.incubator.vector} module is present before this class is loaded.
+ *
+ * <p>Both decoders classify every character with lane-wise range checks, turn it into its
+ * 6- or 4-bit value with a per-class offset, and pack the values into bytes with shifts
+ * and one constant byte shuffle. Each step stores a full vector, of which only the leading
+ * 3/4 (base64) or 1/2 (hex) is output; the rest is overwritten by the next step, so the
+ * loops stop while a vector's worth of room is left and the remainder is decoded by the
+ * scalar code. Any character that is not plain alphabet (padding, separators, garbage)
+ * makes a method return -1 so that the caller can decode the cell the scalar way, with its
+ * exact error messages.</p>
+ */
+final class VectorBlobDecoder {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    /** Characters per step. */
+    static final int LANES = BYTES.length();
+
+    /** Output lane 3k+j takes byte 2-j of int k: the 24 decoded bits, most significant first. */
+    private static final VectorShuffle<Byte> BASE64_PACK = VectorShuffle.fromOp(BYTES,
+            lane -> lane < LANES / 4 * 3 ? lane / 3 * 4 + 2 - lane % 3 : 0);
+
+    /** Output lane k takes the low byte of short k. */
+    private static final VectorShuffle<Byte> HEX_PACK = VectorShuffle.fromOp(BYTES,
+            lane -> lane < LANES / 2 ? lane * 2 : 0);
+
+    private VectorBlobDecoder() {
+    }
+
+    /**
+     * Decode base64 characters {@code src[0..end)} into {@code dst} from index 0, a vector
+     * at a time, as far as the characters are all in the base64 alphabet and {@code dst}
+     * has room.
+     *
+     * @return the number of characters decoded (a multiple of 4; 3 bytes were written for
+     *         every 4), or -1 if a character outside the alphabet was found
+     */
+    static int base64(byte[] src, int end, byte[] dst) {
+        int i = 0;
+        int o = 0;
+        while (i + LANES <= end && o + LANES <= dst.length) {
+            ByteVector in = ByteVector.fromArray(BYTES, src, i);
+            VectorMask<Byte> upper = in.compare(GE, 'A').and(in.compare(LE, 'Z'));
+            VectorMask<Byte> lower = in.compare(GE, 'a').and(in.compare(LE, 'z'));
+            VectorMask<Byte> digit = in.compare(GE, '0').and(in.compare(LE, '9'));
+            VectorMask<Byte> plus = in.compare(EQ, '+');
+            VectorMask<Byte> slash = in.compare(EQ, '/');
+            if (!upper.or(lower).or(digit).or(plus).or(slash).allTrue()) {
+                return -1;
+            }
+            ByteVector offset = ByteVector.zero(BYTES)
+                    .blend((byte) -'A', upper)
+                    .blend((byte) (26 - 'a'), lower)
+                    .blend((byte) (52 - '0'), digit)
+                    .blend((byte) (62 - '+'), plus)
+                    .blend((byte) (63 - '/'), slash);
+
+            // Each int holds 4 sextets, first character in the low byte
+            IntVector sextets = in.add(offset).reinterpretAsInts();
+            IntVector bits = sextets.and(0x3F).lanewise(LSHL, 18)
+                    .or(sextets.lanewise(LSHR, 8).and(0x3F).lanewise(LSHL, 12))
+                    .or(sextets.lanewise(LSHR, 16).and(0x3F).lanewise(LSHL, 6))
+                    .or(sextets.lanewise(LSHR, 24));
+            bits.reinterpretAsBytes().rearrange(BASE64_PACK).intoArray(dst, o);
+            i += LANES;
+            o += LANES / 4 * 3;
+        }
+        return i;
+    }
+
+    /**
+     * Decode hex digits {@code src[start..end)} into {@code dst} from index 0, a vector at a
+     * time, as far as the characters are all hex digits and {@code dst} has room.
+     *
+     * @return the number of characters decoded (even; 1 byte was written for every 2), or
+     *         -1 if a character other than a hex digit was found
+     */
+    static int hex(byte[] src, int start, int end, byte[] dst) {
+        int i = start;
+        int o = 0;
+        while (i + LANES <= end && o + LANES <= dst.length) {
+            ByteVector in = ByteVector.fromArray(BYTES, src, i);
+            VectorMask<Byte> digit = in.compare(GE, '0').and(in.compare(LE, '9'));
+            VectorMask<Byte> lower = in.compare(GE, 'a').and(in.compare(LE, 'f'));
+            VectorMask<Byte> upper = in.compare(GE, 'A').and(in.compare(LE, 'F'));
+            if (!digit.or(lower).or(upper).allTrue()) {
+                return -1;
+            }
+            ByteVector offset = ByteVector.zero(BYTES)
+                    .blend((byte) -'0', digit)
+                    .blend((byte) (10 - 'a'), lower)
+                    .blend((byte) (10 - 'A'), upper);
+
+            // Each short holds 2 nibbles, the high one (first character) in the low byte
+            ShortVector nibbles = in.add(offset).reinterpretAsShorts();
+            ShortVector bytes = nibbles.lanewise(LSHL, 4).and((short) 0xF0).or(nibbles.lanewise(LSHR, 8));
+            bytes.reinterpretAsBytes().rearrange(HEX_PACK).intoArray(dst, o);
+            i += LANES;
+            o += LANES / 2;
+        }
+        return i - start;
+    }
+
+    /** Whether the hardware vectors are wide enough to be worth it (and the shapes line up). */
+    static boolean usable() {
+        return LANES >= 16 && INTS.vectorBitSize() == BYTES.vectorBitSize()
+                && SHORTS.vectorBitSize() == BYTES.vectorBitSize();
+    }
+}
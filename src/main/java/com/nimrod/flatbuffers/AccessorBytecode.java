@@ -0,0 +1,252 @@
+package com.nimrod.flatbuffers;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bytecode of the accessor methods of one generated FlatBuffer class, read from its
+ * class file.
+ *
+ * <p>Reflection tells what type a field has but not where it lives in the buffer. flatc
+ * generates every accessor in the same shape, which javac compiles to predictable code:
+ * <pre>
+ *   public int level() { int o = __offset(4); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
+ *   public Unit units(Unit obj, int j) { int o = __offset(10); return o != 0 ? obj.__assign(__indirect(__vector(o) + j * 4), bb) : null; }
+ * </pre>
+ * So the vtable slot is the constant passed to {@code __offset} at the very start, the size
+ * of a scalar is that of the first {@code ByteBuffer} getter called, and the stride of a
+ * vector is the constant {@code j} is multiplied with.</p>
+ */
+final class AccessorBytecode {
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ICONST_M1 = 0x02;
+    private static final int ICONST_5 = 0x08;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int IMUL = 0x68;
+    private static final int INVOKEVIRTUAL = 0xb6;
+
+    /** Constant pool entry tags. */
+    private static final int UTF8 = 1, LONG = 5, DOUBLE = 6, CLASS = 7, METHODREF = 10, NAME_AND_TYPE = 12;
+
+    private static final Map<String, Integer> BUFFER_GETTER_SIZES = Map.of(
+            "get", 1, "getShort", 2, "getChar", 2, "getInt", 4, "getFloat", 4, "getLong", 8, "getDouble", 8);
+
+    /** Name and owner of a method referenced from the constant pool. */
+    private record MethodRef(String owner, String name) {}
+
+    private final Map<Integer, MethodRef> methodRefs;
+    private final Map<String, byte[]> code;
+
+    private AccessorBytecode(Map<Integer, MethodRef> methodRefs, Map<String, byte[]> code) {
+        this.methodRefs = methodRefs;
+        this.code = code;
+    }
+
+    /** An empty instance when the class file can't be found or read. */
+    static AccessorBytecode of(Class<?> clazz) {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        ClassLoader loader = clazz.getClassLoader() != null ? clazz.getClassLoader() : ClassLoader.getSystemClassLoader();
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            if (in != null) {
+                return parse(in.readAllBytes());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Treated like a class without recognisable accessors
+        }
+        return new AccessorBytecode(Map.of(), Map.of());
+    }
+
+    static AccessorBytecode parse(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int poolSize = in.readUnsignedShort();
+        String[] utf8 = new String[poolSize];
+        int[] first = new int[poolSize];
+        int[] second = new int[poolSize];
+        int[] tags = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case UTF8 -> utf8[i] = in.readUTF();
+                case CLASS, 8, 16, 19, 20 -> first[i] = in.readUnsignedShort();
+                case 15 -> in.skipBytes(3);
+                case 3, 4 -> in.skipBytes(4);
+                case LONG, DOUBLE -> {
+                    in.skipBytes(8);
+                    i++;
+                }
+                case 9, METHODREF, 11, NAME_AND_TYPE, 17, 18 -> {
+                    first[i] = in.readUnsignedShort();
+                    second[i] = in.readUnsignedShort();
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        Map<Integer, MethodRef> methodRefs = new HashMap<>();
+        for (int i = 1; i < poolSize; i++) {
+            if (tags[i] == METHODREF) {
+                String owner = utf8[first[first[i]]];
+                String name = utf8[first[second[i]]];
+                methodRefs.put(i, new MethodRef(owner, name));
+            }
+        }
+
+        in.skipBytes(6); // access flags, this class, super class
+        in.skipBytes(2 * in.readUnsignedShort());
+        int fields = in.readUnsignedShort();
+        for (int i = 0; i < fields; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        Map<String, byte[]> code = new HashMap<>();
+        int methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            in.skipBytes(2);
+            String key = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+            int attributes = in.readUnsignedShort();
+            for (int a = 0; a < attributes; a++) {
+                String name = utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+                if (name.equals("Code")) {
+                    in.skipBytes(4); // max stack, max locals
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    code.put(key, bytes);
+                    in.skipBytes(length - 8 - bytes.length);
+                } else {
+                    in.skipBytes(length);
+                }
+            }
+        }
+        return new AccessorBytecode(methodRefs, code);
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /** The vtable offset {@code method} starts by looking up, or -1 if it doesn't. */
+    int slot(Method method) {
+        byte[] bytes = code.get(key(method));
+        if (bytes == null || bytes.length < 5 || (bytes[0] & 0xff) != ALOAD_0) {
+            return -1;
+        }
+        int pc = 1;
+        int op = bytes[pc] & 0xff;
+        int constant = pushedConstant(bytes, pc);
+        if (constant < 0) {
+            return -1;
+        }
+        pc += op == BIPUSH ? 2 : op == SIPUSH ? 3 : 1;
+        if (pc + 2 < bytes.length && (bytes[pc] & 0xff) == INVOKEVIRTUAL
+                && "__offset".equals(methodName(bytes, pc))) {
+            return constant;
+        }
+        return -1;
+    }
+
+    /** Bytes read by the first {@code ByteBuffer} getter {@code method} calls, or -1. */
+    int readSize(Method method) {
+        byte[] bytes = code.get(key(method));
+        for (int pc = 0; bytes != null && pc < bytes.length; pc += instructionLength(bytes, pc)) {
+            if ((bytes[pc] & 0xff) == INVOKEVIRTUAL) {
+                MethodRef ref = methodRefs.get(u2(bytes, pc + 1));
+                if (ref != null && ref.owner().equals("java/nio/ByteBuffer")
+                        && BUFFER_GETTER_SIZES.containsKey(ref.name())) {
+                    return BUFFER_GETTER_SIZES.get(ref.name());
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** The constant multiplied with the element index in {@code method}, or -1. */
+    int stride(Method method) {
+        byte[] bytes = code.get(key(method));
+        int last = -1;
+        for (int pc = 0; bytes != null && pc < bytes.length; pc += instructionLength(bytes, pc)) {
+            int op = bytes[pc] & 0xff;
+            if (op == IMUL) {
+                return last;
+            }
+            last = pushedConstant(bytes, pc);
+        }
+        return -1;
+    }
+
+    /** The non-negative constant pushed by the instruction at {@code pc}, or -1. */
+    private static int pushedConstant(byte[] bytes, int pc) {
+        int op = bytes[pc] & 0xff;
+        if (op > ICONST_M1 && op <= ICONST_5) {
+            return op - ICONST_M1 - 1;
+        }
+        if (op == BIPUSH && pc + 1 < bytes.length) {
+            return bytes[pc + 1] >= 0 ? bytes[pc + 1] : -1;
+        }
+        if (op == SIPUSH && pc + 2 < bytes.length) {
+            return (short) u2(bytes, pc + 1) >= 0 ? u2(bytes, pc + 1) : -1;
+        }
+        return -1;
+    }
+
+    private String methodName(byte[] bytes, int pc) {
+        MethodRef ref = methodRefs.get(u2(bytes, pc + 1));
+        return ref != null ? ref.name() : null;
+    }
+
+    private static int u2(byte[] bytes, int at) {
+        return (bytes[at] & 0xff) << 8 | bytes[at + 1] & 0xff;
+    }
+
+    private static int s4(byte[] bytes, int at) {
+        return (bytes[at] & 0xff) << 24 | (bytes[at + 1] & 0xff) << 16 | (bytes[at + 2] & 0xff) << 8 | bytes[at + 3] & 0xff;
+    }
+
+    /** Length of the instruction at {@code pc}, operands included. */
+    private static int instructionLength(byte[] bytes, int pc) {
+        int op = bytes[pc] & 0xff;
+        return switch (op) {
+            case 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc -> 2;
+            case 0x11, 0x13, 0x14, 0x84, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xbb, 0xbd, 0xc0, 0xc1,
+                 0xc6, 0xc7 -> 3;
+            case 0xc5 -> 4;
+            case 0xb9, 0xba, 0xc8, 0xc9 -> 5;
+            case 0xc4 -> (bytes[pc + 1] & 0xff) == 0x84 ? 6 : 4;
+            case 0xaa -> {
+                int at = (pc + 4) & ~3;
+                yield at - pc + 12 + 4 * (s4(bytes, at + 8) - s4(bytes, at + 4) + 1);
+            }
+            case 0xab -> {
+                int at = (pc + 4) & ~3;
+                yield at - pc + 8 + 8 * s4(bytes, at + 4);
+            }
+            default -> op >= 0x99 && op <= 0xa8 ? 3 : 1;
+        };
+    }
+
+    private static String key(Method method) {
+        StringBuilder descriptor = new StringBuilder(method.getName()).append('(');
+        for (Class<?> parameter : method.getParameterTypes()) {
+            descriptor.append(parameter.descriptorString());
+        }
+        return descriptor.append(')').append(method.getReturnType().descriptorString()).toString();
+    }
+}
@@ -0,0 +1,326 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import com.google.flatbuffers.Struct;
+import com.google.flatbuffers.Table;
+
+import com.nimrod.flatbuffers.SchemaRegistry.SchemaEntry;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds FlatBuffer blobs of random content for a root type with the static builder methods
+ * that flatc generates next to the accessors, for synthetic exports (see the
+ * {@code generate} subcommand):
+ * <ul>
+ *   <li>{@code start<Type>(builder)}, {@code add<Field>(builder, value)},
+ *       {@code end<Type>(builder)} — a table and its fields</li>
+ *   <li>{@code create<Field>Vector(builder, array)} — a vector of scalars, or of the
+ *       offsets of strings or tables</li>
+ *   <li>{@code finish<Type>Buffer(builder, offset)} — the root, with its file_identifier</li>
+ * </ul>
+ *
+ * <p>Which fields a table has and what they hold is read from its accessors, as for
+ * decoding (see {@link TableLayout}); the builder methods for each class are looked up once.
+ * Strings, vectors and nested tables are filled in, nested tables down to
+ * {@link #MAX_DEPTH} levels. Structs, vectors of structs and unions have no builder of this
+ * shape and are left unset, as are fields the generated code has no builder for.</p>
+ *
+ * <p>All content comes from the {@link SplittableRandom} passed in, so the same seed gives the
+ * same blob. A generator is safe for concurrent use.</p>
+ */
+public final class BlobGenerator {
+
+    /** Nesting of tables below the root beyond which nested tables are left unset. */
+    static final int MAX_DEPTH = 3;
+
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final int minVectorSize;
+    private final int maxVectorSize;
+    private final Map<Class<?>, TablePlan> plans = new ConcurrentHashMap<>();
+    private final ThreadLocal<FlatBufferBuilder> builders = ThreadLocal.withInitial(() -> new FlatBufferBuilder(4096));
+
+    /** What one field holds, which decides how its value is made. */
+    private enum Kind { SCALAR, STRING, TABLE }
+
+    /**
+     * A field and the {@code add} method that sets it. {@code valueType} is the parameter type
+     * of {@code add} for scalars, or the table class for tables; {@code createVector} is not
+     * null for vectors, whose elements are then of {@code kind}.
+     */
+    private record FieldPlan(Method add, Kind kind, Class<?> valueType, Method createVector) {
+    }
+
+    private record TablePlan(Method start, Method end, Method finish, List<FieldPlan> fields) {
+    }
+
+    /**
+     * @param minVectorSize shortest vector to generate
+     * @param maxVectorSize longest vector to generate (inclusive)
+     */
+    public BlobGenerator(int minVectorSize, int maxVectorSize) {
+        if (minVectorSize < 0 || maxVectorSize < minVectorSize) {
+            throw new IllegalArgumentException(
+                    "Invalid vector size range " + minVectorSize + "-" + maxVectorSize);
+        }
+        this.minVectorSize = minVectorSize;
+        this.maxVectorSize = maxVectorSize;
+    }
+
+    /**
+     * A finished blob of the root type {@code schema}, with its file_identifier.
+     *
+     * @throws IllegalArgumentException if the root class has no generated builder methods
+     */
+    public byte[] generate(SchemaEntry schema, SplittableRandom random) {
+        TablePlan plan = plan(schema.rootClass());
+        if (plan.finish() == null) {
+            throw new IllegalArgumentException(schema.simpleName() + " has no finish"
+                    + schema.simpleName() + "Buffer method");
+        }
+        FlatBufferBuilder builder = builders.get();
+        builder.clear();
+        try {
+            int root = table(builder, plan, 0, random);
+            plan.finish().invoke(null, builder, root);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to build " + schema.simpleName(), e);
+        }
+        return builder.sizedByteArray();
+    }
+
+    private TablePlan plan(Class<?> clazz) {
+        TablePlan plan = plans.get(clazz);
+        if (plan == null) {
+            plan = plans.computeIfAbsent(clazz, BlobGenerator::resolve);
+        }
+        return plan;
+    }
+
+    /**
+     * Strings, vectors and nested tables are written before the table that refers to them, as
+     * FlatBuffers requires, then the table itself.
+     */
+    private int table(FlatBufferBuilder builder, TablePlan plan, int depth, SplittableRandom random)
+            throws IllegalAccessException, InvocationTargetException {
+        List<FieldPlan> fields = plan.fields();
+        int[] offsets = new int[fields.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            FieldPlan field = fields.get(i);
+            if (field.createVector() != null) {
+                offsets[i] = vector(builder, field, depth, random);
+            } else if (field.kind() == Kind.STRING) {
+                offsets[i] = builder.createString(string(random));
+            } else if (field.kind() == Kind.TABLE && depth < MAX_DEPTH) {
+                offsets[i] = table(builder, plan(field.valueType()), depth + 1, random);
+            }
+        }
+        plan.start().invoke(null, builder);
+        for (int i = 0; i < offsets.length; i++) {
+            FieldPlan field = fields.get(i);
+            if (field.kind() == Kind.SCALAR && field.createVector() == null) {
+                field.add().invoke(null, builder, scalar(field.valueType(), random));
+            } else if (offsets[i] != 0) {
+                field.add().invoke(null, builder, offsets[i]);
+            }
+        }
+        return (int) plan.end().invoke(null, builder);
+    }
+
+    /** @return the vector's offset, or 0 for a vector of tables nested too deep to fill */
+    private int vector(FlatBufferBuilder builder, FieldPlan field, int depth, SplittableRandom random)
+            throws IllegalAccessException, InvocationTargetException {
+        int length = random.nextInt(minVectorSize, maxVectorSize + 1);
+        Class<?> arrayType = field.createVector().getParameterTypes()[1];
+        Object elements;
+        if (field.kind() == Kind.SCALAR) {
+            elements = scalarArray(arrayType.getComponentType(), length, random);
+        } else if (field.kind() == Kind.TABLE && depth >= MAX_DEPTH) {
+            return 0;
+        } else {
+            int[] offsets = new int[length];
+            for (int i = 0; i < length; i++) {
+                offsets[i] = field.kind() == Kind.STRING
+                        ? builder.createString(string(random))
+                        : table(builder, plan(field.valueType()), depth + 1, random);
+            }
+            elements = offsets;
+        }
+        return (int) field.createVector().invoke(null, builder, elements);
+    }
+
+    /**
+     * A value for an {@code add} method taking {@code type}. Bytes and shorts, which hold most
+     * enums, stay small, so that they mostly name a declared constant.
+     */
+    private static Object scalar(Class<?> type, SplittableRandom random) {
+        if (type == boolean.class) {
+            return random.nextBoolean();
+        } else if (type == byte.class) {
+            return (byte) random.nextInt(4);
+        } else if (type == short.class) {
+            return (short) random.nextInt(16);
+        } else if (type == int.class) {
+            return random.nextInt(1_000_000);
+        } else if (type == long.class) {
+            return random.nextLong(1L << 40);
+        } else if (type == float.class) {
+            return (float) random.nextInt(100_000) / 100;
+        } else {
+            return (double) random.nextInt(100_000_000) / 1000;
+        }
+    }
+
+    private static Object scalarArray(Class<?> type, int length, SplittableRandom random) {
+        if (type == boolean.class) {
+            boolean[] values = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = random.nextBoolean();
+            }
+            return values;
+        } else if (type == byte.class) {
+            byte[] values = new byte[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (byte) random.nextInt(256);
+            }
+            return values;
+        } else if (type == short.class) {
+            short[] values = new short[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (short) random.nextInt(16);
+            }
+            return values;
+        } else if (type == int.class) {
+            return random.ints(length, 0, 1_000_000).toArray();
+        } else if (type == long.class) {
+            return random.longs(length, 0, 1L << 40).toArray();
+        } else if (type == float.class) {
+            float[] values = new float[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (float) random.nextInt(100_000) / 100;
+            }
+            return values;
+        } else {
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (double) random.nextInt(100_000_000) / 1000;
+            }
+            return values;
+        }
+    }
+
+    /** A lower-case word of 4 to 16 letters. */
+    private static String string(SplittableRandom random) {
+        char[] chars = new char[random.nextInt(4, 17)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = LETTERS[random.nextInt(LETTERS.length)];
+        }
+        return new String(chars);
+    }
+
+    private static TablePlan resolve(Class<?> clazz) {
+        String type = clazz.getSimpleName();
+        Method start = builderMethod(clazz, "start" + type, FlatBufferBuilder.class);
+        Method end = builderMethod(clazz, "end" + type, FlatBufferBuilder.class);
+        if (start == null || end == null) {
+            throw new IllegalArgumentException(clazz.getName() + " has no generated start"
+                    + type + "/end" + type + " methods");
+        }
+        Method finish = builderMethod(clazz, "finish" + type + "Buffer", FlatBufferBuilder.class, int.class);
+
+        TableLayout layout = TableLayout.of(clazz);
+        List<FieldPlan> fields = new ArrayList<>();
+        for (TableLayout.VectorField vector : layout.vectors()) {
+            Class<?> element = vector.element().getReturnType();
+            Method create = vectorBuilder(clazz, vector.name());
+            Method add = addMethod(clazz, vector.name(), int.class);
+            if (create == null || add == null || Struct.class.isAssignableFrom(element)) {
+                continue;
+            }
+            fields.add(new FieldPlan(add, kindOf(element), element, create));
+        }
+        for (TableLayout.ScalarField scalar : layout.scalars()) {
+            Class<?> value = scalar.getter().getReturnType();
+            if (Struct.class.isAssignableFrom(value) || isUnionType(clazz, scalar.name())) {
+                continue;
+            }
+            Kind kind = kindOf(value);
+            Method add = kind == Kind.SCALAR
+                    ? addMethod(clazz, scalar.name(), null)
+                    : addMethod(clazz, scalar.name(), int.class);
+            if (add == null) {
+                continue;
+            }
+            fields.add(new FieldPlan(add, kind, kind == Kind.SCALAR ? add.getParameterTypes()[1] : value, null));
+        }
+        return new TablePlan(start, end, finish, List.copyOf(fields));
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == String.class) {
+            return Kind.STRING;
+        }
+        return Table.class.isAssignableFrom(type) ? Kind.TABLE : Kind.SCALAR;
+    }
+
+    /** A union's {@code fieldType()} discriminator, whose value must match the unset union. */
+    private static boolean isUnionType(Class<?> clazz, String name) {
+        if (!name.endsWith("Type")) {
+            return false;
+        }
+        try {
+            clazz.getMethod(name.substring(0, name.length() - 4), Table.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The static {@code add<Field>(builder, value)} method, with a primitive value of
+     * {@code valueType}, or of any primitive type if that is null.
+     */
+    private static Method addMethod(Class<?> clazz, String field, Class<?> valueType) {
+        String name = "add" + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        for (Method m : clazz.getMethods()) {
+            if (m.getName().equals(name) && Modifier.isStatic(m.getModifiers()) && m.getParameterCount() == 2
+                    && m.getParameterTypes()[0] == FlatBufferBuilder.class
+                    && m.getParameterTypes()[1].isPrimitive()
+                    && (valueType == null || m.getParameterTypes()[1] == valueType)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /** {@code create<Field>Vector(builder, array)}; byte vectors also have a ByteBuffer overload. */
+    private static Method vectorBuilder(Class<?> clazz, String field) {
+        String name = "create" + Character.toUpperCase(field.charAt(0)) + field.substring(1) + "Vector";
+        for (Method m : clazz.getMethods()) {
+            if (m.getName().equals(name) && Modifier.isStatic(m.getModifiers()) && m.getParameterCount() == 2
+                    && m.getParameterTypes()[0] == FlatBufferBuilder.class
+                    && m.getParameterTypes()[1].isArray()
+                    && m.getParameterTypes()[1].getComponentType().isPrimitive()) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static Method builderMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            Method m = clazz.getMethod(name, parameterTypes);
+            return Modifier.isStatic(m.getModifiers()) ? m : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.Struct;
+import com.google.flatbuffers.Table;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the structure of FlatBuffer blobs without decoding them, in the manner of the
+ * FlatBuffers verifier: every offset, vtable, string and vector a reader would follow is
+ * bounds-checked against the buffer, and nothing else is read or allocated.
+ *
+ * <p>Which fields are strings, tables or vectors comes from the generated class of the
+ * matched root type (see {@link AccessorBytecode}); the plan for each class is worked out
+ * once. Fields the class doesn't know, such as those added by a newer schema, and the
+ * members of unions still get the generic table checks.</p>
+ */
+@Component
+public class BufferVerifier {
+
+    /** Deepest table nesting accepted, as in the FlatBuffers verifier. */
+    static final int MAX_DEPTH = 64;
+
+    /** Most tables visited in one buffer, as in the FlatBuffers verifier. */
+    static final int MAX_TABLES = 1_000_000;
+
+    /** How a field is stored. */
+    enum Kind { SCALAR, STRUCT, STRING, TABLE, UNION, SCALARS, STRUCTS, STRINGS, TABLES, UNIONS }
+
+    /**
+     * One field of a table: its vtable offset, how it is stored, the size of a scalar or of
+     * a vector element, and the class of a nested table.
+     */
+    record Field(String name, int slot, Kind kind, int size, Class<?> table) {}
+
+    private static final ClassValue<List<Field>> PLANS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type) {
+            return plan(type);
+        }
+    };
+
+    /**
+     * Outcome of verifying one buffer. {@code type} is null when no schema matched, and
+     * {@code problem} is null when the buffer is sound.
+     */
+    public record Result(String type, String problem) {
+        public boolean ok() {
+            return problem == null;
+        }
+    }
+
+    private final SchemaRegistry schemaRegistry;
+
+    public BufferVerifier(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    /** Match {@code buffer} to its root type and check its structure. */
+    public Result verify(ByteBuffer buffer) {
+        if (buffer.remaining() < 8) {
+            return new Result(null, "buffer is only " + buffer.remaining() + " bytes, too short for a root offset "
+                    + "and file_identifier");
+        }
+        var entry = schemaRegistry.findByBuffer(buffer);
+        if (entry.isEmpty()) {
+            return new Result(null, "no schema matches file_identifier '" + SchemaRegistry.identifierOf(buffer) + "'");
+        }
+        Class<?> rootClass = entry.get().rootClass();
+        return new Result(entry.get().simpleName(), check(buffer, rootClass));
+    }
+
+    /** The reason {@code buffer} is not a sound {@code rootClass} buffer, or null if it is. */
+    static String check(ByteBuffer buffer, Class<?> rootClass) {
+        Walk walk = new Walk(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+        try {
+            walk.table(walk.offset(walk.start, "root offset"), rootClass, 0);
+            return null;
+        } catch (Corrupt e) {
+            return e.getMessage();
+        }
+    }
+
+    /** A problem found in a buffer, with the path of the field it was found in. */
+    private static final class Corrupt extends RuntimeException {
+        private final String path;
+        private final String detail;
+
+        Corrupt(String detail) {
+            this("", detail);
+        }
+
+        private Corrupt(String path, String detail) {
+            super(detail, null, false, false);
+            this.path = path;
+            this.detail = detail;
+        }
+
+        /** The same problem, seen from the field or vector element {@code segment}. */
+        Corrupt in(String segment) {
+            return new Corrupt(path.isEmpty() || path.startsWith("[") ? segment + path : segment + "." + path, detail);
+        }
+
+        @Override
+        public String getMessage() {
+            return path.isEmpty() ? detail : path + ": " + detail;
+        }
+    }
+
+    /** One pass over a buffer; positions are absolute, checks are against its limit. */
+    private static final class Walk {
+        private final ByteBuffer bb;
+        private final int start;
+        private final int end;
+        private int tables;
+
+        Walk(ByteBuffer bb) {
+            this.bb = bb;
+            this.start = bb.position();
+            this.end = bb.limit();
+        }
+
+        /** Follow the unsigned offset stored at {@code at}. */
+        int offset(int at, String what) {
+            need(at, 4, what);
+            long target = at + Integer.toUnsignedLong(bb.getInt(at));
+            if (target + 4 > end) {
+                throw new Corrupt(what + " at " + hex(at) + " points to " + hex(target)
+                        + ", past the end of the buffer (" + size() + " bytes)");
+            }
+            return (int) target;
+        }
+
+        void table(int pos, Class<?> type, int depth) {
+            if (depth >= MAX_DEPTH) {
+                throw new Corrupt("tables nested deeper than " + MAX_DEPTH);
+            }
+            if (++tables > MAX_TABLES) {
+                throw new Corrupt("more than " + MAX_TABLES + " tables");
+            }
+            need(pos, 4, "table");
+            long vtable = pos - (long) bb.getInt(pos);
+            if (vtable < start || vtable + 4 > end) {
+                throw new Corrupt("vtable of table at " + hex(pos) + " is at " + hex(vtable) + ", outside the buffer");
+            }
+            int vtableSize = Short.toUnsignedInt(bb.getShort((int) vtable));
+            int objectSize = Short.toUnsignedInt(bb.getShort((int) vtable + 2));
+            if (vtableSize < 4 || (vtableSize & 1) != 0 || vtable + vtableSize > end) {
+                throw new Corrupt("vtable at " + hex(vtable) + " has invalid size " + vtableSize);
+            }
+            if (objectSize < 4 || pos + (long) objectSize > end) {
+                throw new Corrupt("table at " + hex(pos) + " of " + objectSize
+                        + " bytes runs past the end of the buffer (" + size() + " bytes)");
+            }
+            for (int slot = 4; slot < vtableSize; slot += 2) {
+                int field = Short.toUnsignedInt(bb.getShort((int) vtable + slot));
+                if (field != 0 && (field < 4 || field >= objectSize)) {
+                    throw new Corrupt("vtable entry " + (slot / 2 - 2) + " of table at " + hex(pos)
+                            + " points outside the table (offset " + field + ", size " + objectSize + ")");
+                }
+            }
+            if (type == null) {
+                return;
+            }
+
+            for (Field field : PLANS.get(type)) {
+                if (field.slot() >= vtableSize) {
+                    continue;
+                }
+                int offset = Short.toUnsignedInt(bb.getShort((int) vtable + field.slot()));
+                if (offset == 0) {
+                    continue;
+                }
+                try {
+                    field(pos + offset, offset, objectSize, field, depth);
+                } catch (Corrupt e) {
+                    throw e.in(field.name());
+                }
+            }
+        }
+
+        private void field(int at, int offset, int objectSize, Field field, int depth) {
+            switch (field.kind()) {
+                case SCALAR -> {
+                    if (offset + field.size() > objectSize) {
+                        throw new Corrupt(field.size() + "-byte value at " + hex(at)
+                                + " runs past the end of its table");
+                    }
+                }
+                case STRUCT -> {
+                    // Struct sizes aren't generated; the vtable check covers the start
+                }
+                case STRING -> string(offset(at, "string offset"));
+                case TABLE -> table(offset(at, "table offset"), field.table(), depth + 1);
+                case UNION -> table(offset(at, "union offset"), null, depth + 1);
+                default -> vector(offset(at, "vector offset"), field, depth);
+            }
+        }
+
+        private void vector(int pos, Field field, int depth) {
+            long length = Integer.toUnsignedLong(bb.getInt(pos));
+            long bytes = length * field.size();
+            if (pos + 4 + bytes > end) {
+                throw new Corrupt("vector at " + hex(pos) + " of " + length + " x " + field.size()
+                        + " bytes runs past the end of the buffer (" + size() + " bytes)");
+            }
+            if (field.kind() == Kind.SCALARS || field.kind() == Kind.STRUCTS) {
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                int element = pos + 4 + 4 * i;
+                try {
+                    switch (field.kind()) {
+                        case STRINGS -> string(offset(element, "string offset"));
+                        case TABLES -> table(offset(element, "table offset"), field.table(), depth + 1);
+                        default -> table(offset(element, "union offset"), null, depth + 1);
+                    }
+                } catch (Corrupt e) {
+                    throw e.in("[" + i + "]");
+                }
+            }
+        }
+
+        private void string(int pos) {
+            long length = Integer.toUnsignedLong(bb.getInt(pos));
+            if (pos + 4 + length + 1 > end) {
+                throw new Corrupt("string at " + hex(pos) + " of " + length
+                        + " bytes runs past the end of the buffer (" + size() + " bytes)");
+            }
+            if (bb.get((int) (pos + 4 + length)) != 0) {
+                throw new Corrupt("string at " + hex(pos) + " is not null-terminated");
+            }
+        }
+
+        private void need(long at, int bytes, String what) {
+            if (at < start || at + bytes > end) {
+                throw new Corrupt(what + " at " + hex(at) + " is outside the buffer (" + size() + " bytes)");
+            }
+        }
+
+        private int size() {
+            return end - start;
+        }
+
+        private String hex(long position) {
+            return "0x" + Long.toHexString(position - start);
+        }
+    }
+
+    /** Work out the fields of a generated table class from its accessors. */
+    static List<Field> plan(Class<?> type) {
+        AccessorBytecode code = AccessorBytecode.of(type);
+        Map<String, Method> elementAccessors = new HashMap<>();
+        for (Method m : type.getMethods()) {
+            Class<?>[] params = m.getParameterTypes();
+            if (params.length > 0 && params[params.length - 1] == int.class && params.length <= 2) {
+                // The (obj, j) variant of a table vector accessor holds the code; prefer it
+                elementAccessors.merge(m.getName(), m, (a, b) -> a.getParameterCount() >= b.getParameterCount() ? a : b);
+            }
+        }
+
+        List<Field> fields = new ArrayList<>();
+        for (Method m : type.getMethods()) {
+            if (m.getDeclaringClass() != type || Modifier.isStatic(m.getModifiers())
+                    || m.getName().startsWith("__") || m.getName().startsWith("mutate")) {
+                continue;
+            }
+            int slot = code.slot(m);
+            if (slot < 0) {
+                continue;
+            }
+            String name = m.getName();
+            Class<?> returns = m.getReturnType();
+            Class<?>[] params = m.getParameterTypes();
+
+            if (params.length == 0 && name.endsWith("Length") && returns == int.class
+                    && elementAccessors.containsKey(name.substring(0, name.length() - 6))) {
+                String base = name.substring(0, name.length() - 6);
+                Method element = elementAccessors.get(base);
+                Class<?> elementType = element.getReturnType();
+                int stride = code.stride(element);
+                if (elementType.isPrimitive()) {
+                    fields.add(new Field(base, slot, Kind.SCALARS, stride > 0 ? stride : 1, null));
+                } else if (elementType == String.class) {
+                    fields.add(new Field(base, slot, Kind.STRINGS, 4, null));
+                } else if (elementType == Table.class) {
+                    fields.add(new Field(base, slot, Kind.UNIONS, 4, null));
+                } else if (Table.class.isAssignableFrom(elementType)) {
+                    fields.add(new Field(base, slot, Kind.TABLES, 4, elementType));
+                } else if (Struct.class.isAssignableFrom(elementType)) {
+                    fields.add(new Field(base, slot, Kind.STRUCTS, stride > 0 ? stride : 1, null));
+                }
+            } else if (params.length == 0 && returns.isPrimitive()) {
+                int size = code.readSize(m);
+                fields.add(new Field(name, slot, Kind.SCALAR, size > 0 ? size : 1, null));
+            } else if (params.length == 0 && returns == String.class) {
+                fields.add(new Field(name, slot, Kind.STRING, 4, null));
+            } else if (params.length == 1 && params[0] == Table.class) {
+                fields.add(new Field(name, slot, Kind.UNION, 4, null));
+            } else if (params.length == 1 && Table.class.isAssignableFrom(params[0])) {
+                fields.add(new Field(name, slot, Kind.TABLE, 4, params[0]));
+            } else if (params.length == 1 && Struct.class.isAssignableFrom(params[0])) {
+                fields.add(new Field(name, slot, Kind.STRUCT, 0, null));
+            }
+        }
+        fields.sort(Comparator.comparingInt(Field::slot));
+        return List.copyOf(fields);
+    }
+}
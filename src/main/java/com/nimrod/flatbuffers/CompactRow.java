@@ -0,0 +1,223 @@
+package com.nimrod.flatbuffers;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Array-backed decoded table. The field names live in a {@link Keys} layout shared by every
+ * row of the same FlatBuffer class, so a row only costs its value array instead of a
+ * {@code LinkedHashMap} with one entry object per field.
+ *
+ * <p>Iteration follows the layout order. Fields that could not be read are left
+ * {@link #ABSENT} and are not part of the map. Existing fields can be replaced or removed;
+ * adding a field the layout doesn't know throws {@link UnsupportedOperationException}
+ * (copy into a {@code LinkedHashMap} first if you need that).</p>
+ */
+final class CompactRow extends AbstractMap<String, Object> {
+
+    /** Marks a slot whose field is not present in this row. */
+    static final Object ABSENT = new Object();
+
+    /** Ordered field names with a shared name → slot index. */
+    static final class Keys {
+
+        private final String[] names;
+        private final Map<String, Integer> slots;
+
+        Keys(List<String> names) {
+            this.names = names.toArray(String[]::new);
+            this.slots = new HashMap<>(names.size() * 2);
+            for (int i = 0; i < this.names.length; i++) {
+                slots.put(this.names[i], i);
+            }
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        String name(int slot) {
+            return names[slot];
+        }
+
+        int slotOf(Object name) {
+            Integer slot = slots.get(name);
+            return slot == null ? -1 : slot;
+        }
+    }
+
+    private final Keys keys;
+    private final Object[] values;
+
+    CompactRow(Keys keys) {
+        this.keys = keys;
+        this.values = new Object[keys.size()];
+        Arrays.fill(values, ABSENT);
+    }
+
+    void set(int slot, Object value) {
+        values[slot] = value;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Object value : values) {
+            if (value != ABSENT) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = keys.slotOf(key);
+        return slot >= 0 && values[slot] != ABSENT;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = keys.slotOf(key);
+        return slot < 0 ? null : present(values[slot]);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = keys.slotOf(key);
+        if (slot < 0) {
+            throw new UnsupportedOperationException("Field '" + key + "' is not part of this row layout");
+        }
+        Object old = values[slot];
+        values[slot] = value;
+        return present(old);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = keys.slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        Object old = values[slot];
+        values[slot] = ABSENT;
+        return present(old);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT) {
+                action.accept(keys.name(i), values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactRow.this.size();
+            }
+        };
+    }
+
+    private static Object present(Object value) {
+        return value == ABSENT ? null : value;
+    }
+
+    private final class SlotIterator implements Iterator<Entry<String, Object>> {
+
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == ABSENT) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return new SlotEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            values[last] = ABSENT;
+            last = -1;
+        }
+    }
+
+    private final class SlotEntry implements Entry<String, Object> {
+
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return keys.name(slot);
+        }
+
+        @Override
+        public Object getValue() {
+            return present(values[slot]);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[slot];
+            values[slot] = value;
+            return present(old);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> e
+                    && getKey().equals(e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.nimrod.flatbuffers;
+
+/**
+ * How much of a blob {@link FbDecoder} expands, for looking at the structure of huge blobs.
+ * What is cut is never read from the buffer.
+ *
+ * <ul>
+ *   <li>Vectors longer than {@code maxVector} keep their first {@code maxVector} elements,
+ *       followed by a {@code "<n more of length>"} marker.</li>
+ *   <li>Nested tables deeper than {@code maxDepth} (the root table being depth 0) are
+ *       summarised as {@code "<Type>"}, and vectors of them as {@code "<Type[length]>"}.</li>
+ * </ul>
+ */
+public record DecodeLimits(int maxVector, int maxDepth) {
+
+    public static final DecodeLimits NONE = new DecodeLimits(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    public DecodeLimits {
+        if (maxVector < 0 || maxDepth < 0) {
+            throw new IllegalArgumentException("Vector and depth limits cannot be negative");
+        }
+    }
+
+    /** Limits from optional values, null meaning no limit. */
+    public static DecodeLimits of(Integer maxVector, Integer maxDepth) {
+        if (maxVector == null && maxDepth == null) {
+            return NONE;
+        }
+        return new DecodeLimits(maxVector != null ? maxVector : Integer.MAX_VALUE,
+                maxDepth != null ? maxDepth : Integer.MAX_VALUE);
+    }
+
+    /** The marker that ends a vector cut after {@code kept} of {@code length} elements. */
+    static String truncated(int kept, int length) {
+        return "<" + (length - kept) + " more of " + length + ">";
+    }
+
+    /** The summary of a table of class {@code type} beyond {@code maxDepth}. */
+    static String summary(Class<?> type) {
+        return "<" + type.getSimpleName() + ">";
+    }
+
+    /** The summary of a vector of {@code length} tables of class {@code type} beyond {@code maxDepth}. */
+    static String summary(Class<?> type, int length) {
+        return "<" + type.getSimpleName() + "[" + length + "]>";
+    }
+}
@@ -1,18 +1,20 @@
 package com.nimrod.flatbuffers;
 
 import com.google.flatbuffers.Table;
+import com.nimrod.jfr.FlatBufferDecodeEvent;
+import com.nimrod.progress.RateLimitedLog;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Decodes FlatBuffer binary blobs into {@code Map<String, Object>} suitable for JSON serialisation.
@@ -20,22 +22,43 @@ import java.util.Set;
  * <p>Uses the compiled FBS Java classes from sup-server-db-fbs-schema. Auto-detects the
  * schema via file_identifier, deserialises the root table, then reflectively walks all
  * getter methods to produce a generic map representation.</p>
+ *
+ * <p>Each decoded table is a {@link CompactRow}: an array of values over a key layout shared
+ * by all rows of the same class. Scalar vectors are copied in bulk into primitive arrays
+ * ({@code int[]}, {@code float[]}, ...) which Jackson writes as JSON arrays without boxing;
+ * other vectors become {@code List<Object>}.</p>
+ *
+ * <p>{@link DecodeLimits} cut long vectors and deeply nested tables short; the elements and
+ * tables left out are not read.</p>
  */
 @Component
 public class FbDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(FbDecoder.class);
 
-    /** Method names inherited from Table/Object that should be skipped during reflection. */
-    private static final Set<String> SKIP_METHODS = Set.of(
-            "getClass", "hashCode", "toString", "notify", "notifyAll", "wait",
-            "getByteBuffer", "equals"
-    );
+    /** Field layout per generated table class, resolved on first use. */
+    private static final ClassValue<TableLayout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected TableLayout computeValue(Class<?> type) {
+            return TableLayout.of(type);
+        }
+    };
+
+    /** Field read failures repeat for every row of a damaged export; log only a sample. */
+    private static final RateLimitedLog FIELD_WARNINGS = new RateLimitedLog(LOG, 20, Duration.ofSeconds(10));
 
-    /** Suffixes for internal FlatBuffer accessor methods that we handle separately or skip. */
-    private static final Set<String> SKIP_SUFFIXES = Set.of(
-            "Vector", "AsByteBuffer", "InByteBuffer", "AsTable"
-    );
+    /** Why a blob was not decoded; {@link #NONE} when it was. */
+    public enum Miss { NONE, TOO_SHORT, NO_SCHEMA, FAILED }
+
+    /**
+     * Outcome of {@link #tryDecode}: the decoded map, or the kind of miss and a short
+     * description of it ({@code value} is then null).
+     */
+    public record Result(Map<String, Object> value, Miss miss, String reason) {
+        public boolean ok() {
+            return miss == Miss.NONE;
+        }
+    }
 
     private final SchemaRegistry schemaRegistry;
 
@@ -51,118 +74,169 @@ public class FbDecoder {
      * @throws IllegalArgumentException if no matching schema is found
      */
     public Map<String, Object> decode(ByteBuffer buffer) {
-        SchemaRegistry.SchemaEntry entry = schemaRegistry.findByBuffer(buffer)
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "No matching FBS schema for buffer. Known schemas:\n"
-                                + schemaRegistry.formatSchemaList()));
+        Result result = tryDecode(buffer);
+        return switch (result.miss()) {
+            case NONE -> result.value();
+            case TOO_SHORT, NO_SCHEMA -> throw new IllegalArgumentException(
+                    "No matching FBS schema for buffer (" + result.reason() + "). Known schemas:\n"
+                            + schemaRegistry.formatSchemaList());
+            case FAILED -> throw new IllegalArgumentException(result.reason());
+        };
+    }
 
-        LOG.debug("Matched schema: {}", entry.simpleName());
-        Table root = entry.deserialize(buffer);
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("_type", entry.simpleName());
-        result.putAll(tableToMap(root));
+    /**
+     * Decode a FlatBuffer blob into a map, reporting a blob that matches no schema as a
+     * {@link Result} rather than an exception. Meant for bulk decoding, where misses are
+     * expected and must stay cheap.
+     */
+    public Result tryDecode(ByteBuffer buffer) {
+        return tryDecode(buffer, FieldSelection.ALL);
+    }
+
+    /**
+     * Like {@link #tryDecode(ByteBuffer)}, but read only the fields in {@code fields}; the
+     * others are absent from the result. {@code _type} is always present.
+     */
+    public Result tryDecode(ByteBuffer buffer, FieldSelection fields) {
+        return tryDecode(buffer, fields, DecodeLimits.NONE);
+    }
+
+    /**
+     * Like {@link #tryDecode(ByteBuffer, FieldSelection)}, but cut vectors and nested tables
+     * beyond {@code limits} without reading them.
+     */
+    public Result tryDecode(ByteBuffer buffer, FieldSelection fields, DecodeLimits limits) {
+        FlatBufferDecodeEvent event = new FlatBufferDecodeEvent();
+        event.begin();
+        int size = buffer.remaining();
+        Result result = decodeBlob(buffer, fields, limits);
+        if (event.shouldCommit()) {
+            event.type = result.ok() ? (String) result.value().get("_type") : null;
+            event.blobSize = size;
+            event.miss = result.miss().name();
+            event.commit();
+        }
         return result;
     }
 
+    private Result decodeBlob(ByteBuffer buffer, FieldSelection fields, DecodeLimits limits) {
+        if (buffer.remaining() < 8) {
+            return new Result(null, Miss.TOO_SHORT, "blob is only " + buffer.remaining() + " bytes");
+        }
+        SchemaRegistry.SchemaEntry entry = schemaRegistry.findByBuffer(buffer).orElse(null);
+        if (entry == null) {
+            return new Result(null, Miss.NO_SCHEMA,
+                    "no schema matches file_identifier '" + SchemaRegistry.identifierOf(buffer) + "'");
+        }
+
+        LOG.debug("Matched schema: {}", entry.simpleName());
+        try {
+            Table root = entry.deserialize(buffer);
+            return new Result(tableToMap(root, entry.simpleName(), fields, limits, 0), Miss.NONE, null);
+        } catch (RuntimeException e) {
+            // A root offset pointing outside the buffer
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            return new Result(null, Miss.FAILED, cause == e ? e.toString() : e.getMessage() + ": " + cause);
+        }
+    }
+
     /**
-     * Reflectively walk a FlatBuffer Table object and extract all fields into a map.
+     * Walk a FlatBuffer Table object using its cached {@link TableLayout} and extract all
+     * selected fields into a {@link CompactRow}. Fields that fail to read are logged and
+     * left out.
      *
-     * <p>FlatBuffer generated Java classes expose fields as methods:
-     * <ul>
-     *   <li>{@code fieldName()} — scalar or nested table getter (0 args)</li>
-     *   <li>{@code fieldNameLength()} — vector length (0 args, returns int)</li>
-     *   <li>{@code fieldName(int)} — vector element access (1 int arg)</li>
-     *   <li>{@code fieldNameType()} — union discriminator (returns byte)</li>
-     * </ul>
+     * @param type schema name stored as {@code _type} for root tables, null for nested ones
+     * @param depth of this table, the root being 0
      */
-    private Map<String, Object> tableToMap(Object obj) {
+    private Map<String, Object> tableToMap(Object obj, String type, FieldSelection fields,
+                                           DecodeLimits limits, int depth) {
         if (obj == null) {
             return null;
         }
 
         Class<?> clazz = obj.getClass();
-        Map<String, Object> result = new LinkedHashMap<>();
-
-        // Categorise methods
-        Map<String, Method> noArgMethods = new LinkedHashMap<>();
-        Map<String, Method> intArgMethods = new LinkedHashMap<>();
-        Map<String, Method> lengthMethods = new LinkedHashMap<>();
+        TableLayout layout = LAYOUTS.get(clazz);
+        CompactRow result = layout.newRow(type);
+        int slot = type == null ? 0 : 1;
+        FieldSelection.Slots selected = fields.isAll() ? null : fields.slots(layout);
 
-        for (Method m : clazz.getMethods()) {
-            String name = m.getName();
+        // One scratch buffer per table, repositioned by each *InByteBuffer call
+        ByteBuffer scratch = null;
 
-            if (shouldSkipMethod(m, name)) {
+        List<TableLayout.VectorField> vectors = layout.vectors();
+        for (int i = 0; i < vectors.size(); i++, slot++) {
+            FieldSelection elements = selected == null ? FieldSelection.ALL : selected.vectors()[i];
+            if (elements == null) {
                 continue;
             }
-
-            if (m.getParameterCount() == 0 && m.getReturnType() != void.class) {
-                if (name.endsWith("Length")) {
-                    String baseName = name.substring(0, name.length() - 6);
-                    lengthMethods.put(baseName, m);
-                } else {
-                    noArgMethods.put(name, m);
+            TableLayout.VectorField field = vectors.get(i);
+            try {
+                int length = (int) field.length().invoke(obj);
+                Class<?> elementType = field.element().getReturnType();
+                if (depth >= limits.maxDepth() && Table.class.isAssignableFrom(elementType)) {
+                    result.set(slot, DecodeLimits.summary(elementType, length));
+                    continue;
                 }
-            }
-
-            if (m.getParameterCount() == 1
-                    && m.getParameterTypes()[0] == int.class
-                    && m.getReturnType() != void.class) {
-                intArgMethods.put(name, m);
-            }
-        }
-
-        // Process vector fields first (those with *Length methods)
-        for (var entry : lengthMethods.entrySet()) {
-            String baseName = entry.getKey();
-            Method lengthMethod = entry.getValue();
-            Method elementMethod = intArgMethods.get(baseName);
-
-            if (elementMethod != null) {
-                try {
-                    int length = (int) lengthMethod.invoke(obj);
-                    List<Object> list = new ArrayList<>(length);
-                    for (int i = 0; i < length; i++) {
-                        Object elem = elementMethod.invoke(obj, i);
-                        list.add(convertValue(elem));
+                int count = Math.min(length, limits.maxVector());
+                Object values = null;
+                if (elementType.isPrimitive() && length > 0) {
+                    ByteBuffer vector;
+                    if (field.inBuffer() != null && obj instanceof Table table) {
+                        if (scratch == null) {
+                            scratch = table.getByteBuffer().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                        }
+                        vector = (ByteBuffer) field.inBuffer().invoke(obj, scratch);
+                    } else {
+                        vector = field.asBuffer() != null ? (ByteBuffer) field.asBuffer().invoke(obj) : null;
+                    }
+                    values = PrimitiveVectors.read(vector, length, count, elementType);
+                }
+                if (values == null) {
+                    List<Object> list = new ArrayList<>(count < length ? count + 1 : count);
+                    for (int index = 0; index < count; index++) {
+                        Object elem = field.element().invoke(obj, index);
+                        list.add(convertValue(elem, elements, limits, depth + 1));
                     }
-                    result.put(baseName, list);
-                    // Remove from noArgMethods so we don't double-process
-                    noArgMethods.remove(baseName);
-                } catch (Exception e) {
-                    LOG.warn("Failed to read vector field '{}' on {}: {}",
-                            baseName, clazz.getSimpleName(), e.getMessage());
+                    values = list;
+                }
+                if (count < length) {
+                    values = truncated(values, count, length);
                 }
+                result.set(slot, values);
+            } catch (Exception e) {
+                FIELD_WARNINGS.warn("Failed to read vector field '{}' on {}: {}",
+                        field.name(), clazz.getSimpleName(), e.getMessage());
             }
         }
 
-        // Process remaining no-arg methods (scalar and nested table fields)
-        for (var entry : noArgMethods.entrySet()) {
-            String name = entry.getKey();
-            Method method = entry.getValue();
-
-            // Skip vector-related methods — already handled above
-            if (lengthMethods.containsKey(name)) {
+        // Scalar and nested table fields
+        List<TableLayout.ScalarField> scalars = layout.scalars();
+        for (int i = 0; i < scalars.size(); i++, slot++) {
+            FieldSelection value = selected == null ? FieldSelection.ALL : selected.scalars()[i];
+            if (value == null) {
                 continue;
             }
-            // Skip suffixed internal methods
-            if (hasSkipSuffix(name)) {
-                continue;
-            }
-
+            TableLayout.ScalarField field = scalars.get(i);
             try {
-                Object value = method.invoke(obj);
-                result.put(name, convertValue(value));
+                result.set(slot, convertValue(field.getter().invoke(obj), value, limits, depth + 1));
             } catch (Exception e) {
-                LOG.warn("Failed to read field '{}' on {}: {}",
-                        name, clazz.getSimpleName(), e.getMessage());
+                FIELD_WARNINGS.warn("Failed to read field '{}' on {}: {}",
+                        field.name(), clazz.getSimpleName(), e.getMessage());
             }
         }
 
         return result;
     }
 
-    /** Convert a value returned by a FlatBuffer getter to a JSON-safe representation. */
-    private Object convertValue(Object value) {
+    /**
+     * Convert a value returned by a FlatBuffer getter to a JSON-safe representation.
+     *
+     * @param depth of {@code value} if it is a table
+     */
+    private Object convertValue(Object value, FieldSelection fields, DecodeLimits limits, int depth) {
         if (value == null) {
             return null;
         }
@@ -172,40 +246,30 @@ public class FbDecoder {
         }
         // FlatBuffer Table → recurse
         if (value instanceof Table) {
-            return tableToMap(value);
+            return depth > limits.maxDepth()
+                    ? DecodeLimits.summary(value.getClass())
+                    : tableToMap(value, null, fields, limits, depth);
         }
         // Fallback: use toString
         return value.toString();
     }
 
-    private boolean shouldSkipMethod(Method m, String name) {
-        if (SKIP_METHODS.contains(name)) {
-            return true;
-        }
-        if (name.startsWith("__")) {
-            return true;
-        }
-        // Skip methods declared on Object or Table base class
-        if (m.getDeclaringClass() == Object.class) {
-            return true;
-        }
-        // Skip static methods (like getRootAs*, create*, finish*, etc.)
-        if (java.lang.reflect.Modifier.isStatic(m.getModifiers())) {
-            return true;
-        }
-        // Skip methods that take a Table parameter (union fill methods)
-        if (m.getParameterCount() == 1 && Table.class.isAssignableFrom(m.getParameterTypes()[0])) {
-            return true;
-        }
-        return false;
-    }
-
-    private boolean hasSkipSuffix(String name) {
-        for (String suffix : SKIP_SUFFIXES) {
-            if (name.endsWith(suffix)) {
-                return true;
+    /**
+     * The first {@code count} elements of a vector, a list or a primitive array, followed by
+     * the marker for the {@code length - count} elements left out.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> truncated(Object values, int count, int length) {
+        List<Object> list;
+        if (values instanceof List<?>) {
+            list = (List<Object>) values;
+        } else {
+            list = new ArrayList<>(count + 1);
+            for (int i = 0; i < count; i++) {
+                list.add(Array.get(values, i));
             }
         }
-        return false;
+        list.add(DecodeLimits.truncated(count, length));
+        return list;
     }
 }
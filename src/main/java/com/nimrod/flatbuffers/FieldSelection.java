@@ -0,0 +1,103 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.Table;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fields of a table, and recursively of its nested tables, that {@link FbDecoder} should
+ * read; everything else is left out of the decoded row without being touched. {@link #ALL}
+ * reads every field.
+ *
+ * <p>A selection is resolved against the {@link TableLayout} of every table class it meets
+ * once, into the slots to read and the selections for their values, so decoding with a
+ * selection costs no name lookups per row.</p>
+ *
+ * <p>A field selected as <em>iterated</em> is one whose elements are visited: for a vector
+ * the element selection applies to each element, while a nested table iterated like that
+ * needs all of its fields.</p>
+ */
+public final class FieldSelection {
+
+    public static final FieldSelection ALL = new FieldSelection(null, false);
+
+    /** Selected field name → selection within its value; null for {@link #ALL}. */
+    private final Map<String, FieldSelection> fields;
+    private final boolean iterated;
+    private final Map<TableLayout, Slots> slots = new ConcurrentHashMap<>();
+
+    /**
+     * The selection for each slot of a layout's vectors and scalars, in layout order; null
+     * where the field is not selected.
+     */
+    record Slots(FieldSelection[] vectors, FieldSelection[] scalars) {
+    }
+
+    private FieldSelection(Map<String, FieldSelection> fields, boolean iterated) {
+        this.fields = fields;
+        this.iterated = iterated;
+    }
+
+    /** Select {@code fields}, each with the selection within its value. */
+    public static FieldSelection of(Map<String, FieldSelection> fields, boolean iterated) {
+        return new FieldSelection(Map.copyOf(fields), iterated);
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean iterated() {
+        return iterated;
+    }
+
+    /** Selected fields; empty for {@link #ALL}, which selects them all. */
+    public Map<String, FieldSelection> fields() {
+        return fields == null ? Map.of() : fields;
+    }
+
+    Slots slots(TableLayout layout) {
+        return slots.computeIfAbsent(layout, this::resolve);
+    }
+
+    private Slots resolve(TableLayout layout) {
+        FieldSelection[] vectors = new FieldSelection[layout.vectors().size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = fields.get(layout.vectors().get(i).name());
+        }
+        FieldSelection[] scalars = new FieldSelection[layout.scalars().size()];
+        for (int i = 0; i < scalars.length; i++) {
+            TableLayout.ScalarField field = layout.scalars().get(i);
+            FieldSelection selection = fields.get(field.name());
+            if (selection != null && selection.iterated
+                    && Table.class.isAssignableFrom(field.getter().getReturnType())) {
+                selection = ALL;
+            }
+            scalars[i] = selection;
+        }
+        return new Slots(vectors, scalars);
+    }
+
+    /**
+     * E.g. {@code {army{units[]{hp,name}},playerId}}: fields read in full are bare names,
+     * others list their selection, {@code {}} being just the presence of a table.
+     */
+    @Override
+    public String toString() {
+        if (fields == null) {
+            return "*";
+        }
+        StringBuilder text = new StringBuilder(iterated ? "[]{" : "{");
+        String separator = "";
+        for (var entry : new TreeMap<>(fields).entrySet()) {
+            text.append(separator).append(entry.getKey());
+            if (!entry.getValue().isAll()) {
+                text.append(entry.getValue());
+            }
+            separator = ",";
+        }
+        return text.append('}').toString();
+    }
+}
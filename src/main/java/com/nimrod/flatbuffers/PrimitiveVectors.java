@@ -0,0 +1,111 @@
+package com.nimrod.flatbuffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Copies FlatBuffer scalar vectors into primitive arrays in bulk.
+ *
+ * <p>The generated {@code fieldAsByteBuffer()} / {@code fieldInByteBuffer(ByteBuffer)}
+ * accessors expose the raw little-endian vector bytes; this turns them into the primitive
+ * array matching what the element getter {@code field(int)} would return one value at a
+ * time. The element width is taken from the buffer, the signedness from the getter's
+ * return type:</p>
+ * <ul>
+ *   <li>{@code [bool]} → {@code boolean[]}</li>
+ *   <li>{@code [byte]}, {@code [ubyte]}, {@code [short]} → {@code short[]} (never
+ *       {@code byte[]}, which Jackson would write as base64)</li>
+ *   <li>{@code [ushort]}, {@code [int]} → {@code int[]}</li>
+ *   <li>{@code [uint]}, {@code [long]}, {@code [ulong]} → {@code long[]}</li>
+ *   <li>{@code [float]} → {@code float[]}, {@code [double]} → {@code double[]}</li>
+ * </ul>
+ * <p>Jackson serialises these arrays as JSON arrays of numbers/booleans without boxing.</p>
+ */
+final class PrimitiveVectors {
+
+    private PrimitiveVectors() {
+    }
+
+    /**
+     * Copy {@code length} elements from {@code vector} (positioned at the first element).
+     *
+     * @param elementType the return type of the generated element getter
+     * @return a primitive array, or null if the layout doesn't match a known scalar vector
+     */
+    static Object read(ByteBuffer vector, int length, Class<?> elementType) {
+        return read(vector, length, length, elementType);
+    }
+
+    /**
+     * Copy the first {@code count} of the {@code length} elements of {@code vector}; the rest
+     * are not read.
+     */
+    static Object read(ByteBuffer vector, int length, int count, Class<?> elementType) {
+        if (vector == null || length <= 0 || vector.remaining() % length != 0) {
+            return null;
+        }
+        int width = vector.remaining() / length;
+        ByteBuffer bb = vector.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (width == 1) {
+            if (elementType == boolean.class) {
+                boolean[] values = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = bb.get(i) != 0;
+                }
+                return values;
+            }
+            if (elementType == byte.class || elementType == int.class) {
+                int mask = elementType == byte.class ? -1 : 0xFF;
+                short[] values = new short[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = (short) (bb.get(i) & mask);
+                }
+                return values;
+            }
+        } else if (width == 2) {
+            if (elementType == short.class) {
+                short[] values = new short[count];
+                bb.asShortBuffer().get(values);
+                return values;
+            }
+            if (elementType == int.class) {
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = bb.getShort(i * 2) & 0xFFFF;
+                }
+                return values;
+            }
+        } else if (width == 4) {
+            if (elementType == int.class) {
+                int[] values = new int[count];
+                bb.asIntBuffer().get(values);
+                return values;
+            }
+            if (elementType == long.class) {
+                long[] values = new long[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = bb.getInt(i * 4) & 0xFFFFFFFFL;
+                }
+                return values;
+            }
+            if (elementType == float.class) {
+                float[] values = new float[count];
+                bb.asFloatBuffer().get(values);
+                return values;
+            }
+        } else if (width == 8) {
+            if (elementType == long.class) {
+                long[] values = new long[count];
+                bb.asLongBuffer().get(values);
+                return values;
+            }
+            if (elementType == double.class) {
+                double[] values = new double[count];
+                bb.asDoubleBuffer().get(values);
+                return values;
+            }
+        }
+        return null;
+    }
+}
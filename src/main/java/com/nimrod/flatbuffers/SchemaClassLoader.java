@@ -0,0 +1,56 @@
+package com.nimrod.flatbuffers;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Class loader for one schema JAR that looks in the JAR before asking its parent.
+ *
+ * <p>Generated schema classes share package and class names across versions, so with the
+ * usual parent-first delegation a JAR could never replace a schema bundled with the
+ * application. Only the JDK and the FlatBuffers runtime are always taken from the parent:
+ * decoded tables must extend the same {@code Table} class the decoder knows.</p>
+ */
+final class SchemaClassLoader extends URLClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    SchemaClassLoader(URL jar, ClassLoader parent) {
+        super(new URL[] {jar}, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isShared(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                try {
+                    loaded = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    loaded = getParent().loadClass(name);
+                }
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    /** Child-first as well, so the class file read for a class is the one it was loaded from. */
+    @Override
+    public URL getResource(String name) {
+        URL url = findResource(name);
+        return url != null ? url : super.getResource(name);
+    }
+
+    private static boolean isShared(String name) {
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("com.google.flatbuffers.");
+    }
+}
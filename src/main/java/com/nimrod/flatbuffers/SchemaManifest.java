@@ -0,0 +1,68 @@
+package com.nimrod.flatbuffers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The root types found in each JAR of a schema directory, cached so that later startups
+ * don't have to scan the JARs again. A JAR is rescanned when its size or modification time
+ * differs from what was recorded.
+ *
+ * @param jars scan results keyed by JAR file name
+ */
+record SchemaManifest(int version, Map<String, Jar> jars) {
+
+    static final int VERSION = 1;
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaManifest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param roots fully-qualified names of the root table classes in the JAR
+     */
+    record Jar(long size, long lastModified, List<String> roots) {
+
+        boolean describes(Path jar) throws IOException {
+            return Files.size(jar) == size && Files.getLastModifiedTime(jar).toMillis() == lastModified;
+        }
+    }
+
+    /**
+     * Read the manifest in {@code file}. A missing, unreadable or outdated manifest is
+     * treated as empty, which only costs a rescan.
+     */
+    static SchemaManifest load(Path file) {
+        if (Files.exists(file)) {
+            try {
+                SchemaManifest manifest = MAPPER.readValue(file.toFile(), SchemaManifest.class);
+                if (manifest.version() == VERSION && manifest.jars() != null) {
+                    return manifest;
+                }
+            } catch (IOException e) {
+                LOG.warn("Ignoring unreadable schema manifest {}: {}", file, e.getMessage());
+            }
+        }
+        return new SchemaManifest(VERSION, Map.of());
+    }
+
+    /** Write the manifest to a temporary sibling and rename it over {@code file}. */
+    void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), this);
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
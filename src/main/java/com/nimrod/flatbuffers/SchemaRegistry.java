@@ -1,18 +1,32 @@
 package com.nimrod.flatbuffers;
 
 import com.google.flatbuffers.Table;
+import com.nimrod.jfr.SchemaMatchEvent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
 /**
  * Registry of FlatBuffer root table types from the sup-server-db-fbs-schema artifact.
@@ -20,6 +34,9 @@ import java.util.Optional;
  * <p>At startup, registers all known root types and exposes lookup by file_identifier.
  * Each blob's 4-byte identifier (bytes 4–7) is checked against each registered class's
  * {@code *BufferHasIdentifier(ByteBuffer)} method to find the correct deserializer.</p>
+ *
+ * <p>Further root types can be loaded from a directory of schema JARs at runtime
+ * ({@code --schema-path}, see {@link #loadSchemaPath}), without rebuilding the application.</p>
  */
 @Component
 public class SchemaRegistry {
@@ -59,6 +76,12 @@ public class SchemaRegistry {
             "com.bytro.sup.fbs.db.tutorial.FbsDbTutorialState"
     );
 
+    /** File in a schema directory that caches which root types each JAR contains. */
+    static final String MANIFEST_NAME = ".nimrod-schemas.json";
+
+    /** Every root type has a method whose name ends in this, so its class file contains it. */
+    private static final byte[] ROOT_MARKER = "BufferHasIdentifier".getBytes(StandardCharsets.US_ASCII);
+
     public record SchemaEntry(
             Class<?> rootClass,
             Method getRootMethod,
@@ -74,6 +97,9 @@ public class SchemaRegistry {
 
         /** Check whether the given buffer matches this schema's file_identifier. */
         public boolean matches(ByteBuffer buffer) {
+            if (buffer.remaining() < 8) {
+                return false;
+            }
             try {
                 return (boolean) hasIdentifierMethod.invoke(null, buffer.duplicate());
             } catch (Exception e) {
@@ -94,19 +120,28 @@ public class SchemaRegistry {
 
     private final Map<String, SchemaEntry> entriesByName = new LinkedHashMap<>();
 
+    /** How many file_identifiers that match no schema are remembered; see {@link #unknownIdentifiers}. */
+    static final int MAX_UNKNOWN_IDENTIFIERS = 1024;
+
+    /**
+     * Schemas by file_identifier (bytes 4–7 as a little-endian int), so that each identifier
+     * is matched against the registered classes only once. Bounded by the number of schemas.
+     */
+    private final Map<Integer, SchemaEntry> byIdentifier = new ConcurrentHashMap<>();
+
+    /**
+     * Identifiers that matched no schema. Corrupt blobs can carry any of 2^32 of them, so
+     * only the first {@value #MAX_UNKNOWN_IDENTIFIERS} are kept; later ones are matched again
+     * on every lookup.
+     */
+    private final Set<Integer> unknownIdentifiers = ConcurrentHashMap.newKeySet();
+
     public SchemaRegistry() {
         for (String className : ROOT_CLASS_NAMES) {
             try {
                 Class<?> clazz = Class.forName(className);
-                String simpleName = clazz.getSimpleName();
-
-                Method getRootMethod = clazz.getMethod(
-                        "getRootAs" + simpleName, ByteBuffer.class);
-                Method hasIdMethod = clazz.getMethod(
-                        simpleName + "BufferHasIdentifier", ByteBuffer.class);
-
-                entriesByName.put(simpleName, new SchemaEntry(clazz, getRootMethod, hasIdMethod));
-                LOG.debug("Registered FBS schema: {}", simpleName);
+                entriesByName.put(clazz.getSimpleName(), toEntry(clazz));
+                LOG.debug("Registered FBS schema: {}", clazz.getSimpleName());
             } catch (ClassNotFoundException e) {
                 LOG.warn("FBS schema class not found on classpath: {}", className);
             } catch (NoSuchMethodException e) {
@@ -117,19 +152,195 @@ public class SchemaRegistry {
         LOG.info("Loaded {} FBS schemas", entriesByName.size());
     }
 
+    private static SchemaEntry toEntry(Class<?> clazz) throws NoSuchMethodException {
+        String simpleName = clazz.getSimpleName();
+        Method getRootMethod = clazz.getMethod("getRootAs" + simpleName, ByteBuffer.class);
+        Method hasIdMethod = clazz.getMethod(simpleName + "BufferHasIdentifier", ByteBuffer.class);
+        return new SchemaEntry(clazz, getRootMethod, hasIdMethod);
+    }
+
+    /**
+     * Register the root types of every schema JAR in {@code dir}, on top of the built-in ones.
+     *
+     * <p>Each JAR is loaded by its own {@link SchemaClassLoader}, which prefers the JAR's
+     * classes over the application's. Different schema versions therefore never clash, and a
+     * root type from a JAR replaces a built-in one of the same name. JARs are registered in
+     * file name order, so of two JARs defining a type the later name wins.</p>
+     *
+     * <p>Root types are found by scanning a JAR for {@code Table} subclasses with static
+     * {@code getRootAs<Name>(ByteBuffer)} and {@code <Name>BufferHasIdentifier(ByteBuffer)}
+     * methods. The result is cached in {@value #MANIFEST_NAME} inside {@code dir}; an
+     * unchanged JAR is not scanned again, and only its root classes are loaded.</p>
+     *
+     * @return number of root types registered from {@code dir}
+     * @throws IllegalArgumentException if {@code dir} is not a directory
+     */
+    public int loadSchemaPath(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Schema path is not a directory: " + dir);
+        }
+        List<Path> jars;
+        try (Stream<Path> files = Files.list(dir)) {
+            jars = files.filter(f -> f.getFileName().toString().endsWith(".jar")).sorted().toList();
+        }
+
+        Path manifestFile = dir.resolve(MANIFEST_NAME);
+        SchemaManifest manifest = SchemaManifest.load(manifestFile);
+        Map<String, SchemaManifest.Jar> scanned = new TreeMap<>();
+        int registered = 0;
+        for (Path jar : jars) {
+            String name = jar.getFileName().toString();
+            // Kept open for as long as the application runs: decoding loads classes lazily
+            SchemaClassLoader loader = new SchemaClassLoader(jar.toUri().toURL(), getClass().getClassLoader());
+            SchemaManifest.Jar cached = manifest.jars().get(name);
+            List<String> roots;
+            if (cached != null && cached.describes(jar)) {
+                roots = cached.roots();
+            } else {
+                long started = System.nanoTime();
+                roots = scanJar(jar, loader);
+                LOG.info("Scanned {} in {} ms: {} root type(s)", name, (System.nanoTime() - started) / 1_000_000,
+                        roots.size());
+            }
+            scanned.put(name, new SchemaManifest.Jar(
+                    Files.size(jar), Files.getLastModifiedTime(jar).toMillis(), roots));
+
+            for (String className : roots) {
+                try {
+                    SchemaEntry entry = toEntry(Class.forName(className, false, loader));
+                    SchemaEntry replaced = entriesByName.put(entry.simpleName(), entry);
+                    if (replaced != null) {
+                        LOG.info("{} from {} replaces the version registered before", entry.simpleName(), name);
+                    }
+                    registered++;
+                } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+                    LOG.warn("Skipping root type {} from {}: {}", className, name, e.toString());
+                }
+            }
+        }
+
+        if (!scanned.equals(manifest.jars())) {
+            try {
+                new SchemaManifest(SchemaManifest.VERSION, scanned).save(manifestFile);
+            } catch (IOException e) {
+                LOG.warn("Could not write schema manifest {}; JARs will be scanned again next time: {}",
+                        manifestFile, e.getMessage());
+            }
+        }
+        byIdentifier.clear();
+        unknownIdentifiers.clear();
+        LOG.info("Loaded {} FBS schemas from {} JAR(s) in {}", registered, jars.size(), dir);
+        return registered;
+    }
+
+    /** Names of the root table classes in {@code jar}, in entry order. */
+    static List<String> scanJar(Path jar, ClassLoader loader) throws IOException {
+        List<String> roots = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            for (JarEntry entry : Collections.list(jarFile.entries())) {
+                String path = entry.getName();
+                if (!path.endsWith(".class") || path.endsWith("module-info.class") || path.contains("$")) {
+                    continue;
+                }
+                // Cheap pre-check on the constant pool before paying for class loading
+                byte[] bytes;
+                try (InputStream in = jarFile.getInputStream(entry)) {
+                    bytes = in.readAllBytes();
+                }
+                if (indexOf(bytes, ROOT_MARKER) < 0) {
+                    continue;
+                }
+                String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                try {
+                    Class<?> clazz = Class.forName(className, false, loader);
+                    if (Table.class.isAssignableFrom(clazz) && isStaticRootType(clazz)) {
+                        roots.add(className);
+                    }
+                } catch (ClassNotFoundException | LinkageError e) {
+                    LOG.debug("Skipping {} in {}: {}", className, jar.getFileName(), e.toString());
+                }
+            }
+        }
+        return roots;
+    }
+
+    private static boolean isStaticRootType(Class<?> clazz) {
+        try {
+            SchemaEntry entry = toEntry(clazz);
+            return Modifier.isStatic(entry.getRootMethod().getModifiers())
+                    && Modifier.isStatic(entry.hasIdentifierMethod().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
     /**
      * Find the schema entry whose file_identifier matches the given FlatBuffer blob.
-     * Iterates all registered schemas and calls their {@code BufferHasIdentifier} method.
+     * The first blob with a given identifier is checked against every registered schema's
+     * {@code BufferHasIdentifier} method; the answer is remembered for the identifier (for
+     * identifiers no schema matches, only up to {@value #MAX_UNKNOWN_IDENTIFIERS} of them).
      *
-     * @return matching entry, or empty if no schema matches
+     * @return matching entry, or empty if no schema matches or the blob is too short to
+     *         have an identifier
      */
     public Optional<SchemaEntry> findByBuffer(ByteBuffer buffer) {
-        for (SchemaEntry entry : entriesByName.values()) {
-            if (entry.matches(buffer)) {
-                return Optional.of(entry);
-            }
+        if (buffer.remaining() < 8) {
+            return Optional.empty();
+        }
+        SchemaMatchEvent event = new SchemaMatchEvent();
+        event.begin();
+        int p = buffer.position() + 4;
+        int identifier = (buffer.get(p) & 0xFF) | (buffer.get(p + 1) & 0xFF) << 8
+                | (buffer.get(p + 2) & 0xFF) << 16 | (buffer.get(p + 3) & 0xFF) << 24;
+        SchemaEntry known = byIdentifier.get(identifier);
+        event.cached = known != null || unknownIdentifiers.contains(identifier);
+        Optional<SchemaEntry> found = event.cached ? Optional.ofNullable(known) : match(identifier, buffer);
+        if (event.shouldCommit()) {
+            event.identifier = identifierOf(buffer);
+            event.type = found.map(SchemaEntry::simpleName).orElse(null);
+            event.commit();
+        }
+        return found;
+    }
+
+    /** Check {@code buffer} against every schema and remember the answer for {@code identifier}. */
+    private Optional<SchemaEntry> match(int identifier, ByteBuffer buffer) {
+        Optional<SchemaEntry> found = entriesByName.values().stream()
+                .filter(entry -> entry.matches(buffer)).findFirst();
+        if (found.isPresent()) {
+            byIdentifier.put(identifier, found.get());
+        } else if (unknownIdentifiers.size() < MAX_UNKNOWN_IDENTIFIERS) {
+            unknownIdentifiers.add(identifier);
         }
-        return Optional.empty();
+        return found;
+    }
+
+    /** How many identifiers that match no schema are remembered. */
+    int unknownIdentifiers() {
+        return unknownIdentifiers.size();
+    }
+
+    /** The file_identifier of {@code buffer} for messages, with unprintable bytes as '?'. */
+    public static String identifierOf(ByteBuffer buffer) {
+        StringBuilder sb = new StringBuilder(4);
+        for (int i = 4; i < 8 && i < buffer.remaining(); i++) {
+            byte b = buffer.get(buffer.position() + i);
+            sb.append(b >= 0x20 && b < 0x7f ? (char) b : '?');
+        }
+        return sb.toString();
     }
 
     /** @return all registered schemas, keyed by simple class name */
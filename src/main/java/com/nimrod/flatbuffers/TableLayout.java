@@ -0,0 +1,180 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.Table;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field accessors of one generated FlatBuffer table class, resolved once by reflection and
+ * shared by every decoded row of that class.
+ *
+ * <p>FlatBuffer generated Java classes expose fields as methods:
+ * <ul>
+ *   <li>{@code fieldName()} — scalar or nested table getter (0 args)</li>
+ *   <li>{@code fieldNameLength()} — vector length (0 args, returns int)</li>
+ *   <li>{@code fieldName(int)} — vector element access (1 int arg)</li>
+ *   <li>{@code fieldNameType()} — union discriminator (returns byte)</li>
+ *   <li>{@code fieldNameInByteBuffer(ByteBuffer)} / {@code fieldNameAsByteBuffer()} — raw
+ *       bytes of a scalar vector, read in bulk into a primitive array</li>
+ * </ul>
+ *
+ * <p>Vector fields come first, then scalar and nested table fields, each in
+ * {@link Class#getMethods()} order. The same order defines the slots of the
+ * {@link CompactRow} keys; root rows get an extra {@code _type} slot in front.</p>
+ */
+final class TableLayout {
+
+    /** Method names inherited from Table/Object that should be skipped during reflection. */
+    private static final Set<String> SKIP_METHODS = Set.of(
+            "getClass", "hashCode", "toString", "notify", "notifyAll", "wait",
+            "getByteBuffer", "equals"
+    );
+
+    /** Suffixes for internal FlatBuffer accessor methods that we handle separately or skip. */
+    private static final Set<String> SKIP_SUFFIXES = Set.of(
+            "Vector", "AsByteBuffer", "InByteBuffer", "AsTable"
+    );
+
+    /** A vector field; {@code inBuffer} and {@code asBuffer} are null unless generated. */
+    record VectorField(String name, Method length, Method element, Method inBuffer, Method asBuffer) {
+    }
+
+    /** A scalar, string, union discriminator or nested table field. */
+    record ScalarField(String name, Method getter) {
+    }
+
+    private final List<VectorField> vectors;
+    private final List<ScalarField> scalars;
+    private final CompactRow.Keys keys;
+    private final CompactRow.Keys rootKeys;
+
+    private TableLayout(List<VectorField> vectors, List<ScalarField> scalars) {
+        this.vectors = List.copyOf(vectors);
+        this.scalars = List.copyOf(scalars);
+        List<String> names = new ArrayList<>();
+        vectors.forEach(v -> names.add(v.name()));
+        scalars.forEach(s -> names.add(s.name()));
+        this.keys = new CompactRow.Keys(names);
+        names.addFirst("_type");
+        this.rootKeys = new CompactRow.Keys(names);
+    }
+
+    List<VectorField> vectors() {
+        return vectors;
+    }
+
+    List<ScalarField> scalars() {
+        return scalars;
+    }
+
+    /**
+     * Start a row for this class with every field absent. Root rows ({@code type} not null)
+     * carry the schema name as {@code _type} in slot 0 and their fields from slot 1 on.
+     */
+    CompactRow newRow(String type) {
+        if (type == null) {
+            return new CompactRow(keys);
+        }
+        CompactRow row = new CompactRow(rootKeys);
+        row.set(0, type);
+        return row;
+    }
+
+    static TableLayout of(Class<?> clazz) {
+        // Categorise methods
+        Map<String, Method> noArgMethods = new LinkedHashMap<>();
+        Map<String, Method> intArgMethods = new LinkedHashMap<>();
+        Map<String, Method> lengthMethods = new LinkedHashMap<>();
+        Map<String, Method> inBufferMethods = new LinkedHashMap<>();
+
+        for (Method m : clazz.getMethods()) {
+            String name = m.getName();
+
+            if (shouldSkipMethod(m, name)) {
+                continue;
+            }
+
+            if (m.getParameterCount() == 0 && m.getReturnType() != void.class) {
+                if (name.endsWith("Length")) {
+                    String baseName = name.substring(0, name.length() - 6);
+                    lengthMethods.put(baseName, m);
+                } else {
+                    noArgMethods.put(name, m);
+                }
+            }
+
+            if (m.getParameterCount() == 1
+                    && m.getParameterTypes()[0] == int.class
+                    && m.getReturnType() != void.class) {
+                intArgMethods.put(name, m);
+            }
+
+            if (m.getParameterCount() == 1
+                    && m.getParameterTypes()[0] == ByteBuffer.class
+                    && name.endsWith("InByteBuffer")) {
+                inBufferMethods.put(name, m);
+            }
+        }
+
+        // Vector fields are those with both *Length and element accessors
+        List<VectorField> vectors = new ArrayList<>();
+        for (var entry : lengthMethods.entrySet()) {
+            String baseName = entry.getKey();
+            Method elementMethod = intArgMethods.get(baseName);
+            if (elementMethod != null) {
+                vectors.add(new VectorField(baseName, entry.getValue(), elementMethod,
+                        inBufferMethods.get(baseName + "InByteBuffer"),
+                        noArgMethods.get(baseName + "AsByteBuffer")));
+                noArgMethods.remove(baseName);
+            }
+        }
+
+        // Remaining no-arg methods are scalar and nested table fields
+        List<ScalarField> scalars = new ArrayList<>();
+        for (var entry : noArgMethods.entrySet()) {
+            String name = entry.getKey();
+            if (lengthMethods.containsKey(name) || hasSkipSuffix(name)) {
+                continue;
+            }
+            scalars.add(new ScalarField(name, entry.getValue()));
+        }
+        return new TableLayout(vectors, scalars);
+    }
+
+    private static boolean shouldSkipMethod(Method m, String name) {
+        if (SKIP_METHODS.contains(name)) {
+            return true;
+        }
+        if (name.startsWith("__")) {
+            return true;
+        }
+        // Skip methods declared on Object or Table base class
+        if (m.getDeclaringClass() == Object.class) {
+            return true;
+        }
+        // Skip static methods (like getRootAs*, create*, finish*, etc.)
+        if (java.lang.reflect.Modifier.isStatic(m.getModifiers())) {
+            return true;
+        }
+        // Skip methods that take a Table parameter (union fill methods)
+        if (m.getParameterCount() == 1 && Table.class.isAssignableFrom(m.getParameterTypes()[0])) {
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean hasSkipSuffix(String name) {
+        for (String suffix : SKIP_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+package com.nimrod.index;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dotted path to a field of a decoded row, such as {@code playerId} or
+ * {@code data.army.ownerId}.
+ *
+ * <p>The first segment is matched against the row's columns. When no column has that name,
+ * the whole path is looked up inside every decoded FlatBuffer column instead, so
+ * {@code playerId} finds {@code data.playerId} without naming the column. Vectors along the
+ * way are expanded, and every scalar the path ends on counts as a value of the field.</p>
+ */
+public final class FieldPath {
+
+    private final String path;
+    private final String[] segments;
+
+    private FieldPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the path is blank or has an empty segment
+     */
+    public static FieldPath parse(String path) {
+        String[] segments = path.strip().split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Invalid field path '" + path + "'");
+            }
+        }
+        return new FieldPath(path.strip(), segments);
+    }
+
+    public String path() {
+        return path;
+    }
+
+    /** The values of this field in {@code row}, as strings; empty if the row doesn't have it. */
+    public List<String> values(Map<String, Object> row) {
+        List<String> values = new ArrayList<>();
+        for (Object value : decodedValues(row)) {
+            values.add(String.valueOf(value));
+        }
+        return values;
+    }
+
+    /** The first value of this field in {@code row} as decoded, or null if the row doesn't have it. */
+    public Object first(Map<String, Object> row) {
+        List<Object> values = decodedValues(row);
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    /** The values of this field in {@code row} as decoded (numbers, strings, ...); empty if the row doesn't have it. */
+    public List<Object> decodedValues(Map<String, Object> row) {
+        List<Object> values = new ArrayList<>();
+        if (row.containsKey(segments[0])) {
+            collect(row, 0, values);
+        } else {
+            for (Object column : row.values()) {
+                if (column instanceof Map<?, ?>) {
+                    collect(column, 0, values);
+                }
+            }
+        }
+        return values;
+    }
+
+    private void collect(Object node, int depth, List<Object> values) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof List<?> list) {
+            for (Object element : list) {
+                collect(element, depth, values);
+            }
+        } else if (node.getClass().isArray()) {
+            for (int i = 0, n = Array.getLength(node); i < n; i++) {
+                collect(Array.get(node, i), depth, values);
+            }
+        } else if (depth == segments.length) {
+            if (!(node instanceof Map<?, ?>)) {
+                values.add(node);
+            }
+        } else if (node instanceof Map<?, ?> map) {
+            collect(map.get(segments[depth]), depth + 1, values);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,332 @@
+package com.nimrod.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A secondary index from the values of one decoded field (see {@link FieldPath}) to the rows
+ * holding them, kept next to the {@link RowIndex} of the same export.
+ *
+ * <p>Each entry is a single long: the 32-bit {@link String#hashCode()} of the value in the
+ * high half and the 1-based row number in the low half. Entries are sorted, so the rows for a
+ * value are found by a binary search over the memory-mapped file. Different values can share
+ * a hash, which makes the result a set of candidates: callers decode them and keep the rows
+ * whose field really has the value. The hash is part of the file format, which is why it is
+ * the one {@code String} specifies rather than anything stronger.</p>
+ *
+ * <p>Building keeps a bounded buffer of entries; when it fills up, it is sorted and spilled to
+ * a temporary run file, and the runs are merged at the end. Header and trailer follow the
+ * row index: the header is written last and carries the size and modification time of the
+ * export.</p>
+ */
+public final class KeyIndex {
+
+    /** File name ending of key indexes; the field path goes in front of it. */
+    public static final String SUFFIX = ".key";
+
+    static final int MAGIC = 0x4E4B4559; // "NKEY"
+    static final int VERSION = 1;
+
+    /** Magic, version, source size, source modification time, entry count, trailer offset. */
+    static final int HEADER_SIZE = 40;
+
+    static final int ENTRY_SIZE = Long.BYTES;
+
+    /** Highest row number an entry can hold. */
+    static final long MAX_ROW = 0xFFFF_FFFFL;
+
+    /** Entries buffered before a sorted run is spilled to disk (64 MB). */
+    static final int RUN_ENTRIES = 8 * 1024 * 1024;
+
+    private static final int SEGMENT_ENTRIES = 1 << 27;
+
+    private final String field;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final long entryCount;
+    private final MappedByteBuffer[] segments;
+
+    private KeyIndex(String field, long sourceSize, long sourceModified, long entryCount,
+                     MappedByteBuffer[] segments) {
+        this.field = field;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.entryCount = entryCount;
+        this.segments = segments;
+    }
+
+    /**
+     * Location of the key index for {@code field} next to a row index, e.g.
+     * {@code armies.csv.playerId.key} for {@code armies.csv.idx}.
+     */
+    public static Path sidecarFor(Path rowIndex, String field) {
+        String name = rowIndex.getFileName().toString();
+        if (name.endsWith(RowIndex.SUFFIX)) {
+            name = name.substring(0, name.length() - RowIndex.SUFFIX.length());
+        }
+        return rowIndex.resolveSibling(name + "." + field + SUFFIX);
+    }
+
+    /**
+     * Map a key index into memory. No file handle is kept open.
+     *
+     * @throws IOException if the file isn't a complete key index
+     */
+    public static KeyIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + " is not a key index");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a key index, or its build did not finish");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has key index version " + version + ", expected " + VERSION);
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            long entryCount = header.getLong();
+            long trailerOffset = header.getLong();
+            if (trailerOffset != HEADER_SIZE + entryCount * ENTRY_SIZE || trailerOffset > size) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+            String field = new DataInputStream(Channels.newInputStream(channel.position(trailerOffset))).readUTF();
+
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((entryCount + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i * SEGMENT_ENTRIES;
+                long entries = Math.min(SEGMENT_ENTRIES, entryCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * ENTRY_SIZE, entries * ENTRY_SIZE);
+            }
+            return new KeyIndex(field, sourceSize, sourceModified, entryCount, segments);
+        }
+    }
+
+    /**
+     * Start writing the key index of {@code field} for {@code source}. Run files are created
+     * in the directory of {@code file}.
+     */
+    public static Writer create(Path file, File source, String field) throws IOException {
+        return new Writer(file, source.length(), source.lastModified(), field, RUN_ENTRIES);
+    }
+
+    /** The field path this index was built for. */
+    public String field() {
+        return field;
+    }
+
+    public long entryCount() {
+        return entryCount;
+    }
+
+    /** True if {@code csvFile} still has the size and modification time it was indexed at. */
+    public boolean matches(File csvFile) {
+        return csvFile.length() == sourceSize && csvFile.lastModified() == sourceModified;
+    }
+
+    /**
+     * Rows that may have {@code value} in the field, in ascending order. Every row that does
+     * is included; rows whose value merely shares the hash may be too.
+     */
+    public long[] candidates(String value) {
+        int hash = value.hashCode();
+        long target = (long) hash << 32;
+        long lo = 0;
+        long hi = entryCount;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (entry(mid) < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        long[] rows = new long[4];
+        int count = 0;
+        for (long i = lo; i < entryCount; i++) {
+            long entry = entry(i);
+            if ((int) (entry >>> 32) != hash) {
+                break;
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            long row = entry & MAX_ROW;
+            // A row holding the value several times (e.g. in a vector) has several entries
+            if (count == 0 || rows[count - 1] != row) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private long entry(long i) {
+        return segments[(int) (i / SEGMENT_ENTRIES)].getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE);
+    }
+
+    /**
+     * Collects entries while the export is read. {@link #commit()} sorts them into the file;
+     * closing a writer that wasn't committed deletes it, along with any spilled runs.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path file;
+        private final long sourceSize;
+        private final long sourceModified;
+        private final String field;
+        private final int runEntries;
+        private final List<Path> runs = new ArrayList<>();
+        private long[] buffer;
+        private int buffered;
+        private long entryCount;
+        private boolean committed;
+
+        Writer(Path file, long sourceSize, long sourceModified, String field, int runEntries) {
+            this.file = file;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+            this.field = field;
+            this.runEntries = runEntries;
+            this.buffer = new long[Math.min(1024, runEntries)];
+        }
+
+        public String field() {
+            return field;
+        }
+
+        /**
+         * Record that {@code row} has {@code value} in the field.
+         *
+         * @throws IllegalArgumentException if the row number is beyond {@link #MAX_ROW}
+         */
+        public void add(String value, long row) throws IOException {
+            if (row < 1 || row > MAX_ROW) {
+                throw new IllegalArgumentException("Key indexes address rows 1 to " + MAX_ROW + ", not " + row);
+            }
+            if (buffered == buffer.length) {
+                if (buffered >= runEntries) {
+                    spill();
+                } else {
+                    buffer = Arrays.copyOf(buffer, Math.min(runEntries, buffer.length * 2));
+                }
+            }
+            buffer[buffered++] = ((long) value.hashCode() << 32) | row;
+            entryCount++;
+        }
+
+        public long entryCount() {
+            return entryCount;
+        }
+
+        private void spill() throws IOException {
+            Arrays.sort(buffer, 0, buffered);
+            Path run = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run), 64 * 1024))) {
+                for (int i = 0; i < buffered; i++) {
+                    out.writeLong(buffer[i]);
+                }
+            }
+            buffered = 0;
+        }
+
+        /** Sort and write all entries, the trailer and finally the header. */
+        public void commit() throws IOException {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+                out.write(new byte[HEADER_SIZE]);
+                if (runs.isEmpty()) {
+                    Arrays.sort(buffer, 0, buffered);
+                    for (int i = 0; i < buffered; i++) {
+                        out.writeLong(buffer[i]);
+                    }
+                } else {
+                    if (buffered > 0) {
+                        spill();
+                    }
+                    buffer = null;
+                    merge(out);
+                }
+                out.writeUTF(field);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(sourceSize)
+                    .putLong(sourceModified)
+                    .putLong(entryCount)
+                    .putLong(HEADER_SIZE + entryCount * ENTRY_SIZE)
+                    .flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            committed = true;
+        }
+
+        /** The head entry of one run during the merge. */
+        private record RunHead(long entry, DataInputStream in) {}
+
+        private void merge(DataOutputStream out) throws IOException {
+            PriorityQueue<RunHead> heads = new PriorityQueue<>(
+                    runs.size(), (a, b) -> Long.compare(a.entry(), b.entry()));
+            List<DataInputStream> inputs = new ArrayList<>();
+            try {
+                for (Path run : runs) {
+                    DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(run), 64 * 1024));
+                    inputs.add(in);
+                    heads.add(new RunHead(in.readLong(), in));
+                }
+                while (!heads.isEmpty()) {
+                    RunHead head = heads.poll();
+                    out.writeLong(head.entry());
+                    try {
+                        heads.add(new RunHead(head.in().readLong(), head.in()));
+                    } catch (EOFException e) {
+                        // Run exhausted
+                    }
+                }
+            } finally {
+                for (DataInputStream in : inputs) {
+                    in.close();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            if (!committed) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.nimrod.index;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sidecar file mapping the rows of a CSV export to the byte range of their record, with
+ * the {@code _type} and blob size of each row's first binary column.
+ *
+ * <p>The file holds a fixed header, one fixed-size entry per row and a trailer with the CSV
+ * encoding, the binary column names and the type names the entries refer to. Entries are
+ * memory-mapped, so finding a row costs a few reads whatever the size of the export. The
+ * header is written last: an index whose build was interrupted has no magic number and is
+ * rejected rather than silently used.</p>
+ *
+ * <p>The size and modification time of the CSV are recorded, so an index can tell when the
+ * export has changed since it was built (see {@link #matches(File)}).</p>
+ */
+public final class RowIndex {
+
+    /** Appended to the CSV file name to get the default index location. */
+    public static final String SUFFIX = ".idx";
+
+    static final int MAGIC = 0x4E494458; // "NIDX"
+    static final int VERSION = 1;
+
+    /** Magic, version, source size, source modification time, row count, trailer offset. */
+    static final int HEADER_SIZE = 40;
+
+    /** Record offset (long), record length, blob size and type id (ints). */
+    static final int ENTRY_SIZE = 20;
+
+    /** Entries per mapped segment, which keeps every mapping below the 2 GB limit. */
+    private static final int SEGMENT_ENTRIES = 1 << 26;
+
+    private static final int NO_TYPE = -1;
+
+    /**
+     * One indexed row.
+     *
+     * @param type     {@code _type} of the row's first binary column, or null if it didn't
+     *                 match a schema or the row has no binary column
+     * @param blobSize decoded (and decompressed) size of that column in bytes, or 0
+     */
+    public record Entry(long offset, int length, String type, int blobSize) {
+
+        /** Offset just past the record. */
+        public long end() {
+            return offset + length;
+        }
+    }
+
+    private final long sourceSize;
+    private final long sourceModified;
+    private final long rowCount;
+    private final Encoding encoding;
+    private final List<String> binaryColumns;
+    private final List<String> types;
+    private final MappedByteBuffer[] segments;
+
+    private RowIndex(long sourceSize, long sourceModified, long rowCount, Encoding encoding,
+                     List<String> binaryColumns, List<String> types, MappedByteBuffer[] segments) {
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.rowCount = rowCount;
+        this.encoding = encoding;
+        this.binaryColumns = binaryColumns;
+        this.types = types;
+        this.segments = segments;
+    }
+
+    /** Default index location for a CSV file: next to it, with {@link #SUFFIX} appended. */
+    public static Path sidecarFor(File csvFile) {
+        return Path.of(csvFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Map an index file into memory. The mapping stays valid after this returns; no file
+     * handle is kept open.
+     *
+     * @throws IOException if the file isn't a complete index
+     */
+    public static RowIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + " is not a row index");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a row index, or its build did not finish");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has index version " + version + ", expected " + VERSION);
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            long rowCount = header.getLong();
+            long trailerOffset = header.getLong();
+            if (trailerOffset != HEADER_SIZE + rowCount * ENTRY_SIZE || trailerOffset > size) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+
+            DataInputStream trailer = new DataInputStream(Channels.newInputStream(channel.position(trailerOffset)));
+            Encoding encoding = Encoding.valueOf(trailer.readUTF());
+            List<String> binaryColumns = readStrings(trailer);
+            List<String> types = readStrings(trailer);
+
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((rowCount + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i * SEGMENT_ENTRIES;
+                long entries = Math.min(SEGMENT_ENTRIES, rowCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * ENTRY_SIZE, entries * ENTRY_SIZE);
+            }
+            return new RowIndex(sourceSize, sourceModified, rowCount, encoding,
+                    List.copyOf(binaryColumns), List.copyOf(types), segments);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    /**
+     * Start writing an index for {@code source}. The size and modification time of the source
+     * are taken now, so it shouldn't change while it is being indexed.
+     */
+    public static Writer create(Path file, File source, Encoding encoding) throws IOException {
+        return new Writer(file, source.length(), source.lastModified(), encoding);
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /** The encoding the CSV was indexed with. */
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /** Columns that held binary data while indexing, in header order of first appearance. */
+    public List<String> binaryColumns() {
+        return binaryColumns;
+    }
+
+    /** True if {@code csvFile} still has the size and modification time it was indexed at. */
+    public boolean matches(File csvFile) {
+        return csvFile.length() == sourceSize && csvFile.lastModified() == sourceModified;
+    }
+
+    /**
+     * Look up a row by its 1-based number, counting data rows after the header.
+     *
+     * @throws IllegalArgumentException if there is no such row
+     */
+    public Entry entry(long row) {
+        if (row < 1 || row > rowCount) {
+            throw new IllegalArgumentException("Row " + row + " is out of range; the index has "
+                    + rowCount + " rows");
+        }
+        long i = row - 1;
+        MappedByteBuffer segment = segments[(int) (i / SEGMENT_ENTRIES)];
+        int at = (int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE;
+        int typeId = segment.getInt(at + 16);
+        return new Entry(segment.getLong(at), segment.getInt(at + 8),
+                typeId == NO_TYPE ? null : types.get(typeId), segment.getInt(at + 12));
+    }
+
+    /**
+     * Writes an index entry by entry as the CSV is read. {@link #commit()} completes the file;
+     * closing a writer that wasn't committed deletes it.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path file;
+        private final long sourceSize;
+        private final long sourceModified;
+        private final Encoding encoding;
+        private final DataOutputStream out;
+        private final Map<String, Integer> typeIds = new LinkedHashMap<>();
+        private final Set<String> binaryColumns = new LinkedHashSet<>();
+        private long rowCount;
+        private boolean committed;
+        private boolean closed;
+
+        private Writer(Path file, long sourceSize, long sourceModified, Encoding encoding) throws IOException {
+            this.file = file;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+            this.encoding = encoding;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+            // Placeholder until commit() fills in the header
+            out.write(new byte[HEADER_SIZE]);
+        }
+
+        /** Record that {@code column} held binary data. */
+        public void binaryColumn(String column) {
+            binaryColumns.add(column);
+        }
+
+        /** Append the entry for the next row. */
+        public void add(long offset, int length, String type, int blobSize) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(blobSize);
+            out.writeInt(type == null ? NO_TYPE : typeIds.computeIfAbsent(type, t -> typeIds.size()));
+            rowCount++;
+        }
+
+        public long rowCount() {
+            return rowCount;
+        }
+
+        /** Number of distinct types seen so far. */
+        public int typeCount() {
+            return typeIds.size();
+        }
+
+        /** Write the trailer and the header, making the index usable. */
+        public void commit() throws IOException {
+            out.writeUTF(encoding.name());
+            out.writeInt(binaryColumns.size());
+            for (String column : binaryColumns) {
+                out.writeUTF(column);
+            }
+            out.writeInt(typeIds.size());
+            for (String type : typeIds.keySet()) {
+                out.writeUTF(type);
+            }
+            out.close();
+            closed = true;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(sourceSize)
+                    .putLong(sourceModified)
+                    .putLong(rowCount)
+                    .putLong(HEADER_SIZE + rowCount * ENTRY_SIZE)
+                    .flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                out.close();
+                closed = true;
+            }
+            if (!committed) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One base64 or hex cell decoded into bytes. */
+@Name("com.nimrod.BlobDecode")
+@Label("Binary Decode")
+@Category({"Nimrod", "CSV"})
+@StackTrace(false)
+public final class BlobDecodeEvent extends jdk.jfr.Event {
+
+    @Label("Encoding")
+    public String encoding;
+
+    @Label("Text Length")
+    public int textLength;
+
+    @Label("Decoded Size")
+    @DataAmount
+    public int bytes;
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,30 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One CSV record turned into a row, including the decoding of its binary cells. */
+@Name("com.nimrod.CsvParse")
+@Label("CSV Record Parse")
+@Category({"Nimrod", "CSV"})
+@StackTrace(false)
+public final class CsvParseEvent extends jdk.jfr.Event {
+
+    @Label("Record Number")
+    @Description("1-based record number, not counting the header: within the file, or within the chunk "
+               + "at Chunk Offset when the file is parsed in parallel chunks")
+    public long recordNumber;
+
+    @Label("Chunk Offset")
+    @Description("File offset of the chunk Record Number counts from; -1 if it counts from the start of the file")
+    public long chunkOffset;
+
+    @Label("Columns")
+    public int columns;
+
+    @Label("Binary Columns")
+    public int binaryColumns;
+}
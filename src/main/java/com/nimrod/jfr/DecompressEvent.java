@@ -0,0 +1,26 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One gzipped blob inflated. */
+@Name("com.nimrod.Decompress")
+@Label("Blob Decompression")
+@Category({"Nimrod", "CSV"})
+@StackTrace(false)
+public final class DecompressEvent extends jdk.jfr.Event {
+
+    @Label("Compressed Size")
+    @DataAmount
+    public int compressedBytes;
+
+    @Label("Inflated Size")
+    @DataAmount
+    public int bytes;
+
+    @Label("Failed")
+    public boolean failed;
+}
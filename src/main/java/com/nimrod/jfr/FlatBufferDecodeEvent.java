@@ -0,0 +1,28 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One blob decoded into a row, schema match included. */
+@Name("com.nimrod.FlatBufferDecode")
+@Label("FlatBuffer Decode")
+@Category({"Nimrod", "FlatBuffers"})
+@StackTrace(false)
+public final class FlatBufferDecodeEvent extends jdk.jfr.Event {
+
+    @Label("Type")
+    @Description("The _type of the blob; null if it matches no schema")
+    public String type;
+
+    @Label("Blob Size")
+    @DataAmount
+    public int blobSize;
+
+    @Label("Outcome")
+    @Description("NONE if decoded, else why not: TOO_SHORT, NO_SCHEMA or FAILED")
+    public String miss;
+}
@@ -0,0 +1,76 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A Flight Recorder recording for {@code --jfr}: the JDK's "profile" settings plus every
+ * Nimrod event, written to a file when closed, or when the JVM exits before that.
+ *
+ * <p>The stage events ({@link CsvParseEvent}, {@link BlobDecodeEvent},
+ * {@link DecompressEvent}, {@link SchemaMatchEvent}, {@link FlatBufferDecodeEvent},
+ * {@link JsonWriteEvent}) are recorded for every row, so the time of each stage can be
+ * summed per thread in JMC or with {@code jfr summary}/{@code jfr print}.
+ * {@link SlowRowEvent} is recorded above the given threshold.
+ * Without a recording, the events cost next to nothing.</p>
+ */
+public final class JfrRecording implements AutoCloseable {
+
+    private static final List<Class<? extends Event>> STAGE_EVENTS = List.of(
+            CsvParseEvent.class, BlobDecodeEvent.class, DecompressEvent.class,
+            SchemaMatchEvent.class, FlatBufferDecodeEvent.class, JsonWriteEvent.class);
+
+    private final Recording recording;
+    private final Path destination;
+
+    private JfrRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /**
+     * Start recording into {@code destination}.
+     *
+     * @param slowRowThreshold rows taking at least this long get a {@link SlowRowEvent}
+     */
+    public static JfrRecording start(Path destination, Duration slowRowThreshold) throws IOException {
+        Configuration profile;
+        try {
+            profile = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException("Cannot read the JDK's JFR profile settings: " + e.getMessage(), e);
+        }
+        Recording recording = new Recording(profile);
+        recording.setName("nimrod");
+        for (Class<? extends Event> type : STAGE_EVENTS) {
+            recording.enable(type).withoutThreshold();
+        }
+        recording.enable(SlowRowEvent.class).withThreshold(slowRowThreshold);
+        recording.setToDisk(true);
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return new JfrRecording(recording, destination);
+    }
+
+    public Path destination() {
+        return destination;
+    }
+
+    /** Stop recording and write the file. */
+    @Override
+    public void close() throws IOException {
+        try {
+            recording.stop();
+        } finally {
+            recording.close();
+        }
+    }
+}
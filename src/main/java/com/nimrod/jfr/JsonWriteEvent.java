@@ -0,0 +1,22 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One output row serialised to JSON, on the worker that decoded it. */
+@Name("com.nimrod.JsonWrite")
+@Label("JSON Write")
+@Category({"Nimrod", "Output"})
+@StackTrace(false)
+public final class JsonWriteEvent extends jdk.jfr.Event {
+
+    @Label("Format")
+    public String format;
+
+    @Label("Size")
+    @DataAmount
+    public int bytes;
+}
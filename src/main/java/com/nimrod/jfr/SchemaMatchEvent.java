@@ -0,0 +1,26 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** The root type of one blob looked up by its file_identifier. */
+@Name("com.nimrod.SchemaMatch")
+@Label("Schema Match")
+@Category({"Nimrod", "FlatBuffers"})
+@StackTrace(false)
+public final class SchemaMatchEvent extends jdk.jfr.Event {
+
+    @Label("File Identifier")
+    public String identifier;
+
+    @Label("Type")
+    @Description("Matched root type; null if none matches")
+    public String type;
+
+    @Label("Cached")
+    @Description("Whether the identifier had been matched before, so no schema was probed")
+    public boolean cached;
+}
@@ -0,0 +1,42 @@
+package com.nimrod.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A row whose decode, transform and serialisation together took longer than the event's
+ * threshold: {@code --slow-row} for a {@code --jfr} recording, otherwise the
+ * {@code com.nimrod.SlowRow#threshold} setting of the recording (100 ms by default).
+ */
+@Name("com.nimrod.SlowRow")
+@Label("Slow Row")
+@Category({"Nimrod"})
+@Threshold("100 ms")
+@StackTrace(false)
+public final class SlowRowEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    @Description("Input file, or null for a single input or a query")
+    public String source;
+
+    @Label("Row Number")
+    public long rowNumber;
+
+    @Label("Types")
+    @Description("The _type of each binary column, comma-separated")
+    public String types;
+
+    @Label("Blob Size")
+    @Description("Bytes of all binary columns of the row")
+    @DataAmount
+    public long blobSize;
+
+    @Label("Outputs")
+    @Description("Rows written for it: 1, or what --transform made of it")
+    public int outputs;
+}
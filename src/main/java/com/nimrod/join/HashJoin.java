@@ -0,0 +1,265 @@
+package com.nimrod.join;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An inner equi-join of several inputs on a string key: hash tables are built from every
+ * input but one, and the remaining <em>probe</em> input is streamed through them.
+ *
+ * <p>Rows are opaque byte arrays (the serialised projection of a decoded row), added with
+ * {@link #add}: first every row of the build inputs, then the probe rows. While the build
+ * rows fit in {@link #memoryBytes}, each probe row is joined as it is added. Once they don't,
+ * this turns into a grace hash join: the rows held so far and every row after them are
+ * partitioned by key hash into {@value #PARTITIONS} temporary files, and {@link #finish}
+ * joins one partition at a time. A partition whose build rows still don't fit is
+ * partitioned again with another hash, up to {@value #MAX_DEPTH} levels; beyond that (a
+ * single key with more rows than the budget) it is joined in memory regardless.</p>
+ *
+ * <p>Every combination of matching rows is emitted, one row per input, so a probe row that
+ * matches two rows of one input and three of another is emitted six times. Rows are emitted
+ * in probe order within a partition.</p>
+ */
+public final class HashJoin implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashJoin.class);
+
+    /** Partitions per level of a grace hash join. */
+    static final int PARTITIONS = 32;
+
+    /** Levels of partitioning before a partition is joined in memory anyway. */
+    static final int MAX_DEPTH = 4;
+
+    /** Estimated heap cost of a held row on top of its bytes and key. */
+    private static final int ROW_OVERHEAD = 64;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Receives the rows of one join result. */
+    @FunctionalInterface
+    public interface Emitter {
+        /** @param rows one row per input, in input order */
+        void accept(String key, byte[][] rows) throws IOException;
+    }
+
+    private final int inputs;
+    private final int probe;
+    private final long memoryBytes;
+    private final Path tempDir;
+    private final Emitter emitter;
+    private final Level top;
+    private Path partitionDir;
+    private boolean spilled;
+
+    /**
+     * @param inputs      number of inputs
+     * @param probe       the input streamed through the others, normally the largest
+     * @param memoryBytes build rows held in memory before partitioning to disk
+     * @param tempDir     directory for the partitions, or null for the system temp directory
+     * @param emitter     receives the joined rows
+     */
+    public HashJoin(int inputs, int probe, long memoryBytes, Path tempDir, Emitter emitter) {
+        if (inputs < 2 || probe < 0 || probe >= inputs) {
+            throw new IllegalArgumentException("A join needs at least two inputs and a probe input among them");
+        }
+        this.inputs = inputs;
+        this.probe = probe;
+        this.memoryBytes = memoryBytes;
+        this.tempDir = tempDir;
+        this.emitter = emitter;
+        this.top = new Level(0);
+    }
+
+    public int probe() {
+        return probe;
+    }
+
+    /** Whether the build rows outgrew the memory budget and were partitioned to disk. */
+    public boolean spilled() {
+        return spilled;
+    }
+
+    /**
+     * Add a row of {@code input}. All rows of the build inputs must be added before the
+     * first row of the probe input.
+     */
+    public void add(int input, String key, byte[] row) throws IOException {
+        top.add(input, key, row);
+    }
+
+    /** Join whatever was partitioned to disk. */
+    public void finish() throws IOException {
+        top.finish();
+    }
+
+    /** Delete the partitions, if any are left. */
+    @Override
+    public void close() throws IOException {
+        if (partitionDir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(partitionDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(partitionDir);
+        partitionDir = null;
+    }
+
+    /**
+     * The rows of one partition (or of everything, at depth 0): held in hash tables while
+     * they fit, otherwise written on to the partitions of the next level.
+     */
+    private final class Level {
+
+        private final int depth;
+        private List<Map<String, List<byte[]>>> tables = new ArrayList<>();
+        private long heldBytes;
+        private Path[] partitions;
+        private DataOutputStream[] writers;
+
+        Level(int depth) {
+            this.depth = depth;
+            for (int i = 0; i < inputs; i++) {
+                tables.add(i == probe ? null : new HashMap<>());
+            }
+        }
+
+        void add(int input, String key, byte[] row) throws IOException {
+            if (writers != null) {
+                write(input, key, row);
+            } else if (input == probe) {
+                join(key, row);
+            } else {
+                tables.get(input).computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
+                heldBytes += row.length + 2L * key.length() + ROW_OVERHEAD;
+                if (heldBytes > memoryBytes) {
+                    if (depth < MAX_DEPTH) {
+                        partition();
+                    } else if (heldBytes - row.length - 2L * key.length() - ROW_OVERHEAD <= memoryBytes) {
+                        LOG.warn("Joining a partition of over {} bytes in memory; a few keys have most of the rows",
+                                memoryBytes);
+                    }
+                }
+            }
+        }
+
+        /** Emit every combination of {@code row} with the matching build rows. */
+        private void join(String key, byte[] row) throws IOException {
+            List<List<byte[]>> matches = new ArrayList<>(inputs);
+            for (int i = 0; i < inputs; i++) {
+                List<byte[]> rows = i == probe ? List.of(row) : tables.get(i).get(key);
+                if (rows == null) {
+                    return;
+                }
+                matches.add(rows);
+            }
+            emit(key, matches, new byte[inputs][], 0);
+        }
+
+        private void emit(String key, List<List<byte[]>> matches, byte[][] rows, int input) throws IOException {
+            if (input == inputs) {
+                emitter.accept(key, rows.clone());
+                return;
+            }
+            for (byte[] row : matches.get(input)) {
+                rows[input] = row;
+                emit(key, matches, rows, input + 1);
+            }
+        }
+
+        /** Move the held rows to partition files; every later row goes there as well. */
+        private void partition() throws IOException {
+            LOG.debug("Partitioning {} bytes of build rows at depth {}", heldBytes, depth);
+            spilled = true;
+            if (partitionDir == null) {
+                partitionDir = tempDir != null
+                        ? Files.createTempDirectory(tempDir, "nimrod-join-")
+                        : Files.createTempDirectory("nimrod-join-");
+            }
+            partitions = new Path[PARTITIONS];
+            writers = new DataOutputStream[PARTITIONS];
+            for (int p = 0; p < PARTITIONS; p++) {
+                partitions[p] = Files.createTempFile(partitionDir, "part-" + depth + "-", ".bin");
+                writers[p] = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(partitions[p]), BUFFER_SIZE));
+            }
+            // Build inputs in input order, so a partition replays them in the same order
+            for (int input = 0; input < inputs; input++) {
+                if (input != probe) {
+                    for (var entry : tables.get(input).entrySet()) {
+                        for (byte[] row : entry.getValue()) {
+                            write(input, entry.getKey(), row);
+                        }
+                    }
+                }
+            }
+            tables = null;
+            heldBytes = 0;
+        }
+
+        private void write(int input, String key, byte[] row) throws IOException {
+            DataOutputStream out = writers[partitionOf(key, depth)];
+            out.writeByte(input);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+            out.writeInt(row.length);
+            out.write(row);
+        }
+
+        void finish() throws IOException {
+            if (writers == null) {
+                return;
+            }
+            for (DataOutputStream writer : writers) {
+                writer.close();
+            }
+            for (Path partition : partitions) {
+                Level next = new Level(depth + 1);
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(partition), BUFFER_SIZE))) {
+                    while (true) {
+                        int input;
+                        try {
+                            input = in.readUnsignedByte();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        byte[] key = new byte[in.readInt()];
+                        in.readFully(key);
+                        byte[] row = new byte[in.readInt()];
+                        in.readFully(row);
+                        next.add(input, new String(key, StandardCharsets.UTF_8), row);
+                    }
+                }
+                Files.delete(partition);
+                next.finish();
+            }
+        }
+    }
+
+    /** A different hash of the key at every depth, so that a partition splits again. */
+    static int partitionOf(String key, int depth) {
+        long h = key.hashCode() + depth * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) Math.floorMod(h ^ (h >>> 33), (long) PARTITIONS);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nimrod.output;
+
+/**
+ * A row already serialised to JSON bytes, ready to be appended by a {@link RowWriter}.
+ *
+ * @param type    the decoded {@code _type} of the row, used for routing to shards (may be null)
+ * @param json    the serialised row, without any separator or line ending
+ * @param sortKey the value the row is ordered by when sorting (see {@link SortSpec}); null
+ *                when not sorting or when the row has no such value
+ */
+public record EncodedRow(String type, byte[] json, Object sortKey) {
+
+    public EncodedRow(String type, byte[] json) {
+        this(type, json, null);
+    }
+}
@@ -0,0 +1,120 @@
+package com.nimrod.output;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nimrod.cli.NimrodCommand.Format;
+import com.nimrod.jfr.JsonWriteEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams rows to a single output as a JSON array (pretty/compact) or as NDJSON.
+ *
+ * <p>Each row is serialised to bytes on the calling thread, outside the lock, so several
+ * decode threads can serialise in parallel; only the append of the finished bytes and the
+ * array framing is synchronised. The framing reproduces Jackson's default pretty printer
+ * ({@code "[ {...}, {...} ]"}), so streamed output is identical to serialising the whole
+ * list at once.</p>
+ */
+class JsonRowWriter implements RowWriter {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRETTY_SEPARATOR = {',', ' '};
+    private static final byte[] PRETTY_END = {' ', ']'};
+
+    private final OutputStream out;
+    private final ObjectWriter rowWriter;
+    private final Format format;
+    private final AtomicLong rowCount = new AtomicLong();
+    private long bytesWritten;
+    private boolean closed;
+
+    JsonRowWriter(OutputStream out, ObjectWriter rowWriter, Format format) throws IOException {
+        this.out = out;
+        this.rowWriter = rowWriter;
+        this.format = format;
+        if (format != Format.ndjson) {
+            out.write('[');
+            bytesWritten = 1;
+        }
+    }
+
+    @Override
+    public EncodedRow encode(Object row) throws IOException {
+        return new EncodedRow(null, serialise(rowWriter, format, row));
+    }
+
+    /** {@code rowWriter.writeValueAsBytes(row)}, as a {@link JsonWriteEvent}. */
+    static byte[] serialise(ObjectWriter rowWriter, Format format, Object row) throws IOException {
+        JsonWriteEvent event = new JsonWriteEvent();
+        event.begin();
+        byte[] json = rowWriter.writeValueAsBytes(row);
+        if (event.shouldCommit()) {
+            event.format = format.name();
+            event.bytes = json.length;
+            event.commit();
+        }
+        return json;
+    }
+
+    @Override
+    public synchronized void write(EncodedRow row) throws IOException {
+        boolean first = rowCount.getAndIncrement() == 0;
+        switch (format) {
+            case pretty -> {
+                out.write(PRETTY_SEPARATOR, first ? 1 : 0, first ? 1 : 2);
+                bytesWritten += first ? 1 : 2;
+            }
+            case compact -> {
+                if (!first) {
+                    out.write(',');
+                    bytesWritten++;
+                }
+            }
+            case ndjson -> { }
+        }
+        out.write(row.json());
+        bytesWritten += row.json().length;
+        if (format == Format.ndjson) {
+            out.write(LINE_SEPARATOR);
+            bytesWritten += LINE_SEPARATOR.length;
+        }
+    }
+
+    /** @return bytes written so far, excluding the closing bracket */
+    synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount.get();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            switch (format) {
+                case pretty -> out.write(PRETTY_END);
+                case compact -> out.write(']');
+                case ndjson -> { }
+            }
+            if (format != Format.ndjson) {
+                out.write(LINE_SEPARATOR);
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.nimrod.output;
 
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.nimrod.cli.NimrodCommand.Format;
 
@@ -9,23 +9,36 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Serialises decoded row data as JSON and writes to stdout or a file.
- * Supports pretty, compact, and NDJSON output formats.
+ * Supports pretty, compact, and NDJSON output formats, optionally sharded and gzip-compressed.
  */
 @Component
 public class JsonWriter {
 
     private static final Logger LOG = LoggerFactory.getLogger(JsonWriter.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Compression level meaning "write plain JSON". */
+    public static final int NO_COMPRESSION = -1;
+
+    /** Gzip level used when the output name ends in {@code .gz} and no level is given. */
+    public static final int DEFAULT_GZIP_LEVEL = 6;
+
     private final ObjectMapper prettyMapper;
     private final ObjectMapper compactMapper;
 
@@ -65,15 +78,9 @@ public class JsonWriter {
     public void write(List<Map<String, Object>> rows, Format format, File output)
             throws IOException {
 
-        try (OutputStream os = output != null
-                ? new FileOutputStream(output)
-                : new NonClosingOutputStream(System.out);
-             PrintStream ps = new PrintStream(os)) {
-
-            switch (format) {
-                case pretty -> writePretty(rows, ps);
-                case compact -> writeCompact(rows, ps);
-                case ndjson -> writeNdjson(rows, ps);
+        try (RowWriter writer = open(format, output)) {
+            for (Map<String, Object> row : rows) {
+                writer.write(row);
             }
         }
 
@@ -82,20 +89,111 @@ public class JsonWriter {
         }
     }
 
-    private void writePretty(List<Map<String, Object>> rows, PrintStream ps) throws IOException {
-        ps.println(prettyMapper.writeValueAsString(rows));
+    /**
+     * Open a streaming writer. Rows are written as they arrive instead of being collected
+     * first; the JSON array is closed when the writer is closed. Output files ending in
+     * {@code .gz} are gzip-compressed.
+     *
+     * @param format output format (pretty, compact, ndjson)
+     * @param output output file, or null for stdout
+     */
+    public RowWriter open(Format format, File output) throws IOException {
+        return open(format, output, ShardSpec.none(), compressionFor(output));
+    }
+
+    /**
+     * Open a streaming writer that splits output across several files next to {@code output}
+     * as described by {@code shards}. Falls back to a single output when not sharding.
+     *
+     * @throws IllegalArgumentException if sharding is requested without an output file
+     */
+    public RowWriter open(Format format, File output, ShardSpec shards) throws IOException {
+        return open(format, output, shards, compressionFor(output));
+    }
+
+    /**
+     * Open a streaming writer, optionally sharded and gzip-compressed.
+     *
+     * @param compressionLevel gzip level 0–9, or {@link #NO_COMPRESSION}
+     * @throws IllegalArgumentException if sharding is requested without an output file
+     */
+    public RowWriter open(Format format, File output, ShardSpec shards, int compressionLevel)
+            throws IOException {
+        if (!shards.isSharded()) {
+            OutputStream os = output != null
+                    ? new FileOutputStream(output)
+                    : new NonClosingOutputStream(System.out);
+            return new JsonRowWriter(wrapOutput(os, compressionLevel), rowWriter(format), format);
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Sharded output requires an output file (--output)");
+        }
+        return new ShardedRowWriter(output, format, shards, rowWriter(format), compressionLevel);
+    }
+
+    /**
+     * Reopen an NDJSON output to continue an interrupted run: the file is cut back to
+     * {@code position} (the length it had when the last complete row was committed) and new
+     * rows are appended after it.
+     *
+     * @throws IllegalArgumentException for formats other than NDJSON, whose array wrapper
+     *                                  can't be continued
+     */
+    public RowWriter append(Format format, File output, long position) throws IOException {
+        if (format != Format.ndjson) {
+            throw new IllegalArgumentException("Only NDJSON output can be appended to");
+        }
+        FileChannel channel = FileChannel.open(output.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < position) {
+                throw new IOException(output.getName() + " has " + channel.size()
+                        + " bytes, fewer than the committed " + position);
+            }
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        LOG.info("Appending to {} at byte {}", output.getPath(), position);
+        return new JsonRowWriter(wrapOutput(Channels.newOutputStream(channel), NO_COMPRESSION),
+                rowWriter(format), format);
+    }
+
+    /** Open a streaming writer on an arbitrary stream, which is closed with the writer. */
+    public RowWriter open(Format format, OutputStream output) throws IOException {
+        return new JsonRowWriter(wrapOutput(output, NO_COMPRESSION), rowWriter(format), format);
     }
 
-    private void writeCompact(List<Map<String, Object>> rows, PrintStream ps) throws IOException {
-        ps.println(compactMapper.writeValueAsString(rows));
+    /**
+     * Write the rows given to the returned writer to {@code writer} sorted as {@code sort}
+     * says, once it is closed. Rows beyond the memory budget are sorted in temporary files.
+     */
+    public RowWriter sorted(RowWriter writer, SortSpec sort) {
+        return new SortingRowWriter(writer, sort);
     }
 
-    private void writeNdjson(List<Map<String, Object>> rows, PrintStream ps) throws IOException {
-        ObjectMapper ndjsonMapper = compactMapper.copy()
-                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
-        for (Map<String, Object> row : rows) {
-            ps.println(ndjsonMapper.writeValueAsString(row));
+    /** @return {@link #DEFAULT_GZIP_LEVEL} for {@code *.gz} outputs, otherwise no compression */
+    public static int compressionFor(File output) {
+        return output != null && output.getName().endsWith(".gz") ? DEFAULT_GZIP_LEVEL : NO_COMPRESSION;
+    }
+
+    /**
+     * Buffer a raw output stream, or gzip it with blocks compressed in parallel on the
+     * common fork-join pool (see {@link ParallelGzipOutputStream}).
+     */
+    public static OutputStream wrapOutput(OutputStream raw, int compressionLevel) {
+        if (compressionLevel == NO_COMPRESSION) {
+            return new BufferedOutputStream(raw, BUFFER_SIZE);
         }
+        return new ParallelGzipOutputStream(raw, compressionLevel,
+                ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    private ObjectWriter rowWriter(Format format) {
+        ObjectMapper mapper = (format == Format.pretty) ? prettyMapper : compactMapper;
+        return mapper.writer();
     }
 
     /** Wrapper that prevents closing stdout when used as an OutputStream. */
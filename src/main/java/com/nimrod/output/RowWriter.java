@@ -0,0 +1,38 @@
+package com.nimrod.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streaming sink for decoded rows. Implementations are thread-safe: rows may be written
+ * concurrently from several decode threads, and each row is written atomically.
+ *
+ * <p>Serialisation is split from writing so that the expensive part can run on decode
+ * worker threads: {@link #encode} is safe to call from any thread without locking, and
+ * {@link #write(EncodedRow)} only appends the finished bytes.</p>
+ */
+public interface RowWriter extends Closeable, Flushable {
+
+    /**
+     * Serialise a row in this writer's format without writing it. A row is normally a
+     * decoded {@code Map}, but can be any JSON value, such as an output of {@code --transform}.
+     */
+    EncodedRow encode(Object row) throws IOException;
+
+    /** Append a row produced by {@link #encode}. */
+    void write(EncodedRow row) throws IOException;
+
+    /** Serialise and append a single row. */
+    default void write(Map<String, Object> row) throws IOException {
+        write(encode(row));
+    }
+
+    /** Push rows written so far through to the file or stream, e.g. for a live consumer. */
+    @Override
+    void flush() throws IOException;
+
+    /** @return number of rows written so far */
+    long rowCount();
+}
@@ -0,0 +1,23 @@
+package com.nimrod.output;
+
+/**
+ * How to split output across several files.
+ *
+ * @param maxRows  start a new shard after this many rows; 0 for no row limit
+ * @param maxBytes start a new shard once this many bytes have been written; 0 for no size limit
+ * @param byType   write one shard sequence per decoded {@code _type}
+ */
+public record ShardSpec(long maxRows, long maxBytes, boolean byType) {
+
+    public static ShardSpec none() {
+        return new ShardSpec(0, 0, false);
+    }
+
+    public boolean isSharded() {
+        return maxRows > 0 || maxBytes > 0 || byType;
+    }
+
+    boolean rolls() {
+        return maxRows > 0 || maxBytes > 0;
+    }
+}
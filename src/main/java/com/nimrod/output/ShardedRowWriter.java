@@ -0,0 +1,211 @@
+package com.nimrod.output;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nimrod.cli.NimrodCommand.Format;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits output across several files, each a complete JSON document in the requested format.
+ *
+ * <p>Rows roll over to a new file after {@link ShardSpec#maxRows()} rows or
+ * {@link ShardSpec#maxBytes()} bytes, and/or are routed to one shard sequence per decoded
+ * {@code _type}. Shard names are derived from the base output file:
+ * {@code out.json} becomes {@code out-00001.json}, {@code out-FbsDbArmy.json} or
+ * {@code out-FbsDbArmy-00001.json}. Size limits apply to the uncompressed JSON. The
+ * {@code _type} comes from the blob, so in file names every character outside
+ * {@code [A-Za-z0-9._-]} is replaced by {@code _}.</p>
+ *
+ * <p>Every shard has its own buffered (or gzip) file channel and its own lock, so the writer
+ * may be called from several threads. The decode pipeline appends from a single thread,
+ * after the rows were serialised on the workers.</p>
+ */
+class ShardedRowWriter implements RowWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedRowWriter.class);
+
+    private static final String UNTYPED = "unknown";
+
+    /** Longest {@code _type} kept in a shard name, well within file name limits. */
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final File base;
+    private final Format format;
+    private final ShardSpec spec;
+    private final ObjectWriter rowWriter;
+    private final int compressionLevel;
+    private final Map<String, ShardSequence> sequences = new ConcurrentHashMap<>();
+    private final AtomicLong rowCount = new AtomicLong();
+
+    ShardedRowWriter(File base, Format format, ShardSpec spec, ObjectWriter rowWriter, int compressionLevel) {
+        this.base = base;
+        this.format = format;
+        this.spec = spec;
+        this.rowWriter = rowWriter;
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public EncodedRow encode(Object row) throws IOException {
+        String type = spec.byType() && row instanceof Map<?, ?> map ? typeOf(map) : null;
+        return new EncodedRow(type, JsonRowWriter.serialise(rowWriter, format, row));
+    }
+
+    @Override
+    public void write(EncodedRow row) throws IOException {
+        String key = spec.byType() ? shardKey(row.type()) : "";
+        ShardSequence sequence = sequences.computeIfAbsent(key, ShardSequence::new);
+        sequence.write(row);
+        rowCount.incrementAndGet();
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount.get();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (ShardSequence sequence : sequences.values()) {
+            sequence.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ShardSequence sequence : sequences.values()) {
+            try {
+                sequence.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The decoded {@code _type} of a row: either at the top level (single decoded value)
+     * or in the first decoded binary column of a CSV row.
+     */
+    static String typeOf(Map<?, ?> row) {
+        if (row.get("_type") instanceof String type) {
+            return type;
+        }
+        for (Object value : row.values()) {
+            if (value instanceof Map<?, ?> nested && nested.get("_type") instanceof String type) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The part of a shard name standing for {@code type}: safe to put in a file name, so
+     * that no decoded value can name a file outside the output directory.
+     */
+    static String shardKey(String type) {
+        if (type == null || type.isEmpty()) {
+            return UNTYPED;
+        }
+        StringBuilder key = new StringBuilder(Math.min(type.length(), MAX_KEY_LENGTH));
+        for (int i = 0; i < type.length() && key.length() < MAX_KEY_LENGTH; i++) {
+            char c = type.charAt(i);
+            boolean safe = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '_' || c == '-';
+            key.append(safe ? c : '_');
+        }
+        return key.toString();
+    }
+
+    /** Consecutive shard files for one routing key. */
+    private class ShardSequence {
+        private final String key;
+        private JsonRowWriter current;
+        private int index;
+
+        ShardSequence(String key) {
+            this.key = key;
+        }
+
+        synchronized void write(EncodedRow row) throws IOException {
+            if (current != null && isFull(current)) {
+                current.close();
+                current = null;
+            }
+            if (current == null) {
+                current = open();
+            }
+            current.write(row);
+        }
+
+        private boolean isFull(JsonRowWriter writer) {
+            return (spec.maxRows() > 0 && writer.rowCount() >= spec.maxRows())
+                    || (spec.maxBytes() > 0 && writer.bytesWritten() >= spec.maxBytes());
+        }
+
+        private JsonRowWriter open() throws IOException {
+            File file = shardFile(key, spec.rolls() ? ++index : 0);
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            OutputStream out = JsonWriter.wrapOutput(Channels.newOutputStream(channel), compressionLevel);
+            LOG.info("Writing shard {}", file.getPath());
+            return new JsonRowWriter(out, rowWriter, format);
+        }
+
+        synchronized void flush() throws IOException {
+            if (current != null) {
+                current.flush();
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    private File shardFile(String key, int index) throws IOException {
+        // Keep compound extensions such as ".json.gz" together at the end of the name
+        String name = base.getName();
+        String compressed = name.endsWith(".gz") ? ".gz" : "";
+        name = name.substring(0, name.length() - compressed.length());
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = (dot > 0 ? name.substring(dot) : "") + compressed;
+
+        StringBuilder shardName = new StringBuilder(stem);
+        if (!key.isEmpty()) {
+            shardName.append('-').append(key);
+        }
+        if (index > 0) {
+            shardName.append(String.format("-%05d", index));
+        }
+        shardName.append(extension);
+        File directory = base.getAbsoluteFile().getParentFile();
+        File file = new File(directory, shardName.toString());
+        if (!directory.toPath().normalize().equals(file.toPath().normalize().getParent())) {
+            throw new IOException("Shard " + shardName + " would be written outside " + directory);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,15 @@
+package com.nimrod.output;
+
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * How to sort output by a value of each row, with an external merge sort.
+ *
+ * @param keyOf       the value to order a row by (a decoded {@code Map}, or any output of
+ *                    {@code --transform}); null sorts the row after all others
+ * @param memoryBytes serialised rows held in memory before a sorted run is spilled to disk
+ * @param tempDir     directory for the sorted runs, or null for the system temp directory
+ */
+public record SortSpec(Function<Object, Object> keyOf, long memoryBytes, Path tempDir) {
+}
@@ -0,0 +1,381 @@
+package com.nimrod.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Writes rows to another {@link RowWriter} in the order of a {@link SortSpec} key, using an
+ * external merge sort so that the output can be far larger than the heap.
+ *
+ * <p>The key is taken from each row in {@link #encode}, on the decode threads, and travels
+ * with the serialised bytes. Rows are buffered until their size reaches
+ * {@link SortSpec#memoryBytes()}, then sorted and spilled to a temporary run file. On
+ * {@link #close()}, the runs are k-way merged into the underlying writer, in passes of at
+ * most {@value #MAX_FAN_IN} runs; when everything fit in memory no file is written at all.</p>
+ *
+ * <p>Keys compare booleans before numbers before strings, numbers by value; rows without a
+ * key come last. The sort is stable: rows with equal keys keep the order they were written
+ * in. Nothing reaches the underlying writer before {@link #close()}, so {@link #flush()}
+ * does nothing.</p>
+ */
+class SortingRowWriter implements RowWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SortingRowWriter.class);
+
+    /** Runs merged at once; more are merged in several passes. */
+    static final int MAX_FAN_IN = 64;
+
+    /** Estimated heap cost of a buffered row on top of its JSON bytes. */
+    private static final int ROW_OVERHEAD = 64;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Run file tags of the key types, in sort order. */
+    private static final int BOOLEAN = 0, LONG = 1, DOUBLE = 2, STRING = 3, NONE = 4;
+
+    private static final Comparator<Row> ORDER = (a, b) -> compareKeys(a.key(), b.key());
+
+    private final RowWriter out;
+    private final SortSpec spec;
+    private final AtomicLong rowCount = new AtomicLong();
+    private final List<Path> runs = new ArrayList<>();
+    private List<Row> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private Path runDir;
+    private boolean closed;
+
+    /** A buffered row; {@code key} is a Boolean, Long, Double, String or null. */
+    private record Row(Object key, String type, byte[] json) {
+    }
+
+    SortingRowWriter(RowWriter out, SortSpec spec) {
+        this.out = out;
+        this.spec = spec;
+    }
+
+    @Override
+    public EncodedRow encode(Object row) throws IOException {
+        EncodedRow encoded = out.encode(row);
+        return new EncodedRow(encoded.type(), encoded.json(), normalise(spec.keyOf().apply(row)));
+    }
+
+    @Override
+    public synchronized void write(EncodedRow row) throws IOException {
+        Object key = row.sortKey();
+        buffer.add(new Row(key, row.type(), row.json()));
+        bufferedBytes += row.json().length + ROW_OVERHEAD + (key instanceof String s ? 2L * s.length() : 0);
+        rowCount.incrementAndGet();
+        if (bufferedBytes >= spec.memoryBytes()) {
+            spill();
+        }
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount.get();
+    }
+
+    @Override
+    public void flush() {
+        // Sorted output can only be written once every row is in
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeSorted();
+        } catch (Throwable e) {
+            try {
+                deleteRuns();
+            } catch (IOException delete) {
+                e.addSuppressed(delete);
+            }
+            throw e;
+        }
+        deleteRuns();
+    }
+
+    /** Write every row to {@link #out} in order and close it. */
+    private void writeSorted() throws IOException {
+        try (out) {
+            if (runs.isEmpty()) {
+                buffer.sort(ORDER);
+                for (Row row : buffer) {
+                    out.write(new EncodedRow(row.type(), row.json()));
+                }
+                return;
+            }
+            spill();
+            List<Path> pending = runs;
+            while (pending.size() > MAX_FAN_IN) {
+                LOG.debug("Merging {} sorted runs", pending.size());
+                List<Path> merged = new ArrayList<>();
+                for (int from = 0; from < pending.size(); from += MAX_FAN_IN) {
+                    List<Path> group = pending.subList(from, Math.min(from + MAX_FAN_IN, pending.size()));
+                    Path run = newRun();
+                    try (DataOutputStream target = openRun(run)) {
+                        merge(group, row -> writeRow(target, row));
+                    }
+                    for (Path done : group) {
+                        Files.deleteIfExists(done);
+                    }
+                    merged.add(run);
+                }
+                pending = merged;
+            }
+            LOG.debug("Merging {} sorted runs of {} rows", pending.size(), rowCount.get());
+            merge(pending, row -> out.write(new EncodedRow(row.type(), row.json())));
+        } finally {
+            buffer = List.of();
+        }
+    }
+
+    /** Sort the buffered rows into a new run file. */
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        buffer.sort(ORDER);
+        Path run = newRun();
+        try (DataOutputStream target = openRun(run)) {
+            for (Row row : buffer) {
+                writeRow(target, row);
+            }
+        }
+        runs.add(run);
+        LOG.debug("Spilled {} rows ({} bytes) to {}", buffer.size(), bufferedBytes, run);
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+    }
+
+    private Path newRun() throws IOException {
+        if (runDir == null) {
+            runDir = spec.tempDir() != null
+                    ? Files.createTempDirectory(spec.tempDir(), "nimrod-sort-")
+                    : Files.createTempDirectory("nimrod-sort-");
+        }
+        return Files.createTempFile(runDir, "run-", ".bin");
+    }
+
+    private void deleteRuns() throws IOException {
+        if (runDir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(runDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(runDir);
+    }
+
+    @FunctionalInterface
+    private interface RowSink {
+        void accept(Row row) throws IOException;
+    }
+
+    /**
+     * Merge sorted runs into {@code sink}. Equal keys are taken from the earlier run first,
+     * which keeps the sort stable.
+     */
+    private static void merge(List<Path> runs, RowSink sink) throws IOException {
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try {
+            PriorityQueue<RunReader> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                    Comparator.comparing(RunReader::head, ORDER).thenComparingInt(RunReader::index));
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run, readers.size());
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                sink.accept(reader.head());
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    private static void writeRow(DataOutputStream target, Row row) throws IOException {
+        switch (row.key()) {
+            case null -> target.writeByte(NONE);
+            case Boolean b -> {
+                target.writeByte(BOOLEAN);
+                target.writeBoolean(b);
+            }
+            case Long l -> {
+                target.writeByte(LONG);
+                target.writeLong(l);
+            }
+            case Double d -> {
+                target.writeByte(DOUBLE);
+                target.writeDouble(d);
+            }
+            default -> {
+                target.writeByte(STRING);
+                writeBytes(target, ((String) row.key()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        writeBytes(target, row.type() != null ? row.type().getBytes(StandardCharsets.UTF_8) : null);
+        writeBytes(target, row.json());
+    }
+
+    private static void writeBytes(DataOutputStream target, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            target.writeInt(-1);
+            return;
+        }
+        target.writeInt(bytes.length);
+        target.write(bytes);
+    }
+
+    /** Reads the rows of a run file back one at a time. */
+    private static final class RunReader implements AutoCloseable {
+
+        private final DataInputStream in;
+        private final int index;
+        private Row head;
+
+        RunReader(Path run, int index) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(run), BUFFER_SIZE));
+            this.index = index;
+        }
+
+        Row head() {
+            return head;
+        }
+
+        int index() {
+            return index;
+        }
+
+        /** Read the next row into {@link #head()}; false at the end of the run. */
+        boolean advance() throws IOException {
+            int tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+            Object key = switch (tag) {
+                case NONE -> null;
+                case BOOLEAN -> in.readBoolean();
+                case LONG -> in.readLong();
+                case DOUBLE -> in.readDouble();
+                case STRING -> new String(readBytes(), StandardCharsets.UTF_8);
+                default -> throw new IOException("Corrupt sort run: key tag " + tag);
+            };
+            byte[] type = readBytes();
+            head = new Row(key, type != null ? new String(type, StandardCharsets.UTF_8) : null, readBytes());
+            return true;
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** The key as a Boolean, Long, Double, String or null. */
+    static Object normalise(Object key) {
+        return switch (key) {
+            case null -> null;
+            case Boolean b -> b;
+            case Byte b -> (long) b;
+            case Short s -> (long) s;
+            case Integer i -> (long) i;
+            case Long l -> l;
+            case Float f -> real(f);
+            case Double d -> real(d);
+            case Number n -> real(n.doubleValue());
+            default -> key.toString();
+        };
+    }
+
+    /** -0.0 as 0.0, which {@link Double#compare} would otherwise order before 0 and 0L. */
+    private static Double real(double d) {
+        return d == 0 ? 0.0 : d;
+    }
+
+    static int compareKeys(Object a, Object b) {
+        int rank = Integer.compare(rank(a), rank(b));
+        if (rank != 0 || a == null) {
+            return rank;
+        }
+        return switch (a) {
+            case Boolean x -> Boolean.compare(x, (Boolean) b);
+            case Long x when b instanceof Long y -> Long.compare(x, y);
+            case Double x when b instanceof Double y -> Double.compare(x, y);
+            // An integer against a float, e.g. a score field that changed type between schemas
+            case Long x -> -compareExactly((Double) b, x);
+            case Double x -> compareExactly(x, (Long) b);
+            default -> ((String) a).compareTo((String) b);
+        };
+    }
+
+    /**
+     * Compare a double with a long by their exact values; casting the long to double would
+     * round it above 2^53 and make distinct keys equal. NaN sorts above every long, as
+     * {@link Double#compare} sorts it above every double.
+     */
+    private static int compareExactly(double d, long l) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return d > 0 || Double.isNaN(d) ? 1 : -1;
+        }
+        return new BigDecimal(d).compareTo(BigDecimal.valueOf(l));
+    }
+
+    private static int rank(Object key) {
+        return switch (key) {
+            case null -> 3;
+            case Boolean b -> 0;
+            case Number n -> 1;
+            default -> 2;
+        };
+    }
+}
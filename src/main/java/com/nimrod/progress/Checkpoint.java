@@ -0,0 +1,61 @@
+package com.nimrod.progress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * How far a {@code --checkpoint}ed decode got: every row before {@code inputOffset} in the
+ * input has been written, as {@code rows} rows, to the first {@code outputPosition} bytes of
+ * the output, and its failing cells to the first {@code deadLetterPosition} bytes of the
+ * {@code --dead-letter} file. Stored as a small JSON file.
+ *
+ * @param input              absolute path of the CSV input
+ * @param inputOffset        byte offset of the first record not yet decoded
+ * @param rows               rows written before {@code inputOffset}
+ * @param output             absolute path of the output file
+ * @param outputPosition     output length after those rows
+ * @param deadLetterPosition dead-letter file length after those rows, 0 without one
+ */
+public record Checkpoint(String input, long inputOffset, long rows, String output, long outputPosition,
+                         long deadLetterPosition) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** @return the checkpoint stored in {@code file}, or null if there is none */
+    public static Checkpoint load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return MAPPER.readValue(file.toFile(), Checkpoint.class);
+    }
+
+    /**
+     * Replace {@code file} atomically: the checkpoint is written and forced to a temporary
+     * sibling, which is then renamed over it. A crash leaves either the old or the new
+     * checkpoint, never a torn one.
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer json = ByteBuffer.wrap(MAPPER.writeValueAsBytes(this));
+            while (json.hasRemaining()) {
+                channel.write(json);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nimrod.progress;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prints a {@link ProgressTracker} snapshot to stderr from its own daemon thread.
+ *
+ * <p>Each line shows bytes consumed, MB/s and rows/s over the last interval, and an ETA
+ * derived from the average byte rate. Progress is driven by bytes rather than rows, so
+ * percentage and ETA are available even though the row count is only known at the end.
+ * When the input size is unknown they are simply omitted.</p>
+ */
+public class ProgressReporter implements AutoCloseable {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final ProgressTracker tracker;
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler;
+
+    private long lastBytes;
+    private long lastRows;
+    private long lastNanos;
+    private volatile boolean reported;
+
+    private ProgressReporter(ProgressTracker tracker, PrintStream out, Duration interval) {
+        this.tracker = tracker;
+        this.out = out;
+        if (interval.isZero() || interval.isNegative()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nimrod-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start reporting. A zero or negative interval returns a reporter that prints nothing.
+     */
+    public static ProgressReporter start(ProgressTracker tracker, PrintStream out, Duration interval) {
+        return new ProgressReporter(tracker, out, interval);
+    }
+
+    private void report() {
+        long nanos = tracker.elapsedNanos();
+        long bytes = tracker.bytesRead();
+        long rows = tracker.rows();
+        double intervalSec = (nanos - lastNanos) / 1e9;
+
+        out.println(formatLine(bytes, tracker.totalBytes(), rows,
+                (bytes - lastBytes) / intervalSec, (rows - lastRows) / intervalSec,
+                bytes / (nanos / 1e9)));
+
+        lastBytes = bytes;
+        lastRows = rows;
+        lastNanos = nanos;
+        reported = true;
+    }
+
+    /**
+     * Stop the reporter thread. If at least one progress line was printed, finish with a
+     * summary so the last line reflects the completed run.
+     */
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (reported) {
+            double seconds = tracker.elapsedNanos() / 1e9;
+            out.printf("  %,d rows in %.1fs (%.1f MB/s, %,.0f rows/s)%n",
+                    tracker.rows(), seconds,
+                    tracker.bytesRead() / MB / seconds, tracker.rows() / seconds);
+        }
+    }
+
+    static String formatLine(long bytes, long totalBytes, long rows,
+                             double bytesPerSec, double rowsPerSec, double avgBytesPerSec) {
+        var sb = new StringBuilder("  ");
+        if (totalBytes > 0) {
+            sb.append(String.format("%5.1f%% | %,.1f / %,.1f MB",
+                    Math.min(100.0, 100.0 * bytes / totalBytes), bytes / MB, totalBytes / MB));
+        } else {
+            sb.append(String.format("%,.1f MB", bytes / MB));
+        }
+        sb.append(String.format(" | %.1f MB/s | %,.0f rows/s | %,d rows",
+                bytesPerSec / MB, rowsPerSec, rows));
+        if (totalBytes > 0 && avgBytesPerSec > 0) {
+            long remaining = Math.max(0, totalBytes - bytes);
+            sb.append(" | ETA ").append(formatDuration((long) (remaining / avgBytesPerSec)));
+        }
+        return sb.toString();
+    }
+
+    static String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+        }
+        if (seconds >= 60) {
+            return String.format("%dm %02ds", seconds / 60, seconds % 60);
+        }
+        return seconds + "s";
+    }
+}
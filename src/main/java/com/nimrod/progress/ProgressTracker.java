@@ -0,0 +1,55 @@
+package com.nimrod.progress;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters describing how far a bulk decode has got.
+ *
+ * <p>The reading side reports bytes consumed from the input, the decoding side reports
+ * finished rows. Both updates are lock-free so the hot loops never wait on the
+ * {@link ProgressReporter} thread that samples them.</p>
+ */
+public class ProgressTracker {
+
+    /** Marker for inputs whose size cannot be known up front (stdin, compressed streams). */
+    public static final long UNKNOWN = -1;
+
+    private final long totalBytes;
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    public ProgressTracker(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /** A tracker for callers that do not care about progress. */
+    public static ProgressTracker none() {
+        return new ProgressTracker(UNKNOWN);
+    }
+
+    public void addBytes(long count) {
+        bytesRead.add(count);
+    }
+
+    public void rowDone() {
+        rows.increment();
+    }
+
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    /** @return total input size in bytes, or {@link #UNKNOWN} */
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    public long rows() {
+        return rows.sum();
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
@@ -0,0 +1,62 @@
+package com.nimrod.progress;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs warnings that can repeat for every row of an export without flooding the log.
+ *
+ * <p>The first {@code burst} warnings are logged as they come. After that at most one is
+ * logged per {@code interval}, with the number left out since the previous one appended;
+ * the rest only cost an atomic increment. Safe to share between worker threads.</p>
+ */
+public class RateLimitedLog {
+
+    private final Logger log;
+    private final int burst;
+    private final long intervalNanos;
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong nextAllowed = new AtomicLong();
+
+    public RateLimitedLog(Logger log, int burst, Duration interval) {
+        this.log = log;
+        this.burst = burst;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /** Log a warning as {@link Logger#warn(String, Object...)} would, unless over the limit. */
+    public void warn(String format, Object... args) {
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+        long n = seen.incrementAndGet();
+        if (n <= burst) {
+            log.warn(format, args);
+            return;
+        }
+        long now = System.nanoTime();
+        if (n == burst + 1) {
+            // The burst is over: the next warning is due one interval from now
+            nextAllowed.set(now + intervalNanos);
+            suppressed.incrementAndGet();
+            return;
+        }
+        long next = nextAllowed.get();
+        if (now - next >= 0 && nextAllowed.compareAndSet(next, now + intervalNanos)) {
+            Object[] withCount = Arrays.copyOf(args, args.length + 1);
+            withCount[args.length] = suppressed.getAndSet(0);
+            log.warn(format + " ({} similar warnings suppressed)", withCount);
+        } else {
+            suppressed.incrementAndGet();
+        }
+    }
+
+    /** Warnings passed to {@link #warn} so far, logged or not. */
+    public long count() {
+        return seen.get();
+    }
+}
@@ -0,0 +1,369 @@
+package com.nimrod.transform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A parsed {@code --transform} expression. Each node evaluates itself directly, so a parsed
+ * expression is run per row without any further interpretation of the text.
+ *
+ * <p>As in jq, an expression maps one input to any number of outputs, passed to
+ * {@code out} in order; {@link #reads} is the matching static analysis over
+ * {@link FieldUse}s.</p>
+ */
+sealed interface Expr {
+
+    void eval(Object input, Consumer<Object> out);
+
+    /**
+     * Record what this expression reads of the places in {@code input}, and return the
+     * places its outputs may come from.
+     */
+    Set<FieldUse> reads(Set<FieldUse> input);
+
+    /** {@code step} applied to every place in {@code uses}. */
+    private static Set<FieldUse> each(Set<FieldUse> uses, Function<FieldUse, FieldUse> step) {
+        Set<FieldUse> result = new LinkedHashSet<>();
+        for (FieldUse use : uses) {
+            result.add(step.apply(use));
+        }
+        return result;
+    }
+
+    /** {@code .} */
+    record Identity() implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            out.accept(input);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return input;
+        }
+    }
+
+    /** {@code target.name} */
+    record Field(Expr target, String name) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            target.eval(input, value -> out.accept(Values.field(value, name)));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return each(target.reads(input), use -> use.field(name));
+        }
+    }
+
+    /** {@code target[index]} */
+    record Index(Expr target, Expr index) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            index.eval(input, i -> target.eval(input, value -> out.accept(Values.element(value, i))));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            Set<FieldUse> targets = target.reads(input);
+            if (index instanceof Literal literal && literal.value() instanceof Number) {
+                return each(targets, FieldUse::iterate);
+            }
+            // Any element or field could be picked
+            FieldUse.whole(index.reads(input));
+            FieldUse.whole(targets);
+            return Set.of();
+        }
+    }
+
+    /** {@code target[]} */
+    record Iterate(Expr target) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            target.eval(input, value -> Values.iterate(value, out));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return each(target.reads(input), FieldUse::iterate);
+        }
+    }
+
+    /** {@code body?}: errors end the outputs instead of failing the row. */
+    record Try(Expr body) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            // Only the body's own errors are suppressed, not those of whatever consumes its outputs
+            List<Object> outputs = new ArrayList<>();
+            try {
+                body.eval(input, outputs::add);
+            } catch (IllegalArgumentException e) {
+                // Suppressed, as jq does; the outputs before the error are kept
+            }
+            outputs.forEach(out);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return body.reads(input);
+        }
+    }
+
+    /** {@code left | right} */
+    record Pipe(Expr left, Expr right) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            left.eval(input, value -> right.eval(value, out));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return right.reads(left.reads(input));
+        }
+    }
+
+    /** {@code left, right} */
+    record Comma(Expr left, Expr right) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            left.eval(input, out);
+            right.eval(input, out);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            Set<FieldUse> result = new LinkedHashSet<>(left.reads(input));
+            result.addAll(right.reads(input));
+            return result;
+        }
+    }
+
+    /** A number, string, {@code true}, {@code false} or {@code null}. */
+    record Literal(Object value) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            out.accept(value);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return Set.of();
+        }
+    }
+
+    /** {@code [body]}, or {@code []} with a null body. */
+    record ArrayOf(Expr body) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            List<Object> elements = new ArrayList<>();
+            if (body != null) {
+                body.eval(input, elements::add);
+            }
+            out.accept(elements);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            if (body != null) {
+                FieldUse.whole(body.reads(input));
+            }
+            return Set.of();
+        }
+    }
+
+    /** {@code {key: value, ...}}; every combination of the values' outputs is an output. */
+    record ObjectOf(List<Entry> entries) implements Expr {
+
+        record Entry(String key, Expr value) {
+        }
+
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            build(0, new LinkedHashMap<>(), input, out);
+        }
+
+        private void build(int i, Map<String, Object> object, Object input, Consumer<Object> out) {
+            if (i == entries.size()) {
+                out.accept(new LinkedHashMap<>(object));
+                return;
+            }
+            Entry entry = entries.get(i);
+            entry.value().eval(input, value -> {
+                object.put(entry.key(), value);
+                build(i + 1, object, input, out);
+            });
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            for (Entry entry : entries) {
+                FieldUse.whole(entry.value().reads(input));
+            }
+            return Set.of();
+        }
+    }
+
+    /** {@code left op right} for {@code == != < <= > >=}, in jq's ordering of values. */
+    record Compare(String op, Expr left, Expr right) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            List<Object> rights = new ArrayList<>();
+            right.eval(input, rights::add);
+            for (Object r : rights) {
+                left.eval(input, l -> {
+                    int c = Values.compare(l, r);
+                    out.accept(switch (op) {
+                        case "==" -> c == 0;
+                        case "!=" -> c != 0;
+                        case "<" -> c < 0;
+                        case "<=" -> c <= 0;
+                        case ">" -> c > 0;
+                        default -> c >= 0;
+                    });
+                });
+            }
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            FieldUse.whole(left.reads(input));
+            FieldUse.whole(right.reads(input));
+            return Set.of();
+        }
+    }
+
+    /** {@code left and right}; only the truth of each side matters. */
+    record And(Expr left, Expr right) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            left.eval(input, l -> {
+                if (!Values.truthy(l)) {
+                    out.accept(false);
+                } else {
+                    right.eval(input, r -> out.accept(Values.truthy(r)));
+                }
+            });
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            left.reads(input);
+            right.reads(input);
+            return Set.of();
+        }
+    }
+
+    /** {@code left or right} */
+    record Or(Expr left, Expr right) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            left.eval(input, l -> {
+                if (Values.truthy(l)) {
+                    out.accept(true);
+                } else {
+                    right.eval(input, r -> out.accept(Values.truthy(r)));
+                }
+            });
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            left.reads(input);
+            right.reads(input);
+            return Set.of();
+        }
+    }
+
+    /** {@code select(condition)} */
+    record Select(Expr condition) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            condition.eval(input, c -> {
+                if (Values.truthy(c)) {
+                    out.accept(input);
+                }
+            });
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            condition.reads(input);
+            return input;
+        }
+    }
+
+    /** {@code map(f)}, i.e. {@code [.[] | f]} */
+    record MapEach(Expr f) implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            List<Object> results = new ArrayList<>();
+            Values.iterate(input, element -> f.eval(element, results::add));
+            out.accept(results);
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            FieldUse.whole(f.reads(each(input, FieldUse::iterate)));
+            return Set.of();
+        }
+    }
+
+    /** {@code length}: needs the number of elements, not their fields. */
+    record Length() implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            out.accept(Values.lengthOf(input));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            each(input, FieldUse::iterate);
+            return Set.of();
+        }
+    }
+
+    /** {@code keys} */
+    record Keys() implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            out.accept(Values.keys(input));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            FieldUse.whole(input);
+            return Set.of();
+        }
+    }
+
+    /** {@code not} */
+    record Not() implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+            out.accept(!Values.truthy(input));
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return Set.of();
+        }
+    }
+
+    /** {@code empty} */
+    record Empty() implements Expr {
+        @Override
+        public void eval(Object input, Consumer<Object> out) {
+        }
+
+        @Override
+        public Set<FieldUse> reads(Set<FieldUse> input) {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nimrod.transform;
+
+import com.nimrod.flatbuffers.FieldSelection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What an expression does with one place in its input row, found by walking the expression
+ * once before any row is decoded: which fields below it are read, whether its elements are
+ * iterated, and whether the whole value is used (output, compared, counted...).
+ *
+ * <p>The places an expression's result may come from are tracked as sets of {@code FieldUse}s,
+ * so that {@code .army | .units[] | .hp} records {@code army.units[].hp} and nothing else.
+ * Values built by the expression ({@code {...}}, {@code [...]}, literals, comparisons) are
+ * the empty set: reading from them reads nothing from the row.</p>
+ */
+final class FieldUse {
+
+    private final Map<String, FieldUse> fields = new LinkedHashMap<>();
+    private boolean whole;
+    private boolean iterated;
+
+    FieldUse field(String name) {
+        return fields.computeIfAbsent(name, n -> new FieldUse());
+    }
+
+    FieldUse iterate() {
+        iterated = true;
+        return this;
+    }
+
+    /** Mark every place in {@code uses} as used as a whole, with all of its fields. */
+    static void whole(Set<FieldUse> uses) {
+        for (FieldUse use : uses) {
+            use.whole = true;
+        }
+    }
+
+    boolean isWhole() {
+        return whole;
+    }
+
+    boolean isIterated() {
+        return iterated;
+    }
+
+    FieldUse get(String name) {
+        return fields.get(name);
+    }
+
+    /** The fields read below this place, for {@link com.nimrod.flatbuffers.FbDecoder}. */
+    FieldSelection toSelection() {
+        if (whole) {
+            return FieldSelection.ALL;
+        }
+        Map<String, FieldSelection> selected = new LinkedHashMap<>();
+        fields.forEach((name, use) -> selected.put(name, use.toSelection()));
+        return FieldSelection.of(selected, iterated);
+    }
+}
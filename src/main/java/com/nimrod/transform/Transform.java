@@ -0,0 +1,83 @@
+package com.nimrod.transform;
+
+import com.nimrod.flatbuffers.FieldSelection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@code --transform} expression, applied to every decoded row instead of piping the
+ * output through {@code jq}. It covers the jq most often used on exports:
+ * <ul>
+ *   <li>paths: {@code .}, {@code .data.army.units}, {@code .["name"]}, {@code .[0]},
+ *       {@code .[]}, {@code ?}</li>
+ *   <li>{@code |}, {@code ,}, parentheses, and array and object construction:
+ *       {@code [...]}, {@code {id, hp: .data.hp}}</li>
+ *   <li>{@code select(f)}, {@code map(f)}, {@code length}, {@code keys}, {@code not},
+ *       {@code empty}</li>
+ *   <li>{@code == != < <= > >=}, {@code and}, {@code or}, and number, string,
+ *       {@code true}, {@code false} and {@code null} literals</li>
+ * </ul>
+ * with jq's semantics; see {@code TransformParser} for the grammar.
+ *
+ * <p>The expression is parsed once. The fields it can read are worked out at the same time,
+ * so that {@link #fields} tells the decoder which fields of a blob column to decode at all:
+ * {@code .data | {hp, owner: .army.ownerId}} decodes {@code hp}, {@code army.ownerId} and
+ * nothing else, whatever the type of the blob. A compiled transform is immutable and is
+ * applied concurrently on the decode workers.</p>
+ */
+public final class Transform {
+
+    private final String expression;
+    private final Expr expr;
+    private final FieldUse row = new FieldUse();
+    private final Map<String, FieldSelection> columns = new ConcurrentHashMap<>();
+
+    private Transform(String expression) {
+        this.expression = expression;
+        this.expr = TransformParser.parse(expression);
+        // Whatever the expression finally outputs is written out in full
+        FieldUse.whole(expr.reads(Set.of(row)));
+    }
+
+    /** @throws IllegalArgumentException if the expression is not valid, with the position of the problem */
+    public static Transform compile(String expression) {
+        return new Transform(expression);
+    }
+
+    /**
+     * The outputs for one decoded row: none (e.g. filtered out by {@code select}), one, or
+     * several (e.g. for {@code .data.units[]}).
+     *
+     * @throws IllegalArgumentException if the expression fails on this row, as jq would
+     *                                  (e.g. {@code Cannot index number with "hp"})
+     */
+    public List<Object> apply(Map<String, Object> decodedRow) {
+        List<Object> outputs = new ArrayList<>(1);
+        expr.eval(decodedRow, outputs::add);
+        return outputs;
+    }
+
+    /** The fields to decode of the blob in {@code column}, or {@link FieldSelection#ALL}. */
+    public FieldSelection fields(String column) {
+        return columns.computeIfAbsent(column, name -> {
+            FieldUse use = row.get(name);
+            if (row.isWhole() || row.isIterated() || use != null && use.isIterated()) {
+                return FieldSelection.ALL;
+            }
+            return use != null ? use.toSelection() : FieldSelection.of(Map.of(), false);
+        });
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
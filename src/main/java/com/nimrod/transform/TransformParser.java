@@ -0,0 +1,351 @@
+package com.nimrod.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recursive-descent parser for the jq subset of {@code --transform}:
+ * <pre>
+ *   pipe     = comma ('|' comma)*
+ *   comma    = or (',' or)*
+ *   or       = and ('or' and)*
+ *   and      = compare ('and' compare)*
+ *   compare  = postfix (('==' | '!=' | '<' | '<=' | '>' | '>=') postfix)?
+ *   postfix  = term ('.' name | '.'? '[' pipe? ']' | '?')*
+ *   term     = '.' | '.' name | number | string | 'true' | 'false' | 'null'
+ *            | '(' pipe ')' | '[' pipe? ']' | '{' entry (',' entry)* '}'
+ *            | 'length' | 'keys' | 'not' | 'empty' | 'select(' pipe ')' | 'map(' pipe ')'
+ *   entry    = key (':' postfix ('|' postfix)*)?    key = identifier | string
+ * </pre>
+ * where {@code name} is an identifier or a string. Errors name the offending position.
+ */
+final class TransformParser {
+
+    private static final Set<String> FUNCTIONS = Set.of("length", "keys", "not", "empty", "select", "map");
+
+    private final String text;
+    private int pos;
+
+    private TransformParser(String text) {
+        this.text = text;
+    }
+
+    /** @throws IllegalArgumentException if {@code text} is not a valid expression */
+    static Expr parse(String text) {
+        TransformParser parser = new TransformParser(text);
+        Expr expr = parser.pipe();
+        parser.skipSpace();
+        if (parser.pos < text.length()) {
+            throw parser.error("unexpected '" + text.charAt(parser.pos) + "'");
+        }
+        return expr;
+    }
+
+    private Expr pipe() {
+        Expr left = comma();
+        while (accept("|")) {
+            left = new Expr.Pipe(left, comma());
+        }
+        return left;
+    }
+
+    private Expr comma() {
+        Expr left = or();
+        while (accept(",")) {
+            left = new Expr.Comma(left, or());
+        }
+        return left;
+    }
+
+    private Expr or() {
+        Expr left = and();
+        while (acceptWord("or")) {
+            left = new Expr.Or(left, and());
+        }
+        return left;
+    }
+
+    private Expr and() {
+        Expr left = compare();
+        while (acceptWord("and")) {
+            left = new Expr.And(left, compare());
+        }
+        return left;
+    }
+
+    private Expr compare() {
+        Expr left = postfix();
+        for (String op : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+            if (accept(op)) {
+                return new Expr.Compare(op, left, postfix());
+            }
+        }
+        return left;
+    }
+
+    private Expr postfix() {
+        Expr expr = term();
+        while (true) {
+            skipSpace();
+            if (peek('.') && !peekNumber()) {
+                pos++;
+                if (peek('[')) {
+                    continue;
+                }
+                expr = new Expr.Field(expr, name());
+            } else if (peek('[')) {
+                pos++;
+                expr = bracket(expr);
+            } else if (peek('?')) {
+                pos++;
+                expr = new Expr.Try(expr);
+            } else {
+                return expr;
+            }
+        }
+    }
+
+    /** What follows {@code target[}: {@code ]}, or an index and {@code ]}. */
+    private Expr bracket(Expr target) {
+        if (accept("]")) {
+            return new Expr.Iterate(target);
+        }
+        Expr index = pipe();
+        expect("]");
+        return index instanceof Expr.Literal literal && literal.value() instanceof String name
+                ? new Expr.Field(target, name)
+                : new Expr.Index(target, index);
+    }
+
+    private Expr term() {
+        skipSpace();
+        if (pos >= text.length()) {
+            throw error("expression expected");
+        }
+        char c = text.charAt(pos);
+        if (c == '.' && !peekNumber()) {
+            pos++;
+            if (pos < text.length() && (isNameStart(text.charAt(pos)) || text.charAt(pos) == '"')) {
+                return new Expr.Field(new Expr.Identity(), name());
+            }
+            return new Expr.Identity();
+        }
+        if (c == '"') {
+            return new Expr.Literal(string());
+        }
+        if (c == '-' || c == '.' || Character.isDigit(c)) {
+            return new Expr.Literal(number());
+        }
+        if (c == '(') {
+            pos++;
+            Expr inner = pipe();
+            expect(")");
+            return inner;
+        }
+        if (c == '[') {
+            pos++;
+            if (accept("]")) {
+                return new Expr.ArrayOf(null);
+            }
+            Expr body = pipe();
+            expect("]");
+            return new Expr.ArrayOf(body);
+        }
+        if (c == '{') {
+            pos++;
+            return object();
+        }
+        if (isNameStart(c)) {
+            return word();
+        }
+        throw error("unexpected '" + c + "'");
+    }
+
+    private Expr word() {
+        int start = pos;
+        String word = identifier();
+        switch (word) {
+            case "true", "false" -> {
+                return new Expr.Literal(Boolean.valueOf(word));
+            }
+            case "null" -> {
+                return new Expr.Literal(null);
+            }
+            case "length" -> {
+                return new Expr.Length();
+            }
+            case "keys" -> {
+                return new Expr.Keys();
+            }
+            case "not" -> {
+                return new Expr.Not();
+            }
+            case "empty" -> {
+                return new Expr.Empty();
+            }
+            case "select", "map" -> {
+                expect("(");
+                Expr argument = pipe();
+                expect(")");
+                return word.equals("select") ? new Expr.Select(argument) : new Expr.MapEach(argument);
+            }
+            default -> {
+                pos = start;
+                throw error("unknown function '" + word + "' (supported: " + String.join(", ",
+                        FUNCTIONS.stream().sorted().toList()) + ")");
+            }
+        }
+    }
+
+    private Expr object() {
+        List<Expr.ObjectOf.Entry> entries = new ArrayList<>();
+        if (accept("}")) {
+            return new Expr.ObjectOf(entries);
+        }
+        do {
+            skipSpace();
+            String key = name();
+            Expr value;
+            if (accept(":")) {
+                value = postfix();
+                while (accept("|")) {
+                    value = new Expr.Pipe(value, postfix());
+                }
+            } else {
+                // {name} is short for {name: .name}
+                value = new Expr.Field(new Expr.Identity(), key);
+            }
+            entries.add(new Expr.ObjectOf.Entry(key, value));
+        } while (accept(","));
+        expect("}");
+        return new Expr.ObjectOf(entries);
+    }
+
+    /** An identifier or a string, as a field name or object key. */
+    private String name() {
+        skipSpace();
+        if (peek('"')) {
+            return string();
+        }
+        if (pos < text.length() && isNameStart(text.charAt(pos))) {
+            return identifier();
+        }
+        throw error("field name expected");
+    }
+
+    private String identifier() {
+        int start = pos;
+        while (pos < text.length() && (isNameStart(text.charAt(pos)) || Character.isDigit(text.charAt(pos)))) {
+            pos++;
+        }
+        return text.substring(start, pos);
+    }
+
+    private String string() {
+        int start = pos;
+        pos++;
+        StringBuilder value = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case 'n' -> value.append('\n');
+                case 't' -> value.append('\t');
+                case 'r' -> value.append('\r');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw error("incomplete \\u escape");
+                    }
+                    value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> value.append(escaped);
+            }
+        }
+        pos = start;
+        throw error("unterminated string");
+    }
+
+    private Number number() {
+        int start = pos;
+        if (peek('-')) {
+            pos++;
+        }
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            boolean exponentSign = (c == '-' || c == '+') && pos > start && "eE".indexOf(text.charAt(pos - 1)) >= 0;
+            if (!Character.isDigit(c) && c != '.' && c != 'e' && c != 'E' && !exponentSign) {
+                break;
+            }
+            pos++;
+        }
+        try {
+            return Values.number(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("invalid number");
+        }
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private boolean peek(char c) {
+        return pos < text.length() && text.charAt(pos) == c;
+    }
+
+    /** Whether a {@code .} at the current position starts a number such as {@code .5}. */
+    private boolean peekNumber() {
+        return pos + 1 < text.length() && text.charAt(pos) == '.' && Character.isDigit(text.charAt(pos + 1));
+    }
+
+    private boolean accept(String token) {
+        skipSpace();
+        if (text.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    /** Accept a keyword, but not as the start of a longer identifier. */
+    private boolean acceptWord(String word) {
+        skipSpace();
+        int end = pos + word.length();
+        if (text.startsWith(word, pos) && (end == text.length()
+                || !isNameStart(text.charAt(end)) && !Character.isDigit(text.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("'" + token + "' expected");
+        }
+    }
+
+    private static boolean isNameStart(char c) {
+        return c == '_' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private IllegalArgumentException error(String problem) {
+        return new IllegalArgumentException("Invalid --transform at column " + (pos + 1) + ": " + problem
+                + "\n  " + text + "\n  " + " ".repeat(Math.min(pos, text.length())) + "^");
+    }
+}
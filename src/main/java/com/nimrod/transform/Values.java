@@ -0,0 +1,229 @@
+package com.nimrod.transform;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * jq semantics for the values of a decoded row: maps (objects), lists and primitive arrays
+ * (arrays), strings, numbers, booleans and null.
+ */
+final class Values {
+
+    private Values() {
+    }
+
+    /** jq's name for the type of {@code value}, as used in its error messages. */
+    static String typeOf(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Boolean) {
+            return "boolean";
+        }
+        if (value instanceof Number) {
+            return "number";
+        }
+        if (value instanceof CharSequence || value instanceof Character) {
+            return "string";
+        }
+        if (value instanceof Map<?, ?>) {
+            return "object";
+        }
+        if (value instanceof List<?> || value.getClass().isArray()) {
+            return "array";
+        }
+        return "string";
+    }
+
+    /** Only null and false are false. */
+    static boolean truthy(Object value) {
+        return value != null && !Boolean.FALSE.equals(value);
+    }
+
+    /** {@code value.name}: null on null, an error on anything but an object. */
+    static Object field(Object value, String name) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.get(name);
+        }
+        throw new IllegalArgumentException("Cannot index " + typeOf(value) + " with \"" + name + "\"");
+    }
+
+    /** {@code value[index]} for an array, counting from the end for a negative index. */
+    static Object element(Object value, Object index) {
+        if (value == null) {
+            return null;
+        }
+        if (index instanceof String name) {
+            return field(value, name);
+        }
+        if (!(index instanceof Number number) || !isArray(value)) {
+            throw new IllegalArgumentException("Cannot index " + typeOf(value) + " with " + typeOf(index));
+        }
+        int length = length(value);
+        int i = (int) Math.floor(number.doubleValue());
+        if (i < 0) {
+            i += length;
+        }
+        if (i < 0 || i >= length) {
+            return null;
+        }
+        return value instanceof List<?> list ? list.get(i) : Array.get(value, i);
+    }
+
+    /** {@code value[]}: the elements of an array or the values of an object. */
+    static void iterate(Object value, Consumer<Object> out) {
+        if (value instanceof List<?> list) {
+            list.forEach(out);
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(out);
+        } else if (value != null && value.getClass().isArray()) {
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                out.accept(Array.get(value, i));
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot iterate over " + typeOf(value));
+        }
+    }
+
+    /** jq's {@code length}. */
+    static Object lengthOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number number) {
+            return number instanceof Double || number instanceof Float
+                    ? Math.abs(number.doubleValue()) : Math.abs(number.longValue());
+        }
+        if (value instanceof Boolean) {
+            throw new IllegalArgumentException("boolean (" + value + ") has no length");
+        }
+        if (value instanceof CharSequence text) {
+            return text.toString().codePointCount(0, text.length());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        return length(value);
+    }
+
+    /** jq's {@code keys}: the sorted keys of an object, or the indices of an array. */
+    static List<Object> keys(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return new ArrayList<>(new TreeSet<Object>(map.keySet()));
+        }
+        if (isArray(value)) {
+            List<Object> indices = new ArrayList<>();
+            for (int i = 0, n = length(value); i < n; i++) {
+                indices.add(i);
+            }
+            return indices;
+        }
+        throw new IllegalArgumentException(typeOf(value) + " has no keys");
+    }
+
+    /**
+     * jq's ordering: null, false, true, numbers, strings, arrays, objects; arrays element by
+     * element, objects by their sorted keys and then their values.
+     */
+    static int compare(Object a, Object b) {
+        int rank = Integer.compare(rank(a), rank(b));
+        if (rank != 0) {
+            return rank;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            return compareNumbers(x, y);
+        }
+        if (a instanceof Map<?, ?> x && b instanceof Map<?, ?> y) {
+            List<Object> keys = keys(x);
+            int byKeys = compare(keys, keys(y));
+            if (byKeys != 0) {
+                return byKeys;
+            }
+            for (Object key : keys) {
+                int byValue = compare(x.get(key), y.get(key));
+                if (byValue != 0) {
+                    return byValue;
+                }
+            }
+            return 0;
+        }
+        if (isArray(a)) {
+            Iterator<Object> x = elements(a).iterator();
+            Iterator<Object> y = elements(b).iterator();
+            while (x.hasNext() && y.hasNext()) {
+                int byElement = compare(x.next(), y.next());
+                if (byElement != 0) {
+                    return byElement;
+                }
+            }
+            return Boolean.compare(x.hasNext(), y.hasNext());
+        }
+        if (a instanceof Boolean x) {
+            return Boolean.compare(x, (Boolean) b);
+        }
+        return a == null ? 0 : String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    private static int rank(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 2 : 1;
+        }
+        return switch (typeOf(value)) {
+            case "number" -> 3;
+            case "string" -> 4;
+            case "array" -> 5;
+            default -> 6;
+        };
+    }
+
+    /** Integers exactly, anything with a fraction as double. */
+    private static int compareNumbers(Number x, Number y) {
+        if (isIntegral(x) && isIntegral(y)) {
+            return Long.compare(x.longValue(), y.longValue());
+        }
+        return Double.compare(x.doubleValue(), y.doubleValue());
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte
+                || n instanceof BigInteger;
+    }
+
+    /** A number read from an expression: a long when it has no fraction, else a double. */
+    static Number number(String text) {
+        BigDecimal value = new BigDecimal(text);
+        try {
+            return value.longValueExact();
+        } catch (ArithmeticException e) {
+            return value.doubleValue();
+        }
+    }
+
+    private static boolean isArray(Object value) {
+        return value instanceof List<?> || value != null && value.getClass().isArray();
+    }
+
+    private static int length(Object array) {
+        return array instanceof Collection<?> list ? list.size() : Array.getLength(array);
+    }
+
+    private static List<Object> elements(Object array) {
+        List<Object> elements = new ArrayList<>();
+        iterate(array, elements::add);
+        return elements;
+    }
+}
@@ -0,0 +1,248 @@
+package com.nimrod;
+
+import com.nimrod.cli.GenerateCommand;
+import com.nimrod.cli.NimrodCommand;
+import com.nimrod.cli.NimrodCommand.Format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The full CLI path, from a generated export (see {@link GenerateCommand}) to a JSON file,
+ * once per output format, against throughput and heap budgets. Not part of {@code test};
+ * run with {@code ./gradlew perfTest}, which also fixes the heap size.
+ *
+ * <p>Budgets are system properties, which the Gradle task passes on from {@code -Pperf.*}
+ * project properties; a per-format value wins over the general one:
+ * <pre>
+ *   ./gradlew perfTest -Pperf.rows=1000000 -Pperf.minRowsPerSec.pretty=15000 -Pperf.maxHeapMb=256
+ * </pre>
+ * The heap budget is on the peak heap in use after a collection during the run, as reported
+ * by the GC MXBeans, which is what the run holds on to. The peak before a collection is
+ * recorded too, but mostly reflects how far the collector lets the heap fill up.</p>
+ *
+ * <p>Each run appends one JSON line with the commit, the measurements and the budgets to
+ * {@code history.ndjson} in {@code nimrod.perf.results} (default {@code build/perf-results}),
+ * before any budget is checked, so failing runs are tracked as well.</p>
+ */
+@Tag("perf")
+@SpringBootTest
+class EndToEndPerfTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path export;
+
+    @Autowired
+    private IFactory factory;
+
+    /** One decode run: rows per second and heap peaks in MB. */
+    private record Measurement(String format, long rows, double seconds, double rowsPerSec,
+                               long peakHeapMb, long peakLiveHeapMb, int gcCount) {
+    }
+
+    @BeforeAll
+    static void generateExport(@Autowired IFactory factory) {
+        export = tempDir.resolve("export.csv");
+        int exitCode = new CommandLine(GenerateCommand.class, factory).execute(
+                "-o", export.toString(), "--rows", String.valueOf(rows()), "--gzip", "0.1",
+                "--seed", "1", "--progress-interval", "0");
+        assertEquals(0, exitCode, "generate failed");
+    }
+
+    @Test
+    void decodesWithinBudgetsInEveryFormat() throws Exception {
+        List<Measurement> measurements = new ArrayList<>();
+        for (Format format : Format.values()) {
+            measurements.add(decode(format));
+        }
+        record(measurements);
+
+        List<Executable> checks = new ArrayList<>();
+        for (Measurement m : measurements) {
+            double minRowsPerSec = minRowsPerSec(m.format());
+            long maxHeapMb = maxHeapMb(m.format());
+            checks.add(() -> assertTrue(m.rowsPerSec() >= minRowsPerSec, String.format(
+                    "%s: %,.0f rows/s is below the budget of %,.0f", m.format(), m.rowsPerSec(), minRowsPerSec)));
+            checks.add(() -> assertTrue(m.peakLiveHeapMb() <= maxHeapMb, String.format(
+                    "%s: peak heap of %,d MB is over the budget of %,d MB", m.format(), m.peakLiveHeapMb(), maxHeapMb)));
+        }
+        assertAll(checks);
+    }
+
+    private Measurement decode(Format format) {
+        Path output = tempDir.resolve("out." + format);
+        System.gc();
+        try (HeapWatermark heap = HeapWatermark.start()) {
+            long started = System.nanoTime();
+            int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                    "--csv", export.toString(), "-f", format.name(), "-o", output.toString(),
+                    "--progress-interval", "0");
+            double seconds = (System.nanoTime() - started) / 1e9;
+            assertEquals(0, exitCode, format + " decode failed");
+            Measurement m = new Measurement(format.name(), rows(), seconds, rows() / seconds,
+                    heap.peakBytes() / MB, heap.peakLiveBytes() / MB, heap.collections());
+            System.out.printf("%-8s %,10d rows  %6.2f s  %,10.0f rows/s  peak heap %,5d MB  after GC %,5d MB  (%d GCs)%n",
+                    m.format(), m.rows(), m.seconds(), m.rowsPerSec(), m.peakHeapMb(), m.peakLiveHeapMb(),
+                    m.gcCount());
+            return m;
+        } finally {
+            output.toFile().delete();
+        }
+    }
+
+    private static void record(List<Measurement> measurements) throws Exception {
+        Path dir = Path.of(System.getProperty("nimrod.perf.results", "build/perf-results"));
+        Files.createDirectories(dir);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("time", Instant.now().toString());
+        result.put("commit", System.getProperty("nimrod.perf.commit", "unknown"));
+        result.put("java", Runtime.version().toString());
+        result.put("cpus", Runtime.getRuntime().availableProcessors());
+        result.put("heapLimitMb", Runtime.getRuntime().maxMemory() / MB);
+        result.put("exportMb", Files.size(export) / MB);
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (Measurement m : measurements) {
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("format", m.format());
+            run.put("rows", m.rows());
+            run.put("seconds", m.seconds());
+            run.put("rowsPerSec", Math.round(m.rowsPerSec()));
+            run.put("peakHeapMb", m.peakHeapMb());
+            run.put("peakLiveHeapMb", m.peakLiveHeapMb());
+            run.put("gcCount", m.gcCount());
+            run.put("minRowsPerSec", minRowsPerSec(m.format()));
+            run.put("maxHeapMb", maxHeapMb(m.format()));
+            runs.add(run);
+        }
+        result.put("runs", runs);
+        Files.writeString(dir.resolve("history.ndjson"), MAPPER.writeValueAsString(result) + "\n",
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static long rows() {
+        return Long.getLong("nimrod.perf.rows", 200_000);
+    }
+
+    /** Pretty printing costs about half the throughput of the single-line formats. */
+    private static double minRowsPerSec(String format) {
+        return budget("minRowsPerSec", format, format.equals("pretty") ? 10_000 : 20_000);
+    }
+
+    private static long maxHeapMb(String format) {
+        return (long) budget("maxHeapMb", format, 256);
+    }
+
+    /** {@code nimrod.perf.<name>.<format>}, else {@code nimrod.perf.<name>}, else the default. */
+    private static double budget(String name, String format, double defaultValue) {
+        String value = System.getProperty("nimrod.perf." + name + "." + format,
+                System.getProperty("nimrod.perf." + name));
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    /**
+     * Heap in use before and after every collection while open, from the notifications of
+     * the {@link GarbageCollectorMXBean}s.
+     */
+    private static final class HeapWatermark implements NotificationListener, AutoCloseable {
+
+        private final AtomicLong peak = new AtomicLong();
+        private final AtomicLong peakLive = new AtomicLong();
+        private final AtomicLong collections = new AtomicLong();
+
+        static HeapWatermark start() {
+            HeapWatermark watermark = new HeapWatermark();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(watermark, null, null);
+            }
+            return watermark;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                return;
+            }
+            var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+            peak.accumulateAndGet(heapUsed(info.getMemoryUsageBeforeGc()), Math::max);
+            peakLive.accumulateAndGet(heapUsed(info.getMemoryUsageAfterGc()), Math::max);
+            collections.incrementAndGet();
+        }
+
+        /** Summed over the heap pools; the GC beans report non-heap pools as well. */
+        private static long heapUsed(Map<String, MemoryUsage> pools) {
+            long used = 0;
+            for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage usage = pools.get(pool.getName());
+                if (usage != null && pool.getType() == MemoryType.HEAP) {
+                    used += usage.getUsed();
+                }
+            }
+            return used;
+        }
+
+        long peakBytes() {
+            return Math.max(peak.get(), ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+
+        /** Peak after a collection; without any, the heap in use now. */
+        long peakLiveBytes() {
+            return collections.get() > 0
+                    ? peakLive.get()
+                    : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        int collections() {
+            return (int) collections.get();
+        }
+
+        @Override
+        public void close() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) gc).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // Not registered with this collector
+                }
+            }
+        }
+    }
+}
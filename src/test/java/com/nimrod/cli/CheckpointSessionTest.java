@@ -0,0 +1,122 @@
+package com.nimrod.cli;
+
+import com.nimrod.output.EncodedRow;
+import com.nimrod.output.RowWriter;
+import com.nimrod.progress.Checkpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointSessionTest {
+
+    /** Counts flushes; the output length is whatever the test put in the file. */
+    private static final class FlushCounter implements RowWriter {
+        final AtomicInteger flushes = new AtomicInteger();
+
+        @Override
+        public EncodedRow encode(Object row) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(EncodedRow row) {
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+        @Override
+        public long rowCount() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void savesFlushedOutputPositionAndResumesFromIt(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("run.checkpoint");
+        File input = Files.writeString(tempDir.resolve("in.csv"), "id\n1\n2\n").toFile();
+        File output = Files.writeString(tempDir.resolve("out.ndjson"), "{\"id\":\"1\"}\n").toFile();
+        FlushCounter writer = new FlushCounter();
+
+        try (CheckpointSession session = CheckpointSession.open(file, input, output, Duration.ZERO)) {
+            assertFalse(session.resuming());
+            session.reached(writer, null, 1, 5);
+        }
+
+        assertEquals(1, writer.flushes.get(), "Output must be flushed before its position is recorded");
+        Checkpoint saved = Checkpoint.load(file);
+        assertEquals(5, saved.inputOffset());
+        assertEquals(1, saved.rows());
+        assertEquals(output.length(), saved.outputPosition());
+
+        try (CheckpointSession resumed = CheckpointSession.open(file, input, output, Duration.ZERO)) {
+            assertTrue(resumed.resuming());
+            assertEquals(5, resumed.inputOffset());
+            assertEquals(1, resumed.rowsBefore());
+            assertEquals(output.length(), resumed.outputPosition());
+            resumed.complete();
+        }
+        assertFalse(Files.exists(file), "A finished run leaves no checkpoint behind");
+    }
+
+    @Test
+    void savesFlushedDeadLetterPositionAndCutsLaterLettersOnResume(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("run.checkpoint");
+        File input = Files.writeString(tempDir.resolve("in.csv"), "id\n1\n2\n").toFile();
+        File output = Files.writeString(tempDir.resolve("out.ndjson"), "").toFile();
+        File failed = tempDir.resolve("failed.ndjson").toFile();
+
+        try (CheckpointSession session = CheckpointSession.open(file, input, output, Duration.ZERO);
+             DeadLetterWriter deadLetters = new DeadLetterWriter(failed, 0)) {
+            deadLetters.write(List.of("{\"row\":1}\n"));
+            session.reached(new FlushCounter(), deadLetters, 1, 5);
+            deadLetters.write(List.of("{\"row\":2}\n"));
+        }
+
+        Checkpoint saved = Checkpoint.load(file);
+        assertEquals("{\"row\":1}\n".length(), saved.deadLetterPosition(), "Buffered letters must be flushed first");
+        try (CheckpointSession resumed = CheckpointSession.open(file, input, output, Duration.ZERO);
+             DeadLetterWriter deadLetters = new DeadLetterWriter(failed, resumed.deadLetterPosition())) {
+            deadLetters.write(List.of("{\"row\":2}\n"));
+        }
+        assertEquals(List.of("{\"row\":1}", "{\"row\":2}"), Files.readAllLines(failed.toPath()));
+    }
+
+    @Test
+    void skipsCheckpointsWithinTheInterval(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("run.checkpoint");
+        FlushCounter writer = new FlushCounter();
+
+        try (CheckpointSession session = CheckpointSession.open(file, tempDir.resolve("in.csv").toFile(),
+                tempDir.resolve("out.ndjson").toFile(), Duration.ofHours(1))) {
+            session.reached(writer, null, 1, 5);
+        }
+
+        assertEquals(0, writer.flushes.get());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void rejectsCheckpointOfAnotherRun(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("run.checkpoint");
+        new Checkpoint("/elsewhere/in.csv", 5, 1, "/elsewhere/out.ndjson", 10, 0).save(file);
+
+        assertThrows(IllegalArgumentException.class, () -> CheckpointSession.open(file,
+                tempDir.resolve("in.csv").toFile(), tempDir.resolve("out.ndjson").toFile(), Duration.ZERO));
+    }
+}
@@ -0,0 +1,103 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GenerateCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    @Autowired
+    private NimrodCommand nimrod;
+
+    private int generate(Path output, String... options) {
+        String[] args = new String[options.length + 4];
+        args[0] = "-o";
+        args[1] = output.toString();
+        args[2] = "--progress-interval";
+        args[3] = "0";
+        System.arraycopy(options, 0, args, 4, options.length);
+        return new CommandLine(GenerateCommand.class, factory).execute(args);
+    }
+
+    @Test
+    void generatedExportDecodes(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("load.csv");
+        Path out = tempDir.resolve("out.ndjson");
+
+        assertEquals(0, generate(csv, "--rows", "200", "--types", "FbsDbPlayerProfile=1,FbsDbArmy=1",
+                "--gzip", "0.5", "-e", "hex", "--seed", "7"));
+
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(201, lines.size());
+        assertEquals("id,data", lines.get(0));
+        assertTrue(lines.get(1).startsWith("0,0x"), lines.get(1));
+        assertEquals(0, new CommandLine(VerifyCommand.class, factory).execute(
+                csv.toString(), "-e", "hex", "-o", tempDir.resolve("report.tsv").toString(),
+                "--progress-interval", "0"));
+        assertEquals(0, new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", csv.toString(), "-e", "hex", "-f", "ndjson", "-o", out.toString(),
+                "--progress-interval", "0"));
+        List<String> decoded = Files.readAllLines(out);
+        assertEquals(200, decoded.size());
+        assertTrue(decoded.stream().anyMatch(l -> l.contains("\"_type\":\"FbsDbPlayerProfile\"")));
+        assertTrue(decoded.stream().anyMatch(l -> l.contains("\"_type\":\"FbsDbArmy\"")));
+    }
+
+    @Test
+    void sameSeedGivesSameFile(@TempDir Path tempDir) throws Exception {
+        Path first = tempDir.resolve("first.csv");
+        Path second = tempDir.resolve("second.csv");
+        Path other = tempDir.resolve("other.csv");
+
+        assertEquals(0, generate(first, "--rows", "500", "--seed", "3", "-t", "1"));
+        assertEquals(0, generate(second, "--rows", "500", "--seed", "3", "-t", "4"));
+        assertEquals(0, generate(other, "--rows", "500", "--seed", "4"));
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        assertFalse(Files.readString(first).equals(Files.readString(other)));
+    }
+
+    @Test
+    void stopsAtSize(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("load.csv");
+
+        assertEquals(0, generate(csv, "--size", "64k", "--vector-size", "1-2"));
+
+        long size = Files.size(csv);
+        List<String> lines = Files.readAllLines(csv);
+        assertTrue(size >= 64 * 1024, "size " + size);
+        // The last row crosses the limit, the one before does not
+        assertTrue(size - lines.getLast().length() - 1 < 64 * 1024, "size " + size);
+    }
+
+    @Test
+    void runsFromTheCommandLine(@TempDir Path tempDir) throws Exception {
+        // Through the real entry point, which puts 'decode' in front of unknown positional values
+        Path csv = tempDir.resolve("load.csv");
+
+        nimrod.run("generate", "-o", csv.toString(), "--rows", "10", "--seed", "1", "--progress-interval", "0");
+
+        assertEquals(0, nimrod.getExitCode());
+        assertEquals(11, Files.readAllLines(csv).size());
+    }
+
+    @Test
+    void rejectsInvalidOptions(@TempDir Path tempDir) {
+        assertEquals(1, generate(tempDir.resolve("load.csv"), "--rows", "10", "--types", "FbsDbNothing=1"));
+        assertEquals(1, generate(tempDir.resolve("load.csv"), "--rows", "10", "--vector-size", "3-1"));
+    }
+}
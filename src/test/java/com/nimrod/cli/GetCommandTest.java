@@ -0,0 +1,83 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GetCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    private Path indexedFixture(Path dir) throws Exception {
+        Path source = Path.of(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).toURI());
+        Path csv = Files.copy(source, dir.resolve("profiles.csv"));
+        int exitCode = new CommandLine(IndexCommand.class, factory).execute(
+                csv.toString(), "-e", "hex", "--progress-interval", "0");
+        assertEquals(0, exitCode);
+        assertTrue(Files.exists(dir.resolve("profiles.csv.idx")));
+        return csv;
+    }
+
+    @Test
+    void decodesSingleRow(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir);
+        Path outFile = tempDir.resolve("row.json");
+
+        int exitCode = new CommandLine(GetCommand.class, factory).execute(
+                csv.toString(), "--row", "4", "-f", "compact", "-o", outFile.toString());
+
+        assertEquals(0, exitCode);
+        String json = Files.readString(outFile);
+        assertTrue(json.contains("\"id\":\"5\""), json);
+        assertTrue(json.contains("\"_type\":\"FbsDbPlayerProfile\""), json);
+    }
+
+    @Test
+    void decodesRowRange(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir);
+        Path outFile = tempDir.resolve("rows.ndjson");
+
+        int exitCode = new CommandLine(GetCommand.class, factory).execute(
+                csv.toString(), "--rows", "5-7", "-f", "ndjson", "-o", outFile.toString());
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"id\":\"" + List.of(59, 31, 40).get(i) + "\""), lines.get(i));
+        }
+    }
+
+    @Test
+    void rejectsRowsBeyondTheIndex(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir);
+
+        assertEquals(1, new CommandLine(GetCommand.class, factory).execute(csv.toString(), "--row", "8"));
+        assertEquals(1, new CommandLine(GetCommand.class, factory).execute(csv.toString(), "--rows", "3-1"));
+    }
+
+    @Test
+    void refusesStaleIndex(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir);
+        Files.writeString(csv, "99,0x00\n", StandardOpenOption.APPEND);
+
+        int exitCode = new CommandLine(GetCommand.class, factory).execute(csv.toString(), "--row", "1");
+
+        assertEquals(1, exitCode);
+    }
+}
@@ -0,0 +1,120 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JoinCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    private Path copyFixture(Path dir, String name) throws Exception {
+        Path source = Path.of(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).toURI());
+        return Files.copy(source, dir.resolve(name));
+    }
+
+    @Test
+    void joinsProfilesWithNotesOnId(@TempDir Path tempDir) throws Exception {
+        Path profiles = copyFixture(tempDir, "profiles.csv");
+        Path notes = Files.write(tempDir.resolve("notes.csv"),
+                List.of("id,note", "1,veteran", "5,new", "5,returning", "99,unknown"));
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                profiles.toString(), notes.toString(), "--on", "id", "--fields", "profiles=data.title",
+                "-e", "hex", "-f", "ndjson", "-o", outFile.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(3, lines.size(), lines.toString());
+        assertEquals("{\"key\":\"1\",\"profiles\":{\"data.title\":\"Governor\"},"
+                + "\"notes\":{\"id\":\"1\",\"note\":\"veteran\"}}", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"key\":\"5\",\"profiles\":{"), lines.get(1));
+        assertTrue(lines.get(1).endsWith("\"notes\":{\"id\":\"5\",\"note\":\"new\"}}"), lines.get(1));
+        assertTrue(lines.get(2).endsWith("\"notes\":{\"id\":\"5\",\"note\":\"returning\"}}"), lines.get(2));
+    }
+
+    @Test
+    void rejectsFieldsOfNoInput(@TempDir Path tempDir) throws Exception {
+        Path first = copyFixture(tempDir, "first.csv");
+        Path second = copyFixture(tempDir, "second.csv");
+
+        int exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                first.toString(), second.toString(), "--on", "id", "--fields", "third=data.title", "-e", "hex");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void rejectsOneKeyPerInputMismatch(@TempDir Path tempDir) throws Exception {
+        Path first = copyFixture(tempDir, "first.csv");
+        Path second = copyFixture(tempDir, "second.csv");
+        Path third = copyFixture(tempDir, "third.csv");
+
+        int exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                first.toString(), second.toString(), third.toString(), "--on", "id", "--on", "id", "-e", "hex");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void skipsRowsWithSeveralValuesAtTheKeyPath(@TempDir Path tempDir) throws Exception {
+        // Every profile twice, so that 'title' is found in both decoded columns
+        List<String> lines = Files.readAllLines(copyFixture(tempDir, "source.csv"));
+        List<String> doubled = new ArrayList<>(List.of(lines.get(0) + ",copy"));
+        for (String line : lines.subList(1, lines.size())) {
+            doubled.add(line + "," + line.substring(line.indexOf(',') + 1));
+        }
+        Path profiles = Files.write(tempDir.resolve("profiles.csv"), doubled);
+        Path titles = Files.write(tempDir.resolve("titles.csv"), List.of("title,rank", "Governor,3"));
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                profiles.toString(), titles.toString(), "--on", "title", "--on", "title",
+                "-e", "hex", "-f", "ndjson", "-o", outFile.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertEquals(List.of(), Files.readAllLines(outFile), "No key should be picked from several values");
+
+        exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                profiles.toString(), titles.toString(), "--on", "data.title", "--on", "title",
+                "-e", "hex", "-f", "ndjson", "-o", outFile.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertFalse(Files.readAllLines(outFile).isEmpty(), "One decoded column has a single title");
+    }
+
+    @Test
+    void rejectsAnInputNamedLikeTheKeyField(@TempDir Path tempDir) throws Exception {
+        Path first = copyFixture(tempDir, "first.csv");
+        Path key = copyFixture(tempDir, "key.csv");
+
+        int exitCode = new CommandLine(JoinCommand.class, factory).execute(
+                first.toString(), key.toString(), "--on", "id", "-e", "hex");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void namesInputsAfterTheirFiles() {
+        assertEquals("armies", JoinCommand.nameOf(new File("exports/armies.csv.gz")));
+        assertEquals("armies", JoinCommand.nameOf(new File("armies.csv")));
+        assertEquals("armies.tsv", JoinCommand.nameOf(new File("armies.tsv")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class LookupCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    private Path indexedFixture(Path dir, String... keys) throws Exception {
+        Path source = Path.of(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).toURI());
+        Path csv = Files.copy(source, dir.resolve("profiles.csv"));
+        List<String> args = new ArrayList<>(List.of(csv.toString(), "-e", "hex", "--progress-interval", "0"));
+        for (String key : keys) {
+            args.add("--key");
+            args.add(key);
+        }
+        assertEquals(0, new CommandLine(IndexCommand.class, factory).execute(args.toArray(String[]::new)));
+        return csv;
+    }
+
+    @Test
+    void decodesRowsWithFieldValue(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir, "faction", "title");
+        assertTrue(Files.exists(tempDir.resolve("profiles.csv.faction.key")));
+        Path outFile = tempDir.resolve("found.ndjson");
+
+        int exitCode = new CommandLine(LookupCommand.class, factory).execute(
+                csv.toString(), "--field", "title=Governor", "-f", "ndjson", "-o", outFile.toString());
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"id\":\"1\""), lines.get(0));
+        assertTrue(lines.get(0).contains("\"faction\":3"), lines.get(0));
+    }
+
+    @Test
+    void combinesConditions(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir, "faction", "title");
+        Path outFile = tempDir.resolve("found.ndjson");
+
+        int exitCode = new CommandLine(LookupCommand.class, factory).execute(
+                csv.toString(), "--field", "faction=3", "--field", "title=Commander",
+                "-f", "ndjson", "-o", outFile.toString());
+
+        assertEquals(0, exitCode);
+        assertEquals(List.of(), Files.readAllLines(outFile));
+    }
+
+    @Test
+    void requiresIndexedField(@TempDir Path tempDir) throws Exception {
+        Path csv = indexedFixture(tempDir);
+
+        int exitCode = new CommandLine(LookupCommand.class, factory).execute(csv.toString(), "--field", "faction=3");
+
+        assertEquals(1, exitCode);
+    }
+}
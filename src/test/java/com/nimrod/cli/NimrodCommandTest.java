@@ -0,0 +1,349 @@
+package com.nimrod.cli;
+
+import com.nimrod.progress.Checkpoint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class NimrodCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    private Path copyFixture(Path dir, String name) throws Exception {
+        Path source = Path.of(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).toURI());
+        return Files.copy(source, dir.resolve(name));
+    }
+
+    @Test
+    void decodesDirectoryIntoCombinedStream(@TempDir Path tempDir) throws Exception {
+        Path inputs = Files.createDirectories(tempDir.resolve("exports"));
+        copyFixture(inputs, "a.csv");
+        copyFixture(inputs, "b.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", inputs.toString(), "-e", "hex", "-f", "ndjson",
+                "-o", outFile.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(14, lines.size());
+        assertEquals(7, lines.stream().filter(l -> l.contains("a.csv")).count());
+        assertEquals(7, lines.stream().filter(l -> l.contains("b.csv")).count());
+        assertTrue(lines.stream().allMatch(l -> l.contains("\"_type\":\"FbsDbPlayerProfile\"")));
+    }
+
+    @Test
+    void writesOneOutputPerInput(@TempDir Path tempDir) throws Exception {
+        Path first = copyFixture(tempDir, "first.csv");
+        Path second = copyFixture(tempDir, "second.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", first.toString(), second.toString(), "-e", "hex",
+                "-f", "compact", "--per-file", "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        for (String name : List.of("first.json", "second.json")) {
+            String json = Files.readString(tempDir.resolve(name)).strip();
+            assertTrue(json.startsWith("["), name + " should be a JSON array");
+            assertTrue(json.contains("\"Governor\""));
+            assertFalse(json.contains("_file"), "Per-file output should not tag the source");
+        }
+    }
+
+    @Test
+    void keepsRowOrderForSingleInput(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson",
+                "-o", outFile.toString(), "--threads", "4", "--progress-interval", "0");
+
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(7, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"id\":\"" + List.of(0, 1, 2, 5, 59, 31, 40).get(i) + "\""),
+                    "Row " + i + " out of order: " + lines.get(i));
+        }
+    }
+
+    @Test
+    void decodesOnlySelectedRows(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", outFile.toString(),
+                "--skip", "2", "--limit", "3", "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"id\":\"" + List.of(2, 5, 59).get(i) + "\""), lines.get(i));
+        }
+    }
+
+    @Test
+    void sampleAndSamplePerTypeAreExclusive(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "--sample", "2", "--sample-per-type", "1");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void followWritesNdjsonUntilIdle(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "events.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", outFile.toString(),
+                "--follow", "--poll-interval", "50", "--idle-timeout", "1", "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertEquals(7, Files.readAllLines(outFile).size());
+    }
+
+    @Test
+    void followRequiresNdjson(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "events.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "--follow", "-f", "pretty");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void resumesFromCheckpoint(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path expected = tempDir.resolve("expected.ndjson");
+        new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", expected.toString(),
+                "--progress-interval", "0");
+        List<String> lines = Files.readAllLines(expected);
+
+        // An interrupted run: three rows committed, a fourth half written.
+        String csv = Files.readString(input);
+        int offset = -1;
+        for (int i = 0; i < 4; i++) {
+            offset = csv.indexOf('\n', offset + 1);
+        }
+        String committed = String.join("\n", lines.subList(0, 3)) + "\n";
+        Path outFile = tempDir.resolve("out.ndjson");
+        Files.writeString(outFile, committed + lines.get(3).substring(0, 10));
+        Path checkpoint = tempDir.resolve("run.checkpoint");
+        new Checkpoint(input.toFile().getAbsolutePath(), offset + 1, 3,
+                outFile.toFile().getAbsolutePath(), committed.length(), 0).save(checkpoint);
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", outFile.toString(),
+                "--checkpoint", checkpoint.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertEquals(lines, Files.readAllLines(outFile));
+        assertFalse(Files.exists(checkpoint), "Checkpoint should be removed once the run completes");
+    }
+
+    @Test
+    void checkpointRequiresNdjsonFile(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-f", "pretty", "-o", tempDir.resolve("out.json").toString(),
+                "--checkpoint", tempDir.resolve("run.checkpoint").toString());
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void writesFailingRowsToDeadLetterFile(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        List<String> lines = Files.readAllLines(input);
+        // Row 3: a blob with an unknown file_identifier; row 5: text that is not hex at all
+        lines.set(3, lines.get(3).split(",")[0] + ",0x0C00000046425858");
+        lines.set(5, lines.get(5).split(",")[0] + ",NULL");
+        Files.write(input, lines);
+        Path outFile = tempDir.resolve("out.ndjson");
+        Path deadLetter = tempDir.resolve("failed.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "--column", "data", "-e", "hex", "-f", "ndjson",
+                "-o", outFile.toString(), "--dead-letter", deadLetter.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertEquals(5, Files.readAllLines(outFile).size());
+        List<String> letters = Files.readAllLines(deadLetter);
+        assertEquals(2, letters.size());
+        String unmatched = letters.stream().filter(l -> l.contains("\"row\":3")).findFirst().orElseThrow();
+        assertTrue(unmatched.contains("file_identifier 'FBXX'"), unmatched);
+        assertTrue(unmatched.contains("\"blob\":"), unmatched);
+        String notHex = letters.stream().filter(l -> l.contains("\"row\":5")).findFirst().orElseThrow();
+        assertTrue(notHex.contains("\"reason\":\"not valid hex\""), notHex);
+        assertTrue(notHex.contains("\"cell\":\"NULL\""), notHex);
+    }
+
+    @Test
+    void numbersRowsByTheirRecordInTheFile(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        List<String> lines = Files.readAllLines(input);
+        lines.set(5, lines.get(5).split(",")[0] + ",NULL");
+        Files.write(input, lines);
+        Path deadLetter = tempDir.resolve("failed.ndjson");
+
+        for (String[] selection : List.of(new String[]{"--skip", "2"}, new String[]{"--sample", "7"})) {
+            List<String> args = new ArrayList<>(List.of("--csv", input.toString(), "--column", "data", "-e", "hex",
+                    "-f", "ndjson", "-o", tempDir.resolve("out.ndjson").toString(),
+                    "--dead-letter", deadLetter.toString(), "--progress-interval", "0"));
+            args.addAll(List.of(selection));
+
+            assertEquals(0, new CommandLine(NimrodCommand.class, factory).execute(args.toArray(String[]::new)));
+            List<String> letters = Files.readAllLines(deadLetter);
+            assertEquals(1, letters.size(), String.join(" ", selection));
+            assertTrue(letters.get(0).contains("\"row\":5,"), letters.get(0));
+        }
+    }
+
+    @Test
+    void resumesDeadLettersFromCheckpoint(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        List<String> lines = Files.readAllLines(input);
+        lines.set(2, lines.get(2).split(",")[0] + ",NULL");
+        lines.set(5, lines.get(5).split(",")[0] + ",NULL");
+        Files.write(input, lines);
+        Path outFile = tempDir.resolve("out.ndjson");
+        Path deadLetter = tempDir.resolve("failed.ndjson");
+        String[] args = {"--csv", input.toString(), "--column", "data", "-e", "hex", "-f", "ndjson",
+                "-o", outFile.toString(), "--dead-letter", deadLetter.toString(), "--progress-interval", "0"};
+        assertEquals(0, new CommandLine(NimrodCommand.class, factory).execute(args));
+        List<String> output = Files.readAllLines(outFile);
+        List<String> letters = Files.readAllLines(deadLetter);
+        assertEquals(2, letters.size());
+
+        // An interrupted run: three rows committed, row 5's letter written after the checkpoint.
+        String csv = Files.readString(input);
+        int offset = -1;
+        for (int i = 0; i < 4; i++) {
+            offset = csv.indexOf('\n', offset + 1);
+        }
+        String committed = String.join("\n", output.subList(0, 2)) + "\n";
+        Files.writeString(outFile, committed);
+        String committedLetters = letters.get(0) + "\n";
+        Files.writeString(deadLetter, committedLetters + letters.get(1) + "\n");
+        Path checkpoint = tempDir.resolve("run.checkpoint");
+        new Checkpoint(input.toFile().getAbsolutePath(), offset + 1, 3, outFile.toFile().getAbsolutePath(),
+                committed.length(), committedLetters.getBytes(StandardCharsets.UTF_8).length).save(checkpoint);
+
+        List<String> resumed = new ArrayList<>(List.of(args));
+        resumed.addAll(List.of("--checkpoint", checkpoint.toString()));
+        assertEquals(0, new CommandLine(NimrodCommand.class, factory).execute(resumed.toArray(String[]::new)));
+
+        assertEquals(output, Files.readAllLines(outFile));
+        assertEquals(letters, Files.readAllLines(deadLetter), "Letters past the checkpoint must not repeat");
+    }
+
+    @Test
+    void writesTransformOutputs(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", outFile.toString(),
+                "--transform", "select(.id != \"0\") | {id, type: .data._type}", "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(6, lines.size());
+        assertEquals("{\"id\":\"1\",\"type\":\"FbsDbPlayerProfile\"}", lines.get(0));
+    }
+
+    @Test
+    void rejectsInvalidTransform(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "--transform", ".data | sort_by(.id)");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void sortsOutputByField(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path outFile = tempDir.resolve("out.ndjson");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", outFile.toString(),
+                "--sort-by", "id", "--sort-memory", "1k", "--sort-dir", tempDir.toString(),
+                "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<String> lines = Files.readAllLines(outFile);
+        assertEquals(7, lines.size());
+        // A string column sorts as text
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"id\":\"" + List.of(0, 1, 2, 31, 40, 5, 59).get(i) + "\""), lines.get(i));
+        }
+    }
+
+    @Test
+    void rejectsNegativeLimits(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "--max-vector", "-1");
+
+        assertEquals(1, exitCode);
+    }
+
+    @Test
+    void writesFlightRecording(@TempDir Path tempDir) throws Exception {
+        Path input = copyFixture(tempDir, "profiles.csv");
+        Path recording = tempDir.resolve("nimrod.jfr");
+
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", input.toString(), "-e", "hex", "-f", "ndjson", "-o", tempDir.resolve("out.ndjson").toString(),
+                "--jfr", recording.toString(), "--slow-row", "0", "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recording);
+        List<RecordedEvent> decoded = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.nimrod.FlatBufferDecode")).toList();
+        assertEquals(7, decoded.size());
+        assertTrue(decoded.stream().allMatch(e -> "FbsDbPlayerProfile".equals(e.getString("type"))));
+        assertEquals(7, events.stream().filter(e -> e.getEventType().getName().equals("com.nimrod.SlowRow")).count());
+        assertEquals(7, events.stream().filter(e -> e.getEventType().getName().equals("com.nimrod.JsonWrite")).count());
+    }
+
+    @Test
+    void failsOnMissingInput(@TempDir Path tempDir) {
+        int exitCode = new CommandLine(NimrodCommand.class, factory).execute(
+                "--csv", tempDir.resolve("missing.csv").toString());
+
+        assertNotEquals(0, exitCode);
+    }
+}
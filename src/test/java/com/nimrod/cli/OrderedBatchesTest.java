@@ -0,0 +1,85 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedBatchesTest {
+
+    @Test
+    void deliversResultsInInputOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Integer> results = new ArrayList<>();
+            var batches = new OrderedBatches<Integer, Integer>(pool, 7, 3, i -> {
+                sleepBriefly();
+                return i * 2;
+            }, results::add);
+
+            for (int i = 0; i < 100; i++) {
+                batches.add(i);
+            }
+            batches.finish();
+
+            assertEquals(IntStream.range(0, 100).map(i -> i * 2).boxed().toList(), results);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void propagatesWorkerFailures() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            var batches = new OrderedBatches<Integer, Integer>(pool, 2, 1, i -> {
+                if (i == 5) {
+                    throw new IllegalStateException("boom");
+                }
+                return i;
+            }, r -> { });
+
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () -> {
+                for (int i = 0; i < 10; i++) {
+                    batches.add(i);
+                }
+                batches.finish();
+            });
+            assertEquals("boom", ex.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void propagatesSinkFailures() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            var batches = new OrderedBatches<Integer, Integer>(pool, 1, 1, i -> i, r -> {
+                throw new IOException("disk full");
+            });
+
+            assertThrows(IOException.class, () -> {
+                batches.add(1);
+                batches.finish();
+            });
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleepBriefly() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SizesTest {
+
+    @Test
+    void parsesBinarySuffixes() {
+        assertEquals(4096, Sizes.parse("4096", "--size"));
+        assertEquals(512L << 10, Sizes.parse("512k", "--size"));
+        assertEquals(500L << 20, Sizes.parse(" 500M ", "--size"));
+        assertEquals(4L << 30, Sizes.parse("4g", "--size"));
+    }
+
+    @Test
+    void rejectsWhatIsNotAPositiveSize() {
+        for (String text : new String[]{"", "m", "0", "-1k", "1.5g", "4t", "9999999999g"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> Sizes.parse(text, "--memory"), text);
+            assertTrue(e.getMessage().startsWith("Invalid --memory '" + text + "'"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.nimrod.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import picocli.CommandLine;
+import picocli.CommandLine.IFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class VerifyCommandTest {
+
+    @Autowired
+    private IFactory factory;
+
+    private Path fixture() throws Exception {
+        return Path.of(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).toURI());
+    }
+
+    @Test
+    void reportsNothingForSoundExport(@TempDir Path tempDir) throws Exception {
+        Path report = tempDir.resolve("report.tsv");
+
+        int exitCode = new CommandLine(VerifyCommand.class, factory).execute(
+                fixture().toString(), "-e", "hex", "-o", report.toString(), "--progress-interval", "0");
+
+        assertEquals(0, exitCode);
+        assertEquals(List.of("file\trow\tcolumn\ttype\tproblem"), Files.readAllLines(report));
+    }
+
+    @Test
+    void reportsTruncatedBlob(@TempDir Path tempDir) throws Exception {
+        // Row 2 (id 1) ends with its title "Governor"; cut the string off
+        List<String> lines = new ArrayList<>(Files.readAllLines(fixture()));
+        String row = lines.get(2);
+        lines.set(2, row.substring(0, row.length() - 24));
+        Path csv = Files.write(tempDir.resolve("profiles.csv"), lines);
+        Path report = tempDir.resolve("report.tsv");
+
+        int exitCode = new CommandLine(VerifyCommand.class, factory).execute(
+                csv.toString(), "-e", "hex", "-o", report.toString(), "--progress-interval", "0");
+
+        assertEquals(1, exitCode);
+        List<String> reported = Files.readAllLines(report);
+        assertEquals(2, reported.size(), reported.toString());
+        assertTrue(reported.get(1).startsWith(csv + "\t2\tdata\tFbsDbPlayerProfile\ttitle: string at "),
+                reported.get(1));
+    }
+}
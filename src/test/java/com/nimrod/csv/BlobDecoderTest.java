@@ -0,0 +1,150 @@
+package com.nimrod.csv;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobDecoderTest {
+
+    private static final Random RANDOM = new Random(42);
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void vectorModuleIsLoadedInTests() {
+        // build.gradle.kts adds the incubator module to the test JVM, so the vector paths below are exercised
+        assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+    }
+
+    @Test
+    void base64MatchesJdkForEveryLengthAndPadding() {
+        for (int length = 0; length < 3000; length += length < 600 ? 1 : 37) {
+            byte[] bytes = randomBytes(length);
+            String padded = Base64.getEncoder().encodeToString(bytes);
+            String unpadded = Base64.getEncoder().withoutPadding().encodeToString(bytes);
+
+            for (boolean vector : new boolean[]{true, false}) {
+                assertArrayEquals(bytes, BlobDecoder.base64(padded, vector), "padded, length " + length);
+                assertArrayEquals(bytes, BlobDecoder.base64(unpadded, vector), "unpadded, length " + length);
+            }
+        }
+    }
+
+    @Test
+    void base64DecodesEveryAlphabetCharacterInEveryLane() {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder text = new StringBuilder();
+        for (int shift = 0; shift < 67; shift++) {
+            text.append(alphabet, shift % 64, 64).append(alphabet, 0, shift % 64);
+        }
+
+        assertArrayEquals(Base64.getDecoder().decode(text.toString()), BlobDecoder.base64(text.toString(), true));
+    }
+
+    @Test
+    void base64RejectsWhatTheJdkRejects() {
+        String valid = Base64.getEncoder().encodeToString(randomBytes(1200));
+        for (int at : new int[]{0, 17, 500, valid.length() - 6, valid.length() - 1}) {
+            for (char bad : new char[]{'!', ' ', '-', '_', 'é', '='}) {
+                String broken = valid.substring(0, at) + bad + valid.substring(at + 1);
+                boolean jdkAccepts = accepts(() -> Base64.getDecoder().decode(broken));
+
+                for (boolean vector : new boolean[]{true, false}) {
+                    if (jdkAccepts) {
+                        assertArrayEquals(Base64.getDecoder().decode(broken), BlobDecoder.base64(broken, vector));
+                    } else {
+                        assertNull(BlobDecoder.base64(broken, vector), "'" + bad + "' at " + at);
+                    }
+                }
+                if (!jdkAccepts && bad != ' ') {
+                    assertThrows(IllegalArgumentException.class, () -> BlobDecoder.decode(broken, Encoding.base64));
+                }
+            }
+        }
+        assertNull(BlobDecoder.base64(valid + "A", true));
+        assertNull(BlobDecoder.base64(valid.substring(3), true));
+        assertNull(BlobDecoder.base64("====", false));
+        assertNull(BlobDecoder.base64("AB=", false));
+        assertArrayEquals(new byte[]{0}, BlobDecoder.base64("AA==", false));
+        assertArrayEquals(new byte[0], BlobDecoder.base64("", false));
+    }
+
+    @Test
+    void hexMatchesHexFormatForEveryLength() {
+        for (int length = 0; length < 3000; length += length < 600 ? 1 : 37) {
+            byte[] bytes = randomBytes(length);
+            String lower = HexFormat.of().formatHex(bytes);
+            String upper = HexFormat.of().withUpperCase().formatHex(bytes);
+
+            for (boolean vector : new boolean[]{true, false}) {
+                assertArrayEquals(bytes, BlobDecoder.hex(lower, vector), "lower, length " + length);
+                assertArrayEquals(bytes, BlobDecoder.hex("0x" + upper, vector), "0x upper, length " + length);
+            }
+        }
+    }
+
+    @Test
+    void hexSkipsSeparatorsAnywhere() {
+        byte[] bytes = randomBytes(700);
+        String hex = HexFormat.of().formatHex(bytes);
+        String separated = hex.substring(0, 600) + "-\n " + hex.substring(600) + " ";
+
+        assertArrayEquals(bytes, BlobDecoder.hex("0X" + separated, true));
+        assertArrayEquals(bytes, BlobDecoder.hex(HexFormat.ofDelimiter("-").formatHex(bytes), true));
+    }
+
+    @Test
+    void hexRejectsBadDigitsAndOddLength() {
+        String hex = HexFormat.of().formatHex(randomBytes(700));
+
+        for (int at : new int[]{0, 31, 32, 700, hex.length() - 1}) {
+            String broken = hex.substring(0, at) + 'g' + hex.substring(at + 1);
+            assertNull(BlobDecoder.hex(broken, true));
+            assertNull(BlobDecoder.hex(broken, false));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> BlobDecoder.decode(broken, Encoding.hex));
+            assertTrue(e.getMessage().contains("at index " + at), e.getMessage());
+        }
+        assertNull(BlobDecoder.hex(hex + "a", true));
+        assertNull(BlobDecoder.hex(hex.substring(1) + "  ", true));
+        assertThrows(IllegalArgumentException.class, () -> BlobDecoder.decode(hex + "a", Encoding.hex));
+    }
+
+    @Test
+    void tryDecodeReturnsNullForPlainText() {
+        for (String text : List.of("(null)", "2024-05-01 12:00:00", "Governor Smith", "{\"a\": 1}")) {
+            assertNull(BlobDecoder.tryDecode(text, Encoding.base64), text);
+        }
+        for (String text : List.of("NULL", "Governor", "0xNOPE", "12:00")) {
+            assertNull(BlobDecoder.tryDecode(text, Encoding.hex), text);
+        }
+    }
+
+    @Test
+    void decodeStripsTheCellFirst() {
+        byte[] bytes = randomBytes(1000);
+
+        assertArrayEquals(bytes, BlobDecoder.decode("  " + Base64.getEncoder().encodeToString(bytes) + "\n", Encoding.base64));
+        assertArrayEquals(bytes, BlobDecoder.decode(" 0x" + HexFormat.of().formatHex(bytes) + " ", Encoding.hex));
+    }
+
+    private static boolean accepts(Runnable decode) {
+        try {
+            decode.run();
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.nimrod.csv;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobPeekTest {
+
+    private static final byte[] BLOB = "\u0010\u0000\u0000\u0000FBPPrest of the buffer".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    void readsIdentifierInEveryEncoding() {
+        assertEquals("FBPP", BlobPeek.fileIdentifier(Base64.getEncoder().encodeToString(BLOB), Encoding.base64));
+        assertEquals("FBPP", BlobPeek.fileIdentifier("0x" + HexFormat.of().formatHex(BLOB), Encoding.hex));
+        assertEquals("FBPP", BlobPeek.fileIdentifier(" 10000000-46425050 ", Encoding.hex));
+        assertEquals("FBPP", BlobPeek.fileIdentifier(new String(BLOB, StandardCharsets.ISO_8859_1), Encoding.raw));
+    }
+
+    @Test
+    void inflatesOnlyGzippedBlobs() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(BLOB);
+        }
+
+        assertEquals("FBPP", BlobPeek.fileIdentifier(
+                Base64.getEncoder().encodeToString(gzipped.toByteArray()), Encoding.base64));
+    }
+
+    @Test
+    void returnsNoneForBrokenBlobs() {
+        assertEquals(BlobPeek.NONE, BlobPeek.fileIdentifier("AAEC", Encoding.base64));
+        assertEquals(BlobPeek.NONE, BlobPeek.fileIdentifier("not base64!", Encoding.base64));
+        assertEquals(BlobPeek.NONE, BlobPeek.fileIdentifier("0xZZ", Encoding.hex));
+    }
+}
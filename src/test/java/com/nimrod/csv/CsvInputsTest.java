@@ -0,0 +1,64 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvInputsTest {
+
+    @Test
+    void expandsDirectoriesToSortedCsvFiles(@TempDir Path tempDir) throws Exception {
+        touch(tempDir.resolve("b.csv"));
+        touch(tempDir.resolve("a.csv"));
+        touch(tempDir.resolve("c.csv.gz"));
+        touch(tempDir.resolve("notes.txt"));
+        touch(tempDir.resolve("notes.txt.gz"));
+
+        List<File> files = CsvInputs.resolve(List.of(tempDir.toString()));
+
+        assertEquals(List.of(tempDir.resolve("a.csv").toFile(), tempDir.resolve("b.csv").toFile(),
+                tempDir.resolve("c.csv.gz").toFile()), files);
+    }
+
+    @Test
+    void expandsGlobs(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("sub"));
+        touch(tempDir.resolve("army.csv"));
+        touch(tempDir.resolve("province.csv"));
+        touch(tempDir.resolve("sub/player.csv"));
+
+        assertEquals(List.of(tempDir.resolve("army.csv").toFile()),
+                CsvInputs.resolve(List.of(tempDir + "/a*.csv")));
+        assertEquals(List.of(tempDir.resolve("sub/player.csv").toFile()),
+                CsvInputs.resolve(List.of(tempDir + "/**/*.csv")));
+    }
+
+    @Test
+    void keepsArgumentOrderAndDropsDuplicates(@TempDir Path tempDir) throws Exception {
+        Path first = touch(tempDir.resolve("z.csv"));
+        Path second = touch(tempDir.resolve("a.csv"));
+
+        List<File> files = CsvInputs.resolve(List.of(first.toString(), second.toString(), first.toString()));
+
+        assertEquals(List.of(first.toFile(), second.toFile()), files);
+    }
+
+    @Test
+    void rejectsMissingInputs(@TempDir Path tempDir) {
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvInputs.resolve(List.of(tempDir.resolve("missing.csv").toString())));
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvInputs.resolve(List.of(tempDir + "/*.csv")));
+    }
+
+    private static Path touch(Path path) throws Exception {
+        Files.writeString(path, "id,data\n");
+        return path;
+    }
+}
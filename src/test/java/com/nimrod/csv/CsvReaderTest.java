@@ -2,14 +2,38 @@ package com.nimrod.csv;
 
 import com.nimrod.cli.NimrodCommand.Encoding;
 import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.jfr.JfrRecording;
+import com.nimrod.progress.ProgressTracker;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +82,300 @@ class CsvReaderTest {
         }
     }
 
+    @Test
+    void streamsRowsAndReportsBytesConsumed() throws Exception {
+        File csv = resource("player-profiles-hex.csv");
+        ProgressTracker progress = new ProgressTracker(csv.length());
+        List<CsvRow> rows = new ArrayList<>();
+
+        long count = csvReader.stream(csv, new String[]{"data"}, Encoding.hex, progress, rows::add);
+
+        assertEquals(7, count);
+        assertEquals(7, rows.size());
+        assertEquals(csv.length(), progress.bytesRead(),
+                "Every byte of the file should be accounted for");
+    }
+
+    @Test
+    void streamsGzipCompressedCsv(@TempDir Path tempDir) throws Exception {
+        File plain = resource("player-profiles-hex.csv");
+        File gz = tempDir.resolve("player-profiles-hex.csv.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gz))) {
+            Files.copy(plain.toPath(), out);
+        }
+        ProgressTracker progress = new ProgressTracker(gz.length());
+        List<CsvRow> rows = new ArrayList<>();
+
+        long count = csvReader.stream(gz, new String[]{"data"}, Encoding.hex, progress, rows::add);
+
+        assertEquals(7, count);
+        List<CsvRow> expected = csvReader.read(plain, new String[]{"data"}, Encoding.hex);
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(expected.get(i).stringColumns(), rows.get(i).stringColumns());
+            assertEquals(expected.get(i).binaryColumns(), rows.get(i).binaryColumns());
+        }
+        assertEquals(gz.length(), progress.bytesRead(),
+                "Progress should count compressed bytes");
+    }
+
+    @Test
+    void followsRowsAppendedAfterStart(@TempDir Path tempDir) throws Exception {
+        List<String> lines = Files.readAllLines(resource("player-profiles-hex.csv").toPath());
+        Path file = tempDir.resolve("growing.csv");
+        Files.write(file, lines.subList(0, 4));
+
+        List<CsvRow> rows = new CopyOnWriteArrayList<>();
+        AtomicInteger caughtUp = new AtomicInteger();
+        Thread appender = new Thread(() -> {
+            try {
+                while (caughtUp.get() == 0) {
+                    Thread.sleep(10);
+                }
+                Files.write(file, lines.subList(4, lines.size()), StandardOpenOption.APPEND);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        appender.start();
+
+        long count = csvReader.follow(file.toFile(), new String[]{"data"}, Encoding.hex,
+                Duration.ofMillis(20), Duration.ofMillis(500), ProgressTracker.none(),
+                rows::add, caughtUp::incrementAndGet);
+        appender.join();
+
+        assertEquals(lines.size() - 1, count);
+        assertEquals(lines.size() - 1, rows.size());
+        assertTrue(caughtUp.get() >= 2, "Should report catching up before and after the append");
+        assertEquals("0", rows.get(0).stringColumns().get("id"));
+        assertTrue(rows.stream().allMatch(r -> r.binaryColumns().containsKey("data")));
+    }
+
+    @Test
+    void resumesFromAReportedChunkOffset(@TempDir Path tempDir) throws Exception {
+        StringBuilder csv = new StringBuilder("id,note,data\n");
+        for (int i = 0; i < 40_000; i++) {
+            String note = i % 5 == 0 ? "\"multi\nline, " + i + "\"" : "note " + i;
+            csv.append(i).append(',').append(note).append(",AAECAwQFBgcICQ==\n");
+        }
+        File file = tempDir.resolve("large.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+
+        List<CsvRow> all = new ArrayList<>();
+        long count = csvReader.streamFrom(file, null, Encoding.base64, 0, 0, ProgressTracker.none(), all::add);
+        assertEquals(40_000, count);
+        List<Integer> marked = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i).endOffset() != CsvRow.NO_OFFSET) {
+                marked.add(i);
+            }
+        }
+        assertTrue(marked.size() > 1, "A file over a megabyte should be read in several chunks");
+        assertEquals(file.length(), all.get(all.size() - 1).endOffset());
+
+        int resumeAfter = marked.get(0);
+        List<CsvRow> rest = new ArrayList<>();
+        csvReader.streamFrom(file, null, Encoding.base64, all.get(resumeAfter).endOffset(), resumeAfter + 1,
+                ProgressTracker.none(), rest::add);
+
+        assertEquals(all.size() - resumeAfter - 1, rest.size());
+        assertEquals(all.get(resumeAfter + 1).stringColumns(), rest.get(0).stringColumns());
+        assertEquals(all.get(all.size() - 1).stringColumns(), rest.get(rest.size() - 1).stringColumns());
+        assertTrue(rest.get(0).binaryColumns().containsKey("data"));
+    }
+
+    @Test
+    void locatedRowsCanBeReadBackByRange(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("notes.csv").toFile();
+        Files.writeString(file.toPath(), "id,note,data\n"
+                + "1,\"multi\nline\",AAECAwQFBgcICQ==\n"
+                + "\n"
+                + "2,\"caf\u00e9, \"\"quoted\"\"\",AAECAwQFBgcICQ==\n"
+                + "3,last,AAECAwQFBgcICQ==");
+
+        List<CsvRow> rows = new ArrayList<>();
+        List<CsvReader.Range> ranges = new ArrayList<>();
+        long count = csvReader.streamLocated(file, null, Encoding.base64, ProgressTracker.none(),
+                (row, offset, length) -> {
+                    rows.add(row);
+                    ranges.add(new CsvReader.Range(offset, offset + length, rows.size()));
+                });
+
+        assertEquals(3, count);
+        assertEquals(file.length(), ranges.get(2).to());
+        for (int i = 0; i < rows.size(); i++) {
+            List<CsvRow> single = new ArrayList<>();
+            csvReader.streamRanges(file, new String[]{"data"}, Encoding.base64, List.of(ranges.get(i)), single::add);
+            assertEquals(1, single.size());
+            assertEquals(rows.get(i).stringColumns(), single.get(0).stringColumns());
+            assertEquals(rows.get(i).binaryColumns(), single.get(0).binaryColumns());
+        }
+        assertEquals("caf\u00e9, \"quoted\"", rows.get(1).stringColumns().get("note"));
+    }
+
+    @Test
+    void rangesOutsideTheRowsAreRejected() {
+        File csv = resource("player-profiles-hex.csv");
+
+        assertThrows(IOException.class, () -> csvReader.streamRanges(csv, null, Encoding.hex,
+                List.of(new CsvReader.Range(0, 10, 1)), row -> { }));
+    }
+
+    @Test
+    void splitParsingMatchesSequentialParsing(@TempDir Path tempDir) throws Exception {
+        StringBuilder csv = new StringBuilder("id,note,data\n");
+        for (int i = 0; i < 200; i++) {
+            byte[] blob = new byte[16 + i % 7];
+            blob[0] = (byte) i;
+            String note = i % 3 == 0 ? "\"line one\nline \"\"two\"\", and three\"" : "note " + i;
+            csv.append(i).append(',').append(note).append(',')
+                    .append(Base64.getEncoder().encodeToString(blob)).append('\n');
+        }
+        File file = tempDir.resolve("split.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+
+        List<CsvRow> sequential = new ArrayList<>();
+        csvReader.stream(file, null, Encoding.base64, ProgressTracker.none(), sequential::add);
+
+        List<CsvRow> split = new ArrayList<>();
+        ProgressTracker progress = new ProgressTracker(file.length());
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            new CsvReader(1, 97).stream(file, null, Encoding.base64, workers, progress, split::add);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertEquals(200, split.size());
+        assertEquals(sequential.size(), split.size());
+        for (int i = 0; i < split.size(); i++) {
+            assertEquals(sequential.get(i).stringColumns(), split.get(i).stringColumns(),
+                    "Row " + i + " string columns should match");
+            ByteBuffer expected = sequential.get(i).binaryColumns().get("data");
+            assertEquals(expected, split.get(i).binaryColumns().get("data"),
+                    "Row " + i + " binary column should match");
+        }
+        assertEquals(file.length(), progress.bytesRead());
+    }
+
+    @Test
+    void splitParsingRecordsWhereEachChunkStarts(@TempDir Path tempDir) throws Exception {
+        // Every record is 22 bytes, so its chunk offset and number within the chunk locate it
+        StringBuilder csv = new StringBuilder("id,data\n");
+        for (int i = 1; i <= 100; i++) {
+            csv.append(String.format("%04d", i)).append(",AAECAwQFBgcICQ==\n");
+        }
+        File file = tempDir.resolve("split.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+        Path jfr = tempDir.resolve("split.jfr");
+
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try (JfrRecording ignored = JfrRecording.start(jfr, Duration.ofSeconds(1))) {
+            new CsvReader(1, 97).stream(file, null, Encoding.base64, workers, ProgressTracker.none(), row -> { });
+        } finally {
+            workers.shutdownNow();
+        }
+
+        List<Long> records = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(jfr)) {
+            if (event.getEventType().getName().equals("com.nimrod.CsvParse")) {
+                long chunkOffset = event.getLong("chunkOffset");
+                assertTrue(chunkOffset >= 8, "chunk offset " + chunkOffset);
+                records.add((chunkOffset - 8) / 22 + event.getLong("recordNumber"));
+            }
+        }
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().toList(), records.stream().sorted().toList());
+    }
+
+    @Test
+    void skipAndLimitStopReadingOnceSatisfied(@TempDir Path tempDir) throws Exception {
+        StringBuilder csv = new StringBuilder("id,data\n");
+        for (int i = 1; i <= 10; i++) {
+            csv.append(i).append(",AAECAwQFBgcICQ==\n");
+        }
+        csv.append("11,\"never closed\n");
+        File file = tempDir.resolve("head.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+
+        List<CsvRow> rows = new ArrayList<>();
+        long count = csvReader.stream(file, null, Encoding.base64, null, ProgressTracker.none(),
+                new RowSelection(2, 3, 0, 0, 0), rows::add);
+
+        assertEquals(3, count);
+        assertEquals(List.of("3", "4", "5"), rows.stream().map(r -> r.stringColumns().get("id")).toList());
+        assertTrue(rows.stream().allMatch(r -> r.binaryColumns().containsKey("data")));
+    }
+
+    @Test
+    void keepsCellsThatAreNotValidlyEncodedAsText(@TempDir Path tempDir) throws Exception {
+        File file = tempDir.resolve("mixed.csv").toFile();
+        Files.writeString(file.toPath(), "id,data\n1,AAECAwQFBgcICQ==\n2,(null)\n3,AAECAwQFBgcICQ==\n");
+
+        List<CsvRow> rows = csvReader.read(file, new String[]{"data"}, Encoding.base64);
+
+        assertEquals(3, rows.size());
+        assertTrue(rows.get(0).undecoded().isEmpty());
+        assertEquals("(null)", rows.get(1).stringColumns().get("data"));
+        assertFalse(rows.get(1).binaryColumns().containsKey("data"));
+        assertEquals(Map.of("data", "not valid base64"), rows.get(1).undecoded());
+        assertTrue(rows.get(2).binaryColumns().containsKey("data"));
+    }
+
+    @Test
+    void samplesUniformlyInFileOrder(@TempDir Path tempDir) throws Exception {
+        StringBuilder csv = new StringBuilder("id,data\n");
+        for (int i = 1; i <= 50; i++) {
+            csv.append(i).append(",AAECAwQFBgcICQ==\n");
+        }
+        File file = tempDir.resolve("sample.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+
+        List<CsvRow> first = new ArrayList<>();
+        csvReader.stream(file, null, Encoding.base64, null, ProgressTracker.none(),
+                new RowSelection(0, 0, 5, 0, 42), first::add);
+        List<CsvRow> again = new ArrayList<>();
+        csvReader.stream(file, null, Encoding.base64, null, ProgressTracker.none(),
+                new RowSelection(0, 0, 5, 0, 42), again::add);
+
+        List<Integer> ids = first.stream().map(r -> Integer.parseInt(r.stringColumns().get("id"))).toList();
+        assertEquals(5, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids, "Sample should keep file order");
+        assertEquals(first.stream().map(CsvRow::stringColumns).toList(),
+                again.stream().map(CsvRow::stringColumns).toList(), "Same seed, same sample");
+    }
+
+    @Test
+    void samplesPerFileIdentifier(@TempDir Path tempDir) throws Exception {
+        StringBuilder csv = new StringBuilder("id,data\n");
+        for (int i = 1; i <= 60; i++) {
+            byte[] blob = new byte[16];
+            System.arraycopy((i % 20 == 0 ? "RARE" : "MANY").getBytes(), 0, blob, 4, 4);
+            if (i % 2 == 0) {
+                ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+                try (OutputStream out = new GZIPOutputStream(gzipped)) {
+                    out.write(blob);
+                }
+                blob = gzipped.toByteArray();
+            }
+            csv.append(i).append(',').append(Base64.getEncoder().encodeToString(blob)).append('\n');
+        }
+        File file = tempDir.resolve("types.csv").toFile();
+        Files.writeString(file.toPath(), csv);
+
+        List<CsvRow> rows = new ArrayList<>();
+        csvReader.stream(file, null, Encoding.base64, null, ProgressTracker.none(),
+                new RowSelection(0, 0, 0, 2, 7), rows::add);
+
+        List<String> types = rows.stream().map(r -> {
+            ByteBuffer blob = r.binaryColumns().get("data");
+            byte[] identifier = new byte[4];
+            blob.get(blob.position() + 4, identifier);
+            return new String(identifier);
+        }).toList();
+        assertEquals(4, rows.size());
+        assertEquals(2, types.stream().filter("RARE"::equals).count());
+        assertEquals(2, types.stream().filter("MANY"::equals).count());
+    }
+
     @Test
     void preservesStringColumns() throws Exception {
         List<CsvRow> rows = csvReader.read(
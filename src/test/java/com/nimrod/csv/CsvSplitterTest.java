@@ -0,0 +1,94 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvSplitterTest {
+
+    private static final String CSV = """
+            id,note
+            1,plain
+            2,"multi
+            line
+            cell"
+            3,"quoted ""escaped"" text"
+            4,"a,b
+            c"
+            5,last
+            """;
+
+    @Test
+    void findsEndOfHeaderRecord(@TempDir Path tempDir) throws Exception {
+        Path file = write(tempDir, CSV);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals("id,note\n".length(), CsvSplitter.findRecordEnd(channel, 0, channel.size()));
+        }
+    }
+
+    @Test
+    void neverSplitsInsideQuotedCells(@TempDir Path tempDir) throws Exception {
+        Path file = write(tempDir, CSV);
+        byte[] bytes = Files.readAllBytes(file);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = CsvSplitter.findRecordEnd(channel, 0, channel.size());
+
+            // Every chunk size from 1 byte upwards must produce only real record starts
+            for (long chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+                List<Long> boundaries = CsvSplitter.split(channel, start, bytes.length, chunkSize, pool);
+                assertEquals(start, boundaries.get(0).longValue());
+                assertEquals(bytes.length, boundaries.get(boundaries.size() - 1).longValue());
+                for (int i = 1; i < boundaries.size() - 1; i++) {
+                    int offset = boundaries.get(i).intValue();
+                    String rest = new String(bytes, offset, bytes.length - offset, StandardCharsets.UTF_8);
+                    assertTrue(rest.matches("(?s)[0-9],.*"),
+                            "Chunk size " + chunkSize + " split mid-record at " + offset + ": " + rest);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void recordSpanningWholeWindowsIsKeptTogether(@TempDir Path tempDir) throws Exception {
+        String longCell = "x\n".repeat(100);
+        Path file = write(tempDir, "id,note\n1,\"" + longCell + "\"\n2,y\n");
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = CsvSplitter.findRecordEnd(channel, 0, channel.size());
+            List<Long> boundaries = CsvSplitter.split(channel, start, channel.size(), 16, pool);
+
+            long secondRecord = start + "1,\"".length() + longCell.length() + "\"\n".length();
+            assertEquals(List.of(start, secondRecord, channel.size()), boundaries);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void findsRecordBoundsSkippingEmptyLines() {
+        byte[] bytes = "1,\"a\nb\"\n\n2,c\r\n\r\n3,d".getBytes(StandardCharsets.UTF_8);
+
+        int[] bounds = CsvSplitter.recordBounds(bytes);
+
+        assertArrayEquals(new int[] {0, 8, 9, 14, 16, 19}, bounds);
+    }
+
+    private static Path write(Path dir, String content) throws Exception {
+        Path file = dir.resolve("split.csv");
+        Files.writeString(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTailTest {
+
+    private static void append(Path file, String text) throws Exception {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+
+    private static String text(CsvTail.Chunk chunk) {
+        return new String(chunk.bytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void handsOutOnlyCompleteRecords(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("events.csv"), "id,data\n1,aa\n2,b");
+
+        try (CsvTail tail = new CsvTail(file, Duration.ofMillis(10))) {
+            CsvTail.Chunk first = tail.poll();
+            assertEquals("id,data\n1,aa\n", text(first));
+            assertTrue(first.fromStart());
+            assertNull(tail.poll(), "The half-written record must wait");
+
+            append(file, "b\n3,cc\n");
+            CsvTail.Chunk second = tail.poll();
+            assertEquals("2,bb\n3,cc\n", text(second));
+            assertFalse(second.fromStart());
+            assertNull(tail.poll());
+        }
+    }
+
+    @Test
+    void keepsQuotedLineBreaksInsideOneRecord(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("events.csv"), "id,note\n1,\"line one\n");
+
+        try (CsvTail tail = new CsvTail(file, Duration.ofMillis(10))) {
+            assertEquals("id,note\n", text(tail.poll()));
+
+            append(file, "line \"\"two\"\"\"\n");
+            assertEquals("1,\"line one\nline \"\"two\"\"\"\n", text(tail.poll()));
+        }
+    }
+
+    @Test
+    void restartsFromTheHeaderAfterTruncation(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("events.csv"), "id,data\n1,aa\n2,bb\n");
+
+        try (CsvTail tail = new CsvTail(file, Duration.ofMillis(10))) {
+            tail.poll();
+            Files.writeString(file, "id,data\n9,zz\n");
+
+            CsvTail.Chunk chunk = tail.poll();
+            assertEquals("id,data\n9,zz\n", text(chunk));
+            assertTrue(chunk.fromStart());
+        }
+    }
+
+    @Test
+    void awaitChangeReturnsWithinThePollInterval(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("events.csv"), "id,data\n");
+
+        try (CsvTail tail = new CsvTail(file, Duration.ofMillis(50))) {
+            long start = System.nanoTime();
+            tail.awaitChange();
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        }
+    }
+}
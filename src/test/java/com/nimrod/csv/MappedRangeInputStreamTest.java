@@ -0,0 +1,42 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRangeInputStreamTest {
+
+    @Test
+    void readsRangeAcrossSeveralWindows(@TempDir Path tempDir) throws Exception {
+        byte[] data = new byte[1000];
+        new Random(5).nextBytes(data);
+        Path file = Files.write(tempDir.resolve("data.bin"), data);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = new MappedRangeInputStream(channel, 13, 990, 64)) {
+            assertEquals(data[13] & 0xFF, in.read());
+            assertArrayEquals(Arrays.copyOfRange(data, 14, 990), in.readAllBytes());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void emptyRangeEndsAtOnce(@TempDir Path tempDir) throws Exception {
+        Path file = Files.write(tempDir.resolve("data.bin"), new byte[10]);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = new MappedRangeInputStream(channel, 4, 4, 64)) {
+            assertEquals(0, in.available());
+            assertEquals(-1, in.read(new byte[8], 0, 8));
+        }
+    }
+}
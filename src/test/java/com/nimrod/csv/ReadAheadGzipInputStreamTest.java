@@ -0,0 +1,87 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadAheadGzipInputStreamTest {
+
+    @Test
+    void inflatesDataLargerThanTheReadAheadWindow() throws Exception {
+        byte[] data = new byte[ReadAheadGzipInputStream.BLOCK_SIZE * (ReadAheadGzipInputStream.QUEUE_CAPACITY + 3) + 123];
+        new Random(42).nextBytes(data);
+
+        try (InputStream in = new ReadAheadGzipInputStream(new ByteArrayInputStream(gzip(data)))) {
+            assertArrayEquals(data, in.readAllBytes());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void readsConcatenatedGzipMembersAsOneStream() throws Exception {
+        byte[] first = "id,data\n1,aa\n".getBytes();
+        byte[] second = "2,bb\n".getBytes();
+        ByteArrayOutputStream both = new ByteArrayOutputStream();
+        both.write(gzip(first));
+        both.write(gzip(second));
+
+        try (InputStream in = new ReadAheadGzipInputStream(new ByteArrayInputStream(both.toByteArray()))) {
+            assertEquals("id,data\n1,aa\n2,bb\n", new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void surfacesCorruptInputAsIOException() throws Exception {
+        byte[] compressed = gzip("id,data\n1,aa\n".repeat(1000).getBytes());
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        try (InputStream in = new ReadAheadGzipInputStream(new ByteArrayInputStream(truncated))) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void surfacesRuntimeFailuresOfTheSourceAsIOException() throws Exception {
+        byte[] compressed = gzip(new byte[ReadAheadGzipInputStream.BLOCK_SIZE * 4]);
+        InputStream failing = new ByteArrayInputStream(compressed) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > 100) {
+                    throw new IllegalStateException("source went away");
+                }
+                return super.read(b, off, Math.min(len, 64));
+            }
+        };
+
+        try (InputStream in = new ReadAheadGzipInputStream(failing)) {
+            IOException e = assertThrows(IOException.class, in::readAllBytes);
+            assertInstanceOf(IllegalStateException.class, e.getCause().getCause());
+        }
+    }
+
+    @Test
+    void closingEarlyStopsTheInflater() throws Exception {
+        byte[] data = new byte[ReadAheadGzipInputStream.BLOCK_SIZE * (ReadAheadGzipInputStream.QUEUE_CAPACITY * 2)];
+        InputStream in = new ReadAheadGzipInputStream(new ByteArrayInputStream(gzip(data)));
+        assertEquals(0, in.read());
+        in.close();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+}
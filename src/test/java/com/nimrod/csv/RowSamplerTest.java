@@ -0,0 +1,63 @@
+package com.nimrod.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowSamplerTest {
+
+    private static List<Integer> sample(int size, int items, long seed) {
+        RowSampler<Integer> sampler = new RowSampler<>(size, seed);
+        for (int i = 0; i < items; i++) {
+            sampler.offer(i, i, "");
+        }
+        return sampler.sample();
+    }
+
+    @Test
+    void keepsEverythingWhenThereAreFewerItems() {
+        assertEquals(List.of(0, 1, 2), sample(5, 3, 1));
+    }
+
+    @Test
+    void keepsRequestedSizeInOfferOrder() {
+        List<Integer> sample = sample(10, 100_000, 1);
+
+        assertEquals(10, sample.size());
+        assertEquals(sample.stream().sorted().distinct().toList(), sample);
+        assertEquals(sample, sample(10, 100_000, 1));
+    }
+
+    @Test
+    void everyItemIsEquallyLikely() {
+        int[] hits = new int[100];
+        int trials = 20_000;
+        for (int t = 0; t < trials; t++) {
+            sample(10, 100, t).forEach(i -> hits[i]++);
+        }
+        // Expected 2,000 each with a standard deviation of about 42
+        IntStream.range(0, 100).forEach(i ->
+                assertTrue(Math.abs(hits[i] - 2_000) < 250, "Item " + i + " drawn " + hits[i] + " times"));
+    }
+
+    @Test
+    void samplesEachKeySeparately() {
+        RowSampler<Integer> sampler = new RowSampler<>(3, 5);
+        for (int i = 0; i < 1_000; i++) {
+            sampler.offer(i, i, i % 100 == 0 ? "rare" : "common");
+        }
+
+        List<Integer> sample = sampler.sample();
+        assertEquals(6, sample.size());
+        assertEquals(3, sample.stream().filter(i -> i % 100 == 0).count());
+        assertEquals(Long.valueOf(990), sampler.seen().get("common"));
+    }
+
+    @Test
+    void rejectsEmptySample() {
+        assertThrows(IllegalArgumentException.class, () -> new RowSampler<>(0, 1));
+    }
+}
@@ -0,0 +1,115 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import com.google.flatbuffers.Table;
+
+import com.nimrod.flatbuffers.SchemaRegistry.SchemaEntry;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobGeneratorTest {
+
+    /** Shaped like flatc output, builders included. */
+    static final class Unit extends Table {
+        public Unit __assign(int i, ByteBuffer bb) { __reset(i, bb); return this; }
+        public String name() { int o = __offset(4); return o != 0 ? __string(o + bb_pos) : null; }
+        public int hp() { int o = __offset(6); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
+        public static void startUnit(FlatBufferBuilder builder) { builder.startTable(2); }
+        public static void addName(FlatBufferBuilder builder, int nameOffset) { builder.addOffset(0, nameOffset, 0); }
+        public static void addHp(FlatBufferBuilder builder, int hp) { builder.addInt(1, hp, 0); }
+        public static int endUnit(FlatBufferBuilder builder) { return builder.endTable(); }
+    }
+
+    /** Shaped like flatc output: scalar, string, scalar vector, table vector and nested table. */
+    static final class Army extends Table {
+        public static Army getRootAsArmy(ByteBuffer bb) {
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            Army army = new Army();
+            army.__reset(bb.getInt(bb.position()) + bb.position(), bb);
+            return army;
+        }
+        public static boolean ArmyBufferHasIdentifier(ByteBuffer bb) { return __has_identifier(bb, "ARMY"); }
+        public int level() { int o = __offset(4); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
+        public String name() { int o = __offset(6); return o != 0 ? __string(o + bb_pos) : null; }
+        public short coords(int j) { int o = __offset(8); return o != 0 ? bb.getShort(__vector(o) + j * 2) : 0; }
+        public int coordsLength() { int o = __offset(8); return o != 0 ? __vector_len(o) : 0; }
+        public Unit units(int j) { return units(new Unit(), j); }
+        public Unit units(Unit obj, int j) { int o = __offset(10); return o != 0 ? obj.__assign(__indirect(__vector(o) + j * 4), bb) : null; }
+        public int unitsLength() { int o = __offset(10); return o != 0 ? __vector_len(o) : 0; }
+        public Unit leader() { return leader(new Unit()); }
+        public Unit leader(Unit obj) { int o = __offset(12); return o != 0 ? obj.__assign(__indirect(o + bb_pos), bb) : null; }
+
+        public static void startArmy(FlatBufferBuilder builder) { builder.startTable(5); }
+        public static void addLevel(FlatBufferBuilder builder, int level) { builder.addInt(0, level, 0); }
+        public static void addName(FlatBufferBuilder builder, int nameOffset) { builder.addOffset(1, nameOffset, 0); }
+        public static void addCoords(FlatBufferBuilder builder, int coordsOffset) { builder.addOffset(2, coordsOffset, 0); }
+        public static int createCoordsVector(FlatBufferBuilder builder, short[] data) {
+            builder.startVector(2, data.length, 2);
+            for (int i = data.length - 1; i >= 0; i--) builder.addShort(data[i]);
+            return builder.endVector();
+        }
+        public static void addUnits(FlatBufferBuilder builder, int unitsOffset) { builder.addOffset(3, unitsOffset, 0); }
+        public static int createUnitsVector(FlatBufferBuilder builder, int[] data) {
+            builder.startVector(4, data.length, 4);
+            for (int i = data.length - 1; i >= 0; i--) builder.addOffset(data[i]);
+            return builder.endVector();
+        }
+        public static void addLeader(FlatBufferBuilder builder, int leaderOffset) { builder.addOffset(4, leaderOffset, 0); }
+        public static int endArmy(FlatBufferBuilder builder) { return builder.endTable(); }
+        public static void finishArmyBuffer(FlatBufferBuilder builder, int offset) { builder.finish(offset, "ARMY"); }
+    }
+
+    private static SchemaEntry army() throws NoSuchMethodException {
+        return new SchemaEntry(Army.class, Army.class.getMethod("getRootAsArmy", ByteBuffer.class),
+                Army.class.getMethod("ArmyBufferHasIdentifier", ByteBuffer.class));
+    }
+
+    @Test
+    void fillsEveryFieldWithBuilders() throws Exception {
+        byte[] blob = new BlobGenerator(2, 5).generate(army(), new SplittableRandom(1));
+
+        ByteBuffer bb = ByteBuffer.wrap(blob);
+        assertTrue(army().matches(bb));
+        assertNull(BufferVerifier.check(bb, Army.class));
+        Army army = Army.getRootAsArmy(bb);
+        assertNotNull(army.name());
+        assertTrue(army.coordsLength() >= 2 && army.coordsLength() <= 5, "coords: " + army.coordsLength());
+        assertTrue(army.unitsLength() >= 2 && army.unitsLength() <= 5, "units: " + army.unitsLength());
+        for (int i = 0; i < army.unitsLength(); i++) {
+            String name = army.units(i).name();
+            assertTrue(name.length() >= 4 && name.length() <= 16, name);
+        }
+        assertNotNull(army.leader().name());
+    }
+
+    @Test
+    void sameSeedGivesSameBlob() throws Exception {
+        BlobGenerator generator = new BlobGenerator(0, 8);
+
+        byte[] first = generator.generate(army(), new SplittableRandom(42));
+
+        assertArrayEquals(first, generator.generate(army(), new SplittableRandom(42)));
+        assertFalse(Arrays.equals(first, generator.generate(army(), new SplittableRandom(43))));
+    }
+
+    @Test
+    void emptyVectorsWhenAskedFor() throws Exception {
+        Army army = Army.getRootAsArmy(ByteBuffer.wrap(new BlobGenerator(0, 0).generate(army(), new SplittableRandom(7))));
+
+        assertEquals(0, army.coordsLength());
+        assertEquals(0, army.unitsLength());
+    }
+
+    @Test
+    void rejectsInvalidVectorSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BlobGenerator(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> new BlobGenerator(4, 3));
+    }
+}
@@ -0,0 +1,195 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.Table;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferVerifierTest {
+
+    /** Shaped like flatc output. */
+    static final class Unit extends Table {
+        public Unit __assign(int i, ByteBuffer bb) { __reset(i, bb); return this; }
+        public String name() { int o = __offset(4); return o != 0 ? __string(o + bb_pos) : null; }
+    }
+
+    /** Shaped like flatc output: scalar, string, scalar vector, table vector and nested table. */
+    static final class Army extends Table {
+        public static Army getRootAsArmy(ByteBuffer bb) {
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            Army army = new Army();
+            army.__reset(bb.getInt(bb.position()) + bb.position(), bb);
+            return army;
+        }
+        public int level() { int o = __offset(4); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
+        public String name() { int o = __offset(6); return o != 0 ? __string(o + bb_pos) : null; }
+        public short coords(int j) { int o = __offset(8); return o != 0 ? bb.getShort(__vector(o) + j * 2) : 0; }
+        public int coordsLength() { int o = __offset(8); return o != 0 ? __vector_len(o) : 0; }
+        public Unit units(int j) { return units(new Unit(), j); }
+        public Unit units(Unit obj, int j) { int o = __offset(10); return o != 0 ? obj.__assign(__indirect(__vector(o) + j * 4), bb) : null; }
+        public int unitsLength() { int o = __offset(10); return o != 0 ? __vector_len(o) : 0; }
+        public Unit leader() { return leader(new Unit()); }
+        public Unit leader(Unit obj) { int o = __offset(12); return o != 0 ? obj.__assign(__indirect(o + bb_pos), bb) : null; }
+    }
+
+    /**
+     * An Army laid out by hand the way a builder would: the root table at 32 with units "a"
+     * and "b", leader "c", name "army" and coords [1, 2, 3], every reference pointing forward.
+     */
+    private static ByteBuffer army() {
+        ByteBuffer bb = ByteBuffer.allocate(144).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0, 32);
+        bb.put(4, "ARMY".getBytes(StandardCharsets.US_ASCII));
+        shorts(bb, 8, 14, 24, 4, 8, 12, 16, 20);    // Army vtable
+        shorts(bb, 24, 6, 8, 4);                    // Unit vtable
+        bb.putInt(32, 32 - 8).putInt(36, 7);        // Army: level 7
+        link(bb, 40, 96);                           // name
+        link(bb, 44, 132);                          // coords
+        link(bb, 48, 56);                           // units
+        link(bb, 52, 88);                           // leader
+        bb.putInt(56, 2);
+        link(bb, 60, 72);
+        link(bb, 64, 80);
+        for (int unit = 72, name = 108; unit <= 88; unit += 8, name += 8) {
+            bb.putInt(unit, unit - 24);
+            link(bb, unit + 4, name);
+        }
+        string(bb, 96, "army");
+        string(bb, 108, "a");
+        string(bb, 116, "b");
+        string(bb, 124, "c");
+        bb.putInt(132, 3);
+        shorts(bb, 136, 1, 2, 3);
+        return bb;
+    }
+
+    private static void shorts(ByteBuffer bb, int at, int... values) {
+        for (int i = 0; i < values.length; i++) {
+            bb.putShort(at + 2 * i, (short) values[i]);
+        }
+    }
+
+    private static void link(ByteBuffer bb, int at, int target) {
+        bb.putInt(at, target - at);
+    }
+
+    private static void string(ByteBuffer bb, int at, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        bb.putInt(at, bytes.length).put(at + 4, bytes).put(at + 4 + bytes.length, (byte) 0);
+    }
+
+    @Test
+    void derivesFieldLayoutFromAccessors() {
+        List<BufferVerifier.Field> plan = BufferVerifier.plan(Army.class);
+
+        assertEquals(List.of(
+                new BufferVerifier.Field("level", 4, BufferVerifier.Kind.SCALAR, 4, null),
+                new BufferVerifier.Field("name", 6, BufferVerifier.Kind.STRING, 4, null),
+                new BufferVerifier.Field("coords", 8, BufferVerifier.Kind.SCALARS, 2, null),
+                new BufferVerifier.Field("units", 10, BufferVerifier.Kind.TABLES, 4, Unit.class),
+                new BufferVerifier.Field("leader", 12, BufferVerifier.Kind.TABLE, 4, Unit.class)), plan);
+    }
+
+    @Test
+    void acceptsSoundBuffer() {
+        ByteBuffer bb = army();
+        assertNull(BufferVerifier.check(bb, Army.class));
+
+        // The layout really is what the accessors read
+        Army army = Army.getRootAsArmy(bb.duplicate());
+        assertEquals(7, army.level());
+        assertEquals("army", army.name());
+        assertEquals(3, army.coords(2));
+        assertEquals("b", army.units(1).name());
+        assertEquals("c", army.leader().name());
+    }
+
+    @Test
+    void reportsStringRunningPastTheEnd() {
+        ByteBuffer bb = army();
+        bb.putInt(116, 1000);
+
+        String problem = BufferVerifier.check(bb, Army.class);
+
+        assertNotNull(problem);
+        assertTrue(problem.startsWith("units[1].name: string at 0x74 of 1000 bytes runs past the end"), problem);
+    }
+
+    @Test
+    void reportsMissingNullTerminator() {
+        ByteBuffer bb = army();
+        bb.put(104, (byte) 'x');
+
+        assertEquals("name: string at 0x60 is not null-terminated", BufferVerifier.check(bb, Army.class));
+    }
+
+    @Test
+    void reportsVectorLongerThanBuffer() {
+        ByteBuffer bb = army();
+        bb.putInt(132, 100);
+
+        String problem = BufferVerifier.check(bb, Army.class);
+
+        assertNotNull(problem);
+        assertTrue(problem.startsWith("coords: vector at 0x84 of 100 x 2 bytes"), problem);
+    }
+
+    @Test
+    void reportsBrokenVtables() {
+        ByteBuffer bb = army();
+        bb.putShort(8, (short) 300);
+        assertTrue(BufferVerifier.check(bb, Army.class).contains("has invalid size 300"));
+
+        bb = army();
+        bb.putShort(28, (short) 40); // Unit name beyond the 8-byte table
+        assertTrue(BufferVerifier.check(bb, Army.class).startsWith("units[0]: vtable entry 0"));
+
+        bb = army();
+        bb.putInt(88, -200);
+        assertTrue(BufferVerifier.check(bb, Army.class).startsWith("leader: vtable of table at 0x58"));
+    }
+
+    @Test
+    void reportsTruncatedBuffer() {
+        ByteBuffer bb = army().limit(100);
+
+        String problem = BufferVerifier.check(bb, Army.class);
+
+        assertNotNull(problem);
+        assertTrue(problem.startsWith("name: string at 0x60"), problem);
+    }
+
+    @Test
+    void reportsBackwardOffsetAsOutOfBounds() {
+        ByteBuffer bb = army();
+        bb.putInt(48, -16); // unsigned, so this points far beyond the end
+
+        assertTrue(BufferVerifier.check(bb, Army.class).startsWith("units: vector offset at 0x30 points to"));
+    }
+
+    @Test
+    void verifiesRelativeToBufferPosition() {
+        ByteBuffer padded = ByteBuffer.allocate(160);
+        padded.position(16);
+        padded.slice().put(army().array());
+        padded.limit(160);
+
+        assertNull(BufferVerifier.check(padded, Army.class));
+    }
+
+    @Test
+    void reportsUnknownAndShortBuffers() {
+        BufferVerifier verifier = new BufferVerifier(new SchemaRegistry());
+
+        BufferVerifier.Result unknown = verifier.verify(army());
+        assertNull(unknown.type());
+        assertEquals("no schema matches file_identifier 'ARMY'", unknown.problem());
+        assertFalse(verifier.verify(ByteBuffer.allocate(6)).ok());
+    }
+}
@@ -0,0 +1,81 @@
+package com.nimrod.flatbuffers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRowTest {
+
+    private static final CompactRow.Keys KEYS = new CompactRow.Keys(List.of("_type", "id", "name", "tags"));
+
+    private static CompactRow row() {
+        CompactRow row = new CompactRow(KEYS);
+        row.set(0, "FbsDbArmy");
+        row.set(1, 42);
+        row.set(3, List.of("a", "b"));
+        return row;
+    }
+
+    @Test
+    void behavesLikeAnOrderedMapWithoutAbsentFields() {
+        CompactRow row = row();
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("_type", "FbsDbArmy");
+        expected.put("id", 42);
+        expected.put("tags", List.of("a", "b"));
+
+        assertEquals(expected, row);
+        assertEquals(expected.hashCode(), row.hashCode());
+        assertEquals(3, row.size());
+        assertEquals(List.of("_type", "id", "tags"), List.copyOf(row.keySet()));
+        assertFalse(row.containsKey("name"));
+        assertNull(row.get("name"));
+        assertNull(row.get("unknown"));
+    }
+
+    @Test
+    void keepsNullValuesDistinctFromAbsentFields() {
+        CompactRow row = row();
+        row.set(2, null);
+
+        assertTrue(row.containsKey("name"));
+        assertEquals(4, row.size());
+    }
+
+    @Test
+    void replacesAndRemovesKnownFields() {
+        CompactRow row = row();
+
+        assertEquals(42, row.put("id", 7));
+        assertNull(row.put("name", "Vanguard"));
+        assertEquals(List.of("a", "b"), row.remove("tags"));
+
+        assertEquals(Map.of("_type", "FbsDbArmy", "id", 7, "name", "Vanguard"), row);
+        assertThrows(UnsupportedOperationException.class, () -> row.put("extra", 1));
+    }
+
+    @Test
+    void sharesKeysBetweenRows() {
+        CompactRow first = row();
+        CompactRow second = new CompactRow(KEYS);
+        second.set(1, 1);
+
+        assertEquals(Map.of("id", 1), second);
+        assertEquals(3, first.size());
+    }
+
+    @Test
+    void serialisesLikeALinkedHashMap() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        CompactRow row = row();
+
+        assertEquals(mapper.writeValueAsString(new LinkedHashMap<>(row)), mapper.writeValueAsString(row));
+        assertEquals("{\"_type\":\"FbsDbArmy\",\"id\":42,\"tags\":[\"a\",\"b\"]}", mapper.writeValueAsString(row));
+    }
+}
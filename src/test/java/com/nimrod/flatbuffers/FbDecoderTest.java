@@ -9,10 +9,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.File;
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +28,9 @@ class FbDecoderTest {
     @Autowired
     private CsvReader csvReader;
 
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+
     private File testCsv() {
         return new File(Objects.requireNonNull(
                 getClass().getClassLoader().getResource("player-profiles-hex.csv")).getFile());
@@ -69,6 +75,88 @@ class FbDecoderTest {
                 "Error should explain the problem");
     }
 
+    @Test
+    void tryDecodeReportsMissesWithoutThrowing() throws Exception {
+        FbDecoder.Result unmatched = fbDecoder.tryDecode(
+                ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 'Z', 'Z', 'Z', 'Z', 0, 0, 0, 0}));
+        assertEquals(FbDecoder.Miss.NO_SCHEMA, unmatched.miss());
+        assertTrue(unmatched.reason().contains("'ZZZZ'"), unmatched.reason());
+        assertNull(unmatched.value());
+
+        assertEquals(FbDecoder.Miss.TOO_SHORT, fbDecoder.tryDecode(ByteBuffer.wrap(new byte[]{1, 2, 3})).miss());
+
+        List<CsvRow> rows = csvReader.read(testCsv(), new String[]{"data"}, Encoding.hex);
+        FbDecoder.Result decoded = fbDecoder.tryDecode(rows.get(0).binaryColumns().get("data"));
+        assertTrue(decoded.ok());
+        assertEquals("FbsDbPlayerProfile", decoded.value().get("_type"));
+    }
+
+    @Test
+    void decodesOnlySelectedFields() throws Exception {
+        List<CsvRow> rows = csvReader.read(testCsv(), new String[]{"data"}, Encoding.hex);
+        ByteBuffer buf = rows.get(1).binaryColumns().get("data");
+        FieldSelection title = FieldSelection.of(Map.of("title", FieldSelection.ALL), false);
+
+        Map<String, Object> decoded = fbDecoder.tryDecode(buf, title).value();
+
+        assertEquals(Set.of("_type", "title"), decoded.keySet());
+        assertEquals(fbDecoder.decode(buf).get("title"), decoded.get("title"));
+        assertEquals(Set.of("_type"), fbDecoder.tryDecode(buf, FieldSelection.of(Map.of(), false)).value().keySet());
+    }
+
+    @Test
+    void cutsVectorsAndDeepTablesWithoutReadingThem() {
+        BlobGenerator generator = new BlobGenerator(5, 5);
+        DecodeLimits limits = new DecodeLimits(2, 1);
+        for (SchemaRegistry.SchemaEntry entry : schemaRegistry.getAllSchemas().values()) {
+            ByteBuffer blob = ByteBuffer.wrap(generator.generate(entry, new SplittableRandom(3)));
+
+            Map<String, Object> full = fbDecoder.tryDecode(blob.duplicate()).value();
+            Map<String, Object> cut = fbDecoder.tryDecode(blob.duplicate(), FieldSelection.ALL, limits).value();
+
+            assertEquals(full.keySet(), cut.keySet(), entry.simpleName());
+            assertWithinLimits(entry.simpleName(), full, cut, 0);
+        }
+    }
+
+    /** Every vector cut to two elements and a marker, every table below depth 1 summarised. */
+    private static void assertWithinLimits(String path, Object full, Object cut, int depth) {
+        if (full instanceof Map<?, ?> table) {
+            if (depth > 1) {
+                assertInstanceOf(String.class, cut, path);
+                assertTrue(((String) cut).matches("<\\w+>"), path + ": " + cut);
+                return;
+            }
+            Map<?, ?> cutTable = assertInstanceOf(Map.class, cut, path);
+            for (var field : table.entrySet()) {
+                assertWithinLimits(path + "." + field.getKey(), field.getValue(), cutTable.get(field.getKey()), depth + 1);
+            }
+        } else if (full instanceof List<?> || (full != null && full.getClass().isArray())) {
+            int length = full instanceof List<?> list ? list.size() : Array.getLength(full);
+            if (length > 0 && depth > 1 && elementAt(full, 0) instanceof Map) {
+                assertEquals("<", String.valueOf(cut).substring(0, 1), path);
+                assertTrue(String.valueOf(cut).endsWith("[" + length + "]>"), path + ": " + cut);
+                return;
+            }
+            if (length <= 2) {
+                assertEquals(length, cut instanceof List<?> list ? list.size() : Array.getLength(cut), path);
+                return;
+            }
+            List<?> kept = assertInstanceOf(List.class, cut, path);
+            assertEquals(3, kept.size(), path);
+            assertEquals("<" + (length - 2) + " more of " + length + ">", kept.get(2), path);
+            for (int i = 0; i < 2; i++) {
+                assertWithinLimits(path + "[" + i + "]", elementAt(full, i), kept.get(i), depth);
+            }
+        } else {
+            assertEquals(full, cut, path);
+        }
+    }
+
+    private static Object elementAt(Object vector, int index) {
+        return vector instanceof List<?> list ? list.get(index) : Array.get(vector, index);
+    }
+
     @Test
     void decodesAllRowsWithoutException() throws Exception {
         List<CsvRow> rows = csvReader.read(testCsv(), new String[]{"data"}, Encoding.hex);
@@ -0,0 +1,79 @@
+package com.nimrod.flatbuffers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveVectorsTest {
+
+    private static ByteBuffer vector(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void readsIntVectorInBulk() {
+        ByteBuffer bb = vector(12).putInt(1).putInt(-2).putInt(Integer.MAX_VALUE).flip();
+
+        assertArrayEquals(new int[]{1, -2, Integer.MAX_VALUE}, (int[]) PrimitiveVectors.read(bb, 3, int.class));
+    }
+
+    @Test
+    void readsFromTheBufferPositionWithoutConsumingIt() {
+        ByteBuffer bb = vector(16).putInt(99).putLong(7L).putInt(0);
+        bb.position(4).limit(12);
+
+        assertArrayEquals(new long[]{7L}, (long[]) PrimitiveVectors.read(bb, 1, long.class));
+        assertEquals(4, bb.position());
+    }
+
+    @Test
+    void widensUnsignedElementsLikeTheGeneratedGetters() {
+        ByteBuffer ubytes = vector(2).put((byte) 200).put((byte) 7).flip();
+        assertArrayEquals(new short[]{200, 7}, (short[]) PrimitiveVectors.read(ubytes, 2, int.class));
+
+        ByteBuffer bytes = vector(2).put((byte) 200).put((byte) 7).flip();
+        assertArrayEquals(new short[]{-56, 7}, (short[]) PrimitiveVectors.read(bytes, 2, byte.class));
+
+        ByteBuffer ushorts = vector(2).putShort((short) 0xFFFF).flip();
+        assertArrayEquals(new int[]{0xFFFF}, (int[]) PrimitiveVectors.read(ushorts, 1, int.class));
+
+        ByteBuffer uints = vector(4).putInt(-1).flip();
+        assertArrayEquals(new long[]{0xFFFFFFFFL}, (long[]) PrimitiveVectors.read(uints, 1, long.class));
+    }
+
+    @Test
+    void readsFloatingPointAndBooleanVectors() {
+        ByteBuffer floats = vector(8).putFloat(1.5f).putFloat(-0.25f).flip();
+        assertArrayEquals(new float[]{1.5f, -0.25f}, (float[]) PrimitiveVectors.read(floats, 2, float.class));
+
+        ByteBuffer doubles = vector(8).putDouble(Math.PI).flip();
+        assertArrayEquals(new double[]{Math.PI}, (double[]) PrimitiveVectors.read(doubles, 1, double.class));
+
+        ByteBuffer bools = vector(3).put((byte) 1).put((byte) 0).put((byte) 1).flip();
+        assertArrayEquals(new boolean[]{true, false, true}, (boolean[]) PrimitiveVectors.read(bools, 3, boolean.class));
+    }
+
+    @Test
+    void returnsNullWhenLayoutDoesNotMatch() {
+        assertNull(PrimitiveVectors.read(null, 3, int.class));
+        assertNull(PrimitiveVectors.read(vector(0), 0, int.class));
+        assertNull(PrimitiveVectors.read(vector(10), 3, int.class), "Width not a whole number of bytes");
+        assertNull(PrimitiveVectors.read(vector(6), 3, float.class), "No 2-byte float");
+    }
+
+    @Test
+    void serialisesAsJsonArraysOfNumbers() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ByteBuffer ubytes = vector(2).put((byte) 200).put((byte) 7).flip();
+        ByteBuffer floats = vector(8).putFloat(1.5f).putFloat(0.1f).flip();
+
+        assertEquals("[200,7]", mapper.writeValueAsString(PrimitiveVectors.read(ubytes, 2, int.class)));
+        assertEquals(mapper.writeValueAsString(new Float[]{1.5f, 0.1f}),
+                mapper.writeValueAsString(PrimitiveVectors.read(floats, 2, float.class)));
+    }
+}
@@ -5,13 +5,24 @@ import com.nimrod.csv.CsvReader;
 import com.nimrod.csv.CsvReader.CsvRow;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,6 +74,142 @@ class SchemaRegistryTest {
         assertTrue(entry.isEmpty(), "Garbage buffer should not match any schema");
     }
 
+    /** A root table with one int field, shaped like flatc output, identified by {@code ident}. */
+    private static String extraSchemaSource(String ident) {
+        return """
+                package test.fbs;
+
+                import com.google.flatbuffers.Table;
+                import java.nio.ByteBuffer;
+                import java.nio.ByteOrder;
+
+                public final class FbsDbExtra extends Table {
+                  public static FbsDbExtra getRootAsFbsDbExtra(ByteBuffer _bb) {
+                    _bb.order(ByteOrder.LITTLE_ENDIAN);
+                    FbsDbExtra table = new FbsDbExtra();
+                    table.__reset(_bb.getInt(_bb.position()) + _bb.position(), _bb);
+                    return table;
+                  }
+                  public static boolean FbsDbExtraBufferHasIdentifier(ByteBuffer _bb) {
+                    return __has_identifier(_bb, "%s");
+                  }
+                  public int level() { int o = __offset(4); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
+                }
+                """.formatted(ident);
+    }
+
+    /** Compile the schema source and package it as {@code jarName} in {@code dir}. */
+    private static Path schemaJar(Path dir, String jarName, String ident) throws Exception {
+        Path src = Files.createTempDirectory(dir, "src");
+        Path source = Files.createDirectories(src.resolve("test/fbs")).resolve("FbsDbExtra.java");
+        Files.writeString(source, extraSchemaSource(ident));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        int status = javac.run(null, null, null, "-classpath", System.getProperty("java.class.path"),
+                "-d", src.toString(), source.toString());
+        assertEquals(0, status, "Schema source should compile");
+
+        Path jar = dir.resolve(jarName);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("test/fbs/FbsDbExtra.class"));
+            out.write(Files.readAllBytes(src.resolve("test/fbs/FbsDbExtra.class")));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("test/fbs/README.txt"));
+            out.write("not a class".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    /** A FbsDbExtra buffer with {@code level = 7}, built by hand. */
+    private static ByteBuffer extraBuffer(String ident) {
+        ByteBuffer buf = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(0, 16);                                    // root table offset
+        buf.put(4, ident.getBytes(StandardCharsets.US_ASCII)); // file_identifier
+        buf.putShort(8, (short) 6).putShort(10, (short) 8).putShort(12, (short) 4); // vtable
+        buf.putInt(16, 8);                                    // table -> vtable
+        buf.putInt(20, 7);                                    // level
+        return buf;
+    }
+
+    @Test
+    void loadsRootTypesFromSchemaJars(@TempDir Path tempDir) throws Exception {
+        Path schemas = Files.createDirectory(tempDir.resolve("schemas"));
+        schemaJar(schemas, "extra.jar", "XTRA");
+        SchemaRegistry registry = new SchemaRegistry();
+
+        assertEquals(1, registry.loadSchemaPath(schemas));
+
+        var entry = registry.findByBuffer(extraBuffer("XTRA")).orElseThrow();
+        assertEquals("FbsDbExtra", entry.simpleName());
+        Map<String, Object> decoded = new FbDecoder(registry).decode(extraBuffer("XTRA"));
+        assertEquals("FbsDbExtra", decoded.get("_type"));
+        assertEquals(7, decoded.get("level"));
+        assertTrue(Files.exists(schemas.resolve(SchemaRegistry.MANIFEST_NAME)), "Scan should be cached");
+    }
+
+    @Test
+    void laterJarReplacesEarlierVersionOfRootType(@TempDir Path tempDir) throws Exception {
+        Path schemas = Files.createDirectory(tempDir.resolve("schemas"));
+        schemaJar(schemas, "extra-1.jar", "XTRA");
+        schemaJar(schemas, "extra-2.jar", "XTR2");
+        SchemaRegistry registry = new SchemaRegistry();
+
+        registry.loadSchemaPath(schemas);
+
+        assertTrue(registry.findByBuffer(extraBuffer("XTR2")).isPresent());
+        assertTrue(registry.findByBuffer(extraBuffer("XTRA")).isEmpty());
+    }
+
+    @Test
+    void usesManifestInsteadOfScanningUnchangedJars(@TempDir Path tempDir) throws Exception {
+        Path schemas = Files.createDirectory(tempDir.resolve("schemas"));
+        Path jar = schemaJar(schemas, "extra.jar", "XTRA");
+        new SchemaRegistry().loadSchemaPath(schemas);
+
+        // Doctor the cached result: an unchanged JAR must be taken at the manifest's word
+        Path manifest = schemas.resolve(SchemaRegistry.MANIFEST_NAME);
+        Files.writeString(manifest, Files.readString(manifest).replace("\"test.fbs.FbsDbExtra\"", ""));
+        assertEquals(0, new SchemaRegistry().loadSchemaPath(schemas));
+
+        // A changed JAR is scanned again
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000));
+        assertEquals(1, new SchemaRegistry().loadSchemaPath(schemas));
+    }
+
+    @Test
+    void findByBufferIgnoresShortBuffersAndRepeatsLookups() throws Exception {
+        assertTrue(schemaRegistry.findByBuffer(ByteBuffer.wrap(new byte[]{4, 0, 0, 0, 'X'})).isEmpty());
+
+        List<CsvRow> rows = csvReader.read(testCsv(), new String[]{"data"}, Encoding.hex);
+        for (CsvRow row : rows) {
+            // The second lookup of an identifier comes from the cache and must agree with the first
+            assertEquals("FbsDbPlayerProfile",
+                    schemaRegistry.findByBuffer(row.binaryColumns().get("data")).orElseThrow().simpleName());
+        }
+        assertEquals("XX?X", SchemaRegistry.identifierOf(
+                ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 'X', 'X', 7, 'X'})));
+    }
+
+    @Test
+    void remembersOnlyABoundedNumberOfUnknownIdentifiers() {
+        SchemaRegistry registry = new SchemaRegistry();
+        ByteBuffer buf = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 2 * SchemaRegistry.MAX_UNKNOWN_IDENTIFIERS; i++) {
+            buf.putInt(4, 0x7F000000 | i);
+            assertTrue(registry.findByBuffer(buf).isEmpty());
+        }
+
+        assertEquals(SchemaRegistry.MAX_UNKNOWN_IDENTIFIERS, registry.unknownIdentifiers());
+        buf.putInt(4, 0x7F000000 | 2 * SchemaRegistry.MAX_UNKNOWN_IDENTIFIERS);
+        assertTrue(registry.findByBuffer(buf).isEmpty(), "Identifiers past the bound are still answered");
+    }
+
+    @Test
+    void schemaPathMustBeDirectory(@TempDir Path tempDir) {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SchemaRegistry().loadSchemaPath(tempDir.resolve("missing")));
+    }
+
     @Test
     void schemaEntryDeserializesCorrectly() throws Exception {
         List<CsvRow> rows = csvReader.read(testCsv(), new String[]{"data"}, Encoding.hex);
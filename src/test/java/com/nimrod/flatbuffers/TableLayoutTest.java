@@ -0,0 +1,67 @@
+package com.nimrod.flatbuffers;
+
+import com.google.flatbuffers.Table;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableLayoutTest {
+
+    /** Shaped like flatc output: scalar, string, scalar vector and struct-less table vector. */
+    @SuppressWarnings("unused")
+    static class FakeTable extends Table {
+        public static FakeTable getRootAsFakeTable(ByteBuffer bb) { return new FakeTable(); }
+        public int level() { return 0; }
+        public String name() { return null; }
+        public int coords(int j) { return 0; }
+        public int coordsLength() { return 0; }
+        public ByteBuffer coordsAsByteBuffer() { return null; }
+        public ByteBuffer coordsInByteBuffer(ByteBuffer bb) { return bb; }
+        public FakeTable children(int j) { return null; }
+        public FakeTable children(FakeTable obj, int j) { return obj; }
+        public int childrenLength() { return 0; }
+        public void __init(int i, ByteBuffer bb) { }
+    }
+
+    @Test
+    void resolvesVectorsBeforeScalarFields() {
+        TableLayout layout = TableLayout.of(FakeTable.class);
+
+        assertEquals(List.of("children", "coords"),
+                layout.vectors().stream().map(TableLayout.VectorField::name).sorted().toList());
+        assertEquals(List.of("level", "name"),
+                layout.scalars().stream().map(TableLayout.ScalarField::name).sorted().toList());
+    }
+
+    @Test
+    void findsBulkAccessorsForScalarVectorsOnly() {
+        TableLayout layout = TableLayout.of(FakeTable.class);
+
+        for (TableLayout.VectorField field : layout.vectors()) {
+            if (field.name().equals("coords")) {
+                assertNotNull(field.inBuffer());
+                assertNotNull(field.asBuffer());
+            } else {
+                assertNull(field.inBuffer());
+                assertNull(field.asBuffer());
+            }
+        }
+    }
+
+    @Test
+    void rootRowsStartWithType() {
+        TableLayout layout = TableLayout.of(FakeTable.class);
+
+        CompactRow root = layout.newRow("FbsFake");
+        CompactRow nested = layout.newRow(null);
+
+        assertEquals("FbsFake", root.get("_type"));
+        assertEquals(1, root.size());
+        assertTrue(nested.isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> nested.put("_type", "x"));
+    }
+}
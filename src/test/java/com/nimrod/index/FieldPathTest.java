@@ -0,0 +1,60 @@
+package com.nimrod.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldPathTest {
+
+    private static Map<String, Object> row() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("_type", "FbsDbArmy");
+        data.put("playerId", 123L);
+        data.put("units", List.of(Map.of("typeId", 4), Map.of("typeId", 9)));
+        data.put("provinceIds", new int[] {7, 8});
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "42");
+        row.put("data", data);
+        return row;
+    }
+
+    @Test
+    void resolvesColumnsAndNestedFields() {
+        assertEquals(List.of("42"), FieldPath.parse("id").values(row()));
+        assertEquals(List.of("123"), FieldPath.parse("data.playerId").values(row()));
+    }
+
+    @Test
+    void looksInsideDecodedColumnsWhenNoColumnMatches() {
+        assertEquals(List.of("123"), FieldPath.parse("playerId").values(row()));
+    }
+
+    @Test
+    void expandsVectors() {
+        assertEquals(List.of("4", "9"), FieldPath.parse("units.typeId").values(row()));
+        assertEquals(List.of("7", "8"), FieldPath.parse("provinceIds").values(row()));
+    }
+
+    @Test
+    void ignoresMissingFieldsAndTables() {
+        assertEquals(List.of(), FieldPath.parse("ownerId").values(row()));
+        assertEquals(List.of(), FieldPath.parse("data").values(row()));
+    }
+
+    @Test
+    void firstKeepsTheDecodedType() {
+        assertEquals(123L, FieldPath.parse("playerId").first(row()));
+        assertEquals(7, FieldPath.parse("provinceIds").first(row()));
+        assertNull(FieldPath.parse("ownerId").first(row()));
+    }
+
+    @Test
+    void rejectsEmptySegments() {
+        assertThrows(IllegalArgumentException.class, () -> FieldPath.parse("data..playerId"));
+        assertThrows(IllegalArgumentException.class, () -> FieldPath.parse(" "));
+    }
+}
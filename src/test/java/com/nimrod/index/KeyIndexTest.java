@@ -0,0 +1,71 @@
+package com.nimrod.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyIndexTest {
+
+    @Test
+    void findsRowsForValue(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("armies.csv"), "id,data\n").toFile();
+        Path file = KeyIndex.sidecarFor(RowIndex.sidecarFor(csv), "playerId");
+        assertEquals(tempDir.resolve("armies.csv.playerId.key"), file);
+
+        try (KeyIndex.Writer writer = KeyIndex.create(file, csv, "playerId")) {
+            writer.add("123", 5);
+            writer.add("7", 1);
+            writer.add("123", 2);
+            writer.add("123", 2);
+            writer.add("8", 3);
+            writer.commit();
+        }
+
+        KeyIndex index = KeyIndex.open(file);
+        assertEquals("playerId", index.field());
+        assertEquals(5, index.entryCount());
+        assertArrayEquals(new long[] {2, 5}, index.candidates("123"));
+        assertArrayEquals(new long[] {1}, index.candidates("7"));
+        assertArrayEquals(new long[0], index.candidates("9"));
+        assertTrue(index.matches(csv));
+    }
+
+    @Test
+    void mergesSpilledRuns(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("armies.csv"), "id,data\n").toFile();
+        Path file = tempDir.resolve("armies.csv.playerId.key");
+
+        try (KeyIndex.Writer writer = new KeyIndex.Writer(file, csv.length(), csv.lastModified(), "playerId", 16)) {
+            for (long row = 1; row <= 1000; row++) {
+                writer.add(String.valueOf(row % 37), row);
+            }
+            writer.commit();
+        }
+
+        KeyIndex index = KeyIndex.open(file);
+        assertEquals(1000, index.entryCount());
+        long[] rows = index.candidates("5");
+        assertEquals(27, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(5 + 37L * i, rows[i]);
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(p -> p.toString().endsWith(".run")).count(), "Runs should be deleted");
+        }
+    }
+
+    @Test
+    void rejectsRowsBeyondEntryRange(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("armies.csv"), "id\n").toFile();
+        try (KeyIndex.Writer writer = KeyIndex.create(tempDir.resolve("armies.csv.id.key"), csv, "id")) {
+            assertThrows(IllegalArgumentException.class, () -> writer.add("1", KeyIndex.MAX_ROW + 1));
+        }
+        assertFalse(Files.exists(tempDir.resolve("armies.csv.id.key")), "Uncommitted index should be removed");
+    }
+}
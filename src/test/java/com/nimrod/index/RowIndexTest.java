@@ -0,0 +1,91 @@
+package com.nimrod.index;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.index.RowIndex.Entry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowIndexTest {
+
+    @Test
+    void roundTripsEntriesAndMetadata(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("export.csv"), "id,data\n").toFile();
+        Path file = RowIndex.sidecarFor(csv);
+
+        try (RowIndex.Writer writer = RowIndex.create(file, csv, Encoding.hex)) {
+            writer.binaryColumn("data");
+            writer.add(8, 40, "FbsDbArmy", 120);
+            writer.add(48, 0x7FFF_FFFF, null, 0);
+            writer.add(5_000_000_000L, 12, "FbsDbArmy", 7);
+            writer.add(5_000_000_012L, 30, "FbsDbPlayerProfile", 64);
+            assertEquals(2, writer.typeCount());
+            writer.commit();
+        }
+
+        RowIndex index = RowIndex.open(file);
+        assertEquals(Path.of(csv.getPath() + ".idx"), file);
+        assertEquals(4, index.rowCount());
+        assertEquals(Encoding.hex, index.encoding());
+        assertEquals(List.of("data"), index.binaryColumns());
+        assertEquals(new Entry(8, 40, "FbsDbArmy", 120), index.entry(1));
+        assertEquals(new Entry(48, 0x7FFF_FFFF, null, 0), index.entry(2));
+        assertEquals(5_000_000_012L, index.entry(3).end());
+        assertEquals(new Entry(5_000_000_012L, 30, "FbsDbPlayerProfile", 64), index.entry(4));
+        assertTrue(index.matches(csv));
+    }
+
+    @Test
+    void rejectsRowsOutOfRange(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("export.csv"), "id\n1\n").toFile();
+        Path file = tempDir.resolve("export.idx");
+        try (RowIndex.Writer writer = RowIndex.create(file, csv, Encoding.base64)) {
+            writer.add(3, 2, null, 0);
+            writer.commit();
+        }
+
+        RowIndex index = RowIndex.open(file);
+        assertThrows(IllegalArgumentException.class, () -> index.entry(0));
+        assertThrows(IllegalArgumentException.class, () -> index.entry(2));
+    }
+
+    @Test
+    void detectsChangedSource(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("export.csv"), "id\n1\n").toFile();
+        Path file = tempDir.resolve("export.idx");
+        try (RowIndex.Writer writer = RowIndex.create(file, csv, Encoding.base64)) {
+            writer.commit();
+        }
+
+        Files.writeString(csv.toPath(), "2\n", StandardOpenOption.APPEND);
+
+        assertFalse(RowIndex.open(file).matches(csv));
+    }
+
+    @Test
+    void uncommittedIndexIsRemoved(@TempDir Path tempDir) throws Exception {
+        File csv = Files.writeString(tempDir.resolve("export.csv"), "id\n1\n").toFile();
+        Path file = tempDir.resolve("export.idx");
+        try (RowIndex.Writer writer = RowIndex.create(file, csv, Encoding.base64)) {
+            writer.add(3, 2, null, 0);
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void rejectsIncompleteFile(@TempDir Path tempDir) throws Exception {
+        Path file = Files.write(tempDir.resolve("export.idx"), new byte[RowIndex.HEADER_SIZE + RowIndex.ENTRY_SIZE]);
+
+        assertThrows(IOException.class, () -> RowIndex.open(file));
+    }
+}
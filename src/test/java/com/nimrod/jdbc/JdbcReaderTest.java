@@ -0,0 +1,132 @@
+package com.nimrod.jdbc;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.csv.CsvReader;
+import com.nimrod.csv.CsvReader.CsvRow;
+import com.nimrod.progress.ProgressTracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JdbcReaderTest {
+
+    @Autowired
+    private JdbcReader jdbcReader;
+
+    @Autowired
+    private CsvReader csvReader;
+
+    private List<CsvRow> fixture;
+    private String url;
+
+    /** Load the hex CSV fixture into an in-memory H2 table, once as BLOB and once as hex text. */
+    @BeforeEach
+    void seedDatabase() throws Exception {
+        File csv = new File(Objects.requireNonNull(
+                getClass().getClassLoader().getResource("player-profiles-hex.csv")).getFile());
+        fixture = csvReader.read(csv, new String[]{"data"}, Encoding.hex);
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE profiles (id INT PRIMARY KEY, data BLOB, data_hex VARCHAR(4000))");
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO profiles (id, data, data_hex) VALUES (?, ?, ?)")) {
+                for (CsvRow row : fixture) {
+                    byte[] blob = bytes(row.binaryColumns().get("data"));
+                    insert.setInt(1, Integer.parseInt(row.stringColumns().get("id")));
+                    insert.setBytes(2, blob);
+                    insert.setString(3, HexFormat.of().formatHex(blob));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private List<CsvRow> query(String sql, String[] columns, int fetchSize) throws SQLException {
+        List<CsvRow> rows = new ArrayList<>();
+        jdbcReader.stream(url, null, null, sql, columns, Encoding.hex, fetchSize, ProgressTracker.none(), rows::add);
+        return rows;
+    }
+
+    @Test
+    void readsBlobColumnsAsRawBytes() throws Exception {
+        List<CsvRow> rows = query("SELECT id, data FROM profiles ORDER BY id", null, 2);
+
+        assertEquals(fixture.size(), rows.size());
+        for (CsvRow row : rows) {
+            CsvRow expected = fixture.stream()
+                    .filter(f -> f.stringColumns().get("id").equals(row.stringColumns().get("ID")))
+                    .findFirst().orElseThrow();
+            assertEquals(expected.binaryColumns().get("data"), row.binaryColumns().get("DATA"));
+        }
+    }
+
+    @Test
+    void decodesNamedTextColumnsWithEncoding() throws Exception {
+        List<CsvRow> rows = query("SELECT id, data_hex FROM profiles ORDER BY id", new String[]{"data_hex"}, 100);
+
+        assertEquals(fixture.size(), rows.size());
+        assertTrue(rows.stream().allMatch(r -> r.binaryColumns().containsKey("DATA_HEX")));
+        assertTrue(rows.stream().noneMatch(r -> r.stringColumns().containsKey("DATA_HEX")));
+    }
+
+    @Test
+    void leavesUnnamedColumnsAsStrings() throws Exception {
+        List<CsvRow> rows = query("SELECT id, data, data_hex FROM profiles", new String[]{"data"}, 100);
+
+        CsvRow row = rows.get(0);
+        assertEquals(List.of("DATA"), List.copyOf(row.binaryColumns().keySet()));
+        assertEquals(List.of("ID", "DATA_HEX"), List.copyOf(row.stringColumns().keySet()));
+    }
+
+    @Test
+    void countsBytesRead() throws Exception {
+        ProgressTracker progress = new ProgressTracker(ProgressTracker.UNKNOWN);
+        long total = fixture.stream().mapToLong(r -> r.binaryColumns().get("data").remaining()).sum();
+
+        long count = jdbcReader.stream(url, null, null, "SELECT data FROM profiles", null,
+                Encoding.hex, 100, progress, row -> { });
+
+        assertEquals(fixture.size(), count);
+        assertEquals(total, progress.bytesRead());
+    }
+
+    @Test
+    void throwsOnMissingColumnWithHelpfulMessage() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> query("SELECT id, data FROM profiles", new String[]{"payload"}, 100));
+        assertTrue(ex.getMessage().contains("payload"));
+        assertTrue(ex.getMessage().contains("Available columns"));
+    }
+
+    @Test
+    void propagatesSqlErrors() {
+        assertThrows(SQLException.class, () -> query("SELECT nope FROM missing_table", null, 100));
+    }
+}
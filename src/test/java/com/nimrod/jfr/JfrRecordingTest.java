@@ -0,0 +1,84 @@
+package com.nimrod.jfr;
+
+import com.nimrod.cli.NimrodCommand.Encoding;
+import com.nimrod.csv.CsvReader;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrRecordingTest {
+
+    private static List<RecordedEvent> events(Path recording, String name) throws Exception {
+        return RecordingFile.readAllEvents(recording).stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .toList();
+    }
+
+    @Test
+    void recordsCsvStagesIntoFile(@TempDir Path tempDir) throws Exception {
+        byte[] blob = "0123456789abcdef".getBytes();
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(blob);
+        }
+        File csv = Files.writeString(tempDir.resolve("in.csv"), "id,data\n"
+                + "1," + Base64.getEncoder().encodeToString(blob) + "\n"
+                + "2," + Base64.getEncoder().encodeToString(gzipped.toByteArray()) + "\n"
+                + "3,not*base64\n").toFile();
+        Path file = tempDir.resolve("nimrod.jfr");
+
+        try (JfrRecording recording = JfrRecording.start(file, Duration.ofMillis(100))) {
+            new CsvReader().read(csv, new String[]{"data"}, Encoding.base64);
+            assertEquals(file, recording.destination());
+        }
+
+        List<RecordedEvent> parsed = events(file, "com.nimrod.CsvParse");
+        assertEquals(List.of(1L, 2L, 3L), parsed.stream().map(e -> e.getLong("recordNumber")).toList());
+        assertEquals(-1, parsed.getFirst().getLong("chunkOffset"));
+        assertEquals(2, parsed.getFirst().getInt("columns"));
+        assertEquals(1, parsed.getFirst().getInt("binaryColumns"));
+        assertEquals(0, parsed.getLast().getInt("binaryColumns"));
+
+        List<RecordedEvent> decoded = events(file, "com.nimrod.BlobDecode");
+        assertEquals(List.of(true, true, false), decoded.stream().map(e -> e.getBoolean("valid")).toList());
+        assertEquals("base64", decoded.getFirst().getString("encoding"));
+        assertEquals(16, decoded.getFirst().getInt("bytes"));
+
+        List<RecordedEvent> inflated = events(file, "com.nimrod.Decompress");
+        assertEquals(1, inflated.size());
+        assertEquals(gzipped.size(), inflated.getFirst().getInt("compressedBytes"));
+        assertEquals(16, inflated.getFirst().getInt("bytes"));
+    }
+
+    @Test
+    void slowRowsAboveThresholdOnly(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("nimrod.jfr");
+
+        try (JfrRecording ignored = JfrRecording.start(file, Duration.ofMillis(20))) {
+            for (long sleep : new long[]{0, 40}) {
+                SlowRowEvent event = new SlowRowEvent();
+                event.begin();
+                Thread.sleep(sleep);
+                event.rowNumber = sleep;
+                event.commit();
+            }
+        }
+
+        assertEquals(List.of(40L), events(file, "com.nimrod.SlowRow").stream()
+                .map(e -> e.getLong("rowNumber")).toList());
+    }
+}
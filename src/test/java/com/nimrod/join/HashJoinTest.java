@@ -0,0 +1,108 @@
+package com.nimrod.join;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashJoinTest {
+
+    private static byte[] row(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Join players with their armies (probe) and research, both having several rows per player. */
+    private static List<String> join(long memoryBytes, Path tempDir, boolean[] spilled) throws Exception {
+        List<String> joined = new ArrayList<>();
+        try (HashJoin join = new HashJoin(3, 1, memoryBytes, tempDir, (key, rows) -> joined.add(key + ":"
+                + new String(rows[0], StandardCharsets.UTF_8) + "|"
+                + new String(rows[1], StandardCharsets.UTF_8) + "|"
+                + new String(rows[2], StandardCharsets.UTF_8)))) {
+            for (int player = 0; player < 2000; player++) {
+                join.add(0, "p" + player, row("player" + player));
+            }
+            for (int player = 0; player < 2000; player += 2) {
+                join.add(2, "p" + player, row("tech" + player + "a"));
+                join.add(2, "p" + player, row("tech" + player + "b"));
+            }
+            for (int player = 0; player < 2000; player += 3) {
+                join.add(1, "p" + player, row("army" + player));
+            }
+            join.finish();
+            spilled[0] = join.spilled();
+        }
+        return joined;
+    }
+
+    @Test
+    void joinsInMemory(@TempDir Path tempDir) throws Exception {
+        boolean[] spilled = new boolean[1];
+        List<String> joined = join(Long.MAX_VALUE, tempDir, spilled);
+
+        assertFalse(spilled[0]);
+        // Players divisible by 6 have an army and research; two research rows give two joined rows
+        assertEquals(2 * 334, joined.size());
+        assertEquals("p0:player0|army0|tech0a", joined.get(0));
+        assertEquals("p0:player0|army0|tech0b", joined.get(1));
+        assertEquals("p6:player6|army6|tech6a", joined.get(2));
+        assertTrue(joined.stream().noneMatch(r -> r.startsWith("p3:")), "p3 has no research");
+        assertTrue(joined.stream().noneMatch(r -> r.startsWith("p2:")), "p2 has no army");
+    }
+
+    @Test
+    void partitionsToDiskWithTheSameResult(@TempDir Path tempDir) throws Exception {
+        List<String> expected = join(Long.MAX_VALUE, tempDir, new boolean[1]);
+        boolean[] spilled = new boolean[1];
+
+        List<String> joined = join(4096, tempDir, spilled);
+
+        assertTrue(spilled[0]);
+        assertEquals(expected.stream().sorted().toList(), joined.stream().sorted().toList());
+        try (var left = Files.list(tempDir)) {
+            assertEquals(0, left.count(), "partitions are deleted on close");
+        }
+    }
+
+    @Test
+    void joinsASingleKeyLargerThanTheBudget(@TempDir Path tempDir) throws Exception {
+        List<String> joined = new ArrayList<>();
+        try (HashJoin join = new HashJoin(2, 1, 1024, tempDir, (key, rows) -> joined.add(
+                new String(rows[0], StandardCharsets.UTF_8)))) {
+            for (int i = 0; i < 500; i++) {
+                join.add(0, "same", row("build" + i));
+            }
+            join.add(1, "same", row("probe"));
+            join.add(1, "other", row("probe"));
+            join.finish();
+        }
+
+        assertEquals(500, joined.size());
+        assertEquals(500, joined.stream().distinct().count());
+    }
+
+    @Test
+    void rejectsAProbeOutsideTheInputs() {
+        assertThrows(IllegalArgumentException.class, () -> new HashJoin(1, 0, 1024, null, (key, rows) -> {}));
+        assertThrows(IllegalArgumentException.class, () -> new HashJoin(2, 2, 1024, null, (key, rows) -> {}));
+    }
+
+    @Test
+    void partitionsDifferentlyAtEveryDepth() {
+        int same = 0;
+        for (int i = 0; i < 1000; i++) {
+            String key = "key" + i;
+            int partition = HashJoin.partitionOf(key, 0);
+            assertTrue(partition >= 0 && partition < HashJoin.PARTITIONS);
+            if (partition == HashJoin.partitionOf(key, 1)) {
+                same++;
+            }
+        }
+        assertTrue(same < 100, same + " of 1000 keys kept their partition");
+    }
+}
@@ -1,5 +1,6 @@
 package com.nimrod.output;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimrod.cli.NimrodCommand.Format;
 
 import org.junit.jupiter.api.Test;
@@ -8,11 +9,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -91,6 +96,172 @@ class JsonWriterTest {
         assertTrue(content.contains("\"value\":42"));
     }
 
+    @Test
+    void streamingWriterMatchesJacksonOutput(@TempDir Path tempDir) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String newline = System.lineSeparator();
+        StringBuilder ndjson = new StringBuilder();
+        for (Map<String, Object> row : sampleRows()) {
+            ndjson.append(mapper.writeValueAsString(row)).append(newline);
+        }
+        Map<Format, String> expected = Map.of(
+                Format.pretty, mapper.writerWithDefaultPrettyPrinter().writeValueAsString(sampleRows()) + newline,
+                Format.compact, mapper.writeValueAsString(sampleRows()) + newline,
+                Format.ndjson, ndjson.toString());
+
+        for (Format format : Format.values()) {
+            File listFile = tempDir.resolve("list-" + format).toFile();
+            File streamFile = tempDir.resolve("stream-" + format).toFile();
+
+            jsonWriter.write(sampleRows(), format, listFile);
+            try (RowWriter writer = jsonWriter.open(format, streamFile)) {
+                for (Map<String, Object> row : sampleRows()) {
+                    writer.write(row);
+                }
+                assertEquals(2, writer.rowCount());
+            }
+
+            assertEquals(expected.get(format), Files.readString(streamFile.toPath()), format + " streamed");
+            assertEquals(expected.get(format), Files.readString(listFile.toPath()), format + " from a list");
+        }
+    }
+
+    private static Map<String, Object> typedRow(String id, String type) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("_type", type);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("data", payload);
+        return row;
+    }
+
+    @Test
+    void rollsShardsByRowCount(@TempDir Path tempDir) throws Exception {
+        File base = tempDir.resolve("out.json").toFile();
+        try (RowWriter writer = jsonWriter.open(Format.compact, base, new ShardSpec(2, 0, false))) {
+            for (int i = 0; i < 5; i++) {
+                writer.write(typedRow(String.valueOf(i), "A"));
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(2, mapper.readTree(tempDir.resolve("out-00001.json").toFile()).size());
+        assertEquals(2, mapper.readTree(tempDir.resolve("out-00002.json").toFile()).size());
+        assertEquals(1, mapper.readTree(tempDir.resolve("out-00003.json").toFile()).size());
+        assertFalse(Files.exists(tempDir.resolve("out-00004.json")));
+    }
+
+    @Test
+    void rollsShardsBySize(@TempDir Path tempDir) throws Exception {
+        File base = tempDir.resolve("out.ndjson").toFile();
+        try (RowWriter writer = jsonWriter.open(Format.ndjson, base, new ShardSpec(0, 100, false))) {
+            for (int i = 0; i < 20; i++) {
+                writer.write(typedRow(String.valueOf(i), "A"));
+            }
+        }
+
+        try (var shards = Files.list(tempDir)) {
+            List<Path> files = shards.sorted().toList();
+            assertTrue(files.size() > 1, "Output should have rolled over: " + files);
+            long lines = 0;
+            for (Path file : files) {
+                assertTrue(Files.size(file) < 100 + 40, "Shard overshoots the size limit by more than one row");
+                lines += Files.readAllLines(file).size();
+            }
+            assertEquals(20, lines);
+        }
+    }
+
+    @Test
+    void routesShardsByDecodedType(@TempDir Path tempDir) throws Exception {
+        File base = tempDir.resolve("out.json").toFile();
+        try (RowWriter writer = jsonWriter.open(Format.pretty, base, new ShardSpec(0, 0, true))) {
+            writer.write(typedRow("1", "FbsDbArmy"));
+            writer.write(typedRow("2", "FbsDbProvince"));
+            writer.write(typedRow("3", "FbsDbArmy"));
+            writer.write(sampleRows().get(0));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(2, mapper.readTree(tempDir.resolve("out-FbsDbArmy.json").toFile()).size());
+        assertEquals(1, mapper.readTree(tempDir.resolve("out-FbsDbProvince.json").toFile()).size());
+        assertEquals(1, mapper.readTree(tempDir.resolve("out-unknown.json").toFile()).size());
+    }
+
+    @Test
+    void keepsTypeShardsInTheOutputDirectory(@TempDir Path tempDir) throws Exception {
+        Path outDir = Files.createDirectories(tempDir.resolve("out"));
+        File base = outDir.resolve("out.ndjson").toFile();
+        try (RowWriter writer = jsonWriter.open(Format.ndjson, base, new ShardSpec(0, 0, true))) {
+            writer.write(typedRow("1", "../../evil"));
+            writer.write(typedRow("2", "Fbs/Db\u0000Army"));
+            writer.write(typedRow("3", ".."));
+        }
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(outDir), files.toList());
+        }
+        assertEquals(1, Files.readAllLines(outDir.resolve("out-.._.._evil.ndjson")).size());
+        assertEquals(1, Files.readAllLines(outDir.resolve("out-Fbs_Db_Army.ndjson")).size());
+        assertEquals(1, Files.readAllLines(outDir.resolve("out-...ndjson")).size());
+    }
+
+    @Test
+    void gzipsOutputNamedDotGz(@TempDir Path tempDir) throws Exception {
+        File outFile = tempDir.resolve("out.ndjson.gz").toFile();
+        jsonWriter.write(sampleRows(), Format.ndjson, outFile);
+
+        try (var in = new GZIPInputStream(new FileInputStream(outFile))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(2, content.lines().count());
+            assertTrue(content.contains("Alice"));
+        }
+    }
+
+    @Test
+    void gzipsEachShard(@TempDir Path tempDir) throws Exception {
+        File base = tempDir.resolve("out.json.gz").toFile();
+        try (RowWriter writer = jsonWriter.open(Format.compact, base, new ShardSpec(1, 0, false), 1)) {
+            for (Map<String, Object> row : sampleRows()) {
+                writer.write(row);
+            }
+        }
+
+        for (String shard : List.of("out-00001.json.gz", "out-00002.json.gz")) {
+            try (var in = new GZIPInputStream(new FileInputStream(tempDir.resolve(shard).toFile()))) {
+                assertEquals(1, new ObjectMapper().readTree(in).size());
+            }
+        }
+    }
+
+    @Test
+    void shardingRequiresOutputFile() {
+        assertThrows(IllegalArgumentException.class,
+                () -> jsonWriter.open(Format.ndjson, null, new ShardSpec(10, 0, false)));
+    }
+
+    @Test
+    void appendsAfterTruncatingToCommittedPosition(@TempDir Path tempDir) throws Exception {
+        File outFile = tempDir.resolve("out.ndjson").toFile();
+        String committed = "{\"id\":1}\n";
+        Files.writeString(outFile.toPath(), committed + "{\"id\":2,\"par");
+
+        try (RowWriter writer = jsonWriter.append(Format.ndjson, outFile, committed.length())) {
+            writer.write(writer.encode(Map.of("id", 2)));
+        }
+
+        assertEquals(committed + "{\"id\":2}\n", Files.readString(outFile.toPath()));
+    }
+
+    @Test
+    void appendRejectsPositionPastEndOfOutput(@TempDir Path tempDir) throws Exception {
+        File outFile = tempDir.resolve("out.ndjson").toFile();
+        Files.writeString(outFile.toPath(), "{}\n");
+
+        assertThrows(IOException.class, () -> jsonWriter.append(Format.ndjson, outFile, 100));
+        assertThrows(IllegalArgumentException.class, () -> jsonWriter.append(Format.pretty, outFile, 0));
+    }
+
     @Test
     void writesEmptyListAsEmptyArray(@TempDir Path tempDir) throws Exception {
         File outFile = tempDir.resolve("out.json").toFile();
@@ -0,0 +1,83 @@
+package com.nimrod.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGzipOutputStreamTest {
+
+    @Test
+    void concatenatedMembersFormOneValidGzipStream() throws Exception {
+        byte[] data = sampleData(1_000_000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            var compressed = new ByteArrayOutputStream();
+            try (var gzip = new ParallelGzipOutputStream(compressed, 6, pool, 4, 64 * 1024)) {
+                // Uneven writes so blocks are filled across write boundaries
+                for (int off = 0; off < data.length; off += 7_777) {
+                    gzip.write(data, off, Math.min(7_777, data.length - off));
+                }
+                gzip.write('!');
+            }
+
+            byte[] expected = new byte[data.length + 1];
+            System.arraycopy(data, 0, expected, 0, data.length);
+            expected[data.length] = '!';
+            assertArrayEquals(expected, gunzip(compressed.toByteArray()));
+            assertTrue(compressed.size() < data.length, "Output should actually be compressed");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void emptyStreamIsValidGzip() throws Exception {
+        var compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, 1, Runnable::run, 1).close();
+
+        assertArrayEquals(new byte[0], gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    void flushEmitsACompleteMember() throws Exception {
+        var compressed = new ByteArrayOutputStream();
+        var gzip = new ParallelGzipOutputStream(compressed, 9, Runnable::run, 1);
+        gzip.write("first".getBytes());
+        gzip.flush();
+
+        assertArrayEquals("first".getBytes(), gunzip(compressed.toByteArray()));
+        gzip.write("second".getBytes());
+        gzip.close();
+        assertArrayEquals("firstsecond".getBytes(), gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    void rejectsInvalidLevel() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelGzipOutputStream(new ByteArrayOutputStream(), 10, Runnable::run, 1));
+    }
+
+    private static byte[] sampleData(int size) {
+        // Compressible but not trivially so: JSON-like text with random numbers
+        var random = new Random(42);
+        var sb = new StringBuilder(size + 64);
+        while (sb.length() < size) {
+            sb.append("{\"id\":").append(random.nextInt(100_000)).append(",\"_type\":\"FbsDbArmy\"}\n");
+        }
+        return sb.substring(0, size).getBytes();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.nimrod.output;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimrod.cli.NimrodCommand.Format;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortingRowWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonWriter jsonWriter = new JsonWriter();
+
+    private static SortSpec byScore(long memoryBytes, Path tempDir) {
+        return new SortSpec(row -> ((Map<?, ?>) row).get("score"), memoryBytes, tempDir);
+    }
+
+    private static Map<String, Object> row(int id, Object score) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        if (score != null) {
+            row.put("score", score);
+        }
+        return row;
+    }
+
+    private static void sortInto(RowWriter writer, List<Map<String, Object>> rows) throws Exception {
+        try (writer) {
+            for (Map<String, Object> row : rows) {
+                writer.write(writer.encode(row));
+            }
+        }
+    }
+
+    private static List<Object> ids(String jsonArray) throws Exception {
+        return MAPPER.readValue(jsonArray, new TypeReference<List<Map<String, Object>>>() { }).stream()
+                .map(row -> row.get("id")).toList();
+    }
+
+    @Test
+    void sortsInMemoryByKeyType() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowWriter writer = jsonWriter.sorted(jsonWriter.open(Format.compact, out), byScore(1 << 20, null));
+
+        sortInto(writer, List.of(row(1, "b"), row(2, 10L), row(3, null), row(4, 2.5), row(5, true),
+                row(6, -3), row(7, "a"), row(8, 10)));
+
+        assertEquals(List.of(5, 6, 4, 2, 8, 7, 1, 3), ids(out.toString(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void mergesSpilledRunsStably(@TempDir Path tempDir) throws Exception {
+        Path runs = Files.createDirectories(tempDir.resolve("runs"));
+        File output = tempDir.resolve("out.ndjson").toFile();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 5000; i++) {
+            rows.add(row(i, random.nextInt(100)));
+        }
+        // About 20 rows per run, so over 64 runs and a second merge pass
+        RowWriter writer = jsonWriter.sorted(jsonWriter.open(Format.ndjson, output), byScore(2000, runs));
+
+        sortInto(writer, rows);
+
+        List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        assertEquals(rows.size(), lines.size());
+        int lastScore = -1;
+        int lastId = -1;
+        for (String line : lines) {
+            Map<?, ?> row = MAPPER.readValue(line, Map.class);
+            int score = (Integer) row.get("score");
+            int id = (Integer) row.get("id");
+            assertTrue(score > lastScore || (score == lastScore && id > lastId), line);
+            lastScore = score;
+            lastId = id;
+        }
+        try (var left = Files.list(runs)) {
+            assertEquals(0, left.count(), "Sorted runs should be removed");
+        }
+    }
+
+    @Test
+    void keepsEveryFormatValid(@TempDir Path tempDir) throws Exception {
+        for (Format format : Format.values()) {
+            File output = tempDir.resolve("out." + format).toFile();
+            RowWriter writer = jsonWriter.sorted(jsonWriter.open(format, output), byScore(100, tempDir));
+
+            sortInto(writer, List.of(row(1, 3), row(2, 1), row(3, 2)));
+
+            String json = Files.readString(output.toPath());
+            String array = format == Format.ndjson ? "[" + String.join(",", json.strip().split("\n")) + "]" : json;
+            assertEquals(List.of(2, 3, 1), ids(array), format.name());
+        }
+    }
+
+    @Test
+    void comparesIntegersAndFloatsExactly() {
+        long above = (1L << 53) + 1;
+        assertTrue(SortingRowWriter.compareKeys(above, 0x1p53) > 0, "2^53 + 1 must not round to 2^53");
+        assertTrue(SortingRowWriter.compareKeys(0x1p53, above) < 0);
+        assertTrue(SortingRowWriter.compareKeys(Long.MAX_VALUE, 0x1p63) < 0);
+        assertTrue(SortingRowWriter.compareKeys(-1L, -0.5) < 0);
+        assertEquals(0, SortingRowWriter.compareKeys(3L, 3.0));
+        assertTrue(SortingRowWriter.compareKeys(Long.MAX_VALUE, Double.NaN) < 0);
+        assertTrue(SortingRowWriter.compareKeys(Double.NEGATIVE_INFINITY, Long.MIN_VALUE) < 0);
+        Object negativeZero = SortingRowWriter.normalise(-0.0);
+        assertEquals(0, SortingRowWriter.compareKeys(negativeZero, SortingRowWriter.normalise(0L)));
+        assertEquals(0, SortingRowWriter.compareKeys(negativeZero, SortingRowWriter.normalise(0.0f)));
+    }
+}
@@ -0,0 +1,38 @@
+package com.nimrod.progress;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    @Test
+    void roundTripsThroughTheFile(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("decode.checkpoint");
+        Checkpoint checkpoint = new Checkpoint(
+                "/data/export.csv", 1_048_576, 20_000, "/data/out.ndjson", 9_999_999, 4_096);
+
+        checkpoint.save(file);
+
+        assertEquals(checkpoint, Checkpoint.load(file));
+        assertFalse(Files.exists(tempDir.resolve("decode.checkpoint.tmp")), "Temporary file should be renamed away");
+    }
+
+    @Test
+    void replacesThePreviousCheckpoint(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("decode.checkpoint");
+        new Checkpoint("in.csv", 10, 1, "out.ndjson", 100, 0).save(file);
+        new Checkpoint("in.csv", 20, 2, "out.ndjson", 200, 0).save(file);
+
+        assertEquals(20, Checkpoint.load(file).inputOffset());
+    }
+
+    @Test
+    void loadsNothingWhenThereIsNoFile(@TempDir Path tempDir) throws Exception {
+        assertNull(Checkpoint.load(tempDir.resolve("missing.checkpoint")));
+    }
+}
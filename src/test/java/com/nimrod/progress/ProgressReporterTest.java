@@ -0,0 +1,74 @@
+package com.nimrod.progress;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressReporterTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void formatsPercentageRatesAndEtaWhenSizeKnown() {
+        String line = ProgressReporter.formatLine(
+                50 * MB, 100 * MB, 12_000, 10.0 * MB, 2_400, 10.0 * MB);
+
+        assertTrue(line.contains("50.0%"), line);
+        assertTrue(line.contains("10.0 MB/s"), line);
+        assertTrue(line.contains("2,400 rows/s"), line);
+        assertTrue(line.contains("12,000 rows"), line);
+        assertTrue(line.contains("ETA 5s"), line);
+    }
+
+    @Test
+    void omitsPercentageAndEtaWhenSizeUnknown() {
+        String line = ProgressReporter.formatLine(
+                50 * MB, ProgressTracker.UNKNOWN, 12_000, 10.0 * MB, 2_400, 10.0 * MB);
+
+        assertFalse(line.contains("%"), line);
+        assertFalse(line.contains("ETA"), line);
+        assertTrue(line.contains("50.0 MB"), line);
+    }
+
+    @Test
+    void formatsLongDurations() {
+        assertEquals("42s", ProgressReporter.formatDuration(42));
+        assertEquals("3m 05s", ProgressReporter.formatDuration(185));
+        assertEquals("2h 01m", ProgressReporter.formatDuration(7260));
+    }
+
+    @Test
+    void reportsFromBackgroundThreadAndPrintsSummary() throws Exception {
+        var buffer = new ByteArrayOutputStream();
+        var out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        var tracker = new ProgressTracker(1000);
+
+        try (var reporter = ProgressReporter.start(tracker, out, Duration.ofMillis(20))) {
+            tracker.addBytes(500);
+            tracker.rowDone();
+            Thread.sleep(100);
+        }
+
+        String printed = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("rows/s"), printed);
+        assertTrue(printed.contains("1 rows in"), "Should end with a summary line: " + printed);
+    }
+
+    @Test
+    void zeroIntervalPrintsNothing() {
+        var buffer = new ByteArrayOutputStream();
+        var tracker = new ProgressTracker(1000);
+
+        try (var reporter = ProgressReporter.start(
+                tracker, new PrintStream(buffer), Duration.ZERO)) {
+            tracker.rowDone();
+        }
+
+        assertEquals(0, buffer.size());
+    }
+}
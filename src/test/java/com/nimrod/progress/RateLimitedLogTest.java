@@ -0,0 +1,59 @@
+package com.nimrod.progress;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitedLogTest {
+
+    /** A logger that records the format and arguments of every warning. */
+    private static Logger recording(List<Object[]> warnings) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isWarnEnabled" -> true;
+                    case "warn" -> {
+                        warnings.add(args);
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    @Test
+    void logsTheBurstThenNothingWithinTheInterval() {
+        List<Object[]> warnings = new ArrayList<>();
+        RateLimitedLog log = new RateLimitedLog(recording(warnings), 3, Duration.ofHours(1));
+
+        for (int i = 0; i < 100; i++) {
+            log.warn("Row {} failed", i);
+        }
+
+        assertEquals(3, warnings.size());
+        assertEquals("Row {} failed", warnings.get(0)[0]);
+        assertEquals(2, ((Object[]) warnings.get(2)[1])[0]);
+        assertEquals(100, log.count());
+    }
+
+    @Test
+    void reportsHowManyWereSuppressed() throws Exception {
+        List<Object[]> warnings = new ArrayList<>();
+        RateLimitedLog log = new RateLimitedLog(recording(warnings), 1, Duration.ofMillis(50));
+
+        for (int i = 0; i < 10; i++) {
+            log.warn("Row {} failed", i);
+        }
+        Thread.sleep(60);
+        log.warn("Row {} failed", 10);
+
+        assertEquals(2, warnings.size());
+        Object[] last = warnings.get(1);
+        assertEquals("Row {} failed ({} similar warnings suppressed)", last[0]);
+        assertArrayEquals(new Object[]{10, 9L}, (Object[]) last[1]);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nimrod.transform;
+
+import com.nimrod.flatbuffers.FieldSelection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformTest {
+
+    private static Map<String, Object> row() {
+        Map<String, Object> army = new LinkedHashMap<>();
+        army.put("ownerId", 7L);
+        army.put("units", List.of(
+                Map.of("name", "archer", "hp", 10),
+                Map.of("name", "knight", "hp", 0),
+                Map.of("name", "mage", "hp", 4)));
+        army.put("position", new float[]{1.5f, -2f});
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("_type", "FbsDbArmy");
+        data.put("army", army);
+        data.put("title", "Governor");
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "42");
+        row.put("data", data);
+        return row;
+    }
+
+    private static List<Object> run(String expression) {
+        return Transform.compile(expression).apply(row());
+    }
+
+    @Test
+    void followsPaths() {
+        assertEquals(List.of("Governor"), run(".data.title"));
+        assertEquals(List.of("Governor"), run(".data | .[\"title\"]"));
+        assertEquals(List.of("archer", "knight", "mage"), run(".data.army.units[].name"));
+        assertEquals(List.of(Map.of("name", "mage", "hp", 4)), run(".data.army.units[-1]"));
+        assertEquals(List.of(1.5f, -2f), run(".data.army.position[]"));
+        assertEquals(List.of(-2f), run(".data.army.position.[1]"));
+        assertEquals(Arrays.asList((Object) null), run(".data.missing.deeper"));
+    }
+
+    @Test
+    void buildsObjectsAndArrays() {
+        assertEquals(List.of(Map.of("id", "42", "owner", 7L, "title", "Governor")),
+                run("{id, owner: .data.army.ownerId, \"title\": .data.title}"));
+        assertEquals(List.of(List.of("archer", "mage")),
+                run("[.data.army.units[] | select(.hp > 0) | .name]"));
+        assertEquals(List.of(Map.of("n", "archer"), Map.of("n", "knight"), Map.of("n", "mage")),
+                run("{n: .data.army.units[].name}"));
+    }
+
+    @Test
+    void selectsMapsAndCounts() {
+        assertEquals(List.of(), run("select(.data.title == \"Mayor\")"));
+        assertEquals(1, run("select(.data.title == \"Governor\" and .id != null)").size());
+        assertEquals(List.of(List.of(10, 0, 4)), run(".data.army.units | map(.hp)"));
+        assertEquals(List.of(3, 2, 8), run("(.data.army.units | length), (.data.army.position | length), (.data.title | length)"));
+        assertEquals(List.of(List.of("_type", "army", "title")), run(".data | keys"));
+        assertEquals(List.of(true), run(".data.missing | not"));
+        assertEquals(List.of(), run("empty"));
+    }
+
+    @Test
+    void comparesInJqOrder() {
+        assertEquals(List.of(true, true, true, true, true), run(
+                "null < false, false < true, true < 0, 2 < \"a\", [1, 2] < [1, 3]"));
+        assertEquals(List.of(true), run("1 == 1.0"));
+        assertEquals(List.of(false), run("{a: 1} == {a: 2}"));
+    }
+
+    @Test
+    void reportsErrorsLikeJq() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> run(".data.title.first"));
+        assertEquals("Cannot index string with \"first\"", e.getMessage());
+        assertEquals(List.of(), run(".data.title.first?"));
+        assertEquals(List.of("Governor"), run("(.data.title, .data.title.first)?"));
+        IllegalArgumentException after = assertThrows(IllegalArgumentException.class,
+                () -> run(".data? | .title.first"));
+        assertEquals("Cannot index string with \"first\"", after.getMessage());
+
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class,
+                () -> Transform.compile(".data | sort_by(.hp)"));
+        assertTrue(invalid.getMessage().contains("column 9"), invalid.getMessage());
+        assertTrue(invalid.getMessage().contains("unknown function 'sort_by'"), invalid.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Transform.compile("{a: .b"));
+        assertThrows(IllegalArgumentException.class, () -> Transform.compile(".data |"));
+        assertThrows(IllegalArgumentException.class, () -> Transform.compile("\"open"));
+    }
+
+    @Test
+    void decodesOnlyTheFieldsItReads() {
+        Transform transform = Transform.compile(
+                ".data | select(.title != null) | {hp: [.army.units[] | .hp], owner: .army.ownerId}");
+
+        assertEquals("{army{ownerId,units[]{hp}},title}", transform.fields("data").toString());
+        assertEquals("{}", transform.fields("other").toString());
+    }
+
+    @Test
+    void decodesWholeValuesItOutputs() {
+        assertTrue(Transform.compile(".").fields("data").isAll());
+        assertTrue(Transform.compile("{id, data}").fields("data").isAll());
+        assertTrue(Transform.compile(".data | keys").fields("data").isAll());
+        assertEquals("{army{units}}", Transform.compile(".data.army.units[0]").fields("data").toString());
+        assertEquals("{army{units[]{}}}", Transform.compile(".data.army.units | length").fields("data").toString());
+        // A table's values are all of its fields
+        assertTrue(Transform.compile(".data[] | .hp").fields("data").isAll());
+    }
+
+    @Test
+    void selectionOfAnIteratedTableIsResolvedByTheDecoder() {
+        FieldSelection selection = Transform.compile(".data.army[] | .ownerId?").fields("data");
+
+        assertTrue(selection.fields().get("army").iterated());
+    }
+}